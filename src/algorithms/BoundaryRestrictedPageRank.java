@@ -1,11 +1,11 @@
 package algorithms;
 
+import graph.CsrGraph;
+import graph.IntGraph;
 import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.util.Arrays;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
-import utility.Graphs;
 import utility.NodeScores;
 
 public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
@@ -73,8 +73,7 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
      * Create object and run the algorithm, results of the personalized pagerank
      * are stored in the object.
      *
-     * @param g the input graph
-     * computation.
+     * @param g the input graph, converted to a CsrGraph before running
      * @param smallTop How many max entries for each vertex to keep in the final results.
      * @param iterations the number of iterations to perform
      * @param dampingFactor the damping factor
@@ -89,9 +88,32 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
     public BoundaryRestrictedPageRank(final DirectedGraph<Integer, DefaultEdge> g,
             final int smallTop, final int iterations, final double dampingFactor, final double tolerance,
             final double frontierThreshold)
+    {
+        this(CsrGraph.fromGraph(g), smallTop, iterations, dampingFactor, tolerance, frontierThreshold);
+        directed = g;
+    }
+    
+    /**
+     * Create object and run the algorithm, results of the personalized pagerank
+     * are stored in the object.
+     *
+     * @param g the input graph
+     * @param smallTop How many max entries for each vertex to keep in the final results.
+     * @param iterations the number of iterations to perform
+     * @param dampingFactor the damping factor
+     * @param tolerance Stop if the difference of scores between iterations is
+     * lower than tolerance. Negative values are allowed to specify that
+     * tolerance must be ignored.
+     * @param frontierThreshold A frontier which total pagerank is greater than
+     * this value will be "unpacked", adding from the frontier to the active
+     * set L the highest value (pagerank) node until the frontier is below this
+     * value.
+     */
+    public BoundaryRestrictedPageRank(final IntGraph g,
+            final int smallTop, final int iterations, final double dampingFactor, final double tolerance,
+            final double frontierThreshold)
     {
         this.g = g;
-        scores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
         
         if(smallTop <= 0)
             throw new IllegalArgumentException("SmallTop k entries to keep must be positive");
@@ -102,8 +124,8 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
         if(dampingFactor < 0 || dampingFactor > 1)
             throw new IllegalArgumentException("Damping factor must be [0,1]");
         
-        parameters = new BoundaryRestrictedParameters(g.vertexSet().size(),
-                g.edgeSet().size(), smallTop, frontierThreshold, iterations, dampingFactor, 
+        parameters = new BoundaryRestrictedParameters(g.vertices(),
+                g.edges(), smallTop, frontierThreshold, iterations, dampingFactor, 
         tolerance);
         
         run();
@@ -124,16 +146,23 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
     
     private void run()
     {
-        for(int node: g.vertexSet())
+        NodeScores[] scores = new NodeScores[g.vertices()];
+        NodeScores.Scratch scratch = new NodeScores.Scratch();
+        
+        //buffers for the successors of the active nodes and the weights of their edges
+        int[] successors = new int[g.maxOutDegree()];
+        double[] weights = new double[g.maxOutDegree()];
+        
+        for(int node = 0; node < g.vertices(); node++)
         {
             /*
             init phase, initialize stuff and set the starting node score
             to 1
             */
             //set of active nodes, each active node is mapped to the product of
-            //dampingfactor / outgoing edges
+            //dampingfactor / outgoing edges (total out weight on weighted graphs)
             NodeScores active = new NodeScores();
-            active.put(node, parameters.getDamping() / g.outDegreeOf(node));
+            active.put(node, parameters.getDamping() / g.outWeight(node));
 
             NodeScores nodeScores = new NodeScores();
             nodeScores.put(node, 1d);
@@ -143,22 +172,20 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
             //frontier, the nodes that are reached but not part of the active set
             NodeScores frontier = new NodeScores();
 
-            //successors for each node, to avoid calling Graphs.successorListOf which is slow
-            Int2ObjectOpenHashMap<int[]> successors = Graphs.getSuccessors(g);
-
             double diff = Double.MAX_VALUE;
             int iterations = parameters.getIterations();
             while(iterations > 0 && diff > parameters.getTolerance())
             {
                 //do a pagerank iteration in which the frontier and its total value
                 //are calculated
-                double totalFrontier = pageRankIteration(active, frontier, nodeScores, nextNodeScores, successors);
+                double totalFrontier = pageRankIteration(active, frontier, nodeScores, nextNodeScores, 
+                        successors, weights);
 
                 //add score back to "node" so that the sum of the scores is 1
                 nextNodeScores.addTo(node, missingScore(nextNodeScores));
 
                 //unpack the frontier
-                unpackFrontier(totalFrontier, active, frontier, successors);
+                unpackFrontier(totalFrontier, active, frontier);
 
                 //check difference
                 diff = nodeScores.norm1(nextNodeScores);
@@ -170,9 +197,10 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
 
                 iterations --;
             }
-            nodeScores.keepTop(parameters.smallTop);
-            scores.put(node, nodeScores);
+            nodeScores.keepTop(parameters.smallTop, scratch);
+            scores[node] = nodeScores;
         }
+        setScores(scores);
     }
     
     /**
@@ -205,13 +233,14 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
      * @param scores Current pagerank scores.
      * @param nextScores Will contain the new pagerank scores after the method
      * has ended.
-     * @param successors Map of successors for each node.
+     * @param successors Buffer for the successors of the active nodes.
+     * @param weights Buffer for the weights of the edges to the successors.
      * @return The sum of the pagerank value of the nodes that are part of the
      * frontier.
      */
     private double pageRankIteration(NodeScores active,
             NodeScores frontier, NodeScores scores,
-            NodeScores nextScores, Int2ObjectOpenHashMap<int[]> successors)
+            NodeScores nextScores, int[] successors, double[] weights)
     {
         nextScores.clear();
         frontier.clear();
@@ -220,14 +249,18 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
         for(Int2DoubleMap.Entry entry: active.int2DoubleEntrySet())
             {
                 double value = scores.get(entry.getIntKey()) * entry.getDoubleValue();
-                for(int successor: successors.get(entry.getIntKey()))
+                int outDegree = g.successors(entry.getIntKey(), successors);
+                g.successorWeights(entry.getIntKey(), weights);
+                for(int s = 0; s < outDegree; s++)
                 {
-                    nextScores.addTo(successor, value);
+                    int successor = successors[s];
+                    double edgeValue = value * weights[s];
+                    nextScores.addTo(successor, edgeValue);
                     //if its not part of the active set its part of the frontier
                     if(active.get(successor) == 0)
                     {
-                        frontier.addTo(successor, value);
-                        totalFrontier += value;
+                        frontier.addTo(successor, edgeValue);
+                        totalFrontier += edgeValue;
                     }
                 }
             }
@@ -242,12 +275,10 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
      * @param active Set of active nodes, if the value of the frontier is above
      * parameters.getFrontierThreshold() the top nodes from the frontier will be
      * added to this map.
-     * @param Map of successors for each node, this method will a node (key)
-     * and its successors (value) when the node is newly added to the active set.
      * @param frontier Map mapping every frontier node to its current pagerank value. 
      */
     private void unpackFrontier(double totalFrontier, NodeScores active, 
-            NodeScores frontier, Int2ObjectOpenHashMap<int[]> successors)
+            NodeScores frontier)
     {
        if(totalFrontier > parameters.getFrontierThreshold())
             {
@@ -267,7 +298,7 @@ public class BoundaryRestrictedPageRank extends PersonalizedPageRankAlgorithm
                 {
                     //map the node to damping factor / outdegree
                     active.put(entries[index].getIntKey(),
-                            parameters.getDamping() / g.outDegreeOf(entries[index].getIntKey()));
+                            parameters.getDamping() / g.outWeight(entries[index].getIntKey()));
                     totalFrontier -= entries[index].getDoubleValue();
                     index++;
                 }
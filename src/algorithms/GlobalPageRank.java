@@ -0,0 +1,91 @@
+package algorithms;
+
+import graph.IntGraph;
+import java.util.Arrays;
+
+/**
+ * PageRank (not personalized) on the dense indexes of an IntGraph, it computes
+ * the same scores of algorithms.PageRank: teleport is uniform, nodes without
+ * outgoing edges send all their score to the teleport.
+ */
+public class GlobalPageRank 
+{
+    private GlobalPageRank(){}
+    
+    /**
+     * Execute an instance of pagerank.
+     * 
+     * @param g the input graph
+     * @param dampingFactor the damping factor
+     * @param maxIterations the maximum number of iterations to perform
+     * @param tolerance the calculation will stop if the difference of PageRank values between
+     *        iterations change less than this value
+     * @return Array mapping each dense vertex index to its pagerank score.
+     */
+    public static double[] getScores(final IntGraph g, double dampingFactor, int maxIterations, double tolerance)
+    {
+        if (maxIterations <= 0) 
+        {
+            throw new IllegalArgumentException("Maximum iterations must be positive");
+        }
+
+        if (dampingFactor < 0.0 || dampingFactor > 1.0) 
+        {
+            throw new IllegalArgumentException("Damping factor not valid");
+        }
+
+        if (tolerance <= 0.0) 
+        {
+            throw new IllegalArgumentException("Tolerance not valid, must be positive");
+        }
+        
+        return run(g, dampingFactor, maxIterations, tolerance);
+    }
+    
+    private static double[] run(IntGraph g, double dampingFactor, int maxIterations, double tolerance)
+    {
+        //buffers for the predecessors of the current node and the weights of their edges
+        int[] predecessors = new int[g.maxInDegree()];
+        double[] weights = new double[g.maxInDegree()];
+        
+        //init every vertex with equal score
+        double[] scores = new double[g.vertices()];
+        Arrays.fill(scores, 1d / g.vertices());
+        double[] nextScores = new double[g.vertices()];
+        
+        double maxChange = tolerance;
+        while (maxIterations > 0 && maxChange >= tolerance) 
+        {
+            //compute score from teleport, nodes without outgoing edges send
+            //all of their score to teleport
+            double r = 0d;
+            for (int v = 0; v < g.vertices(); v++) 
+                r += g.outDegree(v) > 0? (1d - dampingFactor) * scores[v] : scores[v];
+            //score from teleport will be distributed equally to all vertices
+            r /= g.vertices();
+
+            maxChange = 0d;
+            for (int v = 0; v < g.vertices(); v++) 
+            {
+                //for every incoming edge accumulate pagerank from the parent
+                double contribution = 0d;
+                int inDegree = g.predecessors(v, predecessors);
+                g.predecessorWeights(v, weights);
+                for (int p = 0; p < inDegree; p++) 
+                    contribution += dampingFactor * scores[predecessors[p]] * weights[p] / g.outWeight(predecessors[p]);
+                
+                //new score := contribution from incoming links + contribution from teleport
+                nextScores[v] = contribution + r;
+                maxChange = Math.max(maxChange, Math.abs(nextScores[v] - scores[v]));
+            }
+
+            //swap scores
+            double[] tmp = scores;
+            scores = nextScores;
+            nextScores = tmp;
+
+            maxIterations--;
+        }
+        return scores;
+    }
+}
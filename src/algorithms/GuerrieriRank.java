@@ -1,10 +1,14 @@
 package algorithms;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.StronglyConnectedComponents;
+import java.util.Arrays;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
-import utility.Graphs;
-import utility.NodeScores;
+import utility.ParallelSweep;
+import utility.ScoreSlabs;
+import utility.SparseAccumulator;
 
  /**
 + * Runs an instance of GuerrieriRank, which runs an approximation of pagerank
@@ -13,7 +17,19 @@ import utility.NodeScores;
 + * from a child node to an ancestor. For each node only the top L scores of 
 + * personalized pagerank (as if that node was the origin and only node of the
 + * teleport set) are kept, while the rest is pruned.
-+ * The complexity is O(I *|Edges| * L).
++ * Strongly connected components are computed one at a time, successors first,
++ * so only vertices on cycles need more than one iteration.
++ * Scores live in a utility.ScoreSlabs, L slots for each node.
++ * Optionally the nodes with more than hubDegree successors only read a weighted
++ * sample of hubDegree of them (see GuerrieriUpdate), as a few hubs take most
++ * of the time on power law graphs. See benchmarking.HubSamplingBenchmark for
++ * the speedup and the accuracy lost.
++ * Each node tracks a bound on how far its scores are from its exact personalized
++ * pagerank (see getErrorBound), in certified mode a node stops being updated
++ * as soon as the bound proves its top smallTop can't change.
++ * Nodes only read the previous scores of their successors, so each sweep can
++ * be split among "parallelism" threads (see utility.ParallelSweep).
++ * The complexity is O(I *|Edges| * L), with I = 1 for acyclic graphs.
   */
 public class GuerrieriRank extends PersonalizedPageRankAlgorithm
 {
@@ -36,20 +52,44 @@ public class GuerrieriRank extends PersonalizedPageRankAlgorithm
     //than this the algorithm will stop.
     public static final double DEFAULT_TOLERANCE = 0.0001;
     
+    //Default number of threads
+    public static final int DEFAULT_PARALLELISM = 1;
+    
+    //Default out degree above which nodes sample their successors, 0 for never
+    public static final int DEFAULT_HUB_DEGREE = 0;
+    
     private final GuerrieriParameters parameters;
+    
+    //strongly connected components, processed successors first
+    private final StronglyConnectedComponents components;
+    
+    //bound on the norm1 error of the scores of each dense vertex index
+    private double[] bounds;
+    
+    //dense vertex indexes whose top smallTop has been certified, in certified mode
+    private boolean[] certified;
 
     //Private class to store running parameters
     public static class GuerrieriParameters extends Parameters
     {
         private final int smallTop;
         private final int largetTop;
+        private final int parallelism;
+        private final boolean floatScores;
+        private final int hubDegree;
+        private final boolean certify;
         
         private GuerrieriParameters(final int vertices, final int edges, final int smallTop, 
-                final int largeTop, final int iterations, final double damping, final double tolerance)
+                final int largeTop, final int iterations, final double damping, final double tolerance,
+                final int parallelism, final boolean floatScores, final int hubDegree, final boolean certify)
         {
             super(vertices, edges, iterations, damping, tolerance);
             this.smallTop = smallTop;
             this.largetTop = largeTop;
+            this.parallelism = parallelism;
+            this.floatScores = floatScores;
+            this.hubDegree = hubDegree;
+            this.certify = certify;
         }
 
         private GuerrieriParameters(GuerrieriParameters input)
@@ -58,6 +98,10 @@ public class GuerrieriRank extends PersonalizedPageRankAlgorithm
                     input.getDamping(), input.getTolerance());
             this.smallTop = input.smallTop;
             this.largetTop = input.largetTop;
+            this.parallelism = input.parallelism;
+            this.floatScores = input.floatScores;
+            this.hubDegree = input.hubDegree;
+            this.certify = input.certify;
         }
                 
         public int getSmallTop() {
@@ -67,6 +111,155 @@ public class GuerrieriRank extends PersonalizedPageRankAlgorithm
         public int getLargeTop() {
             return largetTop;
         }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public boolean isFloatScores() {
+            return floatScores;
+        }
+
+        public int getHubDegree() {
+            return hubDegree;
+        }
+
+        public boolean isCertify() {
+            return certify;
+        }
+    }
+    
+    /**
+     * Options of a run, the ones not set keep their default:
+     * new GuerrieriRank.Builder().parallelism(4).hubDegree(64).run(g)
+     */
+    public static class Builder
+    {
+        private int smallTop = DEFAULT_SMALL_TOP;
+        private int largeTop = DEFAULT_LARGE_TOP;
+        private int iterations = DEFAULT_ITERATIONS;
+        private double damping = DEFAULT_DAMPING_FACTOR;
+        private double tolerance = DEFAULT_TOLERANCE;
+        private StronglyConnectedComponents components;
+        private int parallelism = DEFAULT_PARALLELISM;
+        private boolean floatScores;
+        private int hubDegree = DEFAULT_HUB_DEGREE;
+        private boolean certify;
+        
+        /**
+         * @param smallTop How many max entries for each vertex to keep in the final results.
+         * @return This builder.
+         */
+        public Builder smallTop(final int smallTop)
+        {
+            this.smallTop = smallTop;
+            return this;
+        }
+        
+        /**
+         * @param largeTop How many max entries to keep for each vertex during computation.
+         * @return This builder.
+         */
+        public Builder largeTop(final int largeTop)
+        {
+            this.largeTop = largeTop;
+            return this;
+        }
+        
+        /**
+         * @param iterations the number of iterations to perform
+         * @return This builder.
+         */
+        public Builder iterations(final int iterations)
+        {
+            this.iterations = iterations;
+            return this;
+        }
+        
+        /**
+         * @param damping the damping factor
+         * @return This builder.
+         */
+        public Builder damping(final double damping)
+        {
+            this.damping = damping;
+            return this;
+        }
+        
+        /**
+         * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+         * Negative values are allowed to specify that tolerance must be ignored.
+         * @return This builder.
+         */
+        public Builder tolerance(final double tolerance)
+        {
+            this.tolerance = tolerance;
+            return this;
+        }
+        
+        /**
+         * @param components Strongly connected components of g computed beforehand, for
+         * example read from io.ArtifactCache, null (the default) to compute them.
+         * @return This builder.
+         */
+        public Builder components(final StronglyConnectedComponents components)
+        {
+            this.components = components;
+            return this;
+        }
+        
+        /**
+         * @param parallelism Number of threads, results don't depend on it.
+         * @return This builder.
+         */
+        public Builder parallelism(final int parallelism)
+        {
+            this.parallelism = parallelism;
+            return this;
+        }
+        
+        /**
+         * @param floatScores True to store the scores being computed as floats,
+         * halving the memory of their values, false for doubles.
+         * @return This builder.
+         */
+        public Builder floatScores(final boolean floatScores)
+        {
+            this.floatScores = floatScores;
+            return this;
+        }
+        
+        /**
+         * @param hubDegree Nodes with more successors than this read a sample of
+         * hubDegree of them, 0 to always read all of them.
+         * @return This builder.
+         */
+        public Builder hubDegree(final int hubDegree)
+        {
+            this.hubDegree = hubDegree;
+            return this;
+        }
+        
+        /**
+         * @param certify True to stop updating a node once its top smallTop nodes 
+         * are certified to be the exact ones, can't be used with hub sampling.
+         * @return This builder.
+         */
+        public Builder certify(final boolean certify)
+        {
+            this.certify = certify;
+            return this;
+        }
+        
+        /**
+         * Runs the algorithm with these options.
+         * @param g the input graph
+         * @return The algorithm, with its results.
+         */
+        public GuerrieriRank run(final IntGraph g)
+        {
+            return new GuerrieriRank(g, this);
+        }
     }
     
     //CONSTRUCTOR
@@ -75,7 +268,7 @@ public class GuerrieriRank extends PersonalizedPageRankAlgorithm
     /**
      * Create object and run the algorithm, results of the personalized pagerank
      * are stored in the object.
-     * @param g the input graph
+     * @param g the input graph, converted to a CsrGraph before running
      * @param smallTop How many max entries for each vertex to keep in the final results.
      * @param largeTop How many max entries to keep for each vertex during computation.
      * @param iterations the number of iterations to perform
@@ -85,27 +278,68 @@ public class GuerrieriRank extends PersonalizedPageRankAlgorithm
      */
     public GuerrieriRank(final DirectedGraph<Integer, DefaultEdge> g, final int smallTop, 
             final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
+    {
+        this(CsrGraph.fromGraph(g), smallTop, largeTop, iterations, dampingFactor, tolerance);
+        directed = g;
+    }
+    
+    /**
+     * Create object and run the algorithm, results of the personalized pagerank
+     * are stored in the object.
+     * @param g the input graph
+     * @param smallTop How many max entries for each vertex to keep in the final results.
+     * @param largeTop How many max entries to keep for each vertex during computation.
+     * @param iterations the number of iterations to perform
+     * @param dampingFactor the damping factor
+     * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+     * Negative values are allowed to specify that tolerance must be ignored.
+     */
+    public GuerrieriRank(final IntGraph g, final int smallTop, 
+            final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
+    {
+        this(g, new Builder().smallTop(smallTop).largeTop(largeTop).iterations(iterations)
+                .damping(dampingFactor).tolerance(tolerance));
+    }
+    
+    /**
+     * Create object and run the algorithm with the options of a builder, see
+     * Builder.run.
+     */
+    private GuerrieriRank(final IntGraph g, final Builder options)
     {
         this.g = g;
-        this.scores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
         
-        if(smallTop <= 0)
+        if(options.smallTop <= 0)
             throw new IllegalArgumentException("SmallTop k entries to keep must be positive");
         
-        if(largeTop <= 0) 
+        if(options.largeTop <= 0) 
             throw new IllegalArgumentException("LargeTop k entries to keep must be positive");
         
-        if(smallTop > largeTop)
+        if(options.smallTop > options.largeTop)
             throw new IllegalArgumentException("SmallTop can't be greater than largeTop");
         
-        if(iterations <= 0) 
+        if(options.iterations <= 0) 
             throw new IllegalArgumentException("Maximum iterations must be positive");
         
-        if(dampingFactor < 0 || dampingFactor > 1)
+        if(options.damping < 0 || options.damping > 1)
             throw new IllegalArgumentException("Damping factor must be [0,1]");
         
-        parameters = new GuerrieriParameters(g.vertexSet().size(), g.edgeSet().size(), 
-                smallTop, largeTop, iterations, dampingFactor, tolerance);
+        if(options.parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        
+        if(options.components != null && options.components.getOrder().length != g.vertices())
+            throw new IllegalArgumentException("Components of a different graph");
+        
+        if(options.hubDegree < 0)
+            throw new IllegalArgumentException("Hub degree can't be negative");
+        
+        if(options.certify && options.hubDegree > 0)
+            throw new IllegalArgumentException("Sampled scores have no error bound to certify them");
+        
+        this.components = options.components != null? options.components : new StronglyConnectedComponents(g);
+        parameters = new GuerrieriParameters(g.vertices(), g.edges(), 
+                options.smallTop, options.largeTop, options.iterations, options.damping, options.tolerance, 
+                options.parallelism, options.floatScores, options.hubDegree, options.certify);
         
         run();
     }
@@ -120,73 +354,197 @@ public class GuerrieriRank extends PersonalizedPageRankAlgorithm
         return parameters;
     }
     
+    /**
+     * Bound on the norm1 distance between the scores computed for a node and
+     * its exact personalized pagerank, see GuerrieriRankV2.getErrorBound.
+     * Sampled scores can be off either way, so with hub sampling there's no
+     * bound and every node gets an infinite one.
+     * @param origin Original id of a node.
+     * @return The bound on the error of the scores of the node.
+     */
+    public double getErrorBound(final int origin)
+    {
+        int v = g.index(origin);
+        if(v < 0)
+            throw new IllegalArgumentException("Origin not in the graph");
+        return bounds[v];
+    }
+    
+    /**
+     * @return Bound on the error of each dense vertex index, see getErrorBound.
+     */
+    public double[] getErrorBounds()
+    {
+        return bounds;
+    }
+    
+    /**
+     * @param origin Original id of a node.
+     * @return True if the top smallTop of the node was certified and the node
+     * stopped being updated, always false unless certified mode.
+     */
+    public boolean isCertified(final int origin)
+    {
+        int v = g.index(origin);
+        if(v < 0)
+            throw new IllegalArgumentException("Origin not in the graph");
+        return certified[v];
+    }
+    
     //methods (no getters)
     ////////////////////
     
     /**
      * Executes the algorithm, this.scores will store the results.
+     * Strongly connected components are processed in reverse topological 
+     * order, so the successors of a component outside of it are final when
+     * the component starts: a trivial component gets its scores in one step,
+     * iterations (and the tolerance check) only happen inside the others.
      */
     private void run()
     {
-        double maxDiff = parameters.getTolerance();
+        //init scores, every node starts with a score of 1 for itself
+        ScoreSlabs scores = new ScoreSlabs(g.vertices(), parameters.largetTop, parameters.floatScores);
+        SparseAccumulator initial = new SparseAccumulator(g.vertices());
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            initial.clear();
+            initial.addTo(v, 1d);
+            scores.set(v, initial);
+        }
         
-        //init scores
-        Int2ObjectOpenHashMap<NodeScores> nextScores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
-        for(int v: g.vertexSet())
+        int[] order = components.getOrder();
+        int[] offsets = components.getOffsets();
+        
+        /*
+        level of each component, 0 if it has no edges to other components, else
+        1 + the highest level of the components it has edges to: components of
+        the same level don't depend on each other, so the trivial ones of a 
+        level are all updated in the same parallel sweep
+        */
+        int[] levels = new int[components.getCount()];
+        int maxLevel = 0;
+        int[] successors = new int[g.maxOutDegree()];
+        for(int c = 0; c < components.getCount(); c++)
         {
-            NodeScores scoresMap = new NodeScores(parameters.largetTop);
-            scoresMap.put(v, 1d);
-            scores.put(v, scoresMap);
-
-            nextScores.put(v, new NodeScores());
+            for(int k = offsets[c]; k < offsets[c + 1]; k++)
+            {
+                int outDegree = g.successors(order[k], successors);
+                for(int s = 0; s < outDegree; s++)
+                {
+                    int other = components.getComponent(successors[s]);
+                    if(other != c)
+                        levels[c] = Math.max(levels[c], levels[other] + 1);
+                }
+            }
+            maxLevel = Math.max(maxLevel, levels[c]);
+        }
+        
+        //vertices of trivial components and non trivial components, grouped by level
+        int[] trivialOffsets = new int[maxLevel + 2];
+        int[] cyclicOffsets = new int[maxLevel + 2];
+        for(int c = 0; c < components.getCount(); c++)
+        {
+            if(components.isTrivial(c))
+                trivialOffsets[levels[c] + 1]++;
+            else
+                cyclicOffsets[levels[c] + 1]++;
+        }
+        for(int l = 0; l <= maxLevel; l++)
+        {
+            trivialOffsets[l + 1] += trivialOffsets[l];
+            cyclicOffsets[l + 1] += cyclicOffsets[l];
+        }
+        int[] trivial = new int[trivialOffsets[maxLevel + 1]];
+        int[] cyclic = new int[cyclicOffsets[maxLevel + 1]];
+        int[] trivialIndex = trivialOffsets.clone();
+        int[] cyclicIndex = cyclicOffsets.clone();
+        for(int c = 0; c < components.getCount(); c++)
+        {
+            if(components.isTrivial(c))
+                trivial[trivialIndex[levels[c]]++] = order[offsets[c]];
+            else
+                cyclic[cyclicIndex[levels[c]]++] = c;
         }
         
-        //successors for each node, to avoid calling Graphs.successorListOf which is slow
-        Int2ObjectOpenHashMap<int[]> successors = Graphs.getSuccessors(g);
+        //bounds of the current and next scores, the initial scores are at most 
+        //1 - (1 - damping) off on the node itself and damping on the others,
+        //sampled scores have no bound
+        bounds = new double[g.vertices()];
+        double[] nextBounds = new double[g.vertices()];
+        Arrays.fill(bounds, parameters.hubDegree > 0? Double.POSITIVE_INFINITY : 2 * parameters.getDamping());
         
-        for(int i = 0; i < parameters.getIterations() && maxDiff >= parameters.getTolerance(); i++)
+        //nodes not updated any more, and the ones certified in the current sweep
+        certified = new boolean[g.vertices()];
+        boolean[] certifiedNow = new boolean[g.vertices()];
+        
+        try(ParallelSweep<GuerrieriUpdate> sweep = new ParallelSweep<>(parameters.parallelism, 
+                () -> new GuerrieriUpdate(g, parameters.getDamping(), parameters.hubDegree)))
         {
-            //reset the highest difference to 0 at the start of the run
-            maxDiff = 0;
-            for(int v: g.vertexSet())
+            ParallelSweep.Update<GuerrieriUpdate> update = (v, node) -> 
+            {
+                if(certified[v])
+                    return 0;
+                double diff = node.update(scores, v, parameters.largetTop);
+                if(parameters.hubDegree == 0)
+                    nextBounds[v] = node.errorBound(bounds) + scores.getRoundingError();
+                else
+                    nextBounds[v] = Double.POSITIVE_INFINITY;
+                //no score out of the top smallTop can get in it, whatever the error
+                certifiedNow[v] = parameters.certify && node.gap(parameters.smallTop) > 2 * nextBounds[v];
+                return diff;
+            };
+            for(int l = 0; l <= maxLevel; l++)
             {
-                //to avoid calculating it for each successor
-                double factor = parameters.getDamping() / g.outDegreeOf(v);
-                                
-                //every node starts with a rank of (1 - dampingFactor) in it's own map
-                NodeScores currentMap = nextScores.get(v);
-                currentMap.clear();
-                currentMap.put(v, 1 - parameters.getDamping());
+                //a single pass is exact for trivial components
+                sweep.run(g, trivial, trivialOffsets[l], trivialOffsets[l + 1], update);
+                swap(scores, trivial, trivialOffsets[l], trivialOffsets[l + 1], nextBounds, certifiedNow);
                 
-                //for each successor of v
-                for(int successor: successors.get(v))
+                for(int k = cyclicOffsets[l]; k < cyclicOffsets[l + 1]; k++)
                 {
-                    /**
-                     * for each value of personalized pagerank (max L values) saved 
-                     * in the map  of a successor increment the personalized pagerank of v
-                     * for that key of a fraction of it.
-                     */
-                    currentMap.add(scores.get(successor), factor);
+                    int c = cyclic[k];
+                    double maxDiff = parameters.getTolerance();
+                    int uncertified = offsets[c + 1] - offsets[c];
+                    for(int i = 0; i < parameters.getIterations() && maxDiff >= parameters.getTolerance() 
+                            && uncertified > 0; i++)
+                    {
+                        //highest norm1 of the difference between old and new scores
+                        maxDiff = sweep.run(g, order, offsets[c], offsets[c + 1], update);
+
+                        // swap scores of the component, the ones of certified nodes are kept
+                        uncertified -= swap(scores, order, offsets[c], offsets[c + 1], nextBounds, certifiedNow);
+                    }
                 }
-                //keep the top L values only
-                currentMap.keepTop(parameters.largetTop);
-                
-                //check if the norm1 of the difference is greater than the maxDiff
-                maxDiff = Math.max(currentMap.norm1(scores.get(v)), maxDiff);
             }
-            
-            // swap scores
-            Int2ObjectOpenHashMap<NodeScores> tmp = scores;
-            scores = nextScores;
-            nextScores = tmp;
         }
         
-        //trim to avoid wasting space
-        for(int v: scores.keySet())
+        setScores(scores.toNodeScores(parameters.smallTop));
+    }
+    
+    /**
+     * Moves the nodes just updated to their next scores and bounds, the 
+     * certified ones aren't updated and keep theirs.
+     * @return Number of nodes certified in the update.
+     */
+    private int swap(final ScoreSlabs scores, final int[] vertices, final int from, final int to, 
+            final double[] nextBounds, final boolean[] certifiedNow)
+    {
+        int res = 0;
+        for(int k = from; k < to; k++)
         {
-            scores.get(v).keepTop(parameters.smallTop);
-            scores.get(v).trim();
+            int v = vertices[k];
+            if(!certified[v])
+            {
+                scores.swap(v);
+                bounds[v] = nextBounds[v];
+                if(certifiedNow[v])
+                {
+                    certified[v] = true;
+                    res++;
+                }
+            }
         }
+        return res;
     }
     
 }
@@ -1,12 +1,9 @@
 package algorithms;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import graph.CsrGraph;
+import graph.IntGraph;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
-import utility.Graphs;
 import utility.NodeScores;
 
  /**
@@ -78,7 +75,7 @@ public class GuerrieriRankLocal extends PersonalizedPageRankAlgorithm
     /**
      * Create object and run the algorithm, results of the personalized pagerank
      * are stored in the object.
-     * @param g the input graph
+     * @param g the input graph, converted to a CsrGraph before running
      * @param smallTop How many max entries for each vertex to keep in the final results.
      * @param largeTop How many max entries to keep for each vertex during computation.
      * @param iterations the number of iterations to perform
@@ -88,9 +85,26 @@ public class GuerrieriRankLocal extends PersonalizedPageRankAlgorithm
      */
     public GuerrieriRankLocal(final DirectedGraph<Integer, DefaultEdge> g, final int smallTop, 
             final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
+    {
+        this(CsrGraph.fromGraph(g), smallTop, largeTop, iterations, dampingFactor, tolerance);
+        directed = g;
+    }
+    
+    /**
+     * Create object and run the algorithm, results of the personalized pagerank
+     * are stored in the object.
+     * @param g the input graph
+     * @param smallTop How many max entries for each vertex to keep in the final results.
+     * @param largeTop How many max entries to keep for each vertex during computation.
+     * @param iterations the number of iterations to perform
+     * @param dampingFactor the damping factor
+     * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+     * Negative values are allowed to specify that tolerance must be ignored.
+     */
+    public GuerrieriRankLocal(final IntGraph g, final int smallTop, 
+            final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
     {
         this.g = g;
-        this.scores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
         
         if(smallTop <= 0)
             throw new IllegalArgumentException("SmallTop k entries to keep must be positive");
@@ -107,7 +121,7 @@ public class GuerrieriRankLocal extends PersonalizedPageRankAlgorithm
         if(dampingFactor < 0 || dampingFactor > 1)
             throw new IllegalArgumentException("Damping factor must be [0,1]");
         
-        parameters = new GuerrieriParameters(g.vertexSet().size(), g.edgeSet().size(), 
+        parameters = new GuerrieriParameters(g.vertices(), g.edges(), 
                 smallTop, largeTop, iterations, dampingFactor, tolerance);
         
         run();
@@ -132,70 +146,81 @@ public class GuerrieriRankLocal extends PersonalizedPageRankAlgorithm
     private void run()
     {
         //init scores
-        Int2ObjectOpenHashMap<NodeScores> nextScores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
-        for(int v: g.vertexSet())
+        NodeScores[] nextScores = new NodeScores[g.vertices()];
+        NodeScores[] scores = new NodeScores[g.vertices()];
+        for(int v = 0; v < g.vertices(); v++)
         {
             NodeScores scoresMap = new NodeScores(parameters.largetTop);
             scoresMap.put(v, 1d);
-            scores.put(v, scoresMap);
+            scores[v] = scoresMap;
 
-            nextScores.put(v, new NodeScores());
+            nextScores[v] = new NodeScores();
         }
         
-        //successors for each node, to avoid calling Graphs.successorListOf which is slow
-        Int2ObjectOpenHashMap<int[]> successors = Graphs.getSuccessors(g);
+        //buffers for the successors of the current node and the weights of their edges
+        int[] successors = new int[g.maxOutDegree()];
+        double[] weights = new double[g.maxOutDegree()];
         
-        //nodes yet to converge
-        Set<Integer> notConverged = new HashSet<>(g.vertexSet());
+        //arrays used to select the top of each map
+        NodeScores.Scratch scratch = new NodeScores.Scratch();
         
-        for(int i = 0; i < parameters.getIterations() && notConverged.size() > 0; i++)
+        //nodes yet to converge, only the first "remaining" entries are valid
+        int[] notConverged = new int[g.vertices()];
+        for(int v = 0; v < g.vertices(); v++)
+            notConverged[v] = v;
+        int remaining = g.vertices();
+        
+        for(int i = 0; i < parameters.getIterations() && remaining > 0; i++)
         {
-            //nodes to be removed because they have converged
-            ArrayList<Integer> toRemove = new ArrayList<>();
+            //nodes that have not converged yet are compacted at the start of the array
+            int stillRunning = 0;
             
-            for(int v: notConverged)
+            for(int index = 0; index < remaining; index++)
             {
+                int v = notConverged[index];
+                
                 //to avoid calculating it for each successor
-                double factor = parameters.getDamping() / g.outDegreeOf(v);
+                double factor = parameters.getDamping() / g.outWeight(v);
                                 
                 //every node starts with a rank of (1 - dampingFactor) in it's own map
-                NodeScores currentMap = nextScores.get(v);
+                NodeScores currentMap = nextScores[v];
                 currentMap.clear();
                 currentMap.put(v, 1 - parameters.getDamping());
                 
                 //for each successor of v
-                for(int successor: successors.get(v))
+                int outDegree = g.successors(v, successors);
+                g.successorWeights(v, weights);
+                for(int s = 0; s < outDegree; s++)
                 {
                     /**
                      * for each value of personalized pagerank (max L values) saved 
                      * in the map  of a successor increment the personalized pagerank of v
                      * for that key of a fraction of it.
                      */
-                    currentMap.add(scores.get(successor), factor);
+                    currentMap.add(scores[successors[s]], factor * weights[s]);
                 }
                 //keep the top L values only
-                currentMap.keepTop(parameters.largetTop);
+                currentMap.keepTop(parameters.largetTop, scratch);
                 
-                //check if the node has converged
-                if(currentMap.norm1(scores.get(v)) < parameters.getTolerance())
-                    toRemove.add(v);
+                //keep the node only if it has not converged
+                if(currentMap.norm1(scores[v]) >= parameters.getTolerance())
+                    notConverged[stillRunning++] = v;
             }
-            //remove converged nodes
-            for(Integer removeNode: toRemove)
-                notConverged.remove(removeNode);
+            remaining = stillRunning;
             
             // swap scores
-            Int2ObjectOpenHashMap<NodeScores> tmp = scores;
+            NodeScores[] tmp = scores;
             scores = nextScores;
             nextScores = tmp;
         }
         
         //trim to avoid wasting space
-        for(int v: scores.keySet())
+        for(NodeScores map: scores)
         {
-            scores.get(v).keepTop(parameters.smallTop);
-            scores.get(v).trim();
+            map.keepTop(parameters.smallTop, scratch);
+            map.trim();
         }
+        setScores(scores);
     }
     
 }
@@ -1,13 +1,14 @@
 package algorithms;
 
-import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
-import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import graph.CsrGraph;
+import graph.IntGraph;
+import java.util.Arrays;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
 import utility.Budgets;
-import utility.Graphs;
-import utility.NodeScores;
+import utility.ParallelSweep;
+import utility.ScoreSlabs;
+import utility.SparseAccumulator;
 
  /**
 + * Runs an instance of GuerrieriRank, which runs an approximation of pagerank
@@ -20,6 +21,17 @@ import utility.NodeScores;
 * * and largeTop parameters, each node will have at least a budget of "smallTop", 
 * * and on average each node will have a  budget of "largeTop", the budget is 
 * * distributed proportionally based on the number of out going edges a node has.
++ * In adaptive mode budgets move during the iterations, every few of them 
++ * budget goes from the nodes which don't fill it to the ones whose top L
++ * cuts the most score (see utility.Budgets.reallocate), the total stays the same.
++ * Each node tracks a bound on how far its scores are from its
++ * exact personalized pagerank (see getErrorBound), in certified mode a node
++ * stops being updated as soon as the bound proves its top smallTop can't change.
++ * In merge mode the scores of each node are kept sorted and merged with a
++ * threshold algorithm, so hubs only add up the highest scores of their
++ * successors, with the same results of the full sums (see GuerrieriUpdate).
++ * Nodes only read the previous scores of their successors, so each sweep can
++ * be split among "parallelism" threads (see utility.ParallelSweep).
 + * The complexity is O(I *|Edges| * L).
   */
 public class GuerrieriRankV2 extends PersonalizedPageRankAlgorithm
@@ -43,7 +55,22 @@ public class GuerrieriRankV2 extends PersonalizedPageRankAlgorithm
     //than this the algorithm will stop.
     public static final double DEFAULT_TOLERANCE = 0.0001;
     
+    //Default number of threads
+    public static final int DEFAULT_PARALLELISM = 1;
+    
+    //Iterations between two reallocations of the budgets in adaptive mode
+    public static final int REALLOCATION_PERIOD = 5;
+    
     private final GuerrieriParameters parameters;
+    
+    //budget of each dense vertex index at the end of the run
+    private int[] budgets;
+    
+    //bound on the norm1 error of the scores of each dense vertex index
+    private double[] bounds;
+    
+    //dense vertex indexes whose top smallTop has been certified, in certified mode
+    private boolean[] certified;
 
     
     //Private class to store running parameters
@@ -51,13 +78,25 @@ public class GuerrieriRankV2 extends PersonalizedPageRankAlgorithm
     {
         private final int smallTop;
         private final int largetTop;
+        private final int parallelism;
+        private final boolean floatScores;
+        private final boolean adaptive;
+        private final boolean certify;
+        private final boolean merge;
         
         private GuerrieriParameters(final int vertices, final int edges, final int smallTop, 
-                final int largeTop, final int iterations, final double damping, final double tolerance)
+                final int largeTop, final int iterations, final double damping, final double tolerance,
+                final int parallelism, final boolean floatScores,
+                final boolean adaptive, final boolean certify, final boolean merge)
         {
             super(vertices, edges, iterations, damping, tolerance);
             this.smallTop = smallTop;
             this.largetTop = largeTop;
+            this.parallelism = parallelism;
+            this.floatScores = floatScores;
+            this.adaptive = adaptive;
+            this.certify = certify;
+            this.merge = merge;
         }
 
         private GuerrieriParameters(GuerrieriParameters input)
@@ -66,6 +105,11 @@ public class GuerrieriRankV2 extends PersonalizedPageRankAlgorithm
                     input.getDamping(), input.getTolerance());
             this.smallTop = input.smallTop;
             this.largetTop = input.largetTop;
+            this.parallelism = input.parallelism;
+            this.floatScores = input.floatScores;
+            this.adaptive = input.adaptive;
+            this.certify = input.certify;
+            this.merge = input.merge;
         }
                 
         public int getSmallTop() {
@@ -75,6 +119,164 @@ public class GuerrieriRankV2 extends PersonalizedPageRankAlgorithm
         public int getLargeTop() {
             return largetTop;
         }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public boolean isFloatScores() {
+            return floatScores;
+        }
+
+        public boolean isAdaptive() {
+            return adaptive;
+        }
+
+        public boolean isCertify() {
+            return certify;
+        }
+
+        public boolean isMerge() {
+            return merge;
+        }
+    }
+    
+    /**
+     * Options of a run, the ones not set keep their default:
+     * new GuerrieriRankV2.Builder().largeTop(50).adaptive(true).run(g)
+     */
+    public static class Builder
+    {
+        private int smallTop = DEFAULT_SMALL_TOP;
+        private int largeTop = DEFAULT_LARGE_TOP;
+        private int iterations = DEFAULT_ITERATIONS;
+        private double damping = DEFAULT_DAMPING_FACTOR;
+        private double tolerance = DEFAULT_TOLERANCE;
+        private int parallelism = DEFAULT_PARALLELISM;
+        private boolean floatScores;
+        private boolean adaptive;
+        private boolean certify;
+        private boolean merge;
+        
+        /**
+         * @param smallTop How many max entries to keep in the final results, it will
+         * also be used as a minimum for how much space to allocate for each node.
+         * @return This builder.
+         */
+        public Builder smallTop(final int smallTop)
+        {
+            this.smallTop = smallTop;
+            return this;
+        }
+        
+        /**
+         * @param largeTop How many max entries on average to keep for each vertex during computation,
+         * this value will be used as an average for how much space to allocate for each
+         * node while calculating the budget for each node.
+         * @return This builder.
+         */
+        public Builder largeTop(final int largeTop)
+        {
+            this.largeTop = largeTop;
+            return this;
+        }
+        
+        /**
+         * @param iterations the number of iterations to perform
+         * @return This builder.
+         */
+        public Builder iterations(final int iterations)
+        {
+            this.iterations = iterations;
+            return this;
+        }
+        
+        /**
+         * @param damping the damping factor
+         * @return This builder.
+         */
+        public Builder damping(final double damping)
+        {
+            this.damping = damping;
+            return this;
+        }
+        
+        /**
+         * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+         * Negative values are allowed to specify that tolerance must be ignored.
+         * @return This builder.
+         */
+        public Builder tolerance(final double tolerance)
+        {
+            this.tolerance = tolerance;
+            return this;
+        }
+        
+        /**
+         * @param parallelism Number of threads, results don't depend on it.
+         * @return This builder.
+         */
+        public Builder parallelism(final int parallelism)
+        {
+            this.parallelism = parallelism;
+            return this;
+        }
+        
+        /**
+         * @param floatScores True to store the scores being computed as floats,
+         * halving the memory of their values, false for doubles.
+         * @return This builder.
+         */
+        public Builder floatScores(final boolean floatScores)
+        {
+            this.floatScores = floatScores;
+            return this;
+        }
+        
+        /**
+         * @param adaptive True to move budget among the nodes every REALLOCATION_PERIOD
+         * iterations, false to keep the degree based budgets.
+         * @return This builder.
+         */
+        public Builder adaptive(final boolean adaptive)
+        {
+            this.adaptive = adaptive;
+            return this;
+        }
+        
+        /**
+         * @param certify True to stop updating a node once its top smallTop nodes 
+         * are certified to be the exact ones.
+         * @return This builder.
+         */
+        public Builder certify(final boolean certify)
+        {
+            this.certify = certify;
+            return this;
+        }
+        
+        /**
+         * @param merge True to read the scores of the successors highest first, 
+         * only until the keys not read yet can't get in the top L, false 
+         * (the default) to read all of them. Merged scores are the full sums,
+         * see GuerrieriUpdate.
+         * @return This builder.
+         */
+        public Builder merge(final boolean merge)
+        {
+            this.merge = merge;
+            return this;
+        }
+        
+        /**
+         * Runs the algorithm with these options.
+         * @param g the input graph
+         * @return The algorithm, with its results.
+         */
+        public GuerrieriRankV2 run(final IntGraph g)
+        {
+            return new GuerrieriRankV2(g, this);
+        }
     }
     
     //CONSTRUCTOR
@@ -83,7 +285,7 @@ public class GuerrieriRankV2 extends PersonalizedPageRankAlgorithm
     /**
      * Create object and run the algorithm, results of the personalized pagerank
      * are stored in the object.
-     * @param g the input graph
+     * @param g the input graph, converted to a CsrGraph before running
      * @param smallTop How many max entries to keep in the final results, it will
      * also be used as a minimum for how much space to allocate for each node.
      * @param largeTop How many max entries on average to keep for each vertex during computation,
@@ -96,27 +298,61 @@ public class GuerrieriRankV2 extends PersonalizedPageRankAlgorithm
      */
     public GuerrieriRankV2(final DirectedGraph<Integer, DefaultEdge> g, final int smallTop, 
             final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
+    {
+        this(CsrGraph.fromGraph(g), smallTop, largeTop, iterations, dampingFactor, tolerance);
+        directed = g;
+    }
+    
+    /**
+     * Create object and run the algorithm, results of the personalized pagerank
+     * are stored in the object.
+     * @param g the input graph
+     * @param smallTop How many max entries to keep in the final results, it will
+     * also be used as a minimum for how much space to allocate for each node.
+     * @param largeTop How many max entries on average to keep for each vertex during computation,
+     * this value will be used as an average for how much space to allocate for each
+     * node while calculating the budget for each node.
+     * @param iterations the number of iterations to perform
+     * @param dampingFactor the damping factor
+     * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+     * Negative values are allowed to specify that tolerance must be ignored.
+     */
+    public GuerrieriRankV2(final IntGraph g, final int smallTop, 
+            final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
+    {
+        this(g, new Builder().smallTop(smallTop).largeTop(largeTop).iterations(iterations)
+                .damping(dampingFactor).tolerance(tolerance));
+    }
+    
+    /**
+     * Create object and run the algorithm with the options of a builder, see
+     * Builder.run.
+     */
+    private GuerrieriRankV2(final IntGraph g, final Builder options)
     {
         this.g = g;
-        this.scores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
         
-        if(smallTop <= 0)
+        if(options.smallTop <= 0)
             throw new IllegalArgumentException("SmallTop k entries to keep must be positive");
         
-        if(largeTop <= 0) 
+        if(options.largeTop <= 0) 
             throw new IllegalArgumentException("LargeTop k entries to keep must be positive");
         
-        if(smallTop > largeTop)
+        if(options.smallTop > options.largeTop)
             throw new IllegalArgumentException("SmallTop can't be greater than largeTop");
         
-        if(iterations <= 0) 
+        if(options.iterations <= 0) 
             throw new IllegalArgumentException("Maximum iterations must be positive");
         
-        if(dampingFactor < 0 || dampingFactor > 1)
+        if(options.damping < 0 || options.damping > 1)
             throw new IllegalArgumentException("Damping factor must be [0,1]");
         
-        parameters = new GuerrieriParameters(g.vertexSet().size(), g.edgeSet().size(), 
-                smallTop, largeTop, iterations, dampingFactor, tolerance);
+        if(options.parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        
+        parameters = new GuerrieriParameters(g.vertices(), g.edges(), 
+                options.smallTop, options.largeTop, options.iterations, options.damping, options.tolerance, 
+                options.parallelism, options.floatScores, options.adaptive, options.certify, options.merge);
         
         run();
     }
@@ -131,6 +367,54 @@ public class GuerrieriRankV2 extends PersonalizedPageRankAlgorithm
         return parameters;
     }
     
+    /**
+     * @return Budget of each dense vertex index (see getIntGraph()) at the end 
+     * of the run, the degree based ones unless adaptive.
+     */
+    public int[] getBudgets()
+    {
+        return budgets;
+    }
+    
+    /**
+     * Bound on the norm1 distance between the scores computed for a node and
+     * its exact personalized pagerank (the fixed point, no truncation and no
+     * iteration limit), so each single score is off by at most the bound, and
+     * the top smallTop is exact if the score after it is lower by more than
+     * twice the bound. It adds up the score each update removed, through the
+     * successors too, starting from 2 * damping for the initial scores.
+     * @param origin Original id of a node.
+     * @return The bound on the error of the scores of the node.
+     */
+    public double getErrorBound(final int origin)
+    {
+        int v = g.index(origin);
+        if(v < 0)
+            throw new IllegalArgumentException("Origin not in the graph");
+        return bounds[v];
+    }
+    
+    /**
+     * @return Bound on the error of each dense vertex index, see getErrorBound.
+     */
+    public double[] getErrorBounds()
+    {
+        return bounds;
+    }
+    
+    /**
+     * @param origin Original id of a node.
+     * @return True if the top smallTop of the node was certified and the node
+     * stopped being updated, always false unless certified mode.
+     */
+    public boolean isCertified(final int origin)
+    {
+        int v = g.index(origin);
+        if(v < 0)
+            throw new IllegalArgumentException("Origin not in the graph");
+        return certified[v];
+    }
+    
     //methods (no getters)
     ////////////////////
     
@@ -143,70 +427,107 @@ public class GuerrieriRankV2 extends PersonalizedPageRankAlgorithm
         
         //how much to allocate for each node, at least parameters.smallTop is allocated
         //on average parameters.largetTop is allocated
-        Int2IntOpenHashMap budgets = Budgets.degreeBasedBudget(g, g.vertexSet(),
-                parameters.smallTop, parameters.largetTop);
-        
-        //successors for each node, to avoid calling Graphs.successorListOf which is slow
-        Int2ObjectOpenHashMap<int[]> successors = Graphs.getSuccessors(g);
+        int[] budgets = Budgets.degreeBasedBudget(g, parameters.smallTop, parameters.largetTop);
         
-        //init scores
-        Int2ObjectOpenHashMap<NodeScores> nextScores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
-        for(int v: g.vertexSet())
+        //init scores, every node starts with a score of 1 for itself and has
+        //room for as many scores as its budget
+        ScoreSlabs scores = new ScoreSlabs(budgets, parameters.floatScores);
+        SparseAccumulator initial = new SparseAccumulator(g.vertices());
+        int[] vertices = new int[g.vertices()];
+        for(int v = 0; v < g.vertices(); v++)
         {
-            NodeScores scoresMap = new NodeScores(parameters.largetTop);
-            scoresMap.put(v, 1d);
-            scores.put(v, scoresMap);
-
-            nextScores.put(v, new NodeScores());
+            initial.clear();
+            initial.addTo(v, 1d);
+            scores.set(v, initial);
+            vertices[v] = v;
         }
         
-        for(int i = 0; i < parameters.getIterations() && maxDiff >= parameters.getTolerance(); i++)
+        //score each node lost keeping its top L in its last update, times the 
+        //nodes reading it (its predecessors and itself)
+        double[] truncated = new double[g.vertices()];
+        
+        //bounds of the current and next scores, the initial scores are at most 
+        //1 - (1 - damping) off on the node itself and damping on the others
+        double[] bounds = new double[g.vertices()];
+        double[] nextBounds = new double[g.vertices()];
+        Arrays.fill(bounds, 2 * parameters.getDamping());
+        
+        //nodes not updated any more, and the ones certified in the current iteration
+        boolean[] certified = new boolean[g.vertices()];
+        boolean[] certifiedNow = new boolean[g.vertices()];
+        int uncertified = g.vertices();
+        
+        try(ParallelSweep<GuerrieriUpdate> sweep = new ParallelSweep<>(parameters.parallelism, 
+                () -> new GuerrieriUpdate(g, parameters.getDamping(), parameters.merge)))
         {
-            //reset the highest difference to 0 at the start of the run
-            maxDiff = 0;
-            
-            for(int v: g.vertexSet())
+            for(int i = 0; i < parameters.getIterations() && maxDiff >= parameters.getTolerance() 
+                    && uncertified > 0; i++)
             {
-                //to avoid calculating it for each successor
-                double factor = parameters.getDamping() / g.outDegreeOf(v);
-                                
-                //every node starts with a rank of (1 - dampingFactor) in it's own map
-                NodeScores currentMap = nextScores.get(v);
-                currentMap.clear();
-                currentMap.put(v, 1 - parameters.getDamping());
-                
-                //for each successor of v
-                for(int successor: successors.get(v))
+                //keep the top L values only, where L is the allocated budget for the node,
+                //and get the highest norm1 of the difference between old and new scores
+                ScoreSlabs current = scores;
+                int[] currentBudgets = budgets;
+                double[] currentBounds = bounds;
+                double[] newBounds = nextBounds;
+                maxDiff = sweep.run(g, vertices, 0, vertices.length, (v, node) -> 
                 {
-                    /**
-                     * for each value of personalized pagerank (max L values) saved 
-                     * in the map  of a successor increment the personalized pagerank of v
-                     * for that key of a fraction of it.
-                     */
-                    for(Int2DoubleMap.Entry entry: scores.get(successor).int2DoubleEntrySet())
+                    if(certified[v])
                     {
-                        //increment value (or set it if key wasn't mapped)
-                        currentMap.addTo(entry.getIntKey(), factor * entry.getDoubleValue());
+                        //the scores don't change, nor their bound, and they need their budget
+                        newBounds[v] = currentBounds[v];
+                        truncated[v] = 0;
+                        return 0;
                     }
-                }
+                    double diff = node.update(current, v, currentBudgets[v]);
+                    truncated[v] = node.getTruncated() * (1 + g.inDegree(v));
+                    newBounds[v] = node.errorBound(currentBounds) + current.getRoundingError();
+                    //no score out of the top smallTop can get in it, whatever the error
+                    certifiedNow[v] = parameters.certify && node.gap(parameters.smallTop) > 2 * newBounds[v];
+                    return diff;
+                });
                 
-                //keep the top L values only, where L is the allocated budget for the node
-                currentMap.keepTop(budgets.get(v));
+                // swap scores, the ones of certified nodes are kept
+                for(int v = 0; v < g.vertices(); v++)
+                    if(!certified[v])
+                    {
+                        scores.swap(v);
+                        if(certifiedNow[v])
+                        {
+                            certified[v] = true;
+                            uncertified--;
+                        }
+                    }
+                bounds = newBounds;
+                nextBounds = currentBounds;
                 
-                //check if the norm1 of the difference is greater than the maxDiff
-                maxDiff = Math.max(currentMap.norm1(scores.get(v)), maxDiff);
+                //move budget to the nodes losing the most score, the scores move to new slabs
+                if(parameters.adaptive && (i + 1) % REALLOCATION_PERIOD == 0 
+                        && maxDiff >= parameters.getTolerance() && i + 1 < parameters.getIterations())
+                {
+                    int[] sizes = new int[g.vertices()];
+                    for(int v = 0; v < g.vertices(); v++)
+                        sizes[v] = scores.size(v);
+                    budgets = Budgets.reallocate(budgets, sizes, truncated, parameters.smallTop, g.vertices());
+                    ScoreSlabs resized = scores.resize(budgets, initial);
+                    //budgets don't go under the sizes, but scores cut by the resize would
+                    //be off by their sum, and a certified top would lose its proof
+                    for(int v = 0; v < g.vertices(); v++)
+                        if(resized.size(v) < scores.size(v))
+                        {
+                            bounds[v] += scores.sum(v) - resized.sum(v);
+                            if(certified[v])
+                            {
+                                certified[v] = false;
+                                uncertified++;
+                            }
+                        }
+                    scores = resized;
+                }
             }
-            
-            // swap scores
-            Int2ObjectOpenHashMap<NodeScores> tmp = scores;
-            scores = nextScores;
-            nextScores = tmp;
-        }
-        //trim to avoid wasting space
-        for(int v: scores.keySet())
-        {
-            scores.get(v).keepTop(parameters.smallTop);
-            scores.get(v).trim();
         }
+        this.budgets = budgets;
+        this.bounds = bounds;
+        this.certified = certified;
+        setScores(scores.toNodeScores(parameters.smallTop));
     }
 }
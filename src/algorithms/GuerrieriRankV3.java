@@ -1,14 +1,16 @@
 package algorithms;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import graph.Coloring;
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.MultilevelPartitioner;
+import graph.Partitioning;
+import java.util.Arrays;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
-import utility.Graphs;
-import utility.NodeScores;
+import utility.ParallelSweep;
+import utility.ScoreSlabs;
+import utility.SparseAccumulator;
 
  /**
 + * Runs an instance of GuerrieriRank, which runs an approximation of pagerank
@@ -21,6 +23,15 @@ import utility.NodeScores;
 * * and largeTop parameters, each node will have at least a budget of "smallTop", 
 * * and on average each node will have a  budget of "largeTop", the budget is 
 * * distributed proportionally based on the number of out going edges a node has.
++ * Each iteration updates one of two approximate color classes, reading the 
++ * scores the other class got in the previous iteration (Gauss-Seidel style).
++ * Optionally the classes are the ones of a proper coloring (graph.Coloring),
++ * so no node of a class reads the scores of another node of the same class,
++ * and each iteration updates all of them one after the other. Nodes of a
++ * class can be updated on "parallelism" threads in both cases.
++ * Each node tracks a bound on how far its scores are from its exact personalized
++ * pagerank (see getErrorBound), in certified mode a node stops being updated
++ * as soon as the bound proves its top smallTop can't change.
 + * The complexity is O(I *|Edges| * L).
   */
 public class GuerrieriRankV3 extends PersonalizedPageRankAlgorithm
@@ -44,7 +55,40 @@ public class GuerrieriRankV3 extends PersonalizedPageRankAlgorithm
     //than this the algorithm will stop.
     public static final double DEFAULT_TOLERANCE = 0.0001;
     
+    //Cache the scores of a part should fit in when the number of parts is not given
+    public static final long CACHE_BYTES = 1 << 21;
+    
+    //Default number of threads
+    public static final int DEFAULT_PARALLELISM = 1;
+    
+    //Size of a score slot in a ScoreSlabs, key + value in both generations
+    private static final long BYTES_PER_SCORE = ScoreSlabs.bytesPerScore(false);
+    
     private final GuerrieriParameters parameters;
+    
+    //parts the vertices are processed in, each sweep goes one part at a time
+    private final Partitioning partitioning;
+    
+    //milliseconds spent updating the vertices of each part, over all the iterations
+    private double[] partTimes;
+    
+    //classes the vertices were updated in, 2 without a proper coloring
+    private int colors;
+    
+    //iterations done before converging (or reaching the max)
+    private int iterationsRun;
+    
+    //single node updates done over all the iterations
+    private long updates;
+    
+    //milliseconds spent running the algorithm, results included
+    private double runTime;
+    
+    //bound on the norm1 error of the scores of each dense vertex index
+    private double[] bounds;
+    
+    //dense vertex indexes whose top smallTop has been certified, in certified mode
+    private boolean[] certified;
 
     
     //Private class to store running parameters
@@ -52,13 +96,25 @@ public class GuerrieriRankV3 extends PersonalizedPageRankAlgorithm
     {
         private final int smallTop;
         private final int largetTop;
+        private final int parts;
+        private final boolean coloring;
+        private final int parallelism;
+        private final boolean floatScores;
+        private final boolean certify;
         
         private GuerrieriParameters(final int vertices, final int edges, final int smallTop, 
-                final int largeTop, final int iterations, final double damping, final double tolerance)
+                final int largeTop, final int iterations, final double damping, final double tolerance,
+                final int parts, final boolean coloring, final int parallelism, final boolean floatScores,
+                final boolean certify)
         {
             super(vertices, edges, iterations, damping, tolerance);
             this.smallTop = smallTop;
             this.largetTop = largeTop;
+            this.parts = parts;
+            this.coloring = coloring;
+            this.parallelism = parallelism;
+            this.floatScores = floatScores;
+            this.certify = certify;
         }
 
         private GuerrieriParameters(GuerrieriParameters input)
@@ -67,6 +123,11 @@ public class GuerrieriRankV3 extends PersonalizedPageRankAlgorithm
                     input.getDamping(), input.getTolerance());
             this.smallTop = input.smallTop;
             this.largetTop = input.largetTop;
+            this.parts = input.parts;
+            this.coloring = input.coloring;
+            this.parallelism = input.parallelism;
+            this.floatScores = input.floatScores;
+            this.certify = input.certify;
         }
                 
         public int getSmallTop() {
@@ -76,6 +137,26 @@ public class GuerrieriRankV3 extends PersonalizedPageRankAlgorithm
         public int getLargeTop() {
             return largetTop;
         }
+
+        public int getParts() {
+            return parts;
+        }
+
+        public boolean isColoring() {
+            return coloring;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public boolean isFloatScores() {
+            return floatScores;
+        }
+
+        public boolean isCertify() {
+            return certify;
+        }
     }
     
     //getters
@@ -88,13 +169,252 @@ public class GuerrieriRankV3 extends PersonalizedPageRankAlgorithm
         return parameters;
     }
     
+    /**
+     * Bound on the norm1 distance between the scores computed for a node and
+     * its exact personalized pagerank, see GuerrieriRankV2.getErrorBound.
+     * The initial scores, a step from the node, are at most 2 * damping^2 off
+     * plus what their top L cut.
+     * @param origin Original id of a node.
+     * @return The bound on the error of the scores of the node.
+     */
+    public double getErrorBound(final int origin)
+    {
+        int v = g.index(origin);
+        if(v < 0)
+            throw new IllegalArgumentException("Origin not in the graph");
+        return bounds[v];
+    }
+    
+    /**
+     * @return Bound on the error of each dense vertex index, see getErrorBound.
+     */
+    public double[] getErrorBounds()
+    {
+        return bounds;
+    }
+    
+    /**
+     * @param origin Original id of a node.
+     * @return True if the top smallTop of the node was certified and the node
+     * stopped being updated, always false unless certified mode.
+     */
+    public boolean isCertified(final int origin)
+    {
+        int v = g.index(origin);
+        if(v < 0)
+            throw new IllegalArgumentException("Origin not in the graph");
+        return certified[v];
+    }
+    
+    /**
+     * @return Parts the vertices were processed in, with their edge cut.
+     */
+    public Partitioning getPartitioning()
+    {
+        return partitioning;
+    }
+    
+    /**
+     * @return Milliseconds spent updating the vertices of each part, summed
+     * over all the iterations.
+     */
+    public double[] getPartTimes()
+    {
+        return partTimes;
+    }
+    
+    /**
+     * @return Number of classes the vertices were updated in, 2 without a
+     * proper coloring.
+     */
+    public int getColors()
+    {
+        return colors;
+    }
+    
+    /**
+     * @return Iterations done before converging or reaching the max, with a
+     * proper coloring an iteration updates every class.
+     */
+    public int getIterationsRun()
+    {
+        return iterationsRun;
+    }
+    
+    /**
+     * @return Single node updates done over all the iterations, to compare 
+     * the work of the two schedules.
+     */
+    public long getUpdates()
+    {
+        return updates;
+    }
+    
+    /**
+     * @return Milliseconds spent running the algorithm.
+     */
+    public double getRunTime()
+    {
+        return runTime;
+    }
+    
+    /**
+     * Options of a run, the ones not set keep their default:
+     * new GuerrieriRankV3.Builder().coloring(true).parallelism(4).run(g)
+     */
+    public static class Builder
+    {
+        private int smallTop = DEFAULT_SMALL_TOP;
+        private int largeTop = DEFAULT_LARGE_TOP;
+        private int iterations = DEFAULT_ITERATIONS;
+        private double damping = DEFAULT_DAMPING_FACTOR;
+        private double tolerance = DEFAULT_TOLERANCE;
+        private Partitioning partitioning;
+        private int parts;
+        private boolean coloring;
+        private int parallelism = DEFAULT_PARALLELISM;
+        private boolean floatScores;
+        private boolean certify;
+        
+        /**
+         * @param smallTop How many max entries to keep in the final results, it will
+         * also be used as a minimum for how much space to allocate for each node.
+         * @return This builder.
+         */
+        public Builder smallTop(final int smallTop)
+        {
+            this.smallTop = smallTop;
+            return this;
+        }
+        
+        /**
+         * @param largeTop How many max entries on average to keep for each vertex during computation,
+         * this value will be used as an average for how much space to allocate for each
+         * node while calculating the budget for each node.
+         * @return This builder.
+         */
+        public Builder largeTop(final int largeTop)
+        {
+            this.largeTop = largeTop;
+            return this;
+        }
+        
+        /**
+         * @param iterations the number of iterations to perform
+         * @return This builder.
+         */
+        public Builder iterations(final int iterations)
+        {
+            this.iterations = iterations;
+            return this;
+        }
+        
+        /**
+         * @param damping the damping factor
+         * @return This builder.
+         */
+        public Builder damping(final double damping)
+        {
+            this.damping = damping;
+            return this;
+        }
+        
+        /**
+         * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+         * Negative values are allowed to specify that tolerance must be ignored.
+         * @return This builder.
+         */
+        public Builder tolerance(final double tolerance)
+        {
+            this.tolerance = tolerance;
+            return this;
+        }
+        
+        /**
+         * @param partitioning Parts to process the vertices in, one for each vertex of g,
+         * computed beforehand (for example read from io.ArtifactCache). Null
+         * (the default) to split g with MultilevelPartitioner.
+         * @return This builder.
+         */
+        public Builder partitioning(final Partitioning partitioning)
+        {
+            this.partitioning = partitioning;
+            return this;
+        }
+        
+        /**
+         * @param parts Number of parts MultilevelPartitioner splits g in when no
+         * partitioning is given, 0 (the default) for enough parts that the
+         * scores of a part fit in CACHE_BYTES.
+         * @return This builder.
+         */
+        public Builder parts(final int parts)
+        {
+            this.parts = parts;
+            return this;
+        }
+        
+        /**
+         * @param coloring True to update the classes of a proper coloring, false 
+         * for the two approximate classes.
+         * @return This builder.
+         */
+        public Builder coloring(final boolean coloring)
+        {
+            this.coloring = coloring;
+            return this;
+        }
+        
+        /**
+         * @param parallelism Number of threads, results don't depend on it.
+         * @return This builder.
+         */
+        public Builder parallelism(final int parallelism)
+        {
+            this.parallelism = parallelism;
+            return this;
+        }
+        
+        /**
+         * @param floatScores True to store the scores being computed as floats,
+         * halving the memory of their values, false for doubles.
+         * @return This builder.
+         */
+        public Builder floatScores(final boolean floatScores)
+        {
+            this.floatScores = floatScores;
+            return this;
+        }
+        
+        /**
+         * @param certify True to stop updating a node once its top smallTop nodes 
+         * are certified to be the exact ones.
+         * @return This builder.
+         */
+        public Builder certify(final boolean certify)
+        {
+            this.certify = certify;
+            return this;
+        }
+        
+        /**
+         * Runs the algorithm with these options.
+         * @param g the input graph
+         * @return The algorithm, with its results.
+         */
+        public GuerrieriRankV3 run(final IntGraph g)
+        {
+            return new GuerrieriRankV3(g, this);
+        }
+    }
+    
     //CONSTRUCTOR
     ////////////////////
     
     /**
      * Create object and run the algorithm, results of the personalized pagerank
      * are stored in the object.
-     * @param g the input graph
+     * @param g the input graph, converted to a CsrGraph before running
      * @param smallTop How many max entries to keep in the final results, it will
      * also be used as a minimum for how much space to allocate for each node.
      * @param largeTop How many max entries on average to keep for each vertex during computation,
@@ -107,27 +427,77 @@ public class GuerrieriRankV3 extends PersonalizedPageRankAlgorithm
      */
     public GuerrieriRankV3(final DirectedGraph<Integer, DefaultEdge> g, final int smallTop, 
             final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
+    {
+        this(CsrGraph.fromGraph(g), smallTop, largeTop, iterations, dampingFactor, tolerance);
+        directed = g;
+    }
+    
+    /**
+     * Create object and run the algorithm, results of the personalized pagerank
+     * are stored in the object.
+     * Vertices are split in parts with MultilevelPartitioner and each sweep 
+     * updates a part at a time, so that the scores read by a part are mostly
+     * the ones of the part itself and can stay in cache. The order in which 
+     * vertices are updated doesn't change the results.
+     * @param g the input graph
+     * @param smallTop How many max entries to keep in the final results, it will
+     * also be used as a minimum for how much space to allocate for each node.
+     * @param largeTop How many max entries on average to keep for each vertex during computation,
+     * this value will be used as an average for how much space to allocate for each
+     * node while calculating the budget for each node.
+     * @param iterations the number of iterations to perform
+     * @param dampingFactor the damping factor
+     * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+     * Negative values are allowed to specify that tolerance must be ignored.
+     */
+    public GuerrieriRankV3(final IntGraph g, final int smallTop, 
+            final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
+    {
+        this(g, new Builder().smallTop(smallTop).largeTop(largeTop).iterations(iterations)
+                .damping(dampingFactor).tolerance(tolerance));
+    }
+    
+    /**
+     * Create object and run the algorithm with the options of a builder, see
+     * Builder.run.
+     */
+    private GuerrieriRankV3(final IntGraph g, final Builder options)
     {
         this.g = g;
-        this.scores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
         
-        if(smallTop <= 0)
+        if(options.smallTop <= 0)
             throw new IllegalArgumentException("SmallTop k entries to keep must be positive");
         
-        if(largeTop <= 0) 
+        if(options.largeTop <= 0) 
             throw new IllegalArgumentException("LargeTop k entries to keep must be positive");
         
-        if(smallTop > largeTop)
+        if(options.smallTop > options.largeTop)
             throw new IllegalArgumentException("SmallTop can't be greater than largeTop");
         
-        if(iterations <= 0) 
+        if(options.iterations <= 0) 
             throw new IllegalArgumentException("Maximum iterations must be positive");
         
-        if(dampingFactor < 0 || dampingFactor > 1)
+        if(options.damping < 0 || options.damping > 1)
             throw new IllegalArgumentException("Damping factor must be [0,1]");
         
-        parameters = new GuerrieriParameters(g.vertexSet().size(), g.edgeSet().size(), 
-                smallTop, largeTop, iterations, dampingFactor, tolerance);
+        if(options.parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        
+        if(options.parts < 0)
+            throw new IllegalArgumentException("Number of parts can't be negative");
+        
+        if(options.partitioning != null && options.partitioning.getVertices() != g.vertices())
+            throw new IllegalArgumentException("Partitioning of a different graph");
+        
+        if(options.partitioning != null)
+            this.partitioning = options.partitioning;
+        else
+            this.partitioning = MultilevelPartitioner.partition(g, options.parts > 0? options.parts 
+                    : MultilevelPartitioner.partsForCache(g, options.largeTop * BYTES_PER_SCORE, CACHE_BYTES));
+        parameters = new GuerrieriParameters(g.vertices(), g.edges(), 
+                options.smallTop, options.largeTop, options.iterations, options.damping, options.tolerance, 
+                partitioning.getParts(), options.coloring, options.parallelism, options.floatScores, 
+                options.certify);
         
         run();
     }
@@ -140,94 +510,120 @@ public class GuerrieriRankV3 extends PersonalizedPageRankAlgorithm
      */
     private void run()
     {
-        Int2ObjectOpenHashMap<NodeScores> nextScores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
+        long runStart = System.nanoTime();
+        ScoreSlabs scores = new ScoreSlabs(g.vertices(), parameters.largetTop, parameters.floatScores);
         double maxDiff = parameters.getTolerance();
 
-        //2 partition of vertixes, keeping intra edges as low as possible for each partition
-        int[][] partitions = getPartitions();
+        //2 partitions of vertices, keeping intra edges as low as possible for 
+        //each partition, or the classes of a proper coloring
+        int[][] classes;
+        if(parameters.coloring)
+        {
+            Coloring coloring = new Coloring(g);
+            classes = new int[coloring.getCount()][];
+            for(int c = 0; c < classes.length; c++)
+                classes[c] = coloring.getVertices(c);
+        }
+        else
+            classes = getPartitions();
+        colors = classes.length;
+        
+        //inside each class vertices are grouped by part
+        partTimes = new double[parameters.parts];
+        int[][] partOffsets = new int[classes.length][];
+        for(int c = 0; c < classes.length; c++)
+        {
+            classes[c] = partitioning.sortByPart(classes[c]);
+            partOffsets[c] = partitioning.partOffsets(classes[c]);
+        }
         
-        //successors for each node, to avoid calling Graphs.successorListOf which is slow
-        Int2ObjectOpenHashMap<int[]> successors = Graphs.getSuccessors(g);
+        //buffers for the successors of the current node and the weights of their edges
+        int[] successors = new int[g.maxOutDegree()];
+        double[] weights = new double[g.maxOutDegree()];
         
         /*
         for  each vertex init its map with a score for itself and its neighbours
         */
-        for(int v: g.vertexSet())
+        SparseAccumulator currentMap = new SparseAccumulator(g.vertices());
+        //the successors of a node are at most 2 * damping off their exact scores
+        //with just a score for themselves, the rest of the error is the truncation
+        bounds = new double[g.vertices()];
+        for(int v = 0; v < g.vertices(); v++)
         {
-            NodeScores scoresMap = new NodeScores();
-            scoresMap.put(v, 1 -  parameters.getDamping());
-            double factor = parameters.getDamping() / g.outDegreeOf(v);
-            for(int successor: successors.get(v))
-                scoresMap.addTo(successor, factor);
-            scoresMap.keepTop(parameters.largetTop);
-            scores.put(v, scoresMap);
-            
-            nextScores.put(v, new NodeScores());
+            currentMap.clear();
+            currentMap.addTo(v, 1 -  parameters.getDamping());
+            double factor = parameters.getDamping() / g.outWeight(v);
+            int outDegree = g.successors(v, successors);
+            g.successorWeights(v, weights);
+            for(int s = 0; s < outDegree; s++)
+                currentMap.addTo(successors[s], factor * weights[s]);
+            bounds[v] = currentMap.keepTop(parameters.largetTop) + scores.getRoundingError()
+                    + (outDegree == 0? 0 : 2 * parameters.getDamping() * parameters.getDamping());
+            scores.set(v, currentMap);
         }
+        double[] nextBounds = new double[g.vertices()];
+        
+        //nodes not updated any more, and the ones certified in the current sweep
+        certified = new boolean[g.vertices()];
+        boolean[] certifiedNow = new boolean[g.vertices()];
+        int uncertified = g.vertices();
         
-        int[] currentPartition = partitions[0];
-        for(int i = 0; i < parameters.getIterations() && maxDiff >= parameters.getTolerance(); i++)
+        //an iteration updates a partition, or all the colors one after the other
+        int classesPerIteration = parameters.coloring? classes.length : 1;
+        int side = 0;
+        iterationsRun = 0;
+        updates = 0;
+        try(ParallelSweep<GuerrieriUpdate> sweep = new ParallelSweep<>(parameters.parallelism, 
+                () -> new GuerrieriUpdate(g, parameters.getDamping())))
         {
-            //System.out.println(iterations + " " + maxDiff);
-            //reset the highest difference to 0 at the start of the run
-            maxDiff = 0;
-            
-            
-            
-            for(int v: currentPartition)
+            //keep the top L values only and get the norm1 of the difference with the old scores
+            ParallelSweep.Update<GuerrieriUpdate> update = (v, node) -> 
             {
-                //to avoid calculating it for each successor
-                double factor = parameters.getDamping() / g.outDegreeOf(v);
-                                
-                //every node starts with a rank of (1 - dampingFactor) in it's own map
-                NodeScores currentMap = nextScores.get(v);
-                currentMap.clear();
-                currentMap.put(v, 1 - parameters.getDamping());
-                
-                //for each successor of v
-                for(int successor: successors.get(v))
+                if(certified[v])
+                    return 0;
+                double diff = node.update(scores, v, parameters.largetTop);
+                nextBounds[v] = node.errorBound(bounds) + scores.getRoundingError();
+                //no score out of the top smallTop can get in it, whatever the error
+                certifiedNow[v] = parameters.certify && node.gap(parameters.smallTop) > 2 * nextBounds[v];
+                return diff;
+            };
+            for(int i = 0; i < parameters.getIterations() && maxDiff >= parameters.getTolerance() 
+                    && uncertified > 0; i++)
+            {
+                //reset the highest difference to 0 at the start of the run
+                maxDiff = 0;
+
+                for(int c = 0; c < classesPerIteration && classes.length > 0; c++)
                 {
-                    /**
-                     * for each value of personalized pagerank (max L values) saved 
-                     * in the map  of a successor increment the personalized pagerank of v
-                     * for that key of a fraction of it.
-                     */
-                    currentMap.add(scores.get(successor), factor);
-                }
-                
-                //keep the top L values only, where L is the allocated budget for the node
-                currentMap.keepTop(parameters.largetTop);
-                
-                //assign the map to the new scores
-                nextScores.put(v, currentMap);
+                    for(int part = 0; part < parameters.parts; part++)
+                    {
+                        long start = System.nanoTime();
+                        maxDiff = Math.max(maxDiff, sweep.run(g, classes[side], 
+                                partOffsets[side][part], partOffsets[side][part + 1], update));
+                        partTimes[part] += (System.nanoTime() - start) / 1e6;
+                    }
 
-                //check if the norm1 of the difference is greater than the maxDiff
-                maxDiff = Math.max(currentMap.norm1(scores.get(v)), maxDiff);
-            }
-            
-            //System.out.println(same/total + " of internal edges for partition " + (currentPartition == partitions[0]? 0 : 1));
-            currentPartition = currentPartition == partitions[0]? partitions[1] : partitions[0];
-            
-            //this copy could be avoided but it's needed to produce way less garbage
-            for(int node: currentPartition)
-            {
-                nextScores.get(node).clear();
-                nextScores.get(node).add(scores.get(node));
+                    //swap the scores of the nodes just computed only, certified ones aren't
+                    for(int node: classes[side])
+                        if(!certified[node])
+                        {
+                            scores.swap(node);
+                            bounds[node] = nextBounds[node];
+                            updates++;
+                            if(certifiedNow[node])
+                            {
+                                certified[node] = true;
+                                uncertified--;
+                            }
+                        }
+                    side = (side + 1) % classes.length;
+                }
+                iterationsRun++;
             }
-            
-            // swap scores
-            Int2ObjectOpenHashMap<NodeScores> tmp = scores;
-            scores = nextScores;
-            nextScores = tmp;
-        }
-        
-        //trim to avoid wasting space
-        for(int v: scores.keySet())
-        {
-            scores.get(v).keepTop(parameters.smallTop);
-            scores.get(v).trim();
         }
         
+        setScores(scores.toNodeScores(parameters.smallTop));
+        runTime = (System.nanoTime() - runStart) / 1e6;
     }
     
     /**
@@ -239,65 +635,52 @@ public class GuerrieriRankV3 extends PersonalizedPageRankAlgorithm
      */
     private int[][] getPartitions()
     {
-        //will contain the 2 partitions during the execution of the method
-        Set<Integer> p1 = new HashSet<>(), p2 = new HashSet<>();
+        //partition of each node during the execution of the method, -1 if not visited yet
+        byte[] side = new byte[g.vertices()];
+        Arrays.fill(side, (byte) -1);
+        int firstSize = 0;
 
-        //queue for going breadth first
-        List<Integer> queue = new ArrayList<>();
-        //keep track of visited nodes
-        Set<Integer> visited = new HashSet<>(g.vertexSet().size());
+        //queue for going breadth first, each node is enqueued only once
+        int[] queue = new int[g.vertices()];
+        int head = 0, tail = 0;
+        int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
         
-        for(int node: g.vertexSet())
+        for(int node = 0; node < g.vertices(); node++)
         {
-            if(!visited.contains(node))
+            if(side[node] == -1)
             {
-                visited.add(node);
-                queue.add(node);
-                p1.add(node);
+                side[node] = 0;
+                firstSize++;
+                queue[tail++] = node;
             }
             
-            while(!queue.isEmpty())
+            while(head < tail)
             {
-                int next = queue.remove(0);
-                for(int successor: org.jgrapht.Graphs.successorListOf(g, next))
-                    if(!visited.contains(successor))
-                    {
-                        visited.add(successor);
-                        queue.add(successor);
-                        if(p1.contains(next))
-                            p2.add(successor);
-                        else
-                            p1.add(successor);
-                    }
-                for(int successor: org.jgrapht.Graphs.predecessorListOf(g, next))
-                    if(!visited.contains(successor))
-                    {
-                        visited.add(successor);
-                        queue.add(successor);
-                        if(p1.contains(next))
-                            p2.add(successor);
-                        else
-                            p1.add(successor);
-                    }
+                int next = queue[head++];
+                //successors first, then predecessors (which symmetric graphs don't need)
+                for(int direction = 0; direction < (g.isSymmetric()? 1 : 2); direction++)
+                {
+                    int degree = direction == 0? g.successors(next, neighbours) 
+                            : g.predecessors(next, neighbours);
+                    for(int i = 0; i < degree; i++)
+                        if(side[neighbours[i]] == -1)
+                        {
+                            side[neighbours[i]] = (byte) (1 - side[next]);
+                            if(side[neighbours[i]] == 0)
+                                firstSize++;
+                            queue[tail++] = neighbours[i];
+                        }
+                }
             }
         }
         
-        //convert the 2 sets into arrays of integers
+        //convert the 2 sides into arrays of integers
         int[][] res = new int[2][0];
-        res[0] = new int[p1.size()];
-        res[1] = new int[p2.size()];
-        int index = 0;
-        for(int node: p1)
-        {
-            res[0][index] = node;
-            index++;
-        }
-        index = 0;
-        for(int node: p2)
-        {
-            res[1][index] = node;
-            index++;
-        }
+        res[0] = new int[firstSize];
+        res[1] = new int[g.vertices() - firstSize];
+        int[] index = new int[2];
+        for(int node = 0; node < g.vertices(); node++)
+            res[side[node]][index[side[node]]++] = node;
         return res;
     }
 }
@@ -1,14 +1,16 @@
 package algorithms;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.MultilevelPartitioner;
+import graph.Partitioning;
+import java.util.Arrays;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
-import utility.Graphs;
-import utility.NodeScores;
+import utility.ParallelSweep;
+import utility.ResidualQueue;
+import utility.ScoreSlabs;
+import utility.SparseAccumulator;
 
  /**
 + * Runs an instance of GuerrieriRank, which runs an approximation of pagerank
@@ -22,6 +24,10 @@ import utility.NodeScores;
 * * and on average each node will have a  budget of "largeTop", the budget is 
 * * distributed proportionally based on the number of out going edges a node has.
 + * The complexity is O(I *|Edges| * L).
++ * With the worklist engine nodes are updated asynchronously instead of in 
++ * sweeps: the change of the scores of a node is pushed to its predecessors,
++ * and only nodes whose pushed change reaches the tolerance are updated again,
++ * highest change first, so work goes where scores are still moving.
   */
 public class GuerrieriRankV3Local extends PersonalizedPageRankAlgorithm
 {
@@ -44,7 +50,28 @@ public class GuerrieriRankV3Local extends PersonalizedPageRankAlgorithm
     //than this the algorithm will stop.
     public static final double DEFAULT_TOLERANCE = 0.0001;
     
+    //Cache the scores of a part should fit in when the number of parts is not given
+    public static final long CACHE_BYTES = 1 << 21;
+    
+    //Default number of threads
+    public static final int DEFAULT_PARALLELISM = 1;
+    
+    //Size of a score slot in a ScoreSlabs, key + value in both generations
+    private static final long BYTES_PER_SCORE = ScoreSlabs.bytesPerScore(false);
+    
     private final GuerrieriParameters parameters;
+    
+    //parts the vertices are processed in, each sweep goes one part at a time
+    private final Partitioning partitioning;
+    
+    //milliseconds spent updating the vertices of each part, over all the iterations
+    private double[] partTimes;
+    
+    //single node updates done before converging (or reaching the max)
+    private long updates;
+    
+    //milliseconds spent running the algorithm, results included
+    private double runTime;
 
     
     //Private class to store running parameters
@@ -52,13 +79,22 @@ public class GuerrieriRankV3Local extends PersonalizedPageRankAlgorithm
     {
         private final int smallTop;
         private final int largetTop;
+        private final int parts;
+        private final boolean worklist;
+        private final int parallelism;
+        private final boolean floatScores;
         
         private GuerrieriParameters(final int vertices, final int edges, final int smallTop, 
-                final int largeTop, final int iterations, final double damping, final double tolerance)
+                final int largeTop, final int iterations, final double damping, final double tolerance,
+                final int parts, final boolean worklist, final int parallelism, final boolean floatScores)
         {
             super(vertices, edges, iterations, damping, tolerance);
             this.smallTop = smallTop;
             this.largetTop = largeTop;
+            this.parts = parts;
+            this.worklist = worklist;
+            this.parallelism = parallelism;
+            this.floatScores = floatScores;
         }
 
         private GuerrieriParameters(GuerrieriParameters input)
@@ -67,6 +103,10 @@ public class GuerrieriRankV3Local extends PersonalizedPageRankAlgorithm
                     input.getDamping(), input.getTolerance());
             this.smallTop = input.smallTop;
             this.largetTop = input.largetTop;
+            this.parts = input.parts;
+            this.worklist = input.worklist;
+            this.parallelism = input.parallelism;
+            this.floatScores = input.floatScores;
         }
                 
         public int getSmallTop() {
@@ -76,6 +116,22 @@ public class GuerrieriRankV3Local extends PersonalizedPageRankAlgorithm
         public int getLargeTop() {
             return largetTop;
         }
+
+        public int getParts() {
+            return parts;
+        }
+
+        public boolean isWorklist() {
+            return worklist;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public boolean isFloatScores() {
+            return floatScores;
+        }
     }
     
     //getters
@@ -88,13 +144,188 @@ public class GuerrieriRankV3Local extends PersonalizedPageRankAlgorithm
         return parameters;
     }
     
+    /**
+     * @return Parts the vertices were processed in, with their edge cut.
+     */
+    public Partitioning getPartitioning()
+    {
+        return partitioning;
+    }
+    
+    /**
+     * @return Milliseconds spent updating the vertices of each part, summed
+     * over all the iterations, all 0 with the worklist which doesn't go
+     * one part at a time.
+     */
+    public double[] getPartTimes()
+    {
+        return partTimes;
+    }
+    
+    /**
+     * @return Single node updates done before converging or reaching the max,
+     * to compare the work of the sweeps and of the worklist.
+     */
+    public long getUpdates()
+    {
+        return updates;
+    }
+    
+    /**
+     * @return Milliseconds spent running the algorithm.
+     */
+    public double getRunTime()
+    {
+        return runTime;
+    }
+    
+    /**
+     * Options of a run, the ones not set keep their default:
+     * new GuerrieriRankV3Local.Builder().worklist(true).run(g)
+     */
+    public static class Builder
+    {
+        private int smallTop = DEFAULT_SMALL_TOP;
+        private int largeTop = DEFAULT_LARGE_TOP;
+        private int iterations = DEFAULT_ITERATIONS;
+        private double damping = DEFAULT_DAMPING_FACTOR;
+        private double tolerance = DEFAULT_TOLERANCE;
+        private Partitioning partitioning;
+        private int parts;
+        private boolean worklist;
+        private int parallelism = DEFAULT_PARALLELISM;
+        private boolean floatScores;
+        
+        /**
+         * @param smallTop How many max entries to keep in the final results, it will
+         * also be used as a minimum for how much space to allocate for each node.
+         * @return This builder.
+         */
+        public Builder smallTop(final int smallTop)
+        {
+            this.smallTop = smallTop;
+            return this;
+        }
+        
+        /**
+         * @param largeTop How many max entries on average to keep for each vertex during computation,
+         * this value will be used as an average for how much space to allocate for each
+         * node while calculating the budget for each node.
+         * @return This builder.
+         */
+        public Builder largeTop(final int largeTop)
+        {
+            this.largeTop = largeTop;
+            return this;
+        }
+        
+        /**
+         * @param iterations the number of iterations to perform, with the worklist
+         * at most iterations * vertices node updates are done.
+         * @return This builder.
+         */
+        public Builder iterations(final int iterations)
+        {
+            this.iterations = iterations;
+            return this;
+        }
+        
+        /**
+         * @param damping the damping factor
+         * @return This builder.
+         */
+        public Builder damping(final double damping)
+        {
+            this.damping = damping;
+            return this;
+        }
+        
+        /**
+         * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+         * Negative values are allowed to specify that tolerance must be ignored.
+         * @return This builder.
+         */
+        public Builder tolerance(final double tolerance)
+        {
+            this.tolerance = tolerance;
+            return this;
+        }
+        
+        /**
+         * @param partitioning Parts to process the vertices in, one for each vertex of g,
+         * computed beforehand (for example read from io.ArtifactCache), the
+         * worklist starts from the nodes of the first part. Null (the default)
+         * to split g with MultilevelPartitioner.
+         * @return This builder.
+         */
+        public Builder partitioning(final Partitioning partitioning)
+        {
+            this.partitioning = partitioning;
+            return this;
+        }
+        
+        /**
+         * @param parts Number of parts MultilevelPartitioner splits g in when no
+         * partitioning is given, 0 (the default) for enough parts that the
+         * scores of a part fit in CACHE_BYTES.
+         * @return This builder.
+         */
+        public Builder parts(final int parts)
+        {
+            this.parts = parts;
+            return this;
+        }
+        
+        /**
+         * @param worklist True to update nodes asynchronously from a worklist, false for sweeps.
+         * @return This builder.
+         */
+        public Builder worklist(final boolean worklist)
+        {
+            this.worklist = worklist;
+            return this;
+        }
+        
+        /**
+         * @param parallelism Number of threads, sweeps give the same results with
+         * any number of threads, the worklist only runs on one thread.
+         * @return This builder.
+         */
+        public Builder parallelism(final int parallelism)
+        {
+            this.parallelism = parallelism;
+            return this;
+        }
+        
+        /**
+         * @param floatScores True to store the scores being computed as floats,
+         * halving the memory of their values, false for doubles.
+         * @return This builder.
+         */
+        public Builder floatScores(final boolean floatScores)
+        {
+            this.floatScores = floatScores;
+            return this;
+        }
+        
+        /**
+         * Runs the algorithm with these options.
+         * @param g the input graph
+         * @return The algorithm, with its results.
+         */
+        public GuerrieriRankV3Local run(final IntGraph g)
+        {
+            return new GuerrieriRankV3Local(g, this);
+        }
+    }
+    
     //CONSTRUCTOR
     ////////////////////
     
     /**
      * Create object and run the algorithm, results of the personalized pagerank
      * are stored in the object.
-     * @param g the input graph
+     * @param g the input graph, converted to a CsrGraph before running
      * @param smallTop How many max entries to keep in the final results, it will
      * also be used as a minimum for how much space to allocate for each node.
      * @param largeTop How many max entries on average to keep for each vertex during computation,
@@ -107,27 +338,81 @@ public class GuerrieriRankV3Local extends PersonalizedPageRankAlgorithm
      */
     public GuerrieriRankV3Local(final DirectedGraph<Integer, DefaultEdge> g, final int smallTop, 
             final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
+    {
+        this(CsrGraph.fromGraph(g), smallTop, largeTop, iterations, dampingFactor, tolerance);
+        directed = g;
+    }
+    
+    /**
+     * Create object and run the algorithm, results of the personalized pagerank
+     * are stored in the object.
+     * Vertices are split in parts with MultilevelPartitioner and each sweep 
+     * updates a part at a time, so that the scores read by a part are mostly
+     * the ones of the part itself and can stay in cache. The order in which 
+     * vertices are updated doesn't change the results.
+     * @param g the input graph
+     * @param smallTop How many max entries to keep in the final results, it will
+     * also be used as a minimum for how much space to allocate for each node.
+     * @param largeTop How many max entries on average to keep for each vertex during computation,
+     * this value will be used as an average for how much space to allocate for each
+     * node while calculating the budget for each node.
+     * @param iterations the number of iterations to perform
+     * @param dampingFactor the damping factor
+     * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+     * Negative values are allowed to specify that tolerance must be ignored.
+     */
+    public GuerrieriRankV3Local(final IntGraph g, final int smallTop, 
+            final int largeTop, final int iterations, final double dampingFactor, final double tolerance)
+    {
+        this(g, new Builder().smallTop(smallTop).largeTop(largeTop).iterations(iterations)
+                .damping(dampingFactor).tolerance(tolerance));
+    }
+    
+    /**
+     * Create object and run the algorithm with the options of a builder, see
+     * Builder.run.
+     */
+    private GuerrieriRankV3Local(final IntGraph g, final Builder options)
     {
         this.g = g;
-        this.scores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
         
-        if(smallTop <= 0)
+        if(options.smallTop <= 0)
             throw new IllegalArgumentException("SmallTop k entries to keep must be positive");
         
-        if(largeTop <= 0) 
+        if(options.largeTop <= 0) 
             throw new IllegalArgumentException("LargeTop k entries to keep must be positive");
         
-        if(smallTop > largeTop)
+        if(options.smallTop > options.largeTop)
             throw new IllegalArgumentException("SmallTop can't be greater than largeTop");
         
-        if(iterations <= 0) 
+        if(options.iterations <= 0) 
             throw new IllegalArgumentException("Maximum iterations must be positive");
         
-        if(dampingFactor < 0 || dampingFactor > 1)
+        if(options.damping < 0 || options.damping > 1)
             throw new IllegalArgumentException("Damping factor must be [0,1]");
         
-        parameters = new GuerrieriParameters(g.vertexSet().size(), g.edgeSet().size(), 
-                smallTop, largeTop, iterations, dampingFactor, tolerance);
+        if(options.parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        
+        //a node updated twice while a predecessor reads it would have its
+        //slab overwritten under the reader, see runWorklist
+        if(options.worklist && options.parallelism > 1)
+            throw new IllegalArgumentException("The worklist engine runs on a single thread");
+        
+        if(options.parts < 0)
+            throw new IllegalArgumentException("Number of parts can't be negative");
+        
+        if(options.partitioning != null && options.partitioning.getVertices() != g.vertices())
+            throw new IllegalArgumentException("Partitioning of a different graph");
+        
+        if(options.partitioning != null)
+            this.partitioning = options.partitioning;
+        else
+            this.partitioning = MultilevelPartitioner.partition(g, options.parts > 0? options.parts 
+                    : MultilevelPartitioner.partsForCache(g, options.largeTop * BYTES_PER_SCORE, CACHE_BYTES));
+        parameters = new GuerrieriParameters(g.vertices(), g.edges(), 
+                options.smallTop, options.largeTop, options.iterations, options.damping, options.tolerance, 
+                partitioning.getParts(), options.worklist, options.parallelism, options.floatScores);
         
         run();
     }
@@ -140,97 +425,154 @@ public class GuerrieriRankV3Local extends PersonalizedPageRankAlgorithm
      */
     private void run()
     {
-        Int2ObjectOpenHashMap<NodeScores> nextScores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
-
-        //2 partition of vertixes, keeping intra edges as low as possible for each partition
-        int[][] partitions = getPartitions();
+        long runStart = System.nanoTime();
+        ScoreSlabs scores = new ScoreSlabs(g.vertices(), parameters.largetTop, parameters.floatScores);
         
-        //successors for each node, to avoid calling Graphs.successorListOf which is slow
-        Int2ObjectOpenHashMap<int[]> successors = Graphs.getSuccessors(g);
+        //buffers for the successors of the current node and the weights of their edges
+        int[] successors = new int[g.maxOutDegree()];
+        double[] weights = new double[g.maxOutDegree()];
         
         /*
         for  each vertex init its map with a score for itself and its neighbours
         */
-        for(int v: g.vertexSet())
+        SparseAccumulator currentMap = new SparseAccumulator(g.vertices());
+        for(int v = 0; v < g.vertices(); v++)
         {
-            NodeScores scoresMap = new NodeScores();
-            scoresMap.put(v, 1 -  parameters.getDamping());
-            double factor = parameters.getDamping() / g.outDegreeOf(v);
-            for(int successor: successors.get(v))
-                scoresMap.addTo(successor, factor);
-            scoresMap.keepTop(parameters.largetTop);
-            scores.put(v, scoresMap);
-            
-            nextScores.put(v, new NodeScores());
+            currentMap.clear();
+            currentMap.addTo(v, 1 -  parameters.getDamping());
+            double factor = parameters.getDamping() / g.outWeight(v);
+            int outDegree = g.successors(v, successors);
+            g.successorWeights(v, weights);
+            for(int s = 0; s < outDegree; s++)
+                currentMap.addTo(successors[s], factor * weights[s]);
+            currentMap.keepTop(parameters.largetTop);
+            scores.set(v, currentMap);
+        }
+        
+        partTimes = new double[parameters.parts];
+        updates = 0;
+        if(parameters.worklist)
+            runWorklist(scores);
+        else
+            runSweeps(scores);
+        
+        setScores(scores.toNodeScores(parameters.smallTop));
+        runTime = (System.nanoTime() - runStart) / 1e6;
+    }
+    
+    /**
+     * Updates the two partitions of vertices in turn, skipping the nodes
+     * which have converged.
+     * @param scores Initial scores, updated in place.
+     */
+    private void runSweeps(final ScoreSlabs scores)
+    {
+        //2 partition of vertixes, keeping intra edges as low as possible for each partition
+        int[][] partitions = getPartitions();
+        
+        //inside each partition vertices are grouped by part
+        int[][] partOffsets = new int[2][];
+        for(int side = 0; side < 2; side++)
+        {
+            partitions[side] = partitioning.sortByPart(partitions[side]);
+            partOffsets[side] = partitioning.partOffsets(partitions[side]);
         }
         
         //nodes yet to converge
-        Set<Integer> notConverged = new HashSet<>(g.vertexSet());
+        boolean[] converged = new boolean[g.vertices()];
+        int notConverged = g.vertices();
+        //nodes with new scores to swap in at the end of the iteration
+        boolean[] updated = new boolean[g.vertices()];
         
-        int[] currentPartition = partitions[0];
-        for(int i = 0; i < parameters.getIterations() && notConverged.size() > 0; i++)
+        int side = 0;
+        try(ParallelSweep<GuerrieriUpdate> sweep = new ParallelSweep<>(parameters.parallelism, 
+                () -> new GuerrieriUpdate(g, parameters.getDamping())))
         {
-            //nodes to be removed because they have converged
-            ArrayList<Integer> toRemove = new ArrayList<>();
-            
-            for(int v: currentPartition)
+            ParallelSweep.Update<GuerrieriUpdate> update = (v, node) ->
+            {
+                if(converged[v])
+                    return 0;
+                //keep the top L values only and check if the node has converged
+                double diff = node.update(scores, v, parameters.largetTop);
+                converged[v] = diff < parameters.getTolerance();
+                updated[v] = true;
+                return diff;
+            };
+            for(int i = 0; i < parameters.getIterations() && notConverged > 0; i++)
             {
-                if(notConverged.contains(v))
+                for(int part = 0; part < parameters.parts; part++)
                 {
-                    //to avoid calculating it for each successor
-                    double factor = parameters.getDamping() / g.outDegreeOf(v);
-
-                    //every node starts with a rank of (1 - dampingFactor) in it's own map
-                    NodeScores currentMap = nextScores.get(v);
-                    currentMap.clear();
-                    currentMap.put(v, 1 - parameters.getDamping());
-
-                    //for each successor of v
-                    for(int successor: successors.get(v))
+                    long start = System.nanoTime();
+                    sweep.run(g, partitions[side], partOffsets[side][part], partOffsets[side][part + 1], update);
+                    partTimes[part] += (System.nanoTime() - start) / 1e6;
+                }
+                
+                //swap the scores of the nodes just computed only
+                for(int node: partitions[side])
+                    if(updated[node])
                     {
-                        /**
-                         * for each value of personalized pagerank (max L values) saved 
-                         * in the map  of a successor increment the personalized pagerank of v
-                         * for that key of a fraction of it.
-                         */
-                        currentMap.add(scores.get(successor), factor);
+                        scores.swap(node);
+                        updated[node] = false;
+                        updates++;
+                        if(converged[node])
+                            notConverged--;
                     }
-
-                    //keep the top L values only, where L is the allocated budget for the node
-                    currentMap.keepTop(parameters.largetTop);
-
-                    //assign the map to the new scores
-                    nextScores.put(v, currentMap);
-
-                    //check if the node has converged
-                    if(currentMap.norm1(scores.get(v)) < parameters.getTolerance())
-                        toRemove.add(v);
-                }
+                side = 1 - side;
             }
-            //remove converged nodes
-            for(Integer removeNode: toRemove)
-                notConverged.remove(removeNode);
-            
-            currentPartition = currentPartition == partitions[0]? partitions[1] : partitions[0];
-            
-            //this copy could be avoided but it's needed to produce way less garbage
-            for(int node: currentPartition)
-            {
-                nextScores.get(node).clear();
-                nextScores.get(node).add(scores.get(node));
-            }
-            
-            // swap scores
-            Int2ObjectOpenHashMap<NodeScores> tmp = scores;
-            scores = nextScores;
-            nextScores = tmp;
         }
-        //trim to avoid wasting space
-        for(int v: scores.keySet())
+    }
+    
+    /**
+     * Updates the nodes asynchronously, each update pushes the change of the
+     * scores of a node to its predecessors, weighted as the change propagates
+     * to them, and nodes are updated again when the change pushed to them
+     * reaches the tolerance. Stops when no node is left or after 
+     * iterations * vertices updates.
+     * Runs on a single thread, with a ResidualQueue which isn't thread safe:
+     * updates write the spare slab of a node and swap it, with more threads a
+     * node could be updated twice while a predecessor is still reading it,
+     * which would need a version counter checked around every read of the scores.
+     * @param scores Initial scores, updated in place.
+     */
+    private void runWorklist(final ScoreSlabs scores)
+    {
+        ResidualQueue queue = new ResidualQueue(g.vertices(), parameters.getTolerance());
+        
+        //every node starts queued, pushed in reverse so that the first part comes out first
+        int[] order = partitioning.sortByPart(identity(g.vertices()));
+        for(int k = order.length - 1; k >= 0; k--)
+            queue.push(order[k], 1);
+        
+        long maxUpdates = (long) parameters.getIterations() * g.vertices();
+        GuerrieriUpdate node = new GuerrieriUpdate(g, parameters.getDamping());
+        int[] predecessors = new int[g.maxInDegree()];
+        double[] inWeights = new double[g.maxInDegree()];
+        long done = 0;
+        int v;
+        while(done < maxUpdates && (v = queue.poll()) != -1)
         {
-            scores.get(v).keepTop(parameters.smallTop);
-            scores.get(v).trim();
+            double diff = node.update(scores, v, parameters.largetTop);
+            scores.swap(v);
+            done++;
+
+            //a predecessor u reads damping * w(u, v) / outWeight(u) of the scores of v
+            int inDegree = g.predecessors(v, predecessors);
+            g.predecessorWeights(v, inWeights);
+            for(int p = 0; p < inDegree; p++)
+            {
+                int u = predecessors[p];
+                queue.push(u, parameters.getDamping() * inWeights[p] / g.outWeight(u) * diff);
+            }
         }
+        updates = done;
+    }
+    
+    private static int[] identity(final int n)
+    {
+        int[] res = new int[n];
+        for(int i = 0; i < n; i++)
+            res[i] = i;
+        return res;
     }
     
     /**
@@ -242,65 +584,52 @@ public class GuerrieriRankV3Local extends PersonalizedPageRankAlgorithm
      */
     private int[][] getPartitions()
     {
-        //will contain the 2 partitions during the execution of the method
-        Set<Integer> p1 = new HashSet<>(), p2 = new HashSet<>();
+        //partition of each node during the execution of the method, -1 if not visited yet
+        byte[] side = new byte[g.vertices()];
+        Arrays.fill(side, (byte) -1);
+        int firstSize = 0;
 
-        //queue for going breadth first
-        List<Integer> queue = new ArrayList<>();
-        //keep track of visited nodes
-        Set<Integer> visited = new HashSet<>(g.vertexSet().size());
+        //queue for going breadth first, each node is enqueued only once
+        int[] queue = new int[g.vertices()];
+        int head = 0, tail = 0;
+        int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
         
-        for(int node: g.vertexSet())
+        for(int node = 0; node < g.vertices(); node++)
         {
-            if(!visited.contains(node))
+            if(side[node] == -1)
             {
-                visited.add(node);
-                queue.add(node);
-                p1.add(node);
+                side[node] = 0;
+                firstSize++;
+                queue[tail++] = node;
             }
             
-            while(!queue.isEmpty())
+            while(head < tail)
             {
-                int next = queue.remove(0);
-                for(int successor: org.jgrapht.Graphs.successorListOf(g, next))
-                    if(!visited.contains(successor))
-                    {
-                        visited.add(successor);
-                        queue.add(successor);
-                        if(p1.contains(next))
-                            p2.add(successor);
-                        else
-                            p1.add(successor);
-                    }
-                for(int successor: org.jgrapht.Graphs.predecessorListOf(g, next))
-                    if(!visited.contains(successor))
-                    {
-                        visited.add(successor);
-                        queue.add(successor);
-                        if(p1.contains(next))
-                            p2.add(successor);
-                        else
-                            p1.add(successor);
-                    }
+                int next = queue[head++];
+                //successors first, then predecessors (which symmetric graphs don't need)
+                for(int direction = 0; direction < (g.isSymmetric()? 1 : 2); direction++)
+                {
+                    int degree = direction == 0? g.successors(next, neighbours) 
+                            : g.predecessors(next, neighbours);
+                    for(int i = 0; i < degree; i++)
+                        if(side[neighbours[i]] == -1)
+                        {
+                            side[neighbours[i]] = (byte) (1 - side[next]);
+                            if(side[neighbours[i]] == 0)
+                                firstSize++;
+                            queue[tail++] = neighbours[i];
+                        }
+                }
             }
         }
         
-        //convert the 2 sets into arrays of integers
+        //convert the 2 sides into arrays of integers
         int[][] res = new int[2][0];
-        res[0] = new int[p1.size()];
-        res[1] = new int[p2.size()];
-        int index = 0;
-        for(int node: p1)
-        {
-            res[0][index] = node;
-            index++;
-        }
-        index = 0;
-        for(int node: p2)
-        {
-            res[1][index] = node;
-            index++;
-        }
+        res[0] = new int[firstSize];
+        res[1] = new int[g.vertices() - firstSize];
+        int[] index = new int[2];
+        for(int node = 0; node < g.vertices(); node++)
+            res[side[node]][index[side[node]]++] = node;
         return res;
     }
 }
@@ -0,0 +1,260 @@
+package algorithms;
+
+import graph.IntGraph;
+import utility.ScoreSlabs;
+import utility.SparseAccumulator;
+
+/**
+ * Update of the scores of a single node shared by the Guerrieri variants, with
+ * the buffers it needs. Each thread needs its own instance.
+ * In merge mode the scores of each node are kept sorted, highest first, and
+ * the ones of the successors are read a depth at a time, all of them at depth 0, 
+ * then at depth 1 and so on, like the threshold algorithm of Fagin et al.: 
+ * a key not read yet gets at most the sum of the next scores of the successors
+ * (the threshold), so once it's no more than the top-th score read no key
+ * left can get in the top. The keys read then get the rest of their scores
+ * (the random access of the algorithm, a scan of the unread part of each
+ * list since lists are sorted by value, not by key), so the top and its
+ * scores are the ones of the full sum, ties aside. The scores not read count
+ * as truncated, like the ones keepTop removes.
+ * The saving is not adding the keys which can't get in the top, the rest of
+ * the lists is still scanned: on skewed random graphs with L = 30 merge runs
+ * about as fast as the full sum, so it's off unless asked for.
+ * In hub mode the nodes with more than hubDegree successors read a sample of
+ * hubDegree of them, drawn with probability proportional to the weight of
+ * their edges by systematic sampling (one draw in each of hubDegree equal
+ * slices of the out weight, so successors heavier than a slice are always
+ * read). Each draw adds damping / hubDegree times the scores of the successor,
+ * so on average the scores are the same as reading all of them. Each hub
+ * always reads the same sample, a new one in each iteration would keep its
+ * scores moving and iterations from converging.
+ */
+final class GuerrieriUpdate
+{
+    private final IntGraph g;
+    private final double damping;
+    private final boolean merge;
+    private final int hubDegree;//0 to read every successor
+
+    //scores of the node being updated
+    private final SparseAccumulator accumulator;
+
+    //buffers for the successors of the current node and the weights of their edges
+    private final int[] successors;
+    private final double[] weights;
+    //number of scores of each successor, for merge
+    private final int[] sizes;
+
+    //node of the last update and score removed by its keepTop
+    private int last;
+    private double truncated;
+
+    GuerrieriUpdate(final IntGraph g, final double damping)
+    {
+        this(g, damping, false, 0);
+    }
+
+    /**
+     * @param g The graph.
+     * @param damping The damping factor.
+     * @param merge True to merge the sorted scores of the successors, stopping 
+     * when the keys not read yet can't get in the top (see the class), false 
+     * to add all of them.
+     */
+    GuerrieriUpdate(final IntGraph g, final double damping, final boolean merge)
+    {
+        this(g, damping, merge, 0);
+    }
+
+    /**
+     * @param g The graph.
+     * @param damping The damping factor.
+     * @param hubDegree Nodes with more successors read a sample of hubDegree
+     * of them, 0 to read all of them.
+     */
+    GuerrieriUpdate(final IntGraph g, final double damping, final int hubDegree)
+    {
+        this(g, damping, false, hubDegree);
+    }
+
+    private GuerrieriUpdate(final IntGraph g, final double damping, final boolean merge, final int hubDegree)
+    {
+        if(hubDegree < 0)
+            throw new IllegalArgumentException("Hub degree can't be negative");
+        this.g = g;
+        this.damping = damping;
+        this.merge = merge;
+        this.hubDegree = hubDegree;
+        accumulator = new SparseAccumulator(g.vertices());
+        successors = new int[g.maxOutDegree()];
+        weights = new double[g.maxOutDegree()];
+        sizes = new int[merge? g.maxOutDegree() : 0];
+    }
+
+    /**
+     * Computes the next scores of v from the current scores of its successors.
+     * @param scores Scores of every node, the next generation of v is written,
+     * in merge mode the scores of each node must be sorted and they stay so.
+     * @param v Node to update.
+     * @param top How many scores to keep for v.
+     * @return Norm1 of the difference between the current and the next scores of v.
+     */
+    double update(final ScoreSlabs scores, final int v, final int top)
+    {
+        last = v;
+        
+        //to avoid calculating it for each successor
+        double factor = damping / g.outWeight(v);
+
+        //every node starts with a rank of (1 - dampingFactor) in it's own map
+        accumulator.clear();
+        accumulator.addTo(v, 1 - damping);
+
+        //for each successor of v
+        int outDegree = g.successors(v, successors);
+        g.successorWeights(v, weights);
+        if(merge)
+        {
+            merge(scores, outDegree, factor, top);
+            //the scores not read are lost too
+            double total = 1 - damping;
+            for(int s = 0; s < outDegree; s++)
+                total += factor * weights[s] * scores.sum(successors[s]);
+            accumulator.keepTop(top);
+            truncated = Math.max(0, total - accumulator.sum());
+            accumulator.sort();
+        }
+        else if(hubDegree > 0 && outDegree > hubDegree)
+        {
+            sample(scores, v, outDegree);
+            truncated = accumulator.keepTop(top);
+        }
+        else
+        {
+            for(int s = 0; s < outDegree; s++)
+            {
+                /**
+                 * for each value of personalized pagerank (max L values) saved
+                 * in the map  of a successor increment the personalized pagerank of v
+                 * for that key of a fraction of it.
+                 */
+                scores.addTo(successors[s], accumulator, factor * weights[s]);
+            }
+            //keep the top L values only
+            truncated = accumulator.keepTop(top);
+        }
+
+        double diff = scores.norm1(v, accumulator);
+        scores.setNext(v, accumulator);
+        return diff;
+    }
+
+    //reads the sorted successor lists a depth at a time, doubling it, until
+    //the threshold can't reach the top-th score read
+    private void merge(final ScoreSlabs scores, final int outDegree, final double factor, final int top)
+    {
+        int maxSize = 0;
+        for(int s = 0; s < outDegree; s++)
+        {
+            sizes[s] = scores.size(successors[s]);
+            maxSize = Math.max(maxSize, sizes[s]);
+        }
+        int depth = 0;
+        int step = 1;
+        while(depth < maxSize)
+        {
+            int next = Math.min(maxSize, depth + step);
+            double threshold = 0;
+            for(int s = 0; s < outDegree; s++)
+                if(depth < sizes[s])
+                {
+                    int to = Math.min(next, sizes[s]);
+                    scores.addTo(successors[s], accumulator, factor * weights[s], depth, to);
+                    if(to < sizes[s])
+                        threshold += factor * weights[s] * scores.value(successors[s], to);
+                }
+            depth = next;
+            step *= 2;
+            if(threshold == 0 || threshold <= accumulator.kth(top))
+            {
+                //random access of the threshold algorithm, the keys read get the rest 
+                //of their scores, the ones not read can't get in the top
+                for(int s = 0; s < outDegree; s++)
+                    if(depth < sizes[s])
+                        scores.addToKeys(successors[s], accumulator, factor * weights[s], depth, sizes[s]);
+                return;
+            }
+        }
+    }
+
+    //adds hubDegree successors drawn by systematic sampling on the out weight
+    private void sample(final ScoreSlabs scores, final int v, final int outDegree)
+    {
+        double slice = g.outWeight(v) / hubDegree;
+        double point = slice * offset(v);
+        double cumulative = 0;
+        int draws = 0;
+        for(int s = 0; s < outDegree && draws < hubDegree; s++)
+        {
+            cumulative += weights[s];
+            int hits = 0;
+            //the last successor gets the draws rounding may have left
+            while(draws < hubDegree && (point < cumulative || s == outDegree - 1))
+            {
+                hits++;
+                draws++;
+                point += slice;
+            }
+            if(hits > 0)
+                scores.addTo(successors[s], accumulator, damping * hits / hubDegree);
+        }
+    }
+
+    //pseudo random number in [0, 1) depending only on v, so results don't
+    //depend on which thread updates v nor on the iteration
+    private static double offset(final int v)
+    {
+        long z = v + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @return Sum of the scores the last update removed to keep the top ones,
+     * or didn't read in merge mode.
+     */
+    double getTruncated()
+    {
+        return truncated;
+    }
+
+    /**
+     * Bound on the norm1 distance of the scores of the last node updated from
+     * its personalized pagerank without truncation: the score removed by the
+     * update plus the damped average of the bounds of its successors, which
+     * is how far the scores it read can be. Not a bound in hub mode, where
+     * the sampled scores can be off either way.
+     * @param bounds Bound of the scores read from each node.
+     * @return The bound of the new scores.
+     */
+    double errorBound(final double[] bounds)
+    {
+        double res = 0;
+        int outDegree = g.outDegree(last);
+        for(int s = 0; s < outDegree; s++)
+            res += weights[s] * bounds[successors[s]];
+        return truncated + (outDegree == 0? 0 : damping / g.outWeight(last) * res);
+    }
+
+    /**
+     * @param k Size of the top, must be positive.
+     * @return Gap after the k-th highest new score of the last node updated,
+     * see SparseAccumulator.gap.
+     */
+    double gap(final int k)
+    {
+        return accumulator.gap(k);
+    }
+}
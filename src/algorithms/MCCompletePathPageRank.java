@@ -1,10 +1,11 @@
 package algorithms;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import graph.AliasTables;
+import graph.CsrGraph;
+import graph.IntGraph;
 import java.util.Random;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
-import utility.Graphs;
 import utility.NodeScores;
 
 
@@ -19,6 +20,8 @@ import utility.NodeScores;
  * After the random walks are done an approximation of the top K personalized
  * pagerank scorers for node X can be obtained by keeping the top K values
  * from scores(X).
+ * On weighted graphs successors are picked with probability proportional
+ * to the weight of their edge, using alias tables.
  */
 public class MCCompletePathPageRank extends PersonalizedPageRankAlgorithm
 {
@@ -59,7 +62,7 @@ public class MCCompletePathPageRank extends PersonalizedPageRankAlgorithm
     /**
      * Create object and run the algorithm, results of the personalized pagerank
      * are stored in the object.
-     * @param g the input graph
+     * @param g the input graph, converted to a CsrGraph before running
      * @param smallTop How many max entries to keep in the final results.
      * @param iterations Number of runs to do for each node.
      * @param dampingFactor Damping factor (chance of following an edge instead
@@ -67,9 +70,24 @@ public class MCCompletePathPageRank extends PersonalizedPageRankAlgorithm
      */
     public MCCompletePathPageRank(final DirectedGraph<Integer, DefaultEdge> g, 
             final int smallTop, final int iterations, final double dampingFactor)
+    {
+        this(CsrGraph.fromGraph(g), smallTop, iterations, dampingFactor);
+        directed = g;
+    }
+    
+    /**
+     * Create object and run the algorithm, results of the personalized pagerank
+     * are stored in the object.
+     * @param g the input graph
+     * @param smallTop How many max entries to keep in the final results.
+     * @param iterations Number of runs to do for each node.
+     * @param dampingFactor Damping factor (chance of following an edge instead
+     * of teleporting)
+     */
+    public MCCompletePathPageRank(final IntGraph g, 
+            final int smallTop, final int iterations, final double dampingFactor)
     {
         this.g = g;
-        this.scores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
         
         if(smallTop <= 0)
             throw new IllegalArgumentException("Top k entries to keep must be positive");
@@ -80,7 +98,7 @@ public class MCCompletePathPageRank extends PersonalizedPageRankAlgorithm
         if(dampingFactor < 0 || dampingFactor >= 1)
             throw new IllegalArgumentException("Damping factor must be [0,1)");
         
-        parameters = new MCCompletePathParameters(g.vertexSet().size(), g.edgeSet().size(), 
+        parameters = new MCCompletePathParameters(g.vertices(), g.edges(), 
                 smallTop, iterations, dampingFactor);
         
         run();
@@ -103,8 +121,11 @@ public class MCCompletePathPageRank extends PersonalizedPageRankAlgorithm
     {
         Random random = new Random();
         
-        //successors for each node, to avoid calling Graphs.successorListOf which is slow
-        Int2ObjectOpenHashMap<int[]> successors = Graphs.getSuccessors(g);
+        NodeScores[] scores = new NodeScores[g.vertices()];
+        NodeScores.Scratch scratch = new NodeScores.Scratch();
+        
+        //unweighted graphs pick successors uniformly without tables
+        AliasTables tables = g.isWeighted()? new AliasTables(g) : null;
         
         /*
         a part of the walks is wasted because a teleport happens before traversing
@@ -114,7 +135,7 @@ public class MCCompletePathPageRank extends PersonalizedPageRankAlgorithm
         int walks = (int) (parameters.getIterations() * parameters.getDamping());
         double teleported;
         
-        for(int node: g.vertexSet())
+        for(int node = 0; node < g.vertices(); node++)
         {
             NodeScores map = new NodeScores();
 
@@ -132,27 +153,29 @@ public class MCCompletePathPageRank extends PersonalizedPageRankAlgorithm
                 */
                 do
                 {
-                    //get successors of the current node
-                    int[] next = successors.get(currentNode);
+                    //number of successors of the current node
+                    int outDegree = g.outDegree(currentNode);
 
                     //if the current node has no outgoing edges the walk ends here
-                    if(next.length == 0)
+                    if(outDegree == 0)
                         teleported = 1d;
                     else
                     {
                         //get to a random successor 
-                        currentNode = next[random.nextInt(next.length)];
+                        currentNode = g.successor(currentNode, tables == null? 
+                                random.nextInt(outDegree) : tables.sample(currentNode, random));
                         map.addTo(currentNode, 1d);
                         //decide if the walk ends here or not
                         teleported = random.nextDouble();
                     }
                 }while(teleported <= parameters.getDamping());
             }
-            map.keepTop(parameters.smallTop);
-            scores.put(node, map);
+            map.keepTop(parameters.smallTop, scratch);
+            scores[node] = map;
         }
         //trim to avoid wasting space
-        for(int v: scores.keySet())
-            scores.get(v).trim();
+        for(NodeScores map: scores)
+            map.trim();
+        setScores(scores);
     }
 }
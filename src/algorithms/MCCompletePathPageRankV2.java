@@ -1,15 +1,14 @@
 package algorithms;
 
-import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import graph.AliasTables;
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.StronglyConnectedComponents;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
 import java.util.Random;
 import org.jgrapht.DirectedGraph;
-import org.jgrapht.alg.util.Pair;
 import org.jgrapht.graph.DefaultEdge;
-import utility.Graphs;
 import utility.NodeScores;
 
 
@@ -19,6 +18,10 @@ import utility.NodeScores;
  * neighbours, to ensure each node move to it's successors it an uniformly
  * fashion each node is mapped to an index telling where to go next which is
  * incremented every time it's used.
+ * Nodes are computed one strongly connected component at a time, successors
+ * first, so walks are only needed on cycles.
+ * On weighted graphs successors are sampled from alias tables instead and
+ * results of the successors are averaged by the weights of their edges.
  */
 public class MCCompletePathPageRankV2 extends PersonalizedPageRankAlgorithm
 {
@@ -28,6 +31,9 @@ public class MCCompletePathPageRankV2 extends PersonalizedPageRankAlgorithm
     public static final double DEFAULT_DAMPING_FACTOR = 0.85;
     private final MCCompletePathParameters parameters;
     
+    //strongly connected components, they decide the order of execution
+    private final StronglyConnectedComponents components;
+    
     //Private class to store running parameters
     public static class MCCompletePathParameters extends Parameters
     {
@@ -58,7 +64,7 @@ public class MCCompletePathPageRankV2 extends PersonalizedPageRankAlgorithm
     /**
      * Create object and run the algorithm, results of the personalized pagerank
      * are stored in the object.
-     * @param g the input graph
+     * @param g the input graph, converted to a CsrGraph before running
      * @param smallTop How many max entries to keep in the final results.
      * @param iterations Number of runs to do for each node.
      * @param dampingFactor Damping factor (chance of following an edge instead
@@ -66,9 +72,40 @@ public class MCCompletePathPageRankV2 extends PersonalizedPageRankAlgorithm
      */
     public MCCompletePathPageRankV2(final DirectedGraph<Integer, DefaultEdge> g, 
             final int smallTop, final int iterations, final double dampingFactor)
+    {
+        this(CsrGraph.fromGraph(g), smallTop, iterations, dampingFactor);
+        directed = g;
+    }
+    
+    /**
+     * Create object and run the algorithm, results of the personalized pagerank
+     * are stored in the object.
+     * @param g the input graph
+     * @param smallTop How many max entries to keep in the final results.
+     * @param iterations Number of runs to do for each node.
+     * @param dampingFactor Damping factor (chance of following an edge instead
+     * of teleporting)
+     */
+    public MCCompletePathPageRankV2(final IntGraph g, 
+            final int smallTop, final int iterations, final double dampingFactor)
+    {
+        this(g, smallTop, iterations, dampingFactor, new StronglyConnectedComponents(g));
+    }
+    
+    /**
+     * Create object and run the algorithm with the strongly connected components
+     * computed beforehand, for example read from io.ArtifactCache.
+     * @param g the input graph
+     * @param smallTop How many max entries to keep in the final results.
+     * @param iterations Number of runs to do for each node.
+     * @param dampingFactor Damping factor (chance of following an edge instead
+     * of teleporting)
+     * @param components Strongly connected components of g.
+     */
+    public MCCompletePathPageRankV2(final IntGraph g, final int smallTop, final int iterations, 
+            final double dampingFactor, final StronglyConnectedComponents components)
     {
         this.g = g;
-        this.scores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
         
         if(smallTop <= 0)
             throw new IllegalArgumentException("Top k entries to keep must be positive");
@@ -79,7 +116,11 @@ public class MCCompletePathPageRankV2 extends PersonalizedPageRankAlgorithm
         if(dampingFactor < 0 || dampingFactor >= 1)
             throw new IllegalArgumentException("Damping factor must be [0,1)");
         
-        parameters = new MCCompletePathParameters(g.vertexSet().size(), g.edgeSet().size(), 
+        if(components.getOrder().length != g.vertices())
+            throw new IllegalArgumentException("Components of a different graph");
+        
+        this.components = components;
+        parameters = new MCCompletePathParameters(g.vertices(), g.edges(), 
                 smallTop, iterations, dampingFactor);
         
         run();
@@ -102,134 +143,162 @@ public class MCCompletePathPageRankV2 extends PersonalizedPageRankAlgorithm
     {
         Random random = new Random();
         
-        //successors for each node, to avoid calling Graphs.successorListOf which is slow
-        Int2ObjectOpenHashMap<int[]> successors = Graphs.getSuccessors(g);
+        NodeScores[] scores = new NodeScores[g.vertices()];
+        NodeScores.Scratch scratch = new NodeScores.Scratch();
+        
+        //buffer for the successors of the current node and their weights
+        int[] successors = new int[g.maxOutDegree()];
+        double[] weights = new double[g.maxOutDegree()];
         
         //each node has an index telling the next successor to pick when walking
-        //away from the node
-        Int2IntOpenHashMap indexes = new Int2IntOpenHashMap(g.vertexSet().size());
+        //away from the node, weighted graphs sample successors from the alias tables
+        int[] indexes = new int[g.vertices()];
+        AliasTables tables = g.isWeighted()? new AliasTables(g) : null;
         
         //an ordering of the vertices to run more efficiently
         int[] order = executionOrder();
         
         //will contain the results from the walks of nodes that have to walk
-        Int2ObjectOpenHashMap<NodeScores> walksMap = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
+        NodeScores[] walksMap = new NodeScores[g.vertices()];
         
         for(int node: order)
         {
             NodeScores map = new NodeScores();
-            if(g.outDegreeOf(node) > 0)
+            if(g.outDegree(node) > 0)
             {
-                double factor = parameters.getDamping() / g.outDegreeOf(node);
+                double factor = parameters.getDamping() / g.outWeight(node);
 
                 /*
                 every walk starts from the node, this can't be added later otherwise
                 keepTop might remove a small score for node and then adding 1 to the node
                 will cause the map to have a size of smallTop + 1
                 division by the damping factor is needed to take into consideration
-                the map.multiplyAll(factor), which averages by outdegree and
+                the map.multiplyAll(factor), which averages by outdegree (out weight) and
                 scales down values using the damping factor; since
                 the score for the node itself must not be scaled down the division
                 is performed
                 */
-                map.addTo(node, g.outDegreeOf(node) / parameters.getDamping());
+                map.addTo(node, g.outWeight(node) / parameters.getDamping());
                 
-                for(int successor: successors.get(node))
+                int outDegree = g.successors(node, successors);
+                g.successorWeights(node, weights);
+                for(int s = 0; s < outDegree; s++)
                 {
-                    if(scores.get(successor) != null)
-                        map.add(scores.get(successor));
+                    int successor = successors[s];
+                    if(scores[successor] != null)
+                        map.add(scores[successor], weights[s]);
                     else
                     {
-                        NodeScores tmp = walksMap.get(successor);
+                        NodeScores tmp = walksMap[successor];
                         if(tmp == null)
                         {
-                            tmp = this.doWalksForNode(successors, indexes, random, successor);
-                            walksMap.put(successor, tmp);
+                            tmp = this.doWalksForNode(indexes, tables, random, successor);
+                            walksMap[successor] = tmp;
                         }
-                        map.add(tmp);
+                        map.add(tmp, weights[s]);
                     }
                 }
                 
-                map.keepTop(parameters.smallTop);
+                map.keepTop(parameters.smallTop, scratch);
 
                 //multiply each value in the map for the factor
                 map.multiplyAll(factor);
             }
             else//if no outgoing edges just put 1 as value for itself
                 map.addTo(node, 1d);
-            scores.put(node, map);
-            walksMap.remove(node);
+            scores[node] = map;
+            walksMap[node] = null;
         }
         
         //trim to avoid wasting space
-        for(int v: scores.keySet())
+        for(NodeScores map: scores)
         {
-            scores.get(v).trim();
+            map.trim();
         }
+        setScores(scores);
     }
   
     /**
-     * Find an order of execution as good as possible. Vertices with more
-     * in going edges will be computed first.
-     * Every time a node is considered done all it's predecessors will have 
-     * one less successor to wait for, this means that if all the successors
-     * of a node are done the node will be considered computed as well, and it will
-     * recursively check if any predecessor can now be considered computed.
-     * @param maxWalks Will map the max number of walks needed for every node.
+     * Find an order of execution as good as possible. Strongly connected
+     * components are taken in reverse topological order, so every node of a
+     * trivial component (no cycles through it) finds all its successors done
+     * and is computed exactly from them, without any walk.
+     * Inside the other components vertices with more in going edges will be 
+     * computed first. Every time a node is considered done all it's predecessors
+     * in the component will have one less successor to wait for, this means that
+     * if all the successors of a node are done the node will be considered
+     * computed as well, and it will recursively check if any predecessor can
+     * now be considered computed.
      * @return An array of integers (node ids) representing the order of execution
      * to take.
      */
     private int[] executionOrder()
     {
-        //first part: sort nodes by indegree descending and outdegree ascending
-        int[] tmpOrder = sortNodes();
+        int[] tmpOrder = components.getOrder().clone();
+        int[] offsets = components.getOffsets();
         
-        /*
-        second part: find the order of the nodes after taking into consideration
-        that if a node is done then all it's predecessors have 1 less successor
-        to wait for
-        */
-        int index = 0;
-        int[] newOrder = new int[g.vertexSet().size()];
+        //nodes are added as they are found, so this also works as the queue
+        int index = 0, head = 0;
+        int[] newOrder = new int[g.vertices()];
         
-        //remaining successors to wait for
-        Int2IntOpenHashMap outDeg = new Int2IntOpenHashMap(g.vertexSet().size());
-        for(int node: g.vertexSet())
-            outDeg.put(node, g.outDegreeOf(node));
+        //remaining successors inside the component to wait for
+        int[] outDeg = new int[g.vertices()];
         
-        //using this map as a set to know if a node has been visited already
-        Int2IntOpenHashMap visited = new Int2IntOpenHashMap(g.vertexSet().size());
+        //to know if a node has been queued already
+        boolean[] visited = new boolean[g.vertices()];
         
-        List<Integer> queue = new ArrayList<>();
+        int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
         
-        for(int node: tmpOrder)
+        for(int c = 0; c < components.getCount(); c++)
         {
-            if(!visited.containsKey(node))
+            if(components.getSize(c) == 1)
             {
-                queue.add(node);
-                
-                while(!queue.isEmpty())
+                newOrder[index++] = tmpOrder[offsets[c]];
+                head = index;
+                continue;
+            }
+            
+            for(int k = offsets[c]; k < offsets[c + 1]; k++)
+            {
+                int node = tmpOrder[k];
+                int outDegree = g.successors(node, neighbours);
+                for(int s = 0; s < outDegree; s++)
+                    if(components.getComponent(neighbours[s]) == c)
+                        outDeg[node]++;
+            }
+            sortNodes(tmpOrder, offsets[c], offsets[c + 1]);
+            
+            for(int k = offsets[c]; k < offsets[c + 1]; k++)
+            {
+                int node = tmpOrder[k];
+                if(!visited[node])
                 {
-                    int next = queue.remove(0);
-                    newOrder[index] = next;
-                    index++; 
-                    visited.put(next, next);
-                    
-                    /*
-                    for each predecessor decrement the remaining successors to wait
-                    for and eventually consider it done when the remaining successors
-                    get to 0
-                    */
-                    for(int pred: org.jgrapht.Graphs.predecessorListOf(g, next))
+                    visited[node] = true;
+                    newOrder[index++] = node;
+
+                    while(head < index)
                     {
-                        int remaining = outDeg.get(pred);
-                        if(remaining > 0)
+                        int next = newOrder[head++];
+
+                        /*
+                        for each predecessor in the component decrement the remaining
+                        successors to wait for and eventually consider it done when
+                        the remaining successors get to 0
+                        */
+                        int inDegree = g.predecessors(next, neighbours);
+                        for(int p = 0; p < inDegree; p++)
                         {
-                            remaining--;
-                            outDeg.put(pred, remaining);
-                            //if the node can be computed
-                            if(remaining == 0 && !visited.containsKey(pred))
-                                queue.add(pred);
+                            int pred = neighbours[p];
+                            if(components.getComponent(pred) == c && outDeg[pred] > 0)
+                            {
+                                outDeg[pred]--;
+                                //if the node can be computed
+                                if(outDeg[pred] == 0 && !visited[pred])
+                                {
+                                    visited[pred] = true;
+                                    newOrder[index++] = pred;
+                                }
+                            }
                         }
                     }
                 }
@@ -239,58 +308,51 @@ public class MCCompletePathPageRankV2 extends PersonalizedPageRankAlgorithm
     }
     
     /**
-     *  Sort nodes by indegree descending and outdegree ascending.
-     * @return Array of node ids as integers.
+     *  Sort a range of nodes by indegree descending and outdegree ascending.
+     * @param nodes Array of node ids as integers.
+     * @param from First position of the range.
+     * @param to Position after the last one of the range.
      */
-    private int[] sortNodes()
+    private void sortNodes(final int[] nodes, final int from, final int to)
     {
-        //first part: sort nodes by indegree descending and outdegree ascending
-        int index = 0;
-        int[] res = new int[g.vertexSet().size()];
-        Pair<Integer, Integer>[] nodeOutDeg = new Pair[g.vertexSet().size()];
-        for(int node: g.vertexSet())
-        {
-            nodeOutDeg[index] = new Pair<>(node, g.inDegreeOf(node));
-            index++;
-        }
-        
-        Arrays.sort(nodeOutDeg, (Pair<Integer, Integer> e1, Pair<Integer, Integer> e2)
-        -> {
-            
-            return -(e1.getSecond().compareTo(e2.getSecond())) == 0? 
-                    (new Integer(g.outDegreeOf(e1.getFirst()))).compareTo(g.outDegreeOf(e2.getFirst()))
-                    : -(e1.getSecond().compareTo(e2.getSecond()));
-            });
-        
-        index = 0;
-        for(Pair<Integer, Integer> pair: nodeOutDeg)
+        //merge sort is stable, ties keep the order of the indexes
+        IntArrays.mergeSort(nodes, from, to, new IntComparator()
         {
-            res[index] = pair.getFirst();
-            index++;
-        }
-        return res;
+            @Override
+            public int compare(int n1, int n2)
+            {
+                return g.inDegree(n1) != g.inDegree(n2)? 
+                        Integer.compare(g.inDegree(n2), g.inDegree(n1)) 
+                        : Integer.compare(g.outDegree(n1), g.outDegree(n2));
+            }
+
+            @Override
+            public int compare(Integer n1, Integer n2)
+            {
+                return compare(n1.intValue(), n2.intValue());
+            }
+        });
     }
     
     /**
      * Do a number of random walks for a node and return a map containing 
      * the average number of visits to the encountered nodes.
-     * @param successors Map containing successors for each node, used for caching reasons.
-     * @param indexes Map containing for each node an index telling the next successor
+     * @param indexes Array containing for each node an index telling the next successor
      * to pick when walking away from the node.
+     * @param tables Alias tables used to pick successors of weighted graphs,
+     * null to pick them in round robin with indexes.
      * @param random Source of randomness for deciding when to teleport.
      * @param node Starting node.
-     * @param walks Number of walks to do.
      * @return Map having the average number of visits to the encountered nodes.
      */
-    private NodeScores doWalksForNode(Int2ObjectOpenHashMap<int[]> successors, Int2IntOpenHashMap indexes,
-           Random random, int node)
+    private NodeScores doWalksForNode(int[] indexes, AliasTables tables, Random random, int node)
     {
         NodeScores map = new NodeScores(parameters.smallTop);
-        if(successors.get(node).length > 0)
+        if(g.outDegree(node) > 0)
         {
             double teleported;//tells if a teleport happens
             int currentNode;//keeps the current node
-            int[] next;//successors of the current node
+            int outDegree;//number of successors of the current node
             int index;//index telling which successor to take when going from 
             //the currentNode to a successor
             
@@ -314,18 +376,22 @@ public class MCCompletePathPageRankV2 extends PersonalizedPageRankAlgorithm
                 */
                 do
                 {
-                    //get successors of the current node
-                    next = successors.get(currentNode);
+                    outDegree = g.outDegree(currentNode);
 
                     //if the current node has no outgoing edges the walk ends here
-                    if(next.length == 0)
+                    if(outDegree == 0)
                         teleported = 1d;
                     else
                     {
                         //pick next node and increment index
-                        index = indexes.get(currentNode);
-                        indexes.put(currentNode, (index + 1)%next.length);
-                        currentNode = next[index];
+                        if(tables == null)
+                        {
+                            index = indexes[currentNode];
+                            indexes[currentNode] = (index + 1)%outDegree;
+                        }
+                        else
+                            index = tables.sample(currentNode, random);
+                        currentNode = g.successor(currentNode, index);
                         
                         //increment node only if it won't make the map size greater than what's allowed
                         if(map.size() < parameters.smallTop || map.containsKey(currentNode))
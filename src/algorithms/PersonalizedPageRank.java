@@ -1,7 +1,8 @@
 package algorithms;
 
-import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import graph.CsrGraph;
+import graph.IntGraph;
+import java.util.Arrays;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
 import utility.NodeScores;
@@ -14,7 +15,7 @@ public class PersonalizedPageRank
      * Execute an instance of personalized pagerank starting from the
      * origin.
      * 
-     * @param g the input graph
+     * @param g the input graph, converted to a CsrGraph before running
      * @param dampingFactor the damping factor
      * @param maxIterations the maximum number of iterations to perform
      * @param tolerance the calculation will stop if the difference of PageRank values between
@@ -26,6 +27,27 @@ public class PersonalizedPageRank
      * the only node in the teleport set.
      */
     public static NodeScores getScores(final DirectedGraph<Integer, DefaultEdge> g, double dampingFactor, int maxIterations, double tolerance, int origin)
+    {
+        return getScores(CsrGraph.fromGraph(g), dampingFactor, maxIterations, tolerance, origin);
+    }
+    
+    /**
+     * Execute an instance of personalized pagerank starting from the
+     * origin.
+     * 
+     * @param g the input graph
+     * @param dampingFactor the damping factor
+     * @param maxIterations the maximum number of iterations to perform
+     * @param tolerance the calculation will stop if the difference of PageRank values between
+     *        iterations change less than this value
+     * @param origin the original id of the node for which to run personalized pagerank
+     * @return Retrieves a map containing the personalized pagerank scores for a node,
+     * keys are original ids, nodes the origin doesn't reach have no score.
+     * Given a node "origin" the map contains pagerank scores of nodes  in the graph
+     * as if pagerank was run having the origin node as the only starting node and 
+     * the only node in the teleport set.
+     */
+    public static NodeScores getScores(final IntGraph g, double dampingFactor, int maxIterations, double tolerance, int origin)
     {
         if (maxIterations <= 0) 
         {
@@ -47,51 +69,58 @@ public class PersonalizedPageRank
             throw new IllegalArgumentException("origin vertex must be part of the grap");
         }
 
-        return run(g, dampingFactor, maxIterations, tolerance, origin);
+        return run(g, dampingFactor, maxIterations, tolerance, g.index(origin));
     }
     
-    private static NodeScores run(DirectedGraph<Integer, DefaultEdge> g, double dampingFactor, int maxIterations, double tolerance, int origin)
+    private static NodeScores run(IntGraph g, double dampingFactor, int maxIterations, double tolerance, int origin)
     {
-        //successors for each node, to avoid calling Graphs.successorListOf which is slow
-        Int2ObjectOpenHashMap<int[]> successors = utility.Graphs.getSuccessors(g);
+        //buffers for the successors of the current node and the weights of their edges
+        int[] successors = new int[g.maxOutDegree()];
+        double[] weights = new double[g.maxOutDegree()];
         
         double maxDiff = tolerance;
 
-        NodeScores scores = new NodeScores();
         //init every non origin score to 0 and origin to 1
-        for (int node: g.vertexSet()) 
-            scores.put(node, 0d);
-        scores.put(origin, 1d);
+        double[] scores = new double[g.vertices()];
+        scores[origin] = 1d;
         
-        NodeScores nextScores = new NodeScores();
+        double[] nextScores = new double[g.vertices()];
         
         for(int i = 0; i < maxIterations && maxDiff >= tolerance; i++)
         {
-            maxDiff = 0;
-            nextScores.clear();
-            nextScores.addTo(origin, 1 - dampingFactor);
+            Arrays.fill(nextScores, 0d);
+            nextScores[origin] = 1 - dampingFactor;
 
-            for (Int2DoubleOpenHashMap.Entry entry: scores.int2DoubleEntrySet()) 
+            for (int node = 0; node < g.vertices(); node++) 
             {
-                int node = entry.getIntKey();
-                double value = entry.getDoubleValue();
-                double factor = dampingFactor/g.outDegreeOf(node);
+                double value = scores[node];
+                if(value == 0d)
+                    continue;
+                double factor = dampingFactor/g.outWeight(node);
                 
                 //add pagerank to every successor of the node
-                for (int successor : successors.get(node))
-                    nextScores.addTo(successor, value * factor);
+                int outDegree = g.successors(node, successors);
+                g.successorWeights(node, weights);
+                for (int s = 0; s < outDegree; s++)
+                    nextScores[successors[s]] += value * factor * weights[s];
             }
             
-            //check if the norm1 of the difference is greater than the maxDiff
-                maxDiff = Math.max(nextScores.norm1(scores), maxDiff);
+            //norm1 of the difference
+            maxDiff = 0;
+            for (int node = 0; node < g.vertices(); node++) 
+                maxDiff += Math.abs(nextScores[node] - scores[node]);
             
             //swap scores
-            NodeScores tmp = scores;
+            double[] tmp = scores;
             scores = nextScores;
             nextScores = tmp;
         }
-        //trim to avoid wasting space
-        scores.trim();
-        return scores;
+        
+        //only nodes reached by the origin are part of the result
+        NodeScores res = new NodeScores();
+        for (int node = 0; node < g.vertices(); node++) 
+            if(scores[node] > 0)
+                res.put(g.id(node), scores[node]);
+        return res;
     }
 }
@@ -1,17 +1,26 @@
 package algorithms;
 
+import graph.IntGraph;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
+import utility.Graphs;
 import utility.NodeScores;
 
 /**
  * Abstract class for classes that will contain scores related to personalized
  * pagerank.
+ * Algorithms run on the dense vertex indexes of an IntGraph, results are
+ * exposed using the original vertex ids.
+ * The IntGraph is a snapshot taken at construction, changes made to a jgrapht
+ * graph afterwards don't affect the results.
  */
 abstract public class PersonalizedPageRankAlgorithm
 {
-    protected DirectedGraph<Integer, DefaultEdge> g;
+    protected IntGraph g;
+    //jgrapht graph the algorithm was built from, null if it was given an IntGraph
+    protected DirectedGraph<Integer, DefaultEdge> directed;
     protected Int2ObjectOpenHashMap<NodeScores> scores;
     
     /**
@@ -25,7 +34,7 @@ abstract public class PersonalizedPageRankAlgorithm
      */
     public NodeScores getMap(final int origin)
     {
-        if(!g.containsVertex(origin))
+        if(!containsVertex(origin))
             throw new IllegalArgumentException("Origin vertex isn't part of the graph.");
         return scores.get(origin);
     }
@@ -53,9 +62,9 @@ abstract public class PersonalizedPageRankAlgorithm
      */
     public double getRank(final int origin,final int target)
     {
-        if(!g.containsVertex(origin))
+        if(!containsVertex(origin))
             throw new IllegalArgumentException("Origin vertex isn't part of the graph.");
-        if(!g.containsVertex(target))
+        if(!containsVertex(target))
             throw new IllegalArgumentException("Target vertex isn't part of the graph.");
         return scores.get(origin).get(target);
     }
@@ -68,13 +77,52 @@ abstract public class PersonalizedPageRankAlgorithm
     
     /**
      * Returns the graph for which the algorithm was run.
+     * If the algorithm was given an IntGraph a jgrapht copy of it is built
+     * (once), edge weights aren't part of the copy.
      * @return 
      */
     public DirectedGraph<Integer, DefaultEdge> getGraph()
+    {
+        if(directed == null)
+            directed = Graphs.toGraph(g);
+        return directed;
+    }
+    
+    /**
+     * Returns the dense snapshot of the graph the algorithm actually ran on,
+     * dense indexes of results (e.g. budgets) refer to this graph.
+     * @return 
+     */
+    public IntGraph getIntGraph()
     {
         return g;
     }
     
+    //vertices are checked against the graph given by the user, as it was before
+    //the IntGraph snapshot existed
+    private boolean containsVertex(final int id)
+    {
+        return directed != null ? directed.containsVertex(id) : g.containsVertex(id);
+    }
+    
+    /**
+     * Stores scores computed on the dense indexes of g as the results of the
+     * algorithm, translating both origins and targets back to the original ids.
+     * @param dense Scores for each dense index, keys of each map are dense
+     * indexes as well.
+     */
+    protected void setScores(final NodeScores[] dense)
+    {
+        scores = new Int2ObjectOpenHashMap<>(dense.length);
+        for(int v = 0; v < dense.length; v++)
+        {
+            NodeScores translated = new NodeScores(dense[v].size());
+            for(Int2DoubleMap.Entry entry: dense[v].int2DoubleEntrySet())
+                translated.put(g.id(entry.getIntKey()), entry.getDoubleValue());
+            scores.put(g.id(v), translated);
+        }
+    }
+    
     //parameters class, used as a base for other algorithms parameters
     static public class Parameters 
     {
@@ -1,5 +1,6 @@
 package algorithms;
 
+import graph.CsrGraph;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.util.Map;
 import org.jgrapht.DirectedGraph;
@@ -17,6 +18,9 @@ public class WrappedOnlinePageRank extends PersonalizedPageRankAlgorithm
 {
     private final Parameters parameters;
     
+    //graph used by the jgrapht PageRank, this.g is only used to check vertices
+    private final DirectedGraph<Integer, DefaultEdge> source;
+    
     //CONSTRUCTORS
     ////////////////////
     
@@ -31,9 +35,11 @@ public class WrappedOnlinePageRank extends PersonalizedPageRankAlgorithm
     public WrappedOnlinePageRank(final DirectedGraph<Integer, DefaultEdge> g, final int iterations, 
             final double dampingFactor, final double tolerance)
     {
-        this.g = g;
+        this.g = CsrGraph.fromGraph(g);
+        directed = g;
+        this.source = g;
         
-        parameters = new Parameters(g.vertexSet().size(), g.edgeSet().size(), 
+        parameters = new Parameters(this.g.vertices(), this.g.edges(), 
                 iterations, dampingFactor, tolerance);
     }
     
@@ -44,7 +50,7 @@ public class WrappedOnlinePageRank extends PersonalizedPageRankAlgorithm
      */
     private NodeScores calculateNode(int node)
     {
-        VertexScoringAlgorithm<Integer, Double> pr = new PageRank<>(g, parameters.getDamping(), 
+        VertexScoringAlgorithm<Integer, Double> pr = new PageRank<>(source, parameters.getDamping(), 
                         parameters.getIterations(), parameters.getTolerance(), node);
         Map<Integer, Double> pprScores = pr.getScores();
         NodeScores map = new NodeScores(pprScores);
@@ -1,5 +1,7 @@
 package algorithms;
 
+import graph.CsrGraph;
+import graph.IntGraph;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -23,7 +25,7 @@ public class WrappedStoringPageRank extends PersonalizedPageRankAlgorithm
     /**
      * Create object and run the algorithm, results of the personalized pagerank
      * are stored in the object.
-     * @param g The input graph.
+     * @param g The input graph, converted to a CsrGraph before running.
      * @param smallTop How many max entries for each vertex to keep in the final results.
      * @param iterations The number of iterations to perform.
      * @param dampingFactor The damping factor.
@@ -32,33 +34,45 @@ public class WrappedStoringPageRank extends PersonalizedPageRankAlgorithm
      */
     public WrappedStoringPageRank(final DirectedGraph<Integer, DefaultEdge> g, final int smallTop,
             final int iterations, final double dampingFactor, final double tolerance, int samples)
+    {
+        this(CsrGraph.fromGraph(g), smallTop, iterations, dampingFactor, tolerance, samples);
+        directed = g;
+    }
+    
+    /**
+     * Create object and run the algorithm, results of the personalized pagerank
+     * are stored in the object.
+     * @param g The input graph.
+     * @param smallTop How many max entries for each vertex to keep in the final results.
+     * @param iterations The number of iterations to perform.
+     * @param dampingFactor The damping factor.
+     * @param tolerance Stop if the difference of scores between iterations is lower than tolerance. 
+     * @param samples Number of nodes for which to run the algorithm.
+     */
+    public WrappedStoringPageRank(final IntGraph g, final int smallTop,
+            final int iterations, final double dampingFactor, final double tolerance, int samples)
     {
         this.g = g;
-        this.scores = new Int2ObjectOpenHashMap<>(g.vertexSet().size());
+        this.scores = new Int2ObjectOpenHashMap<>(g.vertices());
         pickedNodes = new HashSet<>(samples);
         
         if(samples < 0) 
             throw new IllegalArgumentException("Number of samples can't be negative");
         
-        if(samples > g.vertexSet().size()) 
+        if(samples > g.vertices()) 
             throw new IllegalArgumentException("Number of samples can't be greater than total nodes in the graph");
         
-        parameters = new Parameters(g.vertexSet().size(), g.edgeSet().size(), 
+        parameters = new Parameters(g.vertices(), g.edges(), 
                 iterations, dampingFactor, tolerance);
         
         //pick nodes
-        ArrayList<Integer> nodes = new ArrayList<>(g.vertexSet());
+        ArrayList<Integer> nodes = new ArrayList<>(g.vertices());
+        for(int v = 0; v < g.vertices(); v++)
+            nodes.add(g.id(v));
         Collections.shuffle(nodes);
         for(int i = 0; i < samples; i++)
             {
                 pickedNodes.add(nodes.get(i));
-                /*
-                VertexScoringAlgorithm<Integer, Double> pr = new PageRank<>(g, parameters.getDamping(), 
-                        parameters.getIterations(), parameters.getTolerance(), nodes.get(i));
-                Map<Integer, Double> pprScores = pr.getScores();
-                //"translate" this map into a NodeScores to satisty the interface
-                NodeScores map = new NodeScores(pprScores);
-                */
                 NodeScores map = PersonalizedPageRank.getScores(g, dampingFactor, iterations, tolerance, nodes.get(i));
                 map.keepTop(smallTop);
                 map.trim();
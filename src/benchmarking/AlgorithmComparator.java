@@ -2,18 +2,15 @@ package benchmarking;
 
 import benchmarking.Kendall;
 import benchmarking.Jaccard;
+import graph.IntGraph;
 import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
-import org.jgrapht.DirectedGraph;
-import org.jgrapht.Graphs;
-import org.jgrapht.graph.DefaultEdge;
-import algorithms.PageRank;
+import algorithms.GlobalPageRank;
 import algorithms.PersonalizedPageRankAlgorithm;
 import utility.PartialSorter;
 
@@ -200,15 +197,37 @@ public class AlgorithmComparator
     public static NodesComparisonData[] compareOrigins(PersonalizedPageRankAlgorithm alg1, 
             PersonalizedPageRankAlgorithm alg2, Set<Integer> nodes, int[] differentKs) 
     {
-        DirectedGraph<Integer,DefaultEdge> g = alg1.getGraph(); 
+        IntGraph g = alg1.getIntGraph(); 
+        
+        //pagerank value (not personalized pagerank) for each dense vertex index
+        double[] pagerank = GlobalPageRank.getScores(g, alg1.getParameters().getDamping(), 
+                alg1.getParameters().getIterations(), 
+                alg1.getParameters().getTolerance() <= 0? 0.85 : alg1.getParameters().getTolerance());
+        return compareOrigins(alg1, alg2, nodes, differentKs, pagerank);
+    }
+    
+    /**
+     * Same as compareOrigins(alg1, alg2, nodes, differentKs) with the global
+     * pagerank computed beforehand, for example read from io.ArtifactCache.
+     * @param alg1 First algorithm.
+     * @param alg2 Second algorithm.
+     * @param nodes Set of nodes for which to do a comparison on the results.
+     * @param differentKs Which Ks will be used in the comparison of the algorithm
+     * results.
+     * @param pagerank Pagerank centrality of each dense vertex index of the
+     * graph of alg1.
+     * @return Data about every origin node, see compareOrigins(alg1, alg2, nodes, differentKs).
+     */
+    public static NodesComparisonData[] compareOrigins(PersonalizedPageRankAlgorithm alg1, 
+            PersonalizedPageRankAlgorithm alg2, Set<Integer> nodes, int[] differentKs, double[] pagerank) 
+    {
+        IntGraph g = alg1.getIntGraph(); 
+        if(pagerank.length != g.vertices())
+            throw new IllegalArgumentException("Pagerank of a different graph");
         
         //sort the Ks so comparison can be done with growing sets/arrays
         Arrays.sort(differentKs);
         
-        //pagerank value (not personalized pagerank)
-        Map<Integer, Double> pagerank = (new PageRank<>(g, alg1.getParameters().getDamping(), 
-                alg1.getParameters().getIterations(), 
-                alg1.getParameters().getTolerance() <= 0? 0.85 : alg1.getParameters().getTolerance()).getScores());
         NodesComparisonData[] res = new NodesComparisonData[differentKs.length];
         
         //(k, nodes.size(), alg1.getParameters(), alg2.getParameters());
@@ -253,9 +272,9 @@ public class AlgorithmComparator
             res[i] = new NodesComparisonData(differentKs[i], nodes.size(), 
                     alg1.getParameters(), alg2.getParameters());
             
-            Int2DoubleOpenHashMap err = new Int2DoubleOpenHashMap(g.vertexSet().size());
-            Int2IntOpenHashMap exl = new Int2IntOpenHashMap(g.vertexSet().size());
-            Int2IntOpenHashMap incl = new Int2IntOpenHashMap(g.vertexSet().size());
+            Int2DoubleOpenHashMap err = new Int2DoubleOpenHashMap(g.vertices());
+            Int2IntOpenHashMap exl = new Int2IntOpenHashMap(g.vertices());
+            Int2IntOpenHashMap incl = new Int2IntOpenHashMap(g.vertices());
             errors(alg1, alg2, nodes, differentKs[i], err, exl, incl);
             errorMap[i] = err;
             excludedMap[i] = exl;
@@ -327,9 +346,9 @@ public class AlgorithmComparator
                     kMap[k].put(node.intValue(), Kendall.correlation(k1, k2, false));
 
                     res[k].setId(index, node);
-                    res[k].setIndegree(index, g.inDegreeOf(node));
-                    res[k].setOutdegree(index, g.outDegreeOf(node));
-                    res[k].setPagerank(index, pagerank.get(node));
+                    res[k].setIndegree(index, g.inDegree(g.index(node)));
+                    res[k].setOutdegree(index, g.outDegree(g.index(node)));
+                    res[k].setPagerank(index, pagerank[g.index(node)]);
                     res[k].setJaccard(index, jMap[k].get(node.intValue()));
                     res[k].setKendall(index, kMap[k].get(node.intValue()));
                     res[k].setPagerankError(index, errorMap[k].get(node.intValue()));
@@ -340,9 +359,11 @@ public class AlgorithmComparator
         }
         
         //set stats for nodes that required neighbour information
+        int[] neighbours = new int[Math.max(g.maxInDegree(), g.maxOutDegree())];
         index = 0;
         for(Integer node: nodes)
         {
+            int dense = g.index(node);
             for(int i = 0; i < differentKs.length; i++)
             {
                 boolean skipNeighbourhood = false;
@@ -357,13 +378,14 @@ public class AlgorithmComparator
                 int neighbourHood = 0;
                 
                 //father nodes
-                for(DefaultEdge edge: g.incomingEdgesOf(node))
+                int degree = g.predecessors(dense, neighbours);
+                for(int n = 0; n < degree; n++)
                 {
                     neighbourHood++;
-                    int neighbour = Graphs.getOppositeVertex(g, edge, node);
-                    in += g.inDegreeOf(neighbour);
-                    out += g.outDegreeOf(neighbour);
-                    pr += pagerank.get(neighbour);
+                    int neighbour = g.id(neighbours[n]);
+                    in += g.inDegree(neighbours[n]);
+                    out += g.outDegree(neighbours[n]);
+                    pr += pagerank[neighbours[n]];
                     j += jMap[i].get(neighbour);
                     k += kMap[i].get(neighbour);
                     e += errorMap[i].get(neighbour);
@@ -377,13 +399,14 @@ public class AlgorithmComparator
                 }
 
                 //children nodes
-                for(DefaultEdge edge: g.outgoingEdgesOf(node))
+                degree = g.successors(dense, neighbours);
+                for(int n = 0; n < degree; n++)
                 {
                     neighbourHood++;
-                    int neighbour = Graphs.getOppositeVertex(g, edge, node);
-                    in += g.inDegreeOf(neighbour);
-                    out += g.outDegreeOf(neighbour);
-                    pr += pagerank.get(neighbour);
+                    int neighbour = g.id(neighbours[n]);
+                    in += g.inDegree(neighbours[n]);
+                    out += g.outDegree(neighbours[n]);
+                    pr += pagerank[neighbours[n]];
                     j += jMap[i].get(neighbour);
                     k += kMap[i].get(neighbour);
                     e += errorMap[i].get(neighbour);
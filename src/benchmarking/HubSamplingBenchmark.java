@@ -0,0 +1,59 @@
+package benchmarking;
+
+import algorithms.GuerrieriRank;
+import graph.IntGraph;
+import graph.StronglyConnectedComponents;
+import java.util.Set;
+
+/**
+ * Measures how much faster GuerrieriRank runs when hubs sample their
+ * successors and how much its results change.
+ */
+public final class HubSamplingBenchmark
+{
+    private HubSamplingBenchmark(){}
+
+    /**
+     * Runs GuerrieriRank reading every successor and with the hubs sampling
+     * them, then compares the top K results of the two runs with 
+     * AlgorithmComparator.compare. Components are computed once for both.
+     * @param g Input graph.
+     * @param smallTop How many max entries to keep in the final results.
+     * @param largeTop How many max entries to keep for each vertex during computation.
+     * @param iterations Max number of iterations.
+     * @param dampingFactor The damping factor.
+     * @param tolerance Tolerance for stopping.
+     * @param hubDegree Out degree above which nodes sample their successors, must be positive.
+     * @param nodes Ids of the nodes whose results are compared.
+     * @param differentKs Ks used in the comparison.
+     * @return Hubs, times and Jaccard/Kendall similarity for each K.
+     */
+    public static HubSamplingData measure(final IntGraph g, final int smallTop, final int largeTop,
+            final int iterations, final double dampingFactor, final double tolerance, final int hubDegree,
+            final Set<Integer> nodes, final int[] differentKs)
+    {
+        if(hubDegree <= 0)
+            throw new IllegalArgumentException("Hub degree must be positive");
+        int hubs = 0;
+        long hubEdges = 0;
+        for(int v = 0; v < g.vertices(); v++)
+            if(g.outDegree(v) > hubDegree)
+            {
+                hubs++;
+                hubEdges += g.outDegree(v);
+            }
+        GuerrieriRank.Builder options = new GuerrieriRank.Builder().smallTop(smallTop).largeTop(largeTop)
+                .iterations(iterations).damping(dampingFactor).tolerance(tolerance)
+                .components(new StronglyConnectedComponents(g));
+
+        long start = System.nanoTime();
+        GuerrieriRank full = options.hubDegree(0).run(g);
+        double timeFull = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        GuerrieriRank sampled = options.hubDegree(hubDegree).run(g);
+        double timeSampled = (System.nanoTime() - start) / 1e6;
+
+        return new HubSamplingData(hubs, hubEdges, g.edges(), timeFull, timeSampled,
+                AlgorithmComparator.compare(full, sampled, nodes, differentKs));
+    }
+}
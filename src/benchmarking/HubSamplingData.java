@@ -0,0 +1,85 @@
+package benchmarking;
+
+/**
+ * Class which stores the hubs sampling their successors, the running time
+ * of GuerrieriRank with and without sampling and the similarity of the results.
+ */
+public class HubSamplingData
+{
+    private final int hubs;//nodes with more successors than the hub degree
+    private final long hubEdges;//out edges of the hubs
+    private final long edges;//edges of the graph
+    private final double timeFull;//milliseconds reading every successor
+    private final double timeSampled;//milliseconds with the hubs sampling their successors
+    private final ComparisonData[] comparisons;//sampled results against the full ones, one for each K
+
+    public HubSamplingData(final int hubs, final long hubEdges, final long edges, final double timeFull,
+            final double timeSampled, final ComparisonData[] comparisons)
+    {
+        if(hubs < 0 || hubEdges < 0 || hubEdges > edges)
+            throw new IllegalArgumentException("Hub edges must be between 0 and the edges of the graph");
+        this.hubs = hubs;
+        this.hubEdges = hubEdges;
+        this.edges = edges;
+        this.timeFull = timeFull;
+        this.timeSampled = timeSampled;
+        this.comparisons = comparisons;
+    }
+
+    public int getHubs()
+    {
+        return hubs;
+    }
+
+    public long getHubEdges()
+    {
+        return hubEdges;
+    }
+
+    public long getEdges()
+    {
+        return edges;
+    }
+
+    /**
+     * @return Fraction of the edges leaving a hub, in [0, 1].
+     */
+    public double getHubEdgeFraction()
+    {
+        return edges == 0? 0 : (double) hubEdges / edges;
+    }
+
+    public double getTimeFull()
+    {
+        return timeFull;
+    }
+
+    public double getTimeSampled()
+    {
+        return timeSampled;
+    }
+
+    public double getSpeedup()
+    {
+        return timeFull / timeSampled;
+    }
+
+    public ComparisonData[] getComparisons()
+    {
+        return comparisons;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(hubs).append(" hubs with ").append(getHubEdgeFraction() * 100)
+                .append("% of the edges, algorithm ").append(timeFull).append(" ms -> ")
+                .append(timeSampled).append(" ms, speedup ").append(getSpeedup());
+        for(ComparisonData comparison: comparisons)
+            builder.append(System.getProperty("line.separator")).append("K = ").append(comparison.getMaxEntries())
+                    .append(": jaccard ").append(comparison.getJaccard().getAverage())
+                    .append(", kendall ").append(comparison.getKendall().getAverage());
+        return builder.toString();
+    }
+}
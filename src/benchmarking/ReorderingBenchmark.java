@@ -0,0 +1,65 @@
+package benchmarking;
+
+import algorithms.PersonalizedPageRankAlgorithm;
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.Reordering;
+
+/**
+ * Measures the cost of reordering the vertices of a graph and how much
+ * faster algorithms run on the reordered graph.
+ */
+public final class ReorderingBenchmark
+{
+    private ReorderingBenchmark(){}
+
+    /**
+     * Runs an algorithm on a graph, for example g -> new GuerrieriRank(g, 10, 30, 100, 0.85, 0.0001).
+     */
+    public interface AlgorithmRunner
+    {
+        PersonalizedPageRankAlgorithm run(IntGraph g);
+    }
+
+    /**
+     * Reorders g and times each algorithm on the original and on the reordered
+     * graph, runs on the two graphs are alternated and the best time of each
+     * is kept, so that JIT warm up doesn't favour either of them.
+     * @param g Input graph.
+     * @param order Reordering to measure.
+     * @param runs How many times each algorithm runs on each graph, must be positive.
+     * @param algorithms Algorithms to time.
+     * @return Reordering time, locality and running times before and after.
+     */
+    public static ReorderingData measure(final IntGraph g, final Reordering.VertexOrder order,
+            final int runs, final AlgorithmRunner... algorithms)
+    {
+        if(runs <= 0)
+            throw new IllegalArgumentException("Number of runs must be positive");
+        long start = System.nanoTime();
+        CsrGraph reordered = Reordering.reorder(g, order);
+        double reorderingTime = (System.nanoTime() - start) / 1e6;
+
+        double[] before = new double[algorithms.length];
+        double[] after = new double[algorithms.length];
+        for(int i = 0; i < algorithms.length; i++)
+        {
+            before[i] = Double.MAX_VALUE;
+            after[i] = Double.MAX_VALUE;
+            for(int r = 0; r < runs; r++)
+            {
+                before[i] = Math.min(before[i], time(algorithms[i], g));
+                after[i] = Math.min(after[i], time(algorithms[i], reordered));
+            }
+        }
+        return new ReorderingData(reorderingTime, Reordering.averageLogGap(g),
+                Reordering.averageLogGap(reordered), before, after);
+    }
+
+    private static double time(final AlgorithmRunner algorithm, final IntGraph g)
+    {
+        long start = System.nanoTime();
+        algorithm.run(g);
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarking;
+
+/**
+ * Class which stores the cost of a vertex reordering and the running time of
+ * some algorithms before and after it.
+ */
+public class ReorderingData
+{
+    private final double reorderingTime;//milliseconds needed to reorder the graph
+    private final double gapBefore;//average log gap of the edges before reordering
+    private final double gapAfter;//average log gap of the edges after reordering
+    private final double[] timesBefore;//milliseconds of each algorithm on the original graph
+    private final double[] timesAfter;//milliseconds of each algorithm on the reordered graph
+
+    public ReorderingData(final double reorderingTime, final double gapBefore, final double gapAfter,
+            final double[] timesBefore, final double[] timesAfter)
+    {
+        if(timesBefore.length != timesAfter.length)
+            throw new IllegalArgumentException("Times before and after must be as many as the algorithms");
+        this.reorderingTime = reorderingTime;
+        this.gapBefore = gapBefore;
+        this.gapAfter = gapAfter;
+        this.timesBefore = timesBefore;
+        this.timesAfter = timesAfter;
+    }
+
+    public double getReorderingTime()
+    {
+        return reorderingTime;
+    }
+
+    public double getGapBefore()
+    {
+        return gapBefore;
+    }
+
+    public double getGapAfter()
+    {
+        return gapAfter;
+    }
+
+    public int getAlgorithms()
+    {
+        return timesBefore.length;
+    }
+
+    public double getTimeBefore(final int algorithm)
+    {
+        return timesBefore[algorithm];
+    }
+
+    public double getTimeAfter(final int algorithm)
+    {
+        return timesAfter[algorithm];
+    }
+
+    /**
+     * @param algorithm Index of the algorithm.
+     * @return Running time on the original graph divided by the running time
+     * on the reordered one.
+     */
+    public double getSpeedup(final int algorithm)
+    {
+        return timesBefore[algorithm] / timesAfter[algorithm];
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("reordering ").append(reorderingTime).append(" ms, log gap ")
+                .append(gapBefore).append(" -> ").append(gapAfter);
+        for(int i = 0; i < timesBefore.length; i++)
+            builder.append(System.getProperty("line.separator")).append("algorithm ").append(i)
+                    .append(": ").append(timesBefore[i]).append(" ms -> ").append(timesAfter[i])
+                    .append(" ms, speedup ").append(getSpeedup(i));
+        return builder.toString();
+    }
+}
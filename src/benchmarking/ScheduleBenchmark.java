@@ -0,0 +1,50 @@
+package benchmarking;
+
+import algorithms.GuerrieriRankV3;
+import graph.IntGraph;
+
+/**
+ * Compares the two schedules of GuerrieriRankV3: the two approximate color
+ * classes updated one per iteration, and the classes of a proper coloring
+ * updated one after the other, on as many threads as requested.
+ */
+public final class ScheduleBenchmark
+{
+    private ScheduleBenchmark(){}
+
+    /**
+     * Runs GuerrieriRankV3 with both schedules, runs are alternated and the
+     * best time of each is kept.
+     * @param g Input graph.
+     * @param smallTop How many max entries to keep in the final results.
+     * @param largeTop How many max entries to keep for each vertex during computation.
+     * @param iterations Max number of iterations.
+     * @param dampingFactor The damping factor.
+     * @param tolerance Tolerance for stopping.
+     * @param parallelism Number of threads of the coloring schedule.
+     * @param runs How many times each schedule runs, must be positive.
+     * @return Colors, iterations to tolerance, node updates and time of the two schedules.
+     */
+    public static ScheduleData measure(final IntGraph g, final int smallTop, final int largeTop, 
+            final int iterations, final double dampingFactor, final double tolerance, final int parallelism,
+            final int runs)
+    {
+        if(runs <= 0)
+            throw new IllegalArgumentException("Number of runs must be positive");
+        GuerrieriRankV3 partitions = null;
+        GuerrieriRankV3 coloring = null;
+        double partitionsTime = Double.MAX_VALUE;
+        double coloringTime = Double.MAX_VALUE;
+        GuerrieriRankV3.Builder options = new GuerrieriRankV3.Builder().smallTop(smallTop).largeTop(largeTop)
+                .iterations(iterations).damping(dampingFactor).tolerance(tolerance);
+        for(int r = 0; r < runs; r++)
+        {
+            partitions = options.coloring(false).parallelism(1).run(g);
+            partitionsTime = Math.min(partitionsTime, partitions.getRunTime());
+            coloring = options.coloring(true).parallelism(parallelism).run(g);
+            coloringTime = Math.min(coloringTime, coloring.getRunTime());
+        }
+        return new ScheduleData(coloring.getColors(), partitions.getIterationsRun(), coloring.getIterationsRun(),
+                partitions.getUpdates(), coloring.getUpdates(), partitionsTime, coloringTime);
+    }
+}
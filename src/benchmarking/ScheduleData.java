@@ -0,0 +1,84 @@
+package benchmarking;
+
+/**
+ * Class which stores the iterations, node updates and running time of
+ * GuerrieriRankV3 with two approximate classes and with a proper coloring.
+ */
+public class ScheduleData
+{
+    private final int colors;//classes of the proper coloring
+    private final int partitionsIterations;//iterations to tolerance with two classes, one class each
+    private final int coloringIterations;//iterations to tolerance with the coloring, all the classes each
+    private final long partitionsUpdates;//node updates with two classes
+    private final long coloringUpdates;//node updates with the coloring
+    private final double partitionsTime;//milliseconds with two classes
+    private final double coloringTime;//milliseconds with the coloring
+
+    public ScheduleData(final int colors, final int partitionsIterations, final int coloringIterations,
+            final long partitionsUpdates, final long coloringUpdates, final double partitionsTime,
+            final double coloringTime)
+    {
+        if(colors < 0 || partitionsIterations < 0 || coloringIterations < 0 
+                || partitionsUpdates < 0 || coloringUpdates < 0)
+            throw new IllegalArgumentException("Counts can't be negative");
+        this.colors = colors;
+        this.partitionsIterations = partitionsIterations;
+        this.coloringIterations = coloringIterations;
+        this.partitionsUpdates = partitionsUpdates;
+        this.coloringUpdates = coloringUpdates;
+        this.partitionsTime = partitionsTime;
+        this.coloringTime = coloringTime;
+    }
+
+    public int getColors()
+    {
+        return colors;
+    }
+
+    public int getPartitionsIterations()
+    {
+        return partitionsIterations;
+    }
+
+    public int getColoringIterations()
+    {
+        return coloringIterations;
+    }
+
+    public long getPartitionsUpdates()
+    {
+        return partitionsUpdates;
+    }
+
+    public long getColoringUpdates()
+    {
+        return coloringUpdates;
+    }
+
+    public double getPartitionsTime()
+    {
+        return partitionsTime;
+    }
+
+    public double getColoringTime()
+    {
+        return coloringTime;
+    }
+
+    /**
+     * @return Running time with two classes divided by the running time with the coloring.
+     */
+    public double getSpeedup()
+    {
+        return partitionsTime / coloringTime;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "two classes: " + partitionsIterations + " iterations, " + partitionsUpdates + " updates, "
+                + partitionsTime + " ms" + System.getProperty("line.separator")
+                + colors + " colors: " + coloringIterations + " iterations, " + coloringUpdates + " updates, "
+                + coloringTime + " ms, speedup " + getSpeedup();
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarking;
+
+import algorithms.PersonalizedPageRankAlgorithm;
+import benchmarking.ReorderingBenchmark.AlgorithmRunner;
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.Sparsification;
+import java.util.Set;
+
+/**
+ * Measures how many edges a sparsification removes, how much faster an
+ * algorithm runs on the sparsified graph and how much its results change.
+ */
+public final class SparsificationBenchmark
+{
+    private SparsificationBenchmark(){}
+
+    /**
+     * Sparsifies g and runs the algorithm on both graphs, then compares the
+     * top K results of the two runs with AlgorithmComparator.compare.
+     * @param g Input graph.
+     * @param sparsifier Sparsification to measure.
+     * @param algorithm Algorithm to time and compare.
+     * @param nodes Ids of the nodes whose results are compared.
+     * @param differentKs Ks used in the comparison.
+     * @return Edges removed, times and Jaccard/Kendall similarity for each K.
+     */
+    public static SparsificationData measure(final IntGraph g, final Sparsification.Sparsifier sparsifier,
+            final AlgorithmRunner algorithm, final Set<Integer> nodes, final int[] differentKs)
+    {
+        long start = System.nanoTime();
+        CsrGraph sparsified = Sparsification.sparsify(g, sparsifier);
+        double sparsificationTime = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        PersonalizedPageRankAlgorithm original = algorithm.run(g);
+        double timeBefore = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        PersonalizedPageRankAlgorithm sparse = algorithm.run(sparsified);
+        double timeAfter = (System.nanoTime() - start) / 1e6;
+
+        return new SparsificationData(g.edges(), sparsified.edges(), sparsificationTime, timeBefore, timeAfter,
+                AlgorithmComparator.compare(original, sparse, nodes, differentKs));
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarking;
+
+/**
+ * Class which stores the edges removed by a sparsification, the running time
+ * of an algorithm before and after it and the similarity of the results.
+ */
+public class SparsificationData
+{
+    private final int edgesBefore;//edges of the original graph
+    private final int edgesAfter;//edges of the sparsified graph
+    private final double sparsificationTime;//milliseconds needed to sparsify the graph
+    private final double timeBefore;//milliseconds of the algorithm on the original graph
+    private final double timeAfter;//milliseconds of the algorithm on the sparsified graph
+    private final ComparisonData[] comparisons;//results on the sparsified graph against the original ones, one for each K
+
+    public SparsificationData(final int edgesBefore, final int edgesAfter, final double sparsificationTime,
+            final double timeBefore, final double timeAfter, final ComparisonData[] comparisons)
+    {
+        if(edgesAfter < 0 || edgesAfter > edgesBefore)
+            throw new IllegalArgumentException("Sparsification can only remove edges");
+        this.edgesBefore = edgesBefore;
+        this.edgesAfter = edgesAfter;
+        this.sparsificationTime = sparsificationTime;
+        this.timeBefore = timeBefore;
+        this.timeAfter = timeAfter;
+        this.comparisons = comparisons;
+    }
+
+    public int getEdgesBefore()
+    {
+        return edgesBefore;
+    }
+
+    public int getEdgesAfter()
+    {
+        return edgesAfter;
+    }
+
+    /**
+     * @return Fraction of the edges removed, in [0, 1].
+     */
+    public double getEdgeReduction()
+    {
+        return edgesBefore == 0? 0 : 1 - (double) edgesAfter / edgesBefore;
+    }
+
+    public double getSparsificationTime()
+    {
+        return sparsificationTime;
+    }
+
+    public double getTimeBefore()
+    {
+        return timeBefore;
+    }
+
+    public double getTimeAfter()
+    {
+        return timeAfter;
+    }
+
+    public double getSpeedup()
+    {
+        return timeBefore / timeAfter;
+    }
+
+    public ComparisonData[] getComparisons()
+    {
+        return comparisons;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("edges ").append(edgesBefore).append(" -> ").append(edgesAfter)
+                .append(" (").append(getEdgeReduction() * 100).append("% removed), sparsification ")
+                .append(sparsificationTime).append(" ms, algorithm ").append(timeBefore).append(" ms -> ")
+                .append(timeAfter).append(" ms, speedup ").append(getSpeedup());
+        for(ComparisonData comparison: comparisons)
+            builder.append(System.getProperty("line.separator")).append("K = ").append(comparison.getMaxEntries())
+                    .append(": jaccard ").append(comparison.getJaccard().getAverage())
+                    .append(", kendall ").append(comparison.getKendall().getAverage());
+        return builder.toString();
+    }
+}
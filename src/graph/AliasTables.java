@@ -0,0 +1,108 @@
+package graph;
+
+import java.util.Random;
+
+/**
+ * Walker alias tables of the out going edges of every vertex of a graph, to
+ * pick a successor with probability proportional to the weight of its edge
+ * in O(1) instead of scanning the weights of the whole list at each step.
+ * The table of v has a cell for each successor: cell i is picked uniformly,
+ * then i is kept with probability prob[i], otherwise its alias is taken.
+ * Tables are built with Vose's method, in O(outDegree) for each vertex, and
+ * need a double and an int for each edge.
+ */
+public final class AliasTables
+{
+    //cells of v are in [offsets[v], offsets[v+1])
+    private final int[] offsets;
+    private final double[] prob;
+    //positions in the successors list, not vertices
+    private final int[] alias;
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * Builds the tables of all the vertices of a graph.
+     * @param g Input graph, weights are read with successorWeights.
+     */
+    public AliasTables(final IntGraph g)
+    {
+        int n = g.vertices();
+        offsets = new int[n + 1];
+        for(int v = 0; v < n; v++)
+            offsets[v + 1] = offsets[v] + g.outDegree(v);
+        prob = new double[offsets[n]];
+        alias = new int[offsets[n]];
+
+        double[] weights = new double[g.maxOutDegree()];
+        //indexes of the cells with scaled weight below and above 1
+        int[] small = new int[g.maxOutDegree()];
+        int[] large = new int[g.maxOutDegree()];
+        for(int v = 0; v < n; v++)
+        {
+            int degree = g.successorWeights(v, weights);
+            if(degree == 0)
+                continue;
+            double total = 0;
+            for(int i = 0; i < degree; i++)
+                total += weights[i];
+            int smallSize = 0, largeSize = 0;
+            for(int i = 0; i < degree; i++)
+            {
+                //scaled so that the average is 1
+                weights[i] = weights[i] * degree / total;
+                if(weights[i] < 1)
+                    small[smallSize++] = i;
+                else
+                    large[largeSize++] = i;
+            }
+
+            int base = offsets[v];
+            while(smallSize > 0 && largeSize > 0)
+            {
+                int less = small[--smallSize];
+                int more = large[largeSize - 1];
+                prob[base + less] = weights[less];
+                alias[base + less] = more;
+                //more gives to less what less misses to fill its cell
+                weights[more] -= 1 - weights[less];
+                if(weights[more] < 1)
+                {
+                    largeSize--;
+                    small[smallSize++] = more;
+                }
+            }
+            //what is left is 1 up to rounding errors
+            while(largeSize > 0)
+            {
+                int i = large[--largeSize];
+                prob[base + i] = 1;
+                alias[base + i] = i;
+            }
+            while(smallSize > 0)
+            {
+                int i = small[--smallSize];
+                prob[base + i] = 1;
+                alias[base + i] = i;
+            }
+        }
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Picks a successor of a vertex with probability proportional to the
+     * weight of its edge.
+     * @param v Dense index of a vertex with at least one successor.
+     * @param random Source of randomness.
+     * @return Position of the picked successor, to be used with successor(v, i).
+     */
+    public int sample(final int v, final Random random)
+    {
+        int degree = offsets[v + 1] - offsets[v];
+        int i = random.nextInt(degree);
+        return random.nextDouble() < prob[offsets[v] + i]? i : alias[offsets[v] + i];
+    }
+}
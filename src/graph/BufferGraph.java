@@ -0,0 +1,310 @@
+package graph;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Immutable directed graph in compressed sparse row format whose arrays are
+ * IntBuffers instead of int[], typically views of a memory mapped graph file
+ * (see io.GraphFile), so the topology is never copied in the java heap.
+ * Sections larger than a single buffer (2^29 ints) are SegmentedIntBuffers.
+ * Layout is the same of CsrGraph: successors of v are
+ * outTargets[outOffsets[v]..outOffsets[v+1]) and predecessors of v are
+ * inSources[inOffsets[v]..inOffsets[v+1]).
+ * When ids are sorted ascending original ids are translated to indexes with
+ * a binary search on ids, so no map is kept in memory, ids in any other order
+ * (reordered graphs) need a map on the heap.
+ * Weighted graphs keep the weight of each edge in SegmentedDoubleBuffers
+ * parallel to outTargets and inSources, and the out weight of each vertex
+ * on the heap.
+ */
+public class BufferGraph implements IntGraph
+{
+    private final SegmentedIntBuffer ids;
+    private final SegmentedIntBuffer outOffsets;
+    private final SegmentedIntBuffer outTargets;
+    private final SegmentedIntBuffer inOffsets;
+    private final SegmentedIntBuffer inSources;
+    //weights parallel to outTargets and inSources, null if the graph is unweighted
+    private final SegmentedDoubleBuffer outWeights;
+    private final SegmentedDoubleBuffer inWeights;
+    //sum of the out weights of each vertex, null if the graph is unweighted
+    private final double[] outTotals;
+
+    private final int vertices;
+    private final int edges;
+    //true when ids are exactly 0..n-1, so an id is its own index
+    private final boolean identity;
+    //original id -> dense index, only for ids not sorted
+    private final Int2IntOpenHashMap indexes;
+    private final int maxOutDegree;
+    private final int maxInDegree;
+    //in buffers are the out buffers
+    private final boolean symmetric;
+
+    //CONSTRUCTORS
+    ////////////////////
+
+    /**
+     * Creates a graph over already filled buffers, buffers are read with
+     * absolute gets so their position and limit are never changed.
+     * Passing the same buffers for both directions makes a symmetric graph.
+     * @param ids Original id of each dense index, without duplicates.
+     * @param outOffsets Buffer of vertices + 1 entries, successors of v are
+     * in outTargets[outOffsets[v]..outOffsets[v+1]).
+     * @param outTargets Dense indexes of the successors.
+     * @param inOffsets Buffer of vertices + 1 entries, predecessors of v are
+     * in inSources[inOffsets[v]..inOffsets[v+1]).
+     * @param inSources Dense indexes of the predecessors.
+     */
+    public BufferGraph(final IntBuffer ids, final IntBuffer outOffsets, final IntBuffer outTargets,
+            final IntBuffer inOffsets, final IntBuffer inSources)
+    {
+        this(new SegmentedIntBuffer(ids), new SegmentedIntBuffer(outOffsets),
+                new SegmentedIntBuffer(outTargets), 
+                isSymmetric(outOffsets, outTargets, inOffsets, inSources) ? null : new SegmentedIntBuffer(inOffsets),
+                isSymmetric(outOffsets, outTargets, inOffsets, inSources) ? null : new SegmentedIntBuffer(inSources));
+    }
+
+    /**
+     * Creates a graph over already filled segmented buffers, see
+     * BufferGraph(IntBuffer, ...). Passing null for both in buffers makes a
+     * symmetric graph.
+     */
+    public BufferGraph(final SegmentedIntBuffer ids, final SegmentedIntBuffer outOffsets,
+            final SegmentedIntBuffer outTargets, SegmentedIntBuffer inOffsets,
+            SegmentedIntBuffer inSources)
+    {
+        this(ids, outOffsets, outTargets, null, inOffsets, inSources, null);
+    }
+
+    /**
+     * Creates a weighted graph over already filled segmented buffers, see
+     * BufferGraph(SegmentedIntBuffer, ...). Passing null for all the in
+     * buffers makes a symmetric graph, null for both weights an unweighted one.
+     * @param outWeights Positive weight of each edge in outTargets.
+     * @param inWeights Positive weight of each edge in inSources, the same
+     * edge must have the same weight in both directions.
+     */
+    public BufferGraph(final SegmentedIntBuffer ids, final SegmentedIntBuffer outOffsets,
+            final SegmentedIntBuffer outTargets, final SegmentedDoubleBuffer outWeights, 
+            SegmentedIntBuffer inOffsets, SegmentedIntBuffer inSources, SegmentedDoubleBuffer inWeights)
+    {
+        if((inOffsets == null) != (inSources == null))
+            throw new IllegalArgumentException("Both in buffers must be given, or none");
+        if(inOffsets == null)
+        {
+            if(inWeights != null)
+                throw new IllegalArgumentException("Symmetric graphs share the out weights");
+            inOffsets = outOffsets;
+            inSources = outTargets;
+            inWeights = outWeights;
+        }
+        if((outWeights == null) != (inWeights == null))
+            throw new IllegalArgumentException("Weights must be given for both directions");
+        vertices = ids.length();
+        edges = outTargets.length();
+        if(outOffsets.length() != vertices + 1 || inOffsets.length() != vertices + 1)
+            throw new IllegalArgumentException("Offsets must have one more entry than vertices");
+        if(outOffsets.get(vertices) != edges || inOffsets.get(vertices) != inSources.length()
+                || inSources.length() != edges)
+            throw new IllegalArgumentException("Offsets don't match the number of edges");
+        if(outWeights != null && (outWeights.length() != edges || inWeights.length() != edges))
+            throw new IllegalArgumentException("Weights don't match the number of edges");
+
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.outWeights = outWeights;
+        this.inWeights = inWeights;
+        this.symmetric = outOffsets == inOffsets && outTargets == inSources;
+        if(outWeights != null)
+        {
+            checkWeights(outWeights);
+            if(inWeights != outWeights)
+                checkWeights(inWeights);
+            outTotals = new double[vertices];
+            for(int v = 0; v < vertices; v++)
+                for(int i = outOffsets.get(v); i < outOffsets.get(v + 1); i++)
+                    outTotals[v] += outWeights.get(i);
+        }
+        else
+            outTotals = null;
+        boolean sorted = true;
+        for(int v = 1; v < vertices && sorted; v++)
+            sorted = ids.get(v - 1) < ids.get(v);
+        this.identity = sorted && (vertices == 0 || (ids.get(0) == 0 && ids.get(vertices - 1) == vertices - 1));
+        if(sorted)
+            indexes = null;
+        else
+        {
+            indexes = new Int2IntOpenHashMap(vertices);
+            indexes.defaultReturnValue(-1);
+            for(int v = 0; v < vertices; v++)
+                if(indexes.put(ids.get(v), v) != -1)
+                    throw new IllegalArgumentException("Ids must be unique");
+        }
+
+        int maxOut = 0, maxIn = 0;
+        for(int v = 0; v < vertices; v++)
+        {
+            maxOut = Math.max(maxOut, outOffsets.get(v + 1) - outOffsets.get(v));
+            maxIn = Math.max(maxIn, inOffsets.get(v + 1) - inOffsets.get(v));
+        }
+        this.maxOutDegree = maxOut;
+        this.maxInDegree = maxIn;
+    }
+
+    //GETTERS
+    ////////////////////
+
+    @Override
+    public int vertices()
+    {
+        return vertices;
+    }
+
+    @Override
+    public int edges()
+    {
+        return edges;
+    }
+
+    @Override
+    public int outDegree(final int v)
+    {
+        return outOffsets.get(v + 1) - outOffsets.get(v);
+    }
+
+    @Override
+    public int inDegree(final int v)
+    {
+        return inOffsets.get(v + 1) - inOffsets.get(v);
+    }
+
+    @Override
+    public int maxOutDegree()
+    {
+        return maxOutDegree;
+    }
+
+    @Override
+    public int maxInDegree()
+    {
+        return maxInDegree;
+    }
+
+    @Override
+    public int successors(final int v, final int[] buffer)
+    {
+        return copy(outTargets, outOffsets.get(v), outOffsets.get(v + 1), buffer);
+    }
+
+    @Override
+    public int predecessors(final int v, final int[] buffer)
+    {
+        return copy(inSources, inOffsets.get(v), inOffsets.get(v + 1), buffer);
+    }
+
+    @Override
+    public int successor(final int v, final int i)
+    {
+        return outTargets.get(outOffsets.get(v) + i);
+    }
+
+    @Override
+    public int id(final int v)
+    {
+        return ids.get(v);
+    }
+
+    @Override
+    public boolean isSymmetric()
+    {
+        return symmetric;
+    }
+
+    @Override
+    public int index(final int id)
+    {
+        if(identity)
+            return id >= 0 && id < vertices? id : -1;
+        if(indexes != null)
+            return indexes.get(id);
+        int low = 0, high = vertices - 1;
+        while(low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int midId = ids.get(mid);
+            if(midId < id)
+                low = mid + 1;
+            else if(midId > id)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isWeighted()
+    {
+        return outWeights != null;
+    }
+
+    @Override
+    public int successorWeights(final int v, final double[] buffer)
+    {
+        return copy(outWeights, outOffsets.get(v), outOffsets.get(v + 1), buffer);
+    }
+
+    @Override
+    public int predecessorWeights(final int v, final double[] buffer)
+    {
+        return copy(inWeights, inOffsets.get(v), inOffsets.get(v + 1), buffer);
+    }
+
+    @Override
+    public double outWeight(final int v)
+    {
+        return outTotals == null? outDegree(v) : outTotals[v];
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    private static void checkWeights(final SegmentedDoubleBuffer weights)
+    {
+        for(int i = 0; i < weights.length(); i++)
+            //also rejects NaN
+            if(!(weights.get(i) > 0) || Double.isInfinite(weights.get(i)))
+                throw new IllegalArgumentException("Weights must be positive and finite");
+    }
+
+    private static boolean isSymmetric(final IntBuffer outOffsets, final IntBuffer outTargets,
+            final IntBuffer inOffsets, final IntBuffer inSources)
+    {
+        return outOffsets == inOffsets && outTargets == inSources;
+    }
+
+    private static int copy(final SegmentedIntBuffer source, final int from, final int to, final int[] buffer)
+    {
+        for(int i = from; i < to; i++)
+            buffer[i - from] = source.get(i);
+        return to - from;
+    }
+
+    //unweighted graphs have weights of 1
+    private static int copy(final SegmentedDoubleBuffer source, final int from, final int to, final double[] buffer)
+    {
+        if(source == null)
+            Arrays.fill(buffer, 0, to - from, 1d);
+        else
+            for(int i = from; i < to; i++)
+                buffer[i - from] = source.get(i);
+        return to - from;
+    }
+}
@@ -0,0 +1,125 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Proper vertex coloring of a graph, ignoring edge directions: two vertices
+ * linked by an edge (either way) never have the same color, self loops aside.
+ * Computed greedily, vertices with the highest degree first (Welsh-Powell),
+ * each one gets the lowest color none of its neighbours has, so at most
+ * max degree + 1 colors are used and usually far less.
+ * Vertices of the same color don't read each other's scores, so they can be
+ * updated at the same time.
+ */
+public class Coloring
+{
+    private final int[] colors;
+    private final int count;
+    //vertices sorted by color, the ones of color c go from offsets[c] to offsets[c + 1]
+    private final int[] order;
+    private final int[] offsets;
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * Colors a graph.
+     * @param g The graph.
+     */
+    public Coloring(final IntGraph g)
+    {
+        int n = g.vertices();
+        colors = new int[n];
+
+        //vertices by decreasing degree, counting sort
+        int maxDegree = 0;
+        for(int v = 0; v < n; v++)
+            maxDegree = Math.max(maxDegree, g.outDegree(v) + g.inDegree(v));
+        int[] byDegree = new int[maxDegree + 2];
+        for(int v = 0; v < n; v++)
+            byDegree[maxDegree - g.outDegree(v) - g.inDegree(v) + 1]++;
+        for(int d = 0; d <= maxDegree; d++)
+            byDegree[d + 1] += byDegree[d];
+        int[] sorted = new int[n];
+        for(int v = 0; v < n; v++)
+            sorted[byDegree[maxDegree - g.outDegree(v) - g.inDegree(v)]++] = v;
+
+        //mark[c] == v + 1 if a neighbour of v has color c
+        int[] mark = new int[maxDegree + 2];
+        int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
+        Arrays.fill(colors, -1);
+        int used = 0;
+        for(int v: sorted)
+        {
+            for(int direction = 0; direction < (g.isSymmetric()? 1 : 2); direction++)
+            {
+                int degree = direction == 0? g.successors(v, neighbours) : g.predecessors(v, neighbours);
+                for(int i = 0; i < degree; i++)
+                    if(colors[neighbours[i]] != -1)
+                        mark[colors[neighbours[i]]] = v + 1;
+            }
+            int color = 0;
+            while(mark[color] == v + 1)
+                color++;
+            colors[v] = color;
+            used = Math.max(used, color + 1);
+        }
+        count = used;
+
+        offsets = new int[count + 1];
+        for(int v = 0; v < n; v++)
+            offsets[colors[v] + 1]++;
+        for(int c = 0; c < count; c++)
+            offsets[c + 1] += offsets[c];
+        order = new int[n];
+        int[] next = offsets.clone();
+        for(int v = 0; v < n; v++)
+            order[next[colors[v]]++] = v;
+    }
+
+    //GETTERS
+    ////////////////////
+
+    /**
+     * @return Number of colors.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @param v Dense index of a vertex.
+     * @return Color of the vertex, in [0, getCount()).
+     */
+    public int getColor(final int v)
+    {
+        return colors[v];
+    }
+
+    /**
+     * @return Vertices sorted by color, the array is not copied.
+     */
+    public int[] getOrder()
+    {
+        return order;
+    }
+
+    /**
+     * @return Start of each color in getOrder(), plus the number of vertices
+     * at the end, the array is not copied.
+     */
+    public int[] getOffsets()
+    {
+        return offsets;
+    }
+
+    /**
+     * @param c A color.
+     * @return Vertices with that color, as a new array.
+     */
+    public int[] getVertices(final int c)
+    {
+        return Arrays.copyOfRange(order, offsets[c], offsets[c + 1]);
+    }
+}
@@ -0,0 +1,455 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Immutable directed graph whose adjacencies are gap encoded, in the style of
+ * WebGraph, to need a fraction of the memory of a CsrGraph.
+ * Neighbours of each vertex are sorted, the list of v is stored as:
+ * degree (varint)
+ * byte length of each block but the last (varints, only if there are many blocks)
+ * blocks of BLOCK neighbours, in each block the first neighbour is written as
+ * the (zigzag) difference from v and the others as the gap from the previous one.
+ * All the values are varints (7 bits for each byte, the high bit tells if
+ * more bytes follow), so close neighbours take a single byte.
+ * Decoding a whole list is a sequential scan, which is what the propagation
+ * loops need, while successor(v, i) skips the blocks before i so walks don't
+ * decode the whole list.
+ * Since lists are sorted the order of neighbours may differ from the one of the
+ * graph the CompressedGraph is built from.
+ * Symmetric graphs are encoded once and the encoding is used for both directions.
+ * Weights of weighted graphs are not compressed, they are kept as doubles in
+ * the order of the sorted lists, with the position of the first edge of
+ * each vertex (16 bytes for each edge and direction, 8 for each vertex).
+ * Size: this is NOT the 3-5x of WebGraph. On the graphs in graphs/ the
+ * adjacency (offsets included) is 1.4x (p2p-Gnutella31) to 2.7x (wikiElec)
+ * smaller than the CSR arrays, reordering (see Reordering) barely changes it.
+ * Bit level codes were measured and don't close the gap: zeta_3 gaps would
+ * give 1.5x-3.1x, gamma gaps less, and reference copying has little to copy
+ * (1-22% of a list appears in one of the 7 previous lists after GORDER).
+ * Those graphs are small world graphs with average degree 2-14, so most of
+ * the cost is the offsets (8 bytes per vertex) and gaps of random looking
+ * lists, WebGraph ratios come from web crawls with long, similar, host
+ * sorted lists. Varints were kept since they decode without bit work.
+ */
+public class CompressedGraph implements IntGraph
+{
+    //number of neighbours in each block of a list
+    public static final int BLOCK = 32;
+
+    private final Ids ids;
+    private final int edges;
+
+    //byte offsets of the lists of each vertex
+    private final int[] outOffsets;
+    private final byte[] outBytes;
+    private final int[] inOffsets;
+    private final byte[] inBytes;
+
+    private final int maxOutDegree;
+    private final int maxInDegree;
+
+    //weights in the order of the sorted lists and position of the first
+    //edge of each vertex in them, null if the graph is unweighted
+    private final int[] outEdges;
+    private final double[] outWeights;
+    private final int[] inEdges;
+    private final double[] inWeights;
+    private final double[] outTotals;
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    private CompressedGraph(final Ids ids, final int edges, final int[] outOffsets, final byte[] outBytes,
+            final int[] inOffsets, final byte[] inBytes, final int maxOutDegree, final int maxInDegree,
+            final int[] outEdges, final double[] outWeights, final int[] inEdges, final double[] inWeights)
+    {
+        this.ids = ids;
+        this.edges = edges;
+        this.outOffsets = outOffsets;
+        this.outBytes = outBytes;
+        this.inOffsets = inOffsets;
+        this.inBytes = inBytes;
+        this.maxOutDegree = maxOutDegree;
+        this.maxInDegree = maxInDegree;
+        this.outEdges = outEdges;
+        this.outWeights = outWeights;
+        this.inEdges = inEdges;
+        this.inWeights = inWeights;
+        if(outWeights != null)
+        {
+            outTotals = new double[ids.size()];
+            for(int v = 0; v < ids.size(); v++)
+                for(int i = outEdges[v]; i < outEdges[v + 1]; i++)
+                    outTotals[v] += outWeights[i];
+        }
+        else
+            outTotals = null;
+    }
+
+    /**
+     * Builds a compressed copy of a graph.
+     * @param g Graph to compress, its weights are kept uncompressed.
+     * @return Graph with the same vertices and edges of g.
+     */
+    public static CompressedGraph fromGraph(final IntGraph g)
+    {
+        int n = g.vertices();
+        boolean weighted = g.isWeighted();
+        int[] ids = new int[n];
+        for(int v = 0; v < n; v++)
+            ids[v] = g.id(v);
+
+        int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
+        double[] weights = new double[weighted? neighbours.length : 0];
+        long[] order = new long[weighted? neighbours.length : 0];
+        ByteWriter list = new ByteWriter();
+        ByteWriter block = new ByteWriter();
+
+        ByteWriter out = new ByteWriter();
+        int[] outOffsets = new int[n + 1];
+        int[] outEdges = weighted? new int[n + 1] : null;
+        double[] outWeights = weighted? new double[g.edges()] : null;
+        for(int v = 0; v < n; v++)
+        {
+            int degree = g.successors(v, neighbours);
+            if(weighted)
+            {
+                g.successorWeights(v, weights);
+                sortWithWeights(neighbours, weights, degree, order, outWeights, outEdges[v]);
+                outEdges[v + 1] = outEdges[v] + degree;
+            }
+            encode(v, neighbours, degree, list, block, out);
+            outOffsets[v + 1] = out.size;
+        }
+
+        byte[] outBytes = out.toArray();
+        if(g.isSymmetric())
+            return new CompressedGraph(new Ids(ids), g.edges(), outOffsets, outBytes,
+                    outOffsets, outBytes, g.maxOutDegree(), g.maxInDegree(), 
+                    outEdges, outWeights, outEdges, outWeights);
+
+        ByteWriter in = new ByteWriter();
+        int[] inOffsets = new int[n + 1];
+        int[] inEdges = weighted? new int[n + 1] : null;
+        double[] inWeights = weighted? new double[g.edges()] : null;
+        for(int v = 0; v < n; v++)
+        {
+            int degree = g.predecessors(v, neighbours);
+            if(weighted)
+            {
+                g.predecessorWeights(v, weights);
+                sortWithWeights(neighbours, weights, degree, order, inWeights, inEdges[v]);
+                inEdges[v + 1] = inEdges[v] + degree;
+            }
+            encode(v, neighbours, degree, list, block, in);
+            inOffsets[v + 1] = in.size;
+        }
+
+        return new CompressedGraph(new Ids(ids), g.edges(), outOffsets, outBytes,
+                inOffsets, in.toArray(), g.maxOutDegree(), g.maxInDegree(), 
+                outEdges, outWeights, inEdges, inWeights);
+    }
+
+    //GETTERS
+    ////////////////////
+
+    @Override
+    public int vertices()
+    {
+        return ids.size();
+    }
+
+    @Override
+    public int edges()
+    {
+        return edges;
+    }
+
+    @Override
+    public int outDegree(final int v)
+    {
+        return (int) readVarint(outBytes, outOffsets[v]);
+    }
+
+    @Override
+    public int inDegree(final int v)
+    {
+        return (int) readVarint(inBytes, inOffsets[v]);
+    }
+
+    @Override
+    public int maxOutDegree()
+    {
+        return maxOutDegree;
+    }
+
+    @Override
+    public int maxInDegree()
+    {
+        return maxInDegree;
+    }
+
+    @Override
+    public int successors(final int v, final int[] buffer)
+    {
+        return decode(v, outBytes, outOffsets[v], buffer);
+    }
+
+    @Override
+    public int predecessors(final int v, final int[] buffer)
+    {
+        return decode(v, inBytes, inOffsets[v], buffer);
+    }
+
+    @Override
+    public int successor(final int v, final int i)
+    {
+        long read = readVarint(outBytes, outOffsets[v]);
+        int degree = (int) read;
+        int position = (int) (read >>> 32);
+        if(i < 0 || i >= degree)
+            throw new IndexOutOfBoundsException("Successor " + i + " of a vertex with degree " + degree);
+
+        //skip the blocks before the one containing i
+        int blocks = (degree + BLOCK - 1) / BLOCK;
+        int start = position;
+        int skipped = i / BLOCK;
+        if(blocks > 1)
+        {
+            int lengthsEnd = position;
+            for(int b = 0; b < blocks - 1; b++)
+                lengthsEnd = (int) (readVarint(outBytes, lengthsEnd) >>> 32);
+            start = lengthsEnd;
+            for(int b = 0; b < skipped; b++)
+            {
+                read = readVarint(outBytes, position);
+                position = (int) (read >>> 32);
+                start += (int) read;
+            }
+        }
+
+        //decode inside the block
+        read = readVarint(outBytes, start);
+        int value = v + unzigzag((int) read);
+        start = (int) (read >>> 32);
+        for(int k = skipped * BLOCK; k < i; k++)
+        {
+            read = readVarint(outBytes, start);
+            value += (int) read;
+            start = (int) (read >>> 32);
+        }
+        return value;
+    }
+
+    @Override
+    public int id(final int v)
+    {
+        return ids.id(v);
+    }
+
+    @Override
+    public boolean isSymmetric()
+    {
+        return outBytes == inBytes;
+    }
+
+    @Override
+    public int index(final int id)
+    {
+        return ids.index(id);
+    }
+
+    @Override
+    public boolean isWeighted()
+    {
+        return outWeights != null;
+    }
+
+    @Override
+    public int successorWeights(final int v, final double[] buffer)
+    {
+        return copyWeights(outEdges, outWeights, v, outDegree(v), buffer);
+    }
+
+    @Override
+    public int predecessorWeights(final int v, final double[] buffer)
+    {
+        return copyWeights(inEdges, inWeights, v, inDegree(v), buffer);
+    }
+
+    @Override
+    public double outWeight(final int v)
+    {
+        return outTotals == null? outDegree(v) : outTotals[v];
+    }
+
+    /**
+     * @return Number of bytes used by the encoded adjacencies and their
+     * offsets, weights not included.
+     */
+    public long adjacencyBytes()
+    {
+        if(isSymmetric())
+            return outBytes.length + outOffsets.length * 4L;
+        return outBytes.length + inBytes.length + (outOffsets.length + inOffsets.length) * 4L;
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Sequential decoder of a whole list.
+     */
+    private static int decode(final int v, final byte[] bytes, final int offset, final int[] buffer)
+    {
+        long read = readVarint(bytes, offset);
+        int degree = (int) read;
+        int position = (int) (read >>> 32);
+        //skip the block lengths
+        for(int b = 1; b < (degree + BLOCK - 1) / BLOCK; b++)
+            position = (int) (readVarint(bytes, position) >>> 32);
+
+        int value = 0;
+        for(int i = 0; i < degree; i++)
+        {
+            //inlined varint decoding, this is the hot loop
+            int z = 0, shift = 0;
+            byte b;
+            do
+            {
+                b = bytes[position++];
+                z |= (b & 0x7f) << shift;
+                shift += 7;
+            }
+            while(b < 0);
+            value = i % BLOCK == 0? v + unzigzag(z) : value + z;
+            buffer[i] = value;
+        }
+        return degree;
+    }
+
+    /**
+     * Sorts the neighbours of a vertex as encode does, writing their weights
+     * in the same order in res from position start.
+     */
+    private static void sortWithWeights(final int[] neighbours, final double[] weights, final int degree,
+            final long[] order, final double[] res, final int start)
+    {
+        //neighbour in the high bits, position in the low ones
+        for(int i = 0; i < degree; i++)
+            order[i] = ((long) neighbours[i] << 32) | i;
+        Arrays.sort(order, 0, degree);
+        for(int i = 0; i < degree; i++)
+        {
+            neighbours[i] = (int) (order[i] >>> 32);
+            res[start + i] = weights[(int) order[i]];
+        }
+    }
+
+    //unweighted graphs have weights of 1
+    private static int copyWeights(final int[] edges, final double[] weights, final int v, 
+            final int degree, final double[] buffer)
+    {
+        if(weights == null)
+            Arrays.fill(buffer, 0, degree, 1d);
+        else
+            System.arraycopy(weights, edges[v], buffer, 0, degree);
+        return degree;
+    }
+
+    private static void encode(final int v, final int[] neighbours, final int degree,
+            final ByteWriter list, final ByteWriter block, final ByteWriter res)
+    {
+        Arrays.sort(neighbours, 0, degree);
+        list.size = 0;
+        block.size = 0;
+        list.writeVarint(degree);
+        int blockStart = 0;
+        for(int i = 0; i < degree; i++)
+        {
+            if(i % BLOCK == 0)
+            {
+                //length of the previous block, the last block doesn't need it
+                if(i > 0)
+                    list.writeVarint(block.size - blockStart);
+                blockStart = block.size;
+                block.writeVarint(zigzag(neighbours[i] - v));
+            }
+            else
+                block.writeVarint(neighbours[i] - neighbours[i - 1]);
+        }
+        res.write(list);
+        res.write(block);
+    }
+
+    private static int zigzag(final int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(final int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a varint.
+     * @return The position after the varint in the high 32 bits, the value
+     * in the low 32 bits.
+     */
+    private static long readVarint(final byte[] bytes, int position)
+    {
+        int value = 0, shift = 0;
+        byte b;
+        do
+        {
+            b = bytes[position++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        }
+        while(b < 0);
+        return ((long) position << 32) | (value & 0xffffffffL);
+    }
+
+    //growable byte array
+    private static final class ByteWriter
+    {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        private void writeVarint(int value)
+        {
+            ensure(5);
+            while((value & ~0x7f) != 0)
+            {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void write(final ByteWriter other)
+        {
+            ensure(other.size);
+            System.arraycopy(other.bytes, 0, bytes, size, other.size);
+            size += other.size;
+        }
+
+        private void ensure(final int more)
+        {
+            if(size + more > bytes.length)
+            {
+                long length = Math.max((long) bytes.length * 2, (long) size + more);
+                if(length > Integer.MAX_VALUE - 8)
+                    throw new IllegalArgumentException("Compressed adjacency larger than 2GB");
+                bytes = Arrays.copyOf(bytes, (int) length);
+            }
+        }
+
+        private byte[] toArray()
+        {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package graph;
+
+import java.util.Arrays;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+
+/**
+ * Immutable directed graph in compressed sparse row format.
+ * Vertices are the dense indexes 0..n-1 assigned following the ascending order
+ * of the original ids (or any order for reordered graphs, see Reordering), successors of v are outTargets[outOffsets[v]..outOffsets[v+1])
+ * and predecessors of v are inSources[inOffsets[v]..inOffsets[v+1]).
+ * Parallel edges and self loops are kept as they are.
+ * Symmetric graphs (see symmetric and fromUndirectedEdges) use the same arrays
+ * for both directions, so each undirected edge is stored once in each endpoint
+ * list instead of once in each of the four lists of a directed graph.
+ * Weighted graphs keep the weight of each edge in arrays parallel to
+ * outTargets and inSources.
+ */
+public class CsrGraph implements IntGraph
+{
+    private final Ids ids;
+
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    //weights parallel to outTargets and inSources, null if the graph is unweighted
+    private final double[] outWeights;
+    private final double[] inWeights;
+    //sum of the out weights of each vertex, null if the graph is unweighted
+    private final double[] outTotals;
+
+    private final int maxOutDegree;
+    private final int maxInDegree;
+    //in arrays are the out arrays
+    private final boolean symmetric;
+
+    //CONSTRUCTORS
+    ////////////////////
+
+    /**
+     * Creates a graph from already built arrays, the arrays are not copied.
+     * @param ids Original id of each dense index, without duplicates.
+     * @param outOffsets Array of length ids.length + 1, successors of v are
+     * in outTargets[outOffsets[v]..outOffsets[v+1]).
+     * @param outTargets Dense indexes of the successors.
+     * @param inOffsets Array of length ids.length + 1, predecessors of v are
+     * in inSources[inOffsets[v]..inOffsets[v+1]).
+     * @param inSources Dense indexes of the predecessors.
+     */
+    public CsrGraph(final int[] ids, final int[] outOffsets, final int[] outTargets,
+            final int[] inOffsets, final int[] inSources)
+    {
+        this(new Ids(ids), outOffsets, outTargets, null, inOffsets, inSources, null);
+    }
+
+    /**
+     * Creates a weighted graph from already built arrays, the arrays are not copied.
+     * @param ids Original id of each dense index, without duplicates.
+     * @param outOffsets Array of length ids.length + 1, successors of v are
+     * in outTargets[outOffsets[v]..outOffsets[v+1]).
+     * @param outTargets Dense indexes of the successors.
+     * @param outWeights Positive weight of each edge in outTargets.
+     * @param inOffsets Array of length ids.length + 1, predecessors of v are
+     * in inSources[inOffsets[v]..inOffsets[v+1]).
+     * @param inSources Dense indexes of the predecessors.
+     * @param inWeights Positive weight of each edge in inSources, the same
+     * edge must have the same weight in both directions.
+     */
+    public CsrGraph(final int[] ids, final int[] outOffsets, final int[] outTargets, final double[] outWeights,
+            final int[] inOffsets, final int[] inSources, final double[] inWeights)
+    {
+        this(new Ids(ids), outOffsets, outTargets, outWeights, inOffsets, inSources, inWeights);
+    }
+
+    private CsrGraph(final Ids ids, final int[] outOffsets, final int[] outTargets, final double[] outWeights,
+            final int[] inOffsets, final int[] inSources, final double[] inWeights)
+    {
+        int n = ids.size();
+        if(outOffsets.length != n + 1 || inOffsets.length != n + 1)
+            throw new IllegalArgumentException("Offsets must have one more entry than vertices");
+        if(outOffsets[n] != outTargets.length || inOffsets[n] != inSources.length
+                || outTargets.length != inSources.length)
+            throw new IllegalArgumentException("Offsets don't match the number of edges");
+        if((outWeights == null) != (inWeights == null))
+            throw new IllegalArgumentException("Weights must be given for both directions");
+        if(outWeights != null)
+        {
+            if(outWeights.length != outTargets.length || inWeights.length != inSources.length)
+                throw new IllegalArgumentException("Weights don't match the number of edges");
+            checkWeights(outWeights);
+            if(inWeights != outWeights)
+                checkWeights(inWeights);
+        }
+
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.outWeights = outWeights;
+        this.inWeights = inWeights;
+        this.symmetric = outOffsets == inOffsets && outTargets == inSources && outWeights == inWeights;
+
+        if(outWeights != null)
+        {
+            outTotals = new double[n];
+            for(int v = 0; v < n; v++)
+                for(int i = outOffsets[v]; i < outOffsets[v + 1]; i++)
+                    outTotals[v] += outWeights[i];
+        }
+        else
+            outTotals = null;
+
+        int maxOut = 0, maxIn = 0;
+        for(int v = 0; v < n; v++)
+        {
+            maxOut = Math.max(maxOut, outOffsets[v + 1] - outOffsets[v]);
+            maxIn = Math.max(maxIn, inOffsets[v + 1] - inOffsets[v]);
+        }
+        this.maxOutDegree = maxOut;
+        this.maxInDegree = maxIn;
+    }
+
+    /**
+     * Creates a symmetric graph, the adjacency of each vertex is used both as
+     * its successors and its predecessors, the arrays are not copied.
+     * @param ids Original id of each dense index, without duplicates.
+     * @param offsets Array of length ids.length + 1, neighbours of v are
+     * in neighbours[offsets[v]..offsets[v+1]).
+     * @param neighbours Dense indexes of the neighbours, every u in the list
+     * of v must have v in its own list.
+     * @return Symmetric graph.
+     */
+    public static CsrGraph symmetric(final int[] ids, final int[] offsets, final int[] neighbours)
+    {
+        return new CsrGraph(ids, offsets, neighbours, offsets, neighbours);
+    }
+
+    /**
+     * Creates a weighted symmetric graph, see symmetric(ids, offsets, neighbours).
+     * @param ids Original id of each dense index, without duplicates.
+     * @param offsets Array of length ids.length + 1, neighbours of v are
+     * in neighbours[offsets[v]..offsets[v+1]).
+     * @param neighbours Dense indexes of the neighbours, every u in the list
+     * of v must have v in its own list.
+     * @param weights Positive weight of each edge in neighbours, the same for
+     * both the endpoints of an edge.
+     * @return Weighted symmetric graph.
+     */
+    public static CsrGraph symmetric(final int[] ids, final int[] offsets, final int[] neighbours,
+            final double[] weights)
+    {
+        return new CsrGraph(ids, offsets, neighbours, weights, offsets, neighbours, weights);
+    }
+
+    /**
+     * Builds a symmetric CsrGraph from a list of undirected edges expressed
+     * with original ids, each edge u-v is both u->v and v->u (a self loop is a
+     * single edge), vertices are the ones appearing in at least one edge.
+     * @param sources Original id of an endpoint of each edge.
+     * @param targets Original id of the other endpoint of each edge.
+     * @param edges Number of edges to read from sources and targets.
+     * @return Symmetric graph made of the input edges.
+     */
+    public static CsrGraph fromUndirectedEdges(final int[] sources, final int[] targets, final int edges)
+    {
+        CsrGraph directed = fromEdges(sources, targets, edges);
+        int n = directed.vertices();
+        int[] offsets = new int[n + 1];
+        for(int v = 0; v < n; v++)
+        {
+            int loops = 0;
+            for(int i = directed.outOffsets[v]; i < directed.outOffsets[v + 1]; i++)
+                if(directed.outTargets[i] == v)
+                    loops++;
+            //self loops are in both the out and the in list, count them once
+            offsets[v + 1] = offsets[v] + directed.outDegree(v) + directed.inDegree(v) - loops;
+        }
+        int[] neighbours = new int[offsets[n]];
+        for(int v = 0; v < n; v++)
+        {
+            int size = offsets[v];
+            for(int i = directed.outOffsets[v]; i < directed.outOffsets[v + 1]; i++)
+                neighbours[size++] = directed.outTargets[i];
+            for(int i = directed.inOffsets[v]; i < directed.inOffsets[v + 1]; i++)
+                if(directed.inSources[i] != v)
+                    neighbours[size++] = directed.inSources[i];
+        }
+        return new CsrGraph(directed.ids, offsets, neighbours, null, offsets, neighbours, null);
+    }
+
+    /**
+     * Builds a CsrGraph containing the same vertices and edges of a jgrapht graph.
+     * Undirected graphs imported as two opposite directed edges (every edge
+     * u->v has its own v->u) give a symmetric graph, whose predecessors are
+     * the successors in their order.
+     * @param g Input graph.
+     * @return Immutable copy of g.
+     */
+    public static CsrGraph fromGraph(final DirectedGraph<Integer, DefaultEdge> g)
+    {
+        int[] ids = new int[g.vertexSet().size()];
+        int index = 0;
+        for(int v: g.vertexSet())
+            ids[index++] = v;
+        Arrays.sort(ids);
+        Ids indexes = new Ids(ids);
+
+        //edges are read in insertion order so neighbours keep the order jgrapht gives them
+        int[] sources = new int[g.edgeSet().size()];
+        int[] targets = new int[g.edgeSet().size()];
+        int edge = 0;
+        for(DefaultEdge e: g.edgeSet())
+        {
+            sources[edge] = indexes.index(g.getEdgeSource(e));
+            targets[edge] = indexes.index(g.getEdgeTarget(e));
+            edge++;
+        }
+        CsrGraph res = fromDenseEdges(indexes, sources, targets, null, edge);
+        if(res.hasReverseEdges())
+            return new CsrGraph(indexes, res.outOffsets, res.outTargets, null, res.outOffsets, res.outTargets, null);
+        return res;
+    }
+
+    /**
+     * Builds a CsrGraph from a list of edges expressed with original ids,
+     * vertices are the ones appearing in at least one edge.
+     * @param sources Original id of the source of each edge.
+     * @param targets Original id of the target of each edge.
+     * @param edges Number of edges to read from sources and targets.
+     * @return Graph made of the input edges.
+     */
+    public static CsrGraph fromEdges(final int[] sources, final int[] targets, final int edges)
+    {
+        return fromEdges(sources, targets, null, edges);
+    }
+
+    /**
+     * Builds a weighted CsrGraph from a list of edges expressed with original ids,
+     * vertices are the ones appearing in at least one edge.
+     * @param sources Original id of the source of each edge.
+     * @param targets Original id of the target of each edge.
+     * @param weights Positive weight of each edge.
+     * @param edges Number of edges to read from sources, targets and weights.
+     * @return Weighted graph made of the input edges.
+     */
+    public static CsrGraph fromWeightedEdges(final int[] sources, final int[] targets,
+            final double[] weights, final int edges)
+    {
+        return fromEdges(sources, targets, weights, edges);
+    }
+
+    private static CsrGraph fromEdges(final int[] sources, final int[] targets,
+            final double[] weights, final int edges)
+    {
+        int[] all = new int[edges * 2];
+        System.arraycopy(sources, 0, all, 0, edges);
+        System.arraycopy(targets, 0, all, edges, edges);
+        Arrays.sort(all);
+        int n = 0;
+        for(int i = 0; i < all.length; i++)
+            if(i == 0 || all[i] != all[i - 1])
+                all[n++] = all[i];
+        Ids indexes = new Ids(Arrays.copyOf(all, n));
+
+        int[] denseSources = new int[edges];
+        int[] denseTargets = new int[edges];
+        for(int e = 0; e < edges; e++)
+        {
+            denseSources[e] = indexes.index(sources[e]);
+            denseTargets[e] = indexes.index(targets[e]);
+        }
+        return fromDenseEdges(indexes, denseSources, denseTargets, weights, edges);
+    }
+
+    /**
+     * Builds a CsrGraph from a list of edges already expressed with dense indexes,
+     * successors of a vertex keep the order in which their edges appear.
+     * @param ids Original id of each dense index, without duplicates.
+     * @param sources Dense index of the source of each edge.
+     * @param targets Dense index of the target of each edge.
+     * @param edges Number of edges to read from sources and targets.
+     * @return Graph made of the input edges.
+     */
+    public static CsrGraph fromDenseEdges(final int[] ids, final int[] sources,
+            final int[] targets, final int edges)
+    {
+        return fromDenseEdges(new Ids(ids), sources, targets, null, edges);
+    }
+
+    /**
+     * Builds a weighted CsrGraph from a list of edges already expressed with
+     * dense indexes, successors of a vertex keep the order in which their edges appear.
+     * @param ids Original id of each dense index, without duplicates.
+     * @param sources Dense index of the source of each edge.
+     * @param targets Dense index of the target of each edge.
+     * @param weights Positive weight of each edge.
+     * @param edges Number of edges to read from sources, targets and weights.
+     * @return Weighted graph made of the input edges.
+     */
+    public static CsrGraph fromDenseWeightedEdges(final int[] ids, final int[] sources,
+            final int[] targets, final double[] weights, final int edges)
+    {
+        return fromDenseEdges(new Ids(ids), sources, targets, weights, edges);
+    }
+
+    private static CsrGraph fromDenseEdges(final Ids ids, final int[] sources,
+            final int[] targets, final double[] weights, final int edges)
+    {
+        int n = ids.size();
+        int[] outOffsets = new int[n + 1];
+        int[] inOffsets = new int[n + 1];
+        for(int e = 0; e < edges; e++)
+        {
+            outOffsets[sources[e] + 1]++;
+            inOffsets[targets[e] + 1]++;
+        }
+        for(int v = 0; v < n; v++)
+        {
+            outOffsets[v + 1] += outOffsets[v];
+            inOffsets[v + 1] += inOffsets[v];
+        }
+
+        int[] outTargets = new int[edges];
+        int[] inSources = new int[edges];
+        int[] outNext = Arrays.copyOf(outOffsets, n);
+        int[] inNext = Arrays.copyOf(inOffsets, n);
+        double[] outWeights = weights == null? null : new double[edges];
+        double[] inWeights = weights == null? null : new double[edges];
+        for(int e = 0; e < edges; e++)
+        {
+            if(weights != null)
+            {
+                outWeights[outNext[sources[e]]] = weights[e];
+                inWeights[inNext[targets[e]]] = weights[e];
+            }
+            outTargets[outNext[sources[e]]++] = targets[e];
+            inSources[inNext[targets[e]]++] = sources[e];
+        }
+        return new CsrGraph(ids, outOffsets, outTargets, outWeights, inOffsets, inSources, inWeights);
+    }
+
+    //GETTERS
+    ////////////////////
+
+    @Override
+    public int vertices()
+    {
+        return ids.size();
+    }
+
+    @Override
+    public int edges()
+    {
+        return outTargets.length;
+    }
+
+    @Override
+    public int outDegree(final int v)
+    {
+        return outOffsets[v + 1] - outOffsets[v];
+    }
+
+    @Override
+    public int inDegree(final int v)
+    {
+        return inOffsets[v + 1] - inOffsets[v];
+    }
+
+    @Override
+    public int maxOutDegree()
+    {
+        return maxOutDegree;
+    }
+
+    @Override
+    public int maxInDegree()
+    {
+        return maxInDegree;
+    }
+
+    @Override
+    public int successors(final int v, final int[] buffer)
+    {
+        int degree = outOffsets[v + 1] - outOffsets[v];
+        System.arraycopy(outTargets, outOffsets[v], buffer, 0, degree);
+        return degree;
+    }
+
+    @Override
+    public int predecessors(final int v, final int[] buffer)
+    {
+        int degree = inOffsets[v + 1] - inOffsets[v];
+        System.arraycopy(inSources, inOffsets[v], buffer, 0, degree);
+        return degree;
+    }
+
+    @Override
+    public int successor(final int v, final int i)
+    {
+        return outTargets[outOffsets[v] + i];
+    }
+
+    @Override
+    public int id(final int v)
+    {
+        return ids.id(v);
+    }
+
+    @Override
+    public boolean isSymmetric()
+    {
+        return symmetric;
+    }
+
+    @Override
+    public int index(final int id)
+    {
+        return ids.index(id);
+    }
+
+    @Override
+    public boolean isWeighted()
+    {
+        return outWeights != null;
+    }
+
+    @Override
+    public int successorWeights(final int v, final double[] buffer)
+    {
+        int degree = outOffsets[v + 1] - outOffsets[v];
+        if(outWeights == null)
+            Arrays.fill(buffer, 0, degree, 1d);
+        else
+            System.arraycopy(outWeights, outOffsets[v], buffer, 0, degree);
+        return degree;
+    }
+
+    @Override
+    public int predecessorWeights(final int v, final double[] buffer)
+    {
+        int degree = inOffsets[v + 1] - inOffsets[v];
+        if(inWeights == null)
+            Arrays.fill(buffer, 0, degree, 1d);
+        else
+            System.arraycopy(inWeights, inOffsets[v], buffer, 0, degree);
+        return degree;
+    }
+
+    @Override
+    public double outWeight(final int v)
+    {
+        return outTotals == null? outOffsets[v + 1] - outOffsets[v] : outTotals[v];
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    private static void checkWeights(final double[] weights)
+    {
+        for(double w: weights)
+            //also rejects NaN
+            if(!(w > 0) || Double.isInfinite(w))
+                throw new IllegalArgumentException("Weights must be positive and finite");
+    }
+
+    //true if the successors of each vertex are its predecessors, parallel 
+    //edges counted, so that every edge u->v has its own v->u
+    private boolean hasReverseEdges()
+    {
+        int[] successors = new int[maxOutDegree];
+        int[] predecessors = new int[maxInDegree];
+        for(int v = 0; v < vertices(); v++)
+        {
+            int degree = successors(v, successors);
+            if(predecessors(v, predecessors) != degree)
+                return false;
+            Arrays.sort(successors, 0, degree);
+            Arrays.sort(predecessors, 0, degree);
+            for(int i = 0; i < degree; i++)
+                if(successors[i] != predecessors[i])
+                    return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,546 @@
+package graph;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Graph which changes over time, made of an immutable base graph and of the
+ * changes applied after it: an append only log of edge insertions and
+ * deletions, indexed by per vertex lists of added and removed neighbours.
+ * Algorithms don't run on the DeltaGraph itself but on a snapshot(), an
+ * immutable IntGraph showing base and changes merged at the time it was
+ * taken, so updates can keep coming while algorithms run.
+ * Compaction folds the changes in a new base CsrGraph: the new base is built
+ * without holding the lock, updates arriving meanwhile stay in the log and are
+ * applied again on top of the new base, then the base is swapped. Snapshots
+ * taken before keep working on the old base.
+ * Dense indexes never change: vertices created by insertions get the next
+ * index after the ones already there, and the new base keeps the same order.
+ * Only unweighted graphs are supported.
+ */
+public class DeltaGraph
+{
+    //log entries
+    private static final int INSERT = 1;
+    private static final int DELETE = -1;
+
+    private final Object lock = new Object();
+    private IntGraph base;
+    //dense indexes of the base by decreasing out/in degree, so that snapshots
+    //find the max degree of the unchanged vertices without scanning them all
+    private int[] outByDegree;
+    private int[] inByDegree;
+
+    //vertices created after the base, their index is base.vertices() + position
+    private IntArrayList newIds = new IntArrayList();
+    private Int2IntOpenHashMap newIndexes = newIndexMap();
+
+    //changes since the base: kind, source id and target id of each entry
+    private IntArrayList logKinds = new IntArrayList();
+    private IntArrayList logSources = new IntArrayList();
+    private IntArrayList logTargets = new IntArrayList();
+
+    //per vertex changes, by dense index
+    private Int2ObjectOpenHashMap<IntArrayList> addedOut = new Int2ObjectOpenHashMap<>();
+    private Int2ObjectOpenHashMap<IntArrayList> removedOut = new Int2ObjectOpenHashMap<>();
+    private Int2ObjectOpenHashMap<IntArrayList> addedIn = new Int2ObjectOpenHashMap<>();
+    private Int2ObjectOpenHashMap<IntArrayList> removedIn = new Int2ObjectOpenHashMap<>();
+    private int edgeDelta;
+
+    //true while a compaction is building the new base
+    private boolean compacting;
+
+    //CONSTRUCTORS
+    ////////////////////
+
+    /**
+     * @param base Starting graph, it must not change afterwards.
+     */
+    public DeltaGraph(final IntGraph base)
+    {
+        if(base.isWeighted())
+            throw new IllegalArgumentException("Weighted graphs are not supported");
+        this.base = base;
+        outByDegree = byDegree(base, true);
+        inByDegree = base.isSymmetric()? outByDegree : byDegree(base, false);
+    }
+
+    /**
+     * @return Graph without vertices.
+     */
+    public static DeltaGraph empty()
+    {
+        return new DeltaGraph(CsrGraph.fromEdges(new int[0], new int[0], 0));
+    }
+
+    //GETTERS
+    ////////////////////
+
+    /**
+     * @return Current base graph.
+     */
+    public IntGraph getBase()
+    {
+        synchronized(lock)
+        {
+            return base;
+        }
+    }
+
+    /**
+     * @return Number of changes not folded in the base yet.
+     */
+    public int getPendingChanges()
+    {
+        synchronized(lock)
+        {
+            return logKinds.size();
+        }
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Adds an edge, vertices which don't exist yet are created.
+     * @param source Id of the source vertex.
+     * @param target Id of the target vertex.
+     */
+    public void insertEdge(final int source, final int target)
+    {
+        synchronized(lock)
+        {
+            apply(INSERT, source, target);
+            log(INSERT, source, target);
+        }
+    }
+
+    /**
+     * Removes an edge, if the graph has parallel edges only one is removed.
+     * Vertices are kept even when they are left without edges.
+     * @param source Id of the source vertex.
+     * @param target Id of the target vertex.
+     * @return False if the edge doesn't exist.
+     */
+    public boolean deleteEdge(final int source, final int target)
+    {
+        synchronized(lock)
+        {
+            int u = index(source), v = index(target);
+            if(u == -1 || v == -1 || count(u, v) == 0)
+                return false;
+            apply(DELETE, source, target);
+            log(DELETE, source, target);
+            return true;
+        }
+    }
+
+    /**
+     * Immutable view of the graph with all the changes applied so far.
+     * Costs the degrees of the changed vertices, nothing is done for the
+     * others (max degrees come from the base order by degree).
+     * @return Snapshot of the graph.
+     */
+    public IntGraph snapshot()
+    {
+        synchronized(lock)
+        {
+            return new Snapshot(this);
+        }
+    }
+
+    /**
+     * Folds all the changes logged so far in a new base graph, changes
+     * arriving during the compaction are kept for the next one.
+     * Only one compaction runs at a time, if another one is running this
+     * returns immediately.
+     * @return The new base, or the current one if nothing was compacted.
+     */
+    public IntGraph compact()
+    {
+        Snapshot snapshot;
+        int folded;
+        synchronized(lock)
+        {
+            if(compacting || logKinds.isEmpty())
+                return base;
+            compacting = true;
+            snapshot = new Snapshot(this);
+            folded = logKinds.size();
+        }
+
+        CsrGraph compacted;
+        int[] compactedOut, compactedIn;
+        try
+        {
+            compacted = snapshot.toCsr();
+            compactedOut = byDegree(compacted, true);
+            compactedIn = byDegree(compacted, false);
+        }
+        catch(RuntimeException e)
+        {
+            synchronized(lock)
+            {
+                compacting = false;
+            }
+            throw e;
+        }
+
+        synchronized(lock)
+        {
+            IntArrayList kinds = logKinds, sources = logSources, targets = logTargets;
+            base = compacted;
+            outByDegree = compactedOut;
+            inByDegree = compactedIn;
+            newIds = new IntArrayList();
+            newIndexes = newIndexMap();
+            logKinds = new IntArrayList();
+            logSources = new IntArrayList();
+            logTargets = new IntArrayList();
+            addedOut = new Int2ObjectOpenHashMap<>();
+            removedOut = new Int2ObjectOpenHashMap<>();
+            addedIn = new Int2ObjectOpenHashMap<>();
+            removedIn = new Int2ObjectOpenHashMap<>();
+            edgeDelta = 0;
+            //changes which arrived while building the new base
+            for(int i = folded; i < kinds.size(); i++)
+            {
+                apply(kinds.getInt(i), sources.getInt(i), targets.getInt(i));
+                log(kinds.getInt(i), sources.getInt(i), targets.getInt(i));
+            }
+            compacting = false;
+            return base;
+        }
+    }
+
+    /**
+     * Runs compact() in the common fork join pool.
+     * @return The running compaction, join() returns the new base.
+     */
+    public ForkJoinTask<IntGraph> compactInBackground()
+    {
+        return ForkJoinPool.commonPool().submit(() -> compact());
+    }
+
+    /**
+     * Counting sort of the vertices of g by decreasing degree.
+     */
+    private static int[] byDegree(final IntGraph g, final boolean out)
+    {
+        int n = g.vertices();
+        int[] starts = new int[(out? g.maxOutDegree() : g.maxInDegree()) + 2];
+        for(int v = 0; v < n; v++)
+            starts[(out? g.maxOutDegree() - g.outDegree(v) : g.maxInDegree() - g.inDegree(v)) + 1]++;
+        for(int d = 1; d < starts.length; d++)
+            starts[d] += starts[d - 1];
+        int[] res = new int[n];
+        for(int v = 0; v < n; v++)
+            res[starts[out? g.maxOutDegree() - g.outDegree(v) : g.maxInDegree() - g.inDegree(v)]++] = v;
+        return res;
+    }
+
+    private static Int2IntOpenHashMap newIndexMap()
+    {
+        Int2IntOpenHashMap res = new Int2IntOpenHashMap();
+        res.defaultReturnValue(-1);
+        return res;
+    }
+
+    private void log(final int kind, final int source, final int target)
+    {
+        logKinds.add(kind);
+        logSources.add(source);
+        logTargets.add(target);
+    }
+
+    private int index(final int id)
+    {
+        int v = base.index(id);
+        return v != -1? v : newIndexes.get(id);
+    }
+
+    private int createIfMissing(final int id)
+    {
+        int v = index(id);
+        if(v == -1)
+        {
+            v = base.vertices() + newIds.size();
+            newIds.add(id);
+            newIndexes.put(id, v);
+        }
+        return v;
+    }
+
+    /**
+     * Updates the per vertex lists, deletions must have been checked already.
+     */
+    private void apply(final int kind, final int source, final int target)
+    {
+        int u = createIfMissing(source), v = createIfMissing(target);
+        if(kind == INSERT)
+        {
+            list(addedOut, u).add(v);
+            list(addedIn, v).add(u);
+            edgeDelta++;
+        }
+        else
+        {
+            //an added edge is just forgotten, a base edge is marked as removed
+            IntArrayList added = addedOut.get(u);
+            int position = added == null? -1 : added.lastIndexOf(v);
+            if(position != -1)
+            {
+                added.removeInt(position);
+                IntArrayList addedPredecessors = addedIn.get(v);
+                addedPredecessors.removeInt(addedPredecessors.lastIndexOf(u));
+            }
+            else
+            {
+                list(removedOut, u).add(v);
+                list(removedIn, v).add(u);
+            }
+            edgeDelta--;
+        }
+    }
+
+    private static IntArrayList list(final Int2ObjectOpenHashMap<IntArrayList> lists, final int v)
+    {
+        IntArrayList res = lists.get(v);
+        if(res == null)
+        {
+            res = new IntArrayList();
+            lists.put(v, res);
+        }
+        return res;
+    }
+
+    /**
+     * @return Number of edges from u to v in the current graph.
+     */
+    private int count(final int u, final int v)
+    {
+        int res = 0;
+        if(u < base.vertices())
+            for(int i = 0; i < base.outDegree(u); i++)
+                if(base.successor(u, i) == v)
+                    res++;
+        res += occurrences(addedOut.get(u), v) - occurrences(removedOut.get(u), v);
+        return res;
+    }
+
+    private static int occurrences(final IntArrayList list, final int v)
+    {
+        int res = 0;
+        if(list != null)
+            for(int i = 0; i < list.size(); i++)
+                if(list.getInt(i) == v)
+                    res++;
+        return res;
+    }
+
+    /**
+     * Base neighbours without the removed ones (in their order), followed by
+     * the added ones (in order of insertion).
+     */
+    private static int[] merge(final int[] baseNeighbours, final int baseDegree,
+            final IntArrayList removed, final IntArrayList added)
+    {
+        int[] removedLeft = removed == null? new int[0] : removed.toIntArray();
+        int removedSize = removedLeft.length;
+        int[] res = new int[baseDegree - removedSize + (added == null? 0 : added.size())];
+        int size = 0;
+        for(int i = 0; i < baseDegree; i++)
+        {
+            int w = baseNeighbours[i];
+            int found = -1;
+            for(int k = 0; k < removedSize && found == -1; k++)
+                if(removedLeft[k] == w)
+                    found = k;
+            if(found == -1)
+                res[size++] = w;
+            else
+                removedLeft[found] = removedLeft[--removedSize];
+        }
+        if(added != null)
+            for(int i = 0; i < added.size(); i++)
+                res[size++] = added.getInt(i);
+        return res;
+    }
+
+    /**
+     * Immutable merged view of base and changes.
+     */
+    private static final class Snapshot implements IntGraph
+    {
+        private final IntGraph base;
+        private final int baseVertices;
+        private final int[] newIds;
+        private final Int2IntOpenHashMap newIndexes;
+        //full neighbours of the vertices with changes
+        private final Int2ObjectOpenHashMap<int[]> successors;
+        private final Int2ObjectOpenHashMap<int[]> predecessors;
+        private final int vertices;
+        private final int edges;
+        private final int maxOutDegree;
+        private final int maxInDegree;
+
+        private Snapshot(final DeltaGraph graph)
+        {
+            base = graph.base;
+            baseVertices = base.vertices();
+            newIds = graph.newIds.toIntArray();
+            newIndexes = new Int2IntOpenHashMap(graph.newIndexes);
+            newIndexes.defaultReturnValue(-1);
+            vertices = baseVertices + newIds.length;
+            edges = base.edges() + graph.edgeDelta;
+            successors = merged(graph.addedOut, graph.removedOut, true);
+            predecessors = merged(graph.addedIn, graph.removedIn, false);
+            maxOutDegree = maxDegree(successors, graph.outByDegree, true);
+            maxInDegree = maxDegree(predecessors, graph.inByDegree, false);
+        }
+
+        /**
+         * Max degree of the changed vertices and of the first unchanged vertex
+         * in the base order by degree, vertices skipped to find it are changed
+         * ones so this costs O(changed vertices).
+         */
+        private int maxDegree(final Int2ObjectOpenHashMap<int[]> changed, final int[] byDegree,
+                final boolean out)
+        {
+            int res = 0;
+            for(int[] neighbours: changed.values())
+                res = Math.max(res, neighbours.length);
+            for(int v: byDegree)
+                if(!changed.containsKey(v))
+                    return Math.max(res, out? base.outDegree(v) : base.inDegree(v));
+            return res;
+        }
+
+        private Int2ObjectOpenHashMap<int[]> merged(final Int2ObjectOpenHashMap<IntArrayList> added,
+                final Int2ObjectOpenHashMap<IntArrayList> removed, final boolean out)
+        {
+            Int2ObjectOpenHashMap<int[]> res = new Int2ObjectOpenHashMap<>(added.size() + removed.size());
+            int[] buffer = new int[out? base.maxOutDegree() : base.maxInDegree()];
+            for(int pass = 0; pass < 2; pass++)
+                for(int v: (pass == 0? added : removed).keySet())
+                {
+                    if(res.containsKey(v))
+                        continue;
+                    int degree = v >= baseVertices? 0
+                            : out? base.successors(v, buffer) : base.predecessors(v, buffer);
+                    res.put(v, merge(buffer, degree, removed.get(v), added.get(v)));
+                }
+            return res;
+        }
+
+        /**
+         * Copy of the snapshot as a CsrGraph with the same dense indexes.
+         */
+        private CsrGraph toCsr()
+        {
+            int[] ids = new int[vertices];
+            int[] outOffsets = new int[vertices + 1];
+            int[] inOffsets = new int[vertices + 1];
+            for(int v = 0; v < vertices; v++)
+            {
+                ids[v] = id(v);
+                outOffsets[v + 1] = outOffsets[v] + outDegree(v);
+                inOffsets[v + 1] = inOffsets[v] + inDegree(v);
+            }
+            int[] outTargets = new int[edges];
+            int[] inSources = new int[edges];
+            int[] buffer = new int[Math.max(maxOutDegree, maxInDegree)];
+            for(int v = 0; v < vertices; v++)
+            {
+                System.arraycopy(buffer, 0, outTargets, outOffsets[v], successors(v, buffer));
+                System.arraycopy(buffer, 0, inSources, inOffsets[v], predecessors(v, buffer));
+            }
+            return new CsrGraph(ids, outOffsets, outTargets, inOffsets, inSources);
+        }
+
+        @Override
+        public int vertices()
+        {
+            return vertices;
+        }
+
+        @Override
+        public int edges()
+        {
+            return edges;
+        }
+
+        @Override
+        public int outDegree(final int v)
+        {
+            int[] merged = successors.get(v);
+            return merged != null? merged.length : v < baseVertices? base.outDegree(v) : 0;
+        }
+
+        @Override
+        public int inDegree(final int v)
+        {
+            int[] merged = predecessors.get(v);
+            return merged != null? merged.length : v < baseVertices? base.inDegree(v) : 0;
+        }
+
+        @Override
+        public int maxOutDegree()
+        {
+            return maxOutDegree;
+        }
+
+        @Override
+        public int maxInDegree()
+        {
+            return maxInDegree;
+        }
+
+        @Override
+        public int successors(final int v, final int[] buffer)
+        {
+            int[] merged = successors.get(v);
+            if(merged != null)
+            {
+                System.arraycopy(merged, 0, buffer, 0, merged.length);
+                return merged.length;
+            }
+            return v < baseVertices? base.successors(v, buffer) : 0;
+        }
+
+        @Override
+        public int predecessors(final int v, final int[] buffer)
+        {
+            int[] merged = predecessors.get(v);
+            if(merged != null)
+            {
+                System.arraycopy(merged, 0, buffer, 0, merged.length);
+                return merged.length;
+            }
+            return v < baseVertices? base.predecessors(v, buffer) : 0;
+        }
+
+        @Override
+        public int successor(final int v, final int i)
+        {
+            int[] merged = successors.get(v);
+            return merged != null? merged[i] : base.successor(v, i);
+        }
+
+        @Override
+        public int id(final int v)
+        {
+            return v < baseVertices? base.id(v) : newIds[v - baseVertices];
+        }
+
+        @Override
+        public int index(final int id)
+        {
+            int v = base.index(id);
+            return v != -1? v : newIndexes.get(id);
+        }
+    }
+}
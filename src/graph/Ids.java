@@ -0,0 +1,57 @@
+package graph;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+/**
+ * Mapping between the dense indexes of a graph and the original vertex ids.
+ * Ids are usually sorted ascending, reordered graphs (see Reordering) keep
+ * them in any order.
+ */
+final class Ids
+{
+    //dense index -> original id
+    private final int[] ids;
+    //original id -> dense index, null when ids are exactly 0..n-1
+    private final Int2IntOpenHashMap indexes;
+
+    /**
+     * @param ids Original id of each dense index, must not contain duplicates.
+     */
+    Ids(final int[] ids)
+    {
+        this.ids = ids;
+        boolean identity = true;
+        for(int i = 0; i < ids.length && identity; i++)
+            identity = ids[i] == i;
+        if(identity)
+            indexes = null;
+        else
+        {
+            indexes = new Int2IntOpenHashMap(ids.length);
+            indexes.defaultReturnValue(-1);
+            for(int i = 0; i < ids.length; i++)
+                if(indexes.put(ids[i], i) != -1)
+                    throw new IllegalArgumentException("Ids must be unique");
+        }
+    }
+
+    int size()
+    {
+        return ids.length;
+    }
+
+    int id(final int v)
+    {
+        return ids[v];
+    }
+
+    /**
+     * @return Dense index of the id, -1 if the id isn't mapped.
+     */
+    int index(final int id)
+    {
+        if(indexes == null)
+            return id >= 0 && id < ids.length? id : -1;
+        return indexes.get(id);
+    }
+}
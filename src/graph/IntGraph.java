@@ -0,0 +1,162 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Read only directed graph whose vertices are the dense indexes 0..vertices()-1.
+ * The original vertex ids are only used at the edge of the API, algorithms
+ * work on the dense indexes and translate them back with id(index).
+ * Neighbours are copied into a buffer given by the caller (which must be at
+ * least maxOutDegree()/maxInDegree() long) so that iterating them never
+ * allocates, whatever the layout of the implementation is.
+ * Edges may have weights (see isWeighted), unweighted graphs behave as if
+ * every edge had weight 1.
+ */
+public interface IntGraph
+{
+    /**
+     * @return Number of vertices of the graph.
+     */
+    int vertices();
+
+    /**
+     * @return Number of edges of the graph.
+     */
+    int edges();
+
+    /**
+     * @param v Dense index of a vertex.
+     * @return Number of out going edges of the vertex.
+     */
+    int outDegree(int v);
+
+    /**
+     * @param v Dense index of a vertex.
+     * @return Number of in going edges of the vertex.
+     */
+    int inDegree(int v);
+
+    /**
+     * @return The highest out degree of the graph, 0 if there are no edges.
+     */
+    int maxOutDegree();
+
+    /**
+     * @return The highest in degree of the graph, 0 if there are no edges.
+     */
+    int maxInDegree();
+
+    /**
+     * Copies the successors of a vertex in the first outDegree(v) positions
+     * of the buffer.
+     * @param v Dense index of a vertex.
+     * @param buffer Array where successors are written, it must be at least
+     * outDegree(v) long.
+     * @return Number of successors written, equal to outDegree(v).
+     */
+    int successors(int v, int[] buffer);
+
+    /**
+     * Copies the predecessors of a vertex in the first inDegree(v) positions
+     * of the buffer.
+     * @param v Dense index of a vertex.
+     * @param buffer Array where predecessors are written, it must be at least
+     * inDegree(v) long.
+     * @return Number of predecessors written, equal to inDegree(v).
+     */
+    int predecessors(int v, int[] buffer);
+
+    /**
+     * Returns the i-th successor of a vertex, using the same order of
+     * successors(v, buffer).
+     * @param v Dense index of a vertex.
+     * @param i Position of the successor, in [0, outDegree(v)).
+     * @return Dense index of the successor.
+     */
+    int successor(int v, int i);
+
+    /**
+     * @param v Dense index of a vertex.
+     * @return Original id of the vertex.
+     */
+    int id(int v);
+
+    /**
+     * @param id Original id of a vertex.
+     * @return Dense index of the vertex, -1 if the vertex isn't part of the graph.
+     */
+    int index(int id);
+
+    /**
+     * Symmetric graphs (undirected graphs seen as directed graphs with both
+     * directions of each edge) store a single adjacency, so predecessors of
+     * a vertex are exactly its successors, in the same order, and algorithms
+     * visiting both can skip the predecessors.
+     * @return True if the graph stores a single adjacency for both directions.
+     */
+    default boolean isSymmetric()
+    {
+        return false;
+    }
+
+    /**
+     * Weighted graphs give a positive weight to each edge, walks leave a vertex
+     * following an edge with probability proportional to its weight and the
+     * propagating algorithms split the score of a vertex among its successors
+     * in the same proportions.
+     * @return True if edges have their own weights.
+     */
+    default boolean isWeighted()
+    {
+        return false;
+    }
+
+    /**
+     * Copies the weights of the out going edges of a vertex, in the same order
+     * of successors(v, buffer).
+     * @param v Dense index of a vertex.
+     * @param buffer Array where weights are written, it must be at least
+     * outDegree(v) long.
+     * @return Number of weights written, equal to outDegree(v).
+     */
+    default int successorWeights(int v, double[] buffer)
+    {
+        int degree = outDegree(v);
+        Arrays.fill(buffer, 0, degree, 1d);
+        return degree;
+    }
+
+    /**
+     * Copies the weights of the in going edges of a vertex, in the same order
+     * of predecessors(v, buffer).
+     * @param v Dense index of a vertex.
+     * @param buffer Array where weights are written, it must be at least
+     * inDegree(v) long.
+     * @return Number of weights written, equal to inDegree(v).
+     */
+    default int predecessorWeights(int v, double[] buffer)
+    {
+        int degree = inDegree(v);
+        Arrays.fill(buffer, 0, degree, 1d);
+        return degree;
+    }
+
+    /**
+     * @param v Dense index of a vertex.
+     * @return Sum of the weights of the out going edges of the vertex, which
+     * is the out degree for unweighted graphs.
+     */
+    default double outWeight(int v)
+    {
+        return outDegree(v);
+    }
+
+    /**
+     * @param id Original id of a vertex.
+     * @return True if the vertex is part of the graph.
+     */
+    default boolean containsVertex(int id)
+    {
+        return index(id) >= 0;
+    }
+}
@@ -0,0 +1,407 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Multilevel k-way partitioner in the style of METIS, used to split a graph
+ * in parts small enough for the data of a part to stay in cache.
+ * Edges are seen as undirected, with weight equal to the number of edges
+ * between their endpoints (in any direction), then:
+ * coarsening: vertices are matched with the neighbour sharing the heaviest
+ * edge and each pair is contracted in a single vertex, until the graph has
+ * a few vertices for each part or stops shrinking.
+ * initial partitioning: parts of the coarsest graph are grown one at a time
+ * with a BFS until they reach their share of the vertices.
+ * uncoarsening: the assignment is projected back level after level and each
+ * level is refined moving boundary vertices to the part they have most edges
+ * to (greedy k-way refinement), as long as parts stay balanced.
+ * Matching and refinement visit vertices in a random order with a fixed seed,
+ * so the same graph always gets the same parts.
+ */
+public final class MultilevelPartitioner
+{
+    //coarsening stops when the graph has less than this many vertices per part
+    private static final int COARSEST_PER_PART = 30;
+    //or when a level removes less than this fraction of the vertices
+    private static final double MIN_SHRINK = 0.05;
+    //allowed imbalance of the parts
+    private static final double IMBALANCE = 0.03;
+    //refinement passes for each level
+    private static final int REFINE_PASSES = 4;
+    private static final long SEED = 1;
+
+    private MultilevelPartitioner(){}
+
+    //undirected graph with vertex and edge weights, coarsened level after level
+    private static final class Level
+    {
+        private final int n;
+        private final int[] offsets;
+        private final int[] adjacency;
+        private final int[] edgeWeights;
+        private final int[] vertexWeights;
+        //vertex of the coarser level each vertex was contracted into
+        private int[] coarse;
+
+        private Level(final int n, final int[] offsets, final int[] adjacency,
+                final int[] edgeWeights, final int[] vertexWeights)
+        {
+            this.n = n;
+            this.offsets = offsets;
+            this.adjacency = adjacency;
+            this.edgeWeights = edgeWeights;
+            this.vertexWeights = vertexWeights;
+        }
+    }
+
+    /**
+     * Splits the vertices of a graph in a number of parts of about the same
+     * size, trying to cut as few edges as possible.
+     * @param g Graph to partition.
+     * @param parts Number of parts, must be positive.
+     * @return The assignment of the vertices to the parts, with its edge cut.
+     */
+    public static Partitioning partition(final IntGraph g, final int parts)
+    {
+        if(parts <= 0)
+            throw new IllegalArgumentException("Number of parts must be positive");
+        int n = g.vertices();
+        if(parts == 1 || n == 0)
+            return Partitioning.single(n);
+
+        Random random = new Random(SEED);
+        int levels = 0;
+        Level[] hierarchy = new Level[8];
+        hierarchy[levels++] = undirected(g);
+        //no vertex can get heavier than this, or parts can't be balanced
+        int maxVertexWeight = Math.max(1, n / (parts * 4));
+        while(hierarchy[levels - 1].n > COARSEST_PER_PART * parts)
+        {
+            Level fine = hierarchy[levels - 1];
+            Level coarse = coarsen(fine, maxVertexWeight, random);
+            if(coarse.n > fine.n * (1 - MIN_SHRINK))
+            {
+                fine.coarse = null;
+                break;
+            }
+            if(levels == hierarchy.length)
+                hierarchy = Arrays.copyOf(hierarchy, levels * 2);
+            hierarchy[levels++] = coarse;
+        }
+
+        double maxPartWeight = (1 + IMBALANCE) * n / parts;
+        Level coarsest = hierarchy[levels - 1];
+        int[] assignment = grow(coarsest, parts, random);
+        refine(coarsest, assignment, parts, maxPartWeight, random);
+        for(int l = levels - 2; l >= 0; l--)
+        {
+            Level level = hierarchy[l];
+            int[] projected = new int[level.n];
+            for(int v = 0; v < level.n; v++)
+                projected[v] = assignment[level.coarse[v]];
+            assignment = projected;
+            refine(level, assignment, parts, maxPartWeight, random);
+        }
+        return new Partitioning(assignment, parts, edgeCut(g, assignment));
+    }
+
+    /**
+     * Number of parts needed to have parts whose data fit in a cache.
+     * @param g Graph to partition.
+     * @param bytesPerVertex Bytes of data accessed for each vertex.
+     * @param cacheBytes Size of the cache.
+     * @return Number of parts, at least 1.
+     */
+    public static int partsForCache(final IntGraph g, final long bytesPerVertex, final long cacheBytes)
+    {
+        if(bytesPerVertex <= 0 || cacheBytes <= 0)
+            throw new IllegalArgumentException("Sizes must be positive");
+        long parts = (g.vertices() * bytesPerVertex + cacheBytes - 1) / cacheBytes;
+        return (int) Math.max(1, Math.min(parts, Math.max(1, g.vertices())));
+    }
+
+    /**
+     * @param g A graph.
+     * @param parts Part of each vertex.
+     * @return Number of edges of g whose endpoints are in different parts.
+     */
+    public static long edgeCut(final IntGraph g, final int[] parts)
+    {
+        int[] successors = new int[g.maxOutDegree()];
+        long cut = 0;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int degree = g.successors(v, successors);
+            for(int i = 0; i < degree; i++)
+                if(parts[successors[i]] != parts[v])
+                    cut++;
+        }
+        return cut;
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Undirected version of g without self loops, parallel edges and edges
+     * in both directions are merged in a single edge with their count as weight.
+     */
+    private static Level undirected(final IntGraph g)
+    {
+        int n = g.vertices();
+        boolean symmetric = g.isSymmetric();
+        int[] offsets = new int[n + 1];
+        int[] adjacency = new int[symmetric? g.edges() : g.edges() * 2];
+        int[] edgeWeights = new int[adjacency.length];
+        int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
+        //position of each neighbour in the list being built, -1 if not in it
+        int[] slot = new int[n];
+        Arrays.fill(slot, -1);
+        int size = 0;
+        for(int v = 0; v < n; v++)
+        {
+            for(int direction = 0; direction < (symmetric? 1 : 2); direction++)
+            {
+                int degree = direction == 0? g.successors(v, neighbours) : g.predecessors(v, neighbours);
+                for(int i = 0; i < degree; i++)
+                {
+                    int u = neighbours[i];
+                    if(u == v)
+                        continue;
+                    if(slot[u] == -1)
+                    {
+                        slot[u] = size;
+                        adjacency[size] = u;
+                        edgeWeights[size++] = 1;
+                    }
+                    else
+                        edgeWeights[slot[u]]++;
+                }
+            }
+            offsets[v + 1] = size;
+            for(int i = offsets[v]; i < size; i++)
+                slot[adjacency[i]] = -1;
+        }
+        int[] vertexWeights = new int[n];
+        Arrays.fill(vertexWeights, 1);
+        return new Level(n, offsets, Arrays.copyOf(adjacency, size), Arrays.copyOf(edgeWeights, size),
+                vertexWeights);
+    }
+
+    /**
+     * Heavy edge matching and contraction of the matched pairs.
+     */
+    private static Level coarsen(final Level fine, final int maxVertexWeight, final Random random)
+    {
+        int n = fine.n;
+        int[] match = new int[n];
+        Arrays.fill(match, -1);
+        for(int v: permutation(n, random))
+        {
+            if(match[v] != -1)
+                continue;
+            int best = v, bestWeight = 0;
+            for(int i = fine.offsets[v]; i < fine.offsets[v + 1]; i++)
+            {
+                int u = fine.adjacency[i];
+                if(match[u] == -1 && fine.edgeWeights[i] > bestWeight
+                        && fine.vertexWeights[v] + fine.vertexWeights[u] <= maxVertexWeight)
+                {
+                    best = u;
+                    bestWeight = fine.edgeWeights[i];
+                }
+            }
+            match[v] = best;
+            match[best] = v;
+        }
+
+        //coarse vertices follow the order of the smaller vertex of each pair
+        int[] coarse = new int[n];
+        int cn = 0;
+        for(int v = 0; v < n; v++)
+            if(v <= match[v])
+            {
+                coarse[v] = cn;
+                coarse[match[v]] = cn;
+                cn++;
+            }
+
+        int[] offsets = new int[cn + 1];
+        int[] adjacency = new int[fine.adjacency.length];
+        int[] edgeWeights = new int[fine.adjacency.length];
+        int[] vertexWeights = new int[cn];
+        int[] slot = new int[cn];
+        Arrays.fill(slot, -1);
+        int size = 0;
+        for(int v = 0; v < n; v++)
+        {
+            if(v > match[v])
+                continue;
+            int c = coarse[v];
+            for(int member = v, k = 0; k < (match[v] == v? 1 : 2); member = match[v], k++)
+            {
+                vertexWeights[c] += fine.vertexWeights[member];
+                for(int i = fine.offsets[member]; i < fine.offsets[member + 1]; i++)
+                {
+                    int u = coarse[fine.adjacency[i]];
+                    if(u == c)
+                        continue;
+                    if(slot[u] == -1)
+                    {
+                        slot[u] = size;
+                        adjacency[size] = u;
+                        edgeWeights[size++] = fine.edgeWeights[i];
+                    }
+                    else
+                        edgeWeights[slot[u]] += fine.edgeWeights[i];
+                }
+            }
+            offsets[c + 1] = size;
+            for(int i = offsets[c]; i < size; i++)
+                slot[adjacency[i]] = -1;
+        }
+        fine.coarse = coarse;
+        return new Level(cn, offsets, Arrays.copyOf(adjacency, size), Arrays.copyOf(edgeWeights, size),
+                vertexWeights);
+    }
+
+    /**
+     * Grows the parts one at a time with a BFS from a not assigned vertex,
+     * the last part takes all the vertices left.
+     */
+    private static int[] grow(final Level level, final int parts, final Random random)
+    {
+        int n = level.n;
+        long total = 0;
+        for(int w: level.vertexWeights)
+            total += w;
+        int[] assignment = new int[n];
+        Arrays.fill(assignment, -1);
+        int[] order = permutation(n, random);
+        int next = 0;
+        int[] queue = new int[n];
+        long assigned = 0;
+        for(int p = 0; p < parts - 1; p++)
+        {
+            //each part takes its share of what is left
+            long target = (total - assigned) / (parts - p);
+            long weight = 0;
+            int head = 0, tail = 0;
+            while(weight < target)
+            {
+                if(head == tail)
+                {
+                    //new seed, the previous component is over
+                    while(next < n && assignment[order[next]] != -1)
+                        next++;
+                    if(next == n)
+                        break;
+                    assignment[order[next]] = p;
+                    weight += level.vertexWeights[order[next]];
+                    queue[tail++] = order[next];
+                    continue;
+                }
+                int v = queue[head++];
+                for(int i = level.offsets[v]; i < level.offsets[v + 1] && weight < target; i++)
+                {
+                    int u = level.adjacency[i];
+                    if(assignment[u] == -1)
+                    {
+                        assignment[u] = p;
+                        weight += level.vertexWeights[u];
+                        queue[tail++] = u;
+                    }
+                }
+            }
+            assigned += weight;
+        }
+        for(int v = 0; v < n; v++)
+            if(assignment[v] == -1)
+                assignment[v] = parts - 1;
+        return assignment;
+    }
+
+    /**
+     * Greedy k-way refinement, each vertex is moved to the neighbouring part
+     * it has the most edges to if that lowers the cut (or keeps it equal and
+     * improves the balance) without making the part too heavy, vertices of
+     * parts which are already too heavy move even if the cut grows.
+     */
+    private static void refine(final Level level, final int[] assignment, final int parts,
+            final double maxPartWeight, final Random random)
+    {
+        long[] partWeights = new long[parts];
+        for(int v = 0; v < level.n; v++)
+            partWeights[assignment[v]] += level.vertexWeights[v];
+        //weight of the edges from the current vertex to each part
+        long[] connection = new long[parts];
+        int[] touched = new int[parts];
+        int[] order = permutation(level.n, random);
+        for(int pass = 0; pass < REFINE_PASSES; pass++)
+        {
+            int moves = 0;
+            for(int v: order)
+            {
+                int from = assignment[v];
+                int count = 0;
+                boolean boundary = false;
+                for(int i = level.offsets[v]; i < level.offsets[v + 1]; i++)
+                {
+                    int p = assignment[level.adjacency[i]];
+                    if(connection[p] == 0)
+                        touched[count++] = p;
+                    connection[p] += level.edgeWeights[i];
+                    boundary |= p != from;
+                }
+                boolean overweight = partWeights[from] > maxPartWeight;
+                if(boundary || overweight)
+                {
+                    int weight = level.vertexWeights[v];
+                    int best = from;
+                    long bestGain = overweight? Long.MIN_VALUE : 0;
+                    for(int k = 0; k < count; k++)
+                    {
+                        int p = touched[k];
+                        if(p == from || partWeights[p] + weight > maxPartWeight)
+                            continue;
+                        long gain = connection[p] - connection[from];
+                        if(gain > bestGain || (gain == bestGain && best != from
+                                && partWeights[p] < partWeights[best])
+                                || (gain == 0 && best == from && partWeights[p] + weight < partWeights[from]))
+                        {
+                            best = p;
+                            bestGain = gain;
+                        }
+                    }
+                    if(best != from)
+                    {
+                        assignment[v] = best;
+                        partWeights[from] -= weight;
+                        partWeights[best] += weight;
+                        moves++;
+                    }
+                }
+                for(int k = 0; k < count; k++)
+                    connection[touched[k]] = 0;
+            }
+            if(moves == 0)
+                break;
+        }
+    }
+
+    private static int[] permutation(final int n, final Random random)
+    {
+        int[] res = new int[n];
+        for(int i = 0; i < n; i++)
+            res[i] = i;
+        for(int i = n - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int tmp = res[i];
+            res[i] = res[j];
+            res[j] = tmp;
+        }
+        return res;
+    }
+}
@@ -0,0 +1,128 @@
+package graph;
+
+import java.util.Arrays;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+
+/**
+ * Builds graphs whose topology lives outside the java heap, in direct buffers,
+ * so that the garbage collector never has to look at it and the heap is left
+ * to the scores of the algorithms.
+ * The returned graphs are BufferGraphs, the same class used for memory mapped
+ * graph files (see io.GraphFile.map), which is the way to go when the graph
+ * doesn't even fit in memory.
+ * Each section (ids, offsets, neighbours) is a SegmentedIntBuffer, split in
+ * direct buffers of SegmentedIntBuffer.SEGMENT_INTS ints, so sections can
+ * hold up to Integer.MAX_VALUE ints even if a single direct buffer can't be
+ * larger than 2GB.
+ * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to the
+ * maximum heap size (-Xmx): a graph needs 4 * (2 * vertices + 2 * edges + 2)
+ * bytes (half of the neighbours for symmetric graphs), plus 16 bytes for each
+ * edge if it's weighted (8 if it's also symmetric), so for graphs larger
+ * than the heap the option must be set explicitly, e.g. 
+ * -Xmx8g -XX:MaxDirectMemorySize=16g. Going over the limit throws an
+ * OutOfMemoryError ("Direct buffer memory").
+ */
+public final class OffHeapGraph
+{
+
+    private OffHeapGraph(){}
+
+    /**
+     * Copies a graph (on heap, compressed or mapped) in direct buffers.
+     * @param g Graph to copy, weights are copied too (8 bytes for each edge
+     * and direction, plus an out weight for each vertex on the heap).
+     * @return Off heap graph with the same vertices and edges, in the same order.
+     */
+    public static BufferGraph copyOf(final IntGraph g)
+    {
+        int n = g.vertices();
+        boolean weighted = g.isWeighted();
+        SegmentedIntBuffer ids = allocate(n);
+        for(int v = 0; v < n; v++)
+            ids.put(v, g.id(v));
+
+        int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
+        double[] weights = new double[weighted? neighbours.length : 0];
+        SegmentedIntBuffer outOffsets = allocate(n + 1);
+        SegmentedIntBuffer outTargets = allocate(g.edges());
+        SegmentedDoubleBuffer outWeights = weighted? SegmentedDoubleBuffer.allocateDirect(g.edges()) : null;
+        int out = 0;
+        for(int v = 0; v < n; v++)
+        {
+            int degree = g.successors(v, neighbours);
+            if(weighted)
+                g.successorWeights(v, weights);
+            for(int i = 0; i < degree; i++)
+            {
+                if(weighted)
+                    outWeights.put(out, weights[i]);
+                outTargets.put(out++, neighbours[i]);
+            }
+            outOffsets.put(v + 1, out);
+        }
+        //symmetric graphs share the adjacency
+        if(g.isSymmetric())
+            return new BufferGraph(ids, outOffsets, outTargets, outWeights, null, null, null);
+
+        SegmentedIntBuffer inOffsets = allocate(n + 1);
+        SegmentedIntBuffer inSources = allocate(g.edges());
+        SegmentedDoubleBuffer inWeights = weighted? SegmentedDoubleBuffer.allocateDirect(g.edges()) : null;
+        int in = 0;
+        for(int v = 0; v < n; v++)
+        {
+            int degree = g.predecessors(v, neighbours);
+            if(weighted)
+                g.predecessorWeights(v, weights);
+            for(int i = 0; i < degree; i++)
+            {
+                if(weighted)
+                    inWeights.put(in, weights[i]);
+                inSources.put(in++, neighbours[i]);
+            }
+            inOffsets.put(v + 1, in);
+        }
+        return new BufferGraph(ids, outOffsets, outTargets, outWeights, inOffsets, inSources, inWeights);
+    }
+
+    /**
+     * Copies a jgrapht graph in direct buffers without building an on heap
+     * copy of its edges first, the result is the same of
+     * copyOf(CsrGraph.fromGraph(g)) except that symmetric graphs aren't
+     * detected, copyOf(CsrGraph.fromGraph(g)) stores their adjacency once.
+     * @param g Graph to copy.
+     * @return Off heap graph with the same vertices and edges.
+     */
+    public static BufferGraph fromGraph(final DirectedGraph<Integer, DefaultEdge> g)
+    {
+        int n = g.vertexSet().size();
+        int[] sorted = new int[n];
+        int index = 0;
+        for(int v: g.vertexSet())
+            sorted[index++] = v;
+        Arrays.sort(sorted);
+
+        SegmentedIntBuffer ids = allocate(n);
+        SegmentedIntBuffer outOffsets = allocate(n + 1);
+        SegmentedIntBuffer outTargets = allocate(g.edgeSet().size());
+        SegmentedIntBuffer inOffsets = allocate(n + 1);
+        SegmentedIntBuffer inSources = allocate(g.edgeSet().size());
+        int out = 0, in = 0;
+        for(int v = 0; v < n; v++)
+        {
+            ids.put(v, sorted[v]);
+            for(DefaultEdge e: g.outgoingEdgesOf(sorted[v]))
+                outTargets.put(out++, Arrays.binarySearch(sorted, g.getEdgeTarget(e)));
+            outOffsets.put(v + 1, out);
+            for(DefaultEdge e: g.incomingEdgesOf(sorted[v]))
+                inSources.put(in++, Arrays.binarySearch(sorted, g.getEdgeSource(e)));
+            inOffsets.put(v + 1, in);
+        }
+        return new BufferGraph(ids, outOffsets, outTargets, inOffsets, inSources);
+    }
+
+    private static SegmentedIntBuffer allocate(final int ints)
+    {
+        return SegmentedIntBuffer.allocateDirect(ints);
+    }
+}
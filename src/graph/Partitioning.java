@@ -0,0 +1,146 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Assignment of the vertices of a graph to a number of parts, as produced by
+ * MultilevelPartitioner, together with the number of edges crossing parts.
+ */
+public class Partitioning
+{
+    private final int[] parts;
+    private final int count;
+    private final int[] sizes;
+    private final long edgeCut;
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * @param parts Part of each vertex, in [0, count).
+     * @param count Number of parts, some of them may be empty.
+     * @param edgeCut Number of edges whose endpoints are in different parts.
+     */
+    public Partitioning(final int[] parts, final int count, final long edgeCut)
+    {
+        if(count <= 0)
+            throw new IllegalArgumentException("Number of parts must be positive");
+        sizes = new int[count];
+        for(int p: parts)
+        {
+            if(p < 0 || p >= count)
+                throw new IllegalArgumentException("Part out of range: " + p);
+            sizes[p]++;
+        }
+        this.parts = parts;
+        this.count = count;
+        this.edgeCut = edgeCut;
+    }
+
+    /**
+     * Partitioning with all the vertices in the same part.
+     * @param vertices Number of vertices.
+     * @return Partitioning with a single part and no cut edges.
+     */
+    public static Partitioning single(final int vertices)
+    {
+        return new Partitioning(new int[vertices], 1, 0);
+    }
+
+    //GETTERS
+    ////////////////////
+
+    /**
+     * @return Number of parts.
+     */
+    public int getParts()
+    {
+        return count;
+    }
+
+    /**
+     * @return Number of vertices.
+     */
+    public int getVertices()
+    {
+        return parts.length;
+    }
+
+    /**
+     * @param v Dense index of a vertex.
+     * @return Part of the vertex.
+     */
+    public int getPart(final int v)
+    {
+        return parts[v];
+    }
+
+    /**
+     * @param part A part.
+     * @return Number of vertices in the part.
+     */
+    public int getPartSize(final int part)
+    {
+        return sizes[part];
+    }
+
+    /**
+     * @return Number of edges whose endpoints are in different parts.
+     */
+    public long getEdgeCut()
+    {
+        return edgeCut;
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Stable sort of some vertices by part, so that vertices of the same part
+     * can be processed one after the other.
+     * @param vertices Dense indexes of the vertices to sort.
+     * @return New array with the same vertices, grouped by part in ascending
+     * order and keeping their relative order inside each part.
+     */
+    public int[] sortByPart(final int[] vertices)
+    {
+        int[] starts = new int[count + 1];
+        for(int v: vertices)
+            starts[parts[v] + 1]++;
+        for(int p = 0; p < count; p++)
+            starts[p + 1] += starts[p];
+        int[] res = new int[vertices.length];
+        for(int v: vertices)
+            res[starts[parts[v]]++] = v;
+        return res;
+    }
+
+    /**
+     * Where each part starts in an array sorted with sortByPart.
+     * @param sorted Vertices grouped by part in ascending order.
+     * @return Array of getParts() + 1 entries, vertices of part p are in
+     * sorted[res[p]..res[p+1]).
+     */
+    public int[] partOffsets(final int[] sorted)
+    {
+        int[] res = new int[count + 1];
+        for(int v: sorted)
+            res[parts[v] + 1]++;
+        for(int p = 0; p < count; p++)
+            res[p + 1] += res[p];
+        return res;
+    }
+
+    @Override
+    public String toString()
+    {
+        int min = Integer.MAX_VALUE, max = 0;
+        for(int size: sizes)
+        {
+            min = Math.min(min, size);
+            max = Math.max(max, size);
+        }
+        return "parts: " + count + " edge cut: " + edgeCut + " part sizes: [" + min + ", " + max + "]"
+                + (count <= 16? " " + Arrays.toString(sizes) : "");
+    }
+}
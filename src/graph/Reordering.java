@@ -0,0 +1,394 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Relabels the vertices of a graph so that vertices accessed together get close
+ * indexes, which improves cache locality of the propagation loops and of the
+ * walks (and makes gaps smaller in a CompressedGraph).
+ * Reordered graphs keep the original ids, so results of the algorithms run on
+ * them are still expressed with the original ids. Only the order of the keys
+ * used to break ties between equal scores changes.
+ * Available orders:
+ * DEGREE: descending degree (in + out), hubs end up next to each other.
+ * RCM: reverse Cuthill-McKee on the undirected version of the graph, a BFS
+ * visiting neighbours by ascending degree, reversed, which reduces the bandwidth.
+ * GORDER: greedy Gorder, each vertex is followed by the one sharing most edges
+ * and in-neighbours with the last "window" placed vertices.
+ */
+public final class Reordering
+{
+    /**
+     * Strategy deciding the new order of the vertices of a graph.
+     */
+    public interface VertexOrder
+    {
+        /**
+         * @param g Graph to reorder.
+         * @return Permutation where order[i] is the current index of the vertex
+         * which gets index i.
+         */
+        int[] order(IntGraph g);
+    }
+
+    //default size of the window of Gorder
+    public static final int DEFAULT_WINDOW = 5;
+
+    public static final VertexOrder DEGREE = Reordering::degreeOrder;
+    public static final VertexOrder RCM = Reordering::rcmOrder;
+    public static final VertexOrder GORDER = gorder(DEFAULT_WINDOW);
+
+    private Reordering(){}
+
+    /**
+     * @param window Number of already placed vertices considered when choosing
+     * the next one, must be positive.
+     * @return Gorder with the given window.
+     */
+    public static VertexOrder gorder(final int window)
+    {
+        if(window <= 0)
+            throw new IllegalArgumentException("Window must be positive");
+        return g -> gorderOrder(g, window);
+    }
+
+    /**
+     * Builds a copy of g with vertices relabeled following an order.
+     * @param g Graph to reorder.
+     * @param order Order to use.
+     * @return Reordered graph, with the same ids, vertices and edges of g.
+     */
+    public static CsrGraph reorder(final IntGraph g, final VertexOrder order)
+    {
+        return apply(g, order.order(g));
+    }
+
+    /**
+     * Builds a copy of g with vertices relabeled following a permutation,
+     * neighbours of each vertex are sorted by their new index.
+     * @param g Graph to reorder.
+     * @param order Permutation, order[i] is the index in g of the vertex which
+     * gets index i.
+     * @return Reordered graph, with the same ids, vertices and edges of g.
+     */
+    public static CsrGraph apply(final IntGraph g, final int[] order)
+    {
+        int n = g.vertices();
+        if(order.length != n)
+            throw new IllegalArgumentException("Order must contain each vertex once");
+        int[] rank = new int[n];
+        Arrays.fill(rank, -1);
+        for(int i = 0; i < n; i++)
+        {
+            if(order[i] < 0 || order[i] >= n || rank[order[i]] != -1)
+                throw new IllegalArgumentException("Order must contain each vertex once");
+            rank[order[i]] = i;
+        }
+
+        int[] ids = new int[n];
+        int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
+        //weights of the lists and the buffers to sort them together with the neighbours
+        boolean weighted = g.isWeighted();
+        double[] weights = weighted? new double[neighbours.length] : null;
+        long[] sorter = weighted? new long[neighbours.length] : null;
+
+        int[] outOffsets = new int[n + 1];
+        int[] outTargets = new int[g.edges()];
+        double[] outWeights = weighted? new double[g.edges()] : null;
+        for(int i = 0; i < n; i++)
+        {
+            ids[i] = g.id(order[i]);
+            int degree = g.successors(order[i], neighbours);
+            if(weighted)
+                g.successorWeights(order[i], weights);
+            outOffsets[i + 1] = outOffsets[i] + degree;
+            copyList(neighbours, weights, degree, rank, sorter, outTargets, outWeights, outOffsets[i]);
+        }
+        if(g.isSymmetric())
+            return weighted? CsrGraph.symmetric(ids, outOffsets, outTargets, outWeights)
+                    : CsrGraph.symmetric(ids, outOffsets, outTargets);
+
+        int[] inOffsets = new int[n + 1];
+        int[] inSources = new int[g.edges()];
+        double[] inWeights = weighted? new double[g.edges()] : null;
+        for(int i = 0; i < n; i++)
+        {
+            int degree = g.predecessors(order[i], neighbours);
+            if(weighted)
+                g.predecessorWeights(order[i], weights);
+            inOffsets[i + 1] = inOffsets[i] + degree;
+            copyList(neighbours, weights, degree, rank, sorter, inSources, inWeights, inOffsets[i]);
+        }
+        return new CsrGraph(ids, outOffsets, outTargets, outWeights, inOffsets, inSources, inWeights);
+    }
+
+    /**
+     * Locality measure of a graph, the lower the better.
+     * @param g Input graph.
+     * @return Average over the edges of log2(|source - target| + 1).
+     */
+    public static double averageLogGap(final IntGraph g)
+    {
+        if(g.edges() == 0)
+            return 0;
+        int[] successors = new int[g.maxOutDegree()];
+        double sum = 0;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int degree = g.successors(v, successors);
+            for(int i = 0; i < degree; i++)
+                sum += Math.log(Math.abs((long) successors[i] - v) + 1);
+        }
+        return sum / Math.log(2) / g.edges();
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Writes a list with the new indexes, sorted, starting at position from
+     * of res, weights (if not null) are moved together with their neighbours.
+     */
+    private static void copyList(final int[] neighbours, final double[] weights, final int degree,
+            final int[] rank, final long[] sorter, final int[] res, final double[] resWeights, final int from)
+    {
+        if(weights == null)
+        {
+            for(int k = 0; k < degree; k++)
+                res[from + k] = rank[neighbours[k]];
+            Arrays.sort(res, from, from + degree);
+            return;
+        }
+        //new index in the high bits, position in the list in the low bits
+        for(int k = 0; k < degree; k++)
+            sorter[k] = (long) rank[neighbours[k]] << 32 | k;
+        Arrays.sort(sorter, 0, degree);
+        for(int k = 0; k < degree; k++)
+        {
+            res[from + k] = (int) (sorter[k] >>> 32);
+            resWeights[from + k] = weights[(int) sorter[k]];
+        }
+    }
+
+    private static int[] degrees(final IntGraph g)
+    {
+        int[] degrees = new int[g.vertices()];
+        for(int v = 0; v < degrees.length; v++)
+            degrees[v] = g.outDegree(v) + g.inDegree(v);
+        return degrees;
+    }
+
+    /**
+     * Stable counting sort of the vertices by degree.
+     */
+    private static int[] sortByDegree(final int[] degrees, final boolean descending)
+    {
+        int max = 0;
+        for(int d: degrees)
+            max = Math.max(max, d);
+        int[] starts = new int[max + 2];
+        for(int d: degrees)
+            starts[(descending? max - d : d) + 1]++;
+        for(int i = 1; i < starts.length; i++)
+            starts[i] += starts[i - 1];
+        int[] res = new int[degrees.length];
+        for(int v = 0; v < degrees.length; v++)
+            res[starts[descending? max - degrees[v] : degrees[v]]++] = v;
+        return res;
+    }
+
+    private static int[] degreeOrder(final IntGraph g)
+    {
+        return sortByDegree(degrees(g), true);
+    }
+
+    private static int[] rcmOrder(final IntGraph g)
+    {
+        int n = g.vertices();
+        int[] degrees = degrees(g);
+        int[] starts = sortByDegree(degrees, false);
+        boolean[] visited = new boolean[n];
+        int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
+        //unvisited neighbours of the current vertex, degree in the high bits so
+        //that sorting them sorts by degree and then by index
+        long[] next = new long[g.maxOutDegree() + g.maxInDegree()];
+
+        //res is also the queue of the BFS
+        int[] res = new int[n];
+        int head = 0, tail = 0;
+        for(int start: starts)
+        {
+            if(visited[start])
+                continue;
+            visited[start] = true;
+            res[tail++] = start;
+            while(head < tail)
+            {
+                int v = res[head++];
+                int count = 0;
+                int degree = g.successors(v, neighbours);
+                for(int i = 0; i < degree; i++)
+                    if(!visited[neighbours[i]])
+                    {
+                        visited[neighbours[i]] = true;
+                        next[count++] = (long) degrees[neighbours[i]] << 32 | neighbours[i];
+                    }
+                //predecessors of symmetric graphs are the successors
+                degree = g.isSymmetric()? 0 : g.predecessors(v, neighbours);
+                for(int i = 0; i < degree; i++)
+                    if(!visited[neighbours[i]])
+                    {
+                        visited[neighbours[i]] = true;
+                        next[count++] = (long) degrees[neighbours[i]] << 32 | neighbours[i];
+                    }
+                Arrays.sort(next, 0, count);
+                for(int i = 0; i < count; i++)
+                    res[tail++] = (int) next[i];
+            }
+        }
+
+        //reverse
+        for(int i = 0, j = n - 1; i < j; i++, j--)
+        {
+            int tmp = res[i];
+            res[i] = res[j];
+            res[j] = tmp;
+        }
+        return res;
+    }
+
+    private static int[] gorderOrder(final IntGraph g, final int window)
+    {
+        int n = g.vertices();
+        int[] res = new int[n];
+        if(n == 0)
+            return res;
+        //parents with more children than this are ignored when counting shared
+        //in-neighbours, as in the original Gorder, otherwise hubs make it quadratic
+        int hub = Math.max(1, (int) Math.sqrt(n));
+        int[] successors = new int[g.maxOutDegree()];
+        int[] predecessors = new int[g.maxInDegree()];
+        int[] siblings = new int[g.maxOutDegree()];
+
+        UnitHeap heap = new UnitHeap(n);
+        int start = 0;
+        for(int v = 1; v < n; v++)
+            if(g.inDegree(v) > g.inDegree(start))
+                start = v;
+        heap.remove(start);
+        res[0] = start;
+        updateScores(g, start, 1, heap, hub, successors, predecessors, siblings);
+        for(int i = 1; i < n; i++)
+        {
+            //the oldest vertex leaves the window
+            if(i - window - 1 >= 0)
+                updateScores(g, res[i - window - 1], -1, heap, hub, successors, predecessors, siblings);
+            res[i] = heap.popMax();
+            updateScores(g, res[i], 1, heap, hub, successors, predecessors, siblings);
+        }
+        return res;
+    }
+
+    /**
+     * Adds delta to the score (with respect to u) of each vertex linked to u
+     * or sharing an in-neighbour with u.
+     */
+    private static void updateScores(final IntGraph g, final int u, final int delta, final UnitHeap heap,
+            final int hub, final int[] successors, final int[] predecessors, final int[] siblings)
+    {
+        int degree = g.successors(u, successors);
+        for(int i = 0; i < degree; i++)
+            heap.add(successors[i], delta);
+        degree = g.predecessors(u, predecessors);
+        for(int i = 0; i < degree; i++)
+        {
+            int parent = predecessors[i];
+            heap.add(parent, delta);
+            if(g.outDegree(parent) <= hub)
+            {
+                int children = g.successors(parent, siblings);
+                for(int k = 0; k < children; k++)
+                    if(siblings[k] != u)
+                        heap.add(siblings[k], delta);
+            }
+        }
+    }
+
+    /**
+     * Priority queue for keys changing by small amounts, as in Gorder: vertices
+     * are kept in a doubly linked list for each key value, so updates are O(1)
+     * and extracting the max only walks down empty keys.
+     */
+    private static final class UnitHeap
+    {
+        private final int[] key;
+        private final int[] next;
+        private final int[] prev;
+        private final boolean[] removed;
+        private int[] heads;
+        private int max;
+
+        private UnitHeap(final int n)
+        {
+            key = new int[n];
+            next = new int[n];
+            prev = new int[n];
+            removed = new boolean[n];
+            heads = new int[16];
+            Arrays.fill(heads, -1);
+            for(int v = n - 1; v >= 0; v--)
+                link(v);
+        }
+
+        private void link(final int v)
+        {
+            int k = key[v];
+            if(k >= heads.length)
+            {
+                int old = heads.length;
+                heads = Arrays.copyOf(heads, Math.max(k + 1, old * 2));
+                Arrays.fill(heads, old, heads.length, -1);
+            }
+            prev[v] = -1;
+            next[v] = heads[k];
+            if(heads[k] != -1)
+                prev[heads[k]] = v;
+            heads[k] = v;
+            max = Math.max(max, k);
+        }
+
+        private void unlink(final int v)
+        {
+            if(prev[v] != -1)
+                next[prev[v]] = next[v];
+            else
+                heads[key[v]] = next[v];
+            if(next[v] != -1)
+                prev[next[v]] = prev[v];
+        }
+
+        private void add(final int v, final int delta)
+        {
+            if(removed[v])
+                return;
+            unlink(v);
+            key[v] += delta;
+            link(v);
+        }
+
+        private void remove(final int v)
+        {
+            unlink(v);
+            removed[v] = true;
+        }
+
+        private int popMax()
+        {
+            while(heads[max] == -1)
+                max--;
+            int v = heads[max];
+            remove(v);
+            return v;
+        }
+    }
+}
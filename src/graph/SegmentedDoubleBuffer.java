@@ -0,0 +1,104 @@
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Double array made of DoubleBuffers of the same power of 2 size (the last
+ * one may be shorter), the weights of a BufferGraph, see SegmentedIntBuffer.
+ * A single buffer holds at most 2^28 doubles (2GB).
+ */
+public final class SegmentedDoubleBuffer
+{
+    //doubles of a segment, 1GB so that a segment is always a valid mapping
+    public static final int SEGMENT_DOUBLES = 1 << 27;
+
+    private final DoubleBuffer[] segments;
+    private final int shift;
+    private final int mask;
+    private final int length;
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * Wraps a sequence of buffers, see SegmentedIntBuffer(IntBuffer...).
+     * @param segments Buffers, all with the same power of 2 capacity except
+     * the last one which may be shorter (but not empty). A single buffer can
+     * have any capacity.
+     */
+    public SegmentedDoubleBuffer(final DoubleBuffer... segments)
+    {
+        if(segments.length == 0)
+            throw new IllegalArgumentException("At least one segment is needed");
+        this.segments = segments.clone();
+        if(segments.length == 1)
+        {
+            shift = 31;
+            mask = Integer.MAX_VALUE;
+            length = segments[0].capacity();
+            return;
+        }
+        int size = segments[0].capacity();
+        if(Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("Segments must have a power of 2 capacity");
+        long total = 0;
+        for(int i = 0; i < segments.length; i++)
+        {
+            int capacity = segments[i].capacity();
+            if(i < segments.length - 1 ? capacity != size : capacity == 0 || capacity > size)
+                throw new IllegalArgumentException("Segments must have the same capacity, except the last one");
+            total += capacity;
+        }
+        if(total > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many doubles for a single section");
+        shift = Integer.numberOfTrailingZeros(size);
+        mask = size - 1;
+        length = (int)total;
+    }
+
+    /**
+     * Allocates a direct buffer of doubles in native order, split in segments
+     * of SEGMENT_DOUBLES doubles, see SegmentedIntBuffer.allocateDirect.
+     * @param doubles Number of doubles.
+     * @return Zero filled buffer.
+     */
+    public static SegmentedDoubleBuffer allocateDirect(final int doubles)
+    {
+        if(doubles < 0)
+            throw new IllegalArgumentException("Size can't be negative");
+        DoubleBuffer[] segments = new DoubleBuffer[Math.max(1,
+                (int)((doubles + (long)SEGMENT_DOUBLES - 1) / SEGMENT_DOUBLES))];
+        for(int i = 0; i < segments.length; i++)
+        {
+            int size = (int)Math.min(SEGMENT_DOUBLES, doubles - (long)i * SEGMENT_DOUBLES);
+            segments[i] = ByteBuffer.allocateDirect(size * 8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+        return new SegmentedDoubleBuffer(segments);
+    }
+
+    //GETTERS
+    ////////////////////
+
+    /**
+     * @return Number of doubles.
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    public double get(final int i)
+    {
+        return segments[i >>> shift].get(i & mask);
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    public void put(final int i, final double value)
+    {
+        segments[i >>> shift].put(i & mask, value);
+    }
+}
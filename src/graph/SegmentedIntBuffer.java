@@ -0,0 +1,136 @@
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Int array made of IntBuffers of the same power of 2 size (the last one may
+ * be shorter), used by BufferGraph for sections that don't fit in a single
+ * buffer: a ByteBuffer (direct or mapped) can't be larger than 2GB, so a
+ * single buffer holds at most 2^29 ints while a section may have up to
+ * Integer.MAX_VALUE ints.
+ * Element i is in segment i >>> shift at position i & mask, a single segment
+ * uses shift 31 so the lookup is the same and never branches.
+ * Buffers are read and written with absolute gets and puts so their position
+ * and limit are never changed.
+ */
+public final class SegmentedIntBuffer
+{
+    //ints of a segment, 1GB so that a segment is always a valid mapping
+    public static final int SEGMENT_INTS = 1 << 28;
+
+    private final IntBuffer[] segments;
+    private final int shift;
+    private final int mask;
+    private final int length;
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * Wraps a sequence of buffers, element i of the result is element
+     * i % capacity of buffer i / capacity, where capacity is the capacity of
+     * the first buffer.
+     * @param segments Buffers, all with the same power of 2 capacity except
+     * the last one which may be shorter (but not empty). A single buffer can
+     * have any capacity.
+     */
+    public SegmentedIntBuffer(final IntBuffer... segments)
+    {
+        if(segments.length == 0)
+            throw new IllegalArgumentException("At least one segment is needed");
+        this.segments = segments.clone();
+        if(segments.length == 1)
+        {
+            shift = 31;
+            mask = Integer.MAX_VALUE;
+            length = segments[0].capacity();
+            return;
+        }
+        int size = segments[0].capacity();
+        if(Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("Segments must have a power of 2 capacity");
+        long total = 0;
+        for(int i = 0; i < segments.length; i++)
+        {
+            int capacity = segments[i].capacity();
+            if(i < segments.length - 1 ? capacity != size : capacity == 0 || capacity > size)
+                throw new IllegalArgumentException("Segments must have the same capacity, except the last one");
+            total += capacity;
+        }
+        if(total > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many ints for a single section");
+        shift = Integer.numberOfTrailingZeros(size);
+        mask = size - 1;
+        length = (int)total;
+    }
+
+    /**
+     * Allocates a direct buffer of ints in native order, split in segments of
+     * SEGMENT_INTS ints.
+     * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to
+     * the maximum heap size (-Xmx), allocations over that limit throw an
+     * OutOfMemoryError.
+     * @param ints Number of ints.
+     * @return Zero filled buffer.
+     */
+    public static SegmentedIntBuffer allocateDirect(final int ints)
+    {
+        return allocateDirect(ints, SEGMENT_INTS);
+    }
+
+    /**
+     * Same of allocateDirect(ints) but with a chosen segment size.
+     * @param ints Number of ints.
+     * @param segmentInts Ints of each segment, a power of 2 not greater than
+     * 2^29.
+     * @return Zero filled buffer.
+     */
+    public static SegmentedIntBuffer allocateDirect(final int ints, final int segmentInts)
+    {
+        if(ints < 0)
+            throw new IllegalArgumentException("Size can't be negative");
+        if(Integer.bitCount(segmentInts) != 1 || segmentInts > 1 << 29)
+            throw new IllegalArgumentException("Segment size must be a power of 2 not greater than 2^29");
+        IntBuffer[] segments = new IntBuffer[Math.max(1, (int)((ints + (long)segmentInts - 1) / segmentInts))];
+        for(int i = 0; i < segments.length; i++)
+        {
+            int size = (int)Math.min(segmentInts, ints - (long)i * segmentInts);
+            segments[i] = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return new SegmentedIntBuffer(segments);
+    }
+
+    //GETTERS
+    ////////////////////
+
+    /**
+     * @return Number of ints.
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * @return Number of buffers the ints are split in.
+     */
+    public int segments()
+    {
+        return segments.length;
+    }
+
+    public int get(final int i)
+    {
+        return segments[i >>> shift].get(i & mask);
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    public void put(final int i, final int value)
+    {
+        segments[i >>> shift].put(i & mask, value);
+    }
+}
@@ -0,0 +1,199 @@
+package graph;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import java.util.Random;
+
+/**
+ * Removes edges whose contribution to the top personalized pagerank scores
+ * is expected to be negligible, so that the algorithms (which all cost
+ * O(edges) per iteration) run on a smaller graph.
+ * Sparsified graphs keep all the vertices with the same ids and dense
+ * indexes, only edges (and possibly their weights) change.
+ * Available sparsifiers:
+ * capHubs: vertices with more than maxDegree successors keep only maxDegree
+ * of them, the heaviest ones on weighted graphs or a uniform random sample
+ * otherwise. Each of the edges of a hub passes a tiny share of pagerank,
+ * while the hub keeps the same transition probabilities on average.
+ * resistance: effective resistance sampling with the usual degree based
+ * estimate of the resistance of u -> v, 1/outDegree(u) + 1/inDegree(v). Each
+ * edge is kept with probability p = min(1, factor * resistance) and its
+ * weight is divided by p, so the expected out weight of each vertex doesn't
+ * change. Edges between hubs have low resistance and go first.
+ * See benchmarking.SparsificationBenchmark to measure edges removed, speedup
+ * and the impact on the results.
+ */
+public final class Sparsification
+{
+    /**
+     * Strategy deciding which edges to keep.
+     */
+    public interface Sparsifier
+    {
+        /**
+         * @param g Graph to sparsify.
+         * @return New weight of each edge, 0 to remove it. Edges are
+         * numbered following the successor lists, vertex after vertex.
+         */
+        double[] weights(IntGraph g);
+    }
+
+    private Sparsification(){}
+
+    /**
+     * @param maxDegree Max number of successors to keep for each vertex,
+     * must be positive.
+     * @param seed Seed of the sample of the edges of unweighted hubs.
+     * @return Sparsifier which caps the out degree of the hubs.
+     */
+    public static Sparsifier capHubs(final int maxDegree, final long seed)
+    {
+        if(maxDegree <= 0)
+            throw new IllegalArgumentException("Max degree must be positive");
+        return g -> capHubs(g, maxDegree, seed);
+    }
+
+    /**
+     * @param factor Multiplier of the resistance of each edge to get its
+     * probability of being kept, must be positive. Higher values keep more edges.
+     * @param seed Seed of the sampling.
+     * @return Sparsifier which samples edges by effective resistance.
+     */
+    public static Sparsifier resistance(final double factor, final long seed)
+    {
+        if(factor <= 0 || Double.isNaN(factor))
+            throw new IllegalArgumentException("Factor must be positive");
+        return g -> resistance(g, factor, seed);
+    }
+
+    /**
+     * Sparsifies a graph.
+     * @param g Input graph.
+     * @param sparsifier Strategy deciding which edges to keep.
+     * @return Graph with the same vertices and the kept edges, weighted if g
+     * is weighted or if the sparsifier changed the weight of some edge.
+     */
+    public static CsrGraph sparsify(final IntGraph g, final Sparsifier sparsifier)
+    {
+        double[] newWeights = sparsifier.weights(g);
+        if(newWeights.length != g.edges())
+            throw new IllegalArgumentException("A weight is needed for each edge");
+
+        int n = g.vertices();
+        int[] ids = new int[n];
+        int[] sources = new int[g.edges()];
+        int[] targets = new int[g.edges()];
+        double[] weights = new double[g.edges()];
+        double[] oldWeights = new double[g.maxOutDegree()];
+        int[] successors = new int[g.maxOutDegree()];
+        boolean weighted = g.isWeighted();
+        int kept = 0;
+        for(int v = 0, e = 0; v < n; v++)
+        {
+            ids[v] = g.id(v);
+            int degree = g.successors(v, successors);
+            g.successorWeights(v, oldWeights);
+            for(int i = 0; i < degree; i++, e++)
+            {
+                if(newWeights[e] < 0 || Double.isNaN(newWeights[e]) || Double.isInfinite(newWeights[e]))
+                    throw new IllegalArgumentException("Weights must be finite and not negative");
+                if(newWeights[e] == 0)
+                    continue;
+                weighted |= newWeights[e] != oldWeights[i];
+                sources[kept] = v;
+                targets[kept] = successors[i];
+                weights[kept++] = newWeights[e];
+            }
+        }
+        return weighted? CsrGraph.fromDenseWeightedEdges(ids, sources, targets, weights, kept)
+                : CsrGraph.fromDenseEdges(ids, sources, targets, kept);
+    }
+
+    /**
+     * @param original A graph.
+     * @param sparsified The same graph after sparsification.
+     * @return Fraction of the edges removed, in [0, 1].
+     */
+    public static double edgeReduction(final IntGraph original, final IntGraph sparsified)
+    {
+        return original.edges() == 0? 0 : 1 - (double) sparsified.edges() / original.edges();
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    private static double[] capHubs(final IntGraph g, final int maxDegree, final long seed)
+    {
+        Random random = new Random(seed);
+        double[] res = new double[g.edges()];
+        double[] weights = new double[g.maxOutDegree()];
+        //position of each successor, partially shuffled or sorted by weight
+        int[] positions = new int[g.maxOutDegree()];
+        for(int v = 0, e = 0; v < g.vertices(); v++)
+        {
+            int degree = g.successorWeights(v, weights);
+            if(degree <= maxDegree)
+            {
+                System.arraycopy(weights, 0, res, e, degree);
+                e += degree;
+                continue;
+            }
+            for(int i = 0; i < degree; i++)
+                positions[i] = i;
+            if(g.isWeighted())
+            {
+                //heaviest first, ties keep the first edges
+                IntArrays.mergeSort(positions, 0, degree, new IntComparator()
+                {
+                    @Override
+                    public int compare(final int a, final int b)
+                    {
+                        return weights[a] != weights[b]? Double.compare(weights[b], weights[a]) : Integer.compare(a, b);
+                    }
+
+                    @Override
+                    public int compare(final Integer a, final Integer b)
+                    {
+                        return compare(a.intValue(), b.intValue());
+                    }
+                });
+                for(int i = 0; i < maxDegree; i++)
+                    res[e + positions[i]] = weights[positions[i]];
+            }
+            else
+            {
+                //first maxDegree positions of a partial Fisher-Yates shuffle
+                for(int i = 0; i < maxDegree; i++)
+                {
+                    int j = i + random.nextInt(degree - i);
+                    int tmp = positions[i];
+                    positions[i] = positions[j];
+                    positions[j] = tmp;
+                    res[e + positions[i]] = 1;
+                }
+            }
+            e += degree;
+        }
+        return res;
+    }
+
+    private static double[] resistance(final IntGraph g, final double factor, final long seed)
+    {
+        Random random = new Random(seed);
+        double[] res = new double[g.edges()];
+        double[] weights = new double[g.maxOutDegree()];
+        int[] successors = new int[g.maxOutDegree()];
+        for(int v = 0, e = 0; v < g.vertices(); v++)
+        {
+            int degree = g.successors(v, successors);
+            g.successorWeights(v, weights);
+            for(int i = 0; i < degree; i++, e++)
+            {
+                double p = Math.min(1, factor * (1d / degree + 1d / g.inDegree(successors[i])));
+                if(random.nextDouble() < p)
+                    res[e] = weights[i] / p;
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,224 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components of a graph, found with an iterative version
+ * of Tarjan's algorithm in O(vertices + edges), so long paths can't overflow
+ * the stack.
+ * Components are numbered in reverse topological order of the condensation:
+ * every edge goes from a component to itself or to one with a lower number,
+ * so processing components from 0 up means successors outside the component
+ * are always done before it.
+ * A component is trivial when it's a single vertex without a self loop, the
+ * scores of its vertex only depend on other components and can be computed
+ * in one step, only the other components need iterating.
+ */
+public final class StronglyConnectedComponents
+{
+    private final int count;
+    //component of each vertex
+    private final int[] components;
+    //vertices grouped by component, component c is in order[offsets[c]..offsets[c+1])
+    private final int[] order;
+    private final int[] offsets;
+    private final boolean[] trivial;
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * Finds the strongly connected components of a graph.
+     * @param g Input graph.
+     */
+    public StronglyConnectedComponents(final IntGraph g)
+    {
+        this(g, tarjan(g), false);
+    }
+
+    /**
+     * Rebuilds the components of a graph from the component of each vertex,
+     * for example read from io.ArtifactCache, in O(vertices + edges) without
+     * searching them again.
+     * @param g Input graph.
+     * @param components Component of each vertex, numbered in reverse
+     * topological order like getComponent does.
+     */
+    public StronglyConnectedComponents(final IntGraph g, final int[] components)
+    {
+        this(g, components, true);
+    }
+
+    private StronglyConnectedComponents(final IntGraph g, final int[] components, final boolean check)
+    {
+        int n = g.vertices();
+        if(components.length != n)
+            throw new IllegalArgumentException("A component is needed for each vertex");
+        int max = -1;
+        for(int c: components)
+        {
+            if(c < 0)
+                throw new IllegalArgumentException("Components must not be negative");
+            max = Math.max(max, c);
+        }
+        if(check)
+        {
+            //edges can't go to a later component
+            for(int v = 0; v < n; v++)
+                for(int i = 0; i < g.outDegree(v); i++)
+                    if(components[g.successor(v, i)] > components[v])
+                        throw new IllegalArgumentException("Components are not in reverse topological order");
+        }
+        this.components = components;
+        count = max + 1;
+
+        //counting sort of the vertices by component
+        offsets = new int[count + 1];
+        for(int v = 0; v < n; v++)
+            offsets[components[v] + 1]++;
+        for(int c = 0; c < count; c++)
+            offsets[c + 1] += offsets[c];
+        order = new int[n];
+        int[] positions = Arrays.copyOf(offsets, count);
+        for(int v = 0; v < n; v++)
+            order[positions[components[v]]++] = v;
+
+        trivial = new boolean[count];
+        for(int c = 0; c < count; c++)
+        {
+            if(offsets[c + 1] - offsets[c] != 1)
+                continue;
+            int v = order[offsets[c]];
+            trivial[c] = true;
+            for(int i = 0; i < g.outDegree(v) && trivial[c]; i++)
+                trivial[c] = g.successor(v, i) != v;
+        }
+    }
+
+    /**
+     * Iterative Tarjan.
+     * @return Component of each vertex, numbered in order of completion.
+     */
+    private static int[] tarjan(final IntGraph g)
+    {
+        int n = g.vertices();
+        int[] components = new int[n];
+        Arrays.fill(components, -1);
+        //visit number of each vertex, -1 if not visited yet
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        int[] low = new int[n];
+        //position of the next successor to look at for each vertex on the call stack
+        int[] next = new int[n];
+        //vertices visited but without a component yet
+        int[] stack = new int[n];
+        //replaces the recursion
+        int[] calls = new int[n];
+        int visited = 0, found = 0, top = 0;
+
+        for(int root = 0; root < n; root++)
+        {
+            if(index[root] != -1)
+                continue;
+            int depth = 0;
+            index[root] = low[root] = visited++;
+            stack[top++] = root;
+            calls[depth++] = root;
+            while(depth > 0)
+            {
+                int v = calls[depth - 1];
+                if(next[v] < g.outDegree(v))
+                {
+                    int w = g.successor(v, next[v]++);
+                    if(index[w] == -1)
+                    {
+                        index[w] = low[w] = visited++;
+                        stack[top++] = w;
+                        calls[depth++] = w;
+                    }
+                    //w is still on the stack
+                    else if(components[w] == -1)
+                        low[v] = Math.min(low[v], index[w]);
+                }
+                else
+                {
+                    depth--;
+                    //v is the root of a component, which is what's above it on the stack
+                    if(low[v] == index[v])
+                    {
+                        int w;
+                        do
+                        {
+                            w = stack[--top];
+                            components[w] = found;
+                        }while(w != v);
+                        found++;
+                    }
+                    if(depth > 0)
+                    {
+                        int parent = calls[depth - 1];
+                        low[parent] = Math.min(low[parent], low[v]);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+
+    //GETTERS
+    ////////////////////
+
+    /**
+     * @return Number of components.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @param v Dense index of a vertex.
+     * @return Component of the vertex.
+     */
+    public int getComponent(final int v)
+    {
+        return components[v];
+    }
+
+    /**
+     * @param c A component.
+     * @return Number of vertices in the component.
+     */
+    public int getSize(final int c)
+    {
+        return offsets[c + 1] - offsets[c];
+    }
+
+    /**
+     * @param c A component.
+     * @return True if the component is a single vertex without a self loop.
+     */
+    public boolean isTrivial(final int c)
+    {
+        return trivial[c];
+    }
+
+    /**
+     * @return Vertices grouped by component, components in reverse topological
+     * order. The array is shared, it must not be modified.
+     */
+    public int[] getOrder()
+    {
+        return order;
+    }
+
+    /**
+     * @return Array of getCount() + 1 entries, vertices of component c are in
+     * getOrder()[offsets[c]..offsets[c+1]). The array is shared, it must not
+     * be modified.
+     */
+    public int[] getOffsets()
+    {
+        return offsets;
+    }
+}
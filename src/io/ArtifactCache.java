@@ -0,0 +1,337 @@
+package io;
+
+import algorithms.GlobalPageRank;
+import graph.IntGraph;
+import graph.MultilevelPartitioner;
+import graph.Partitioning;
+import graph.StronglyConnectedComponents;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+/**
+ * On disk cache of the structures computed from a graph before running the
+ * algorithms (partitions, strongly connected components, global pagerank...),
+ * so a restart on the same graph maps them from disk instead of recomputing.
+ * Every artifact is a file in the cache directory:
+ * header (8 little endian ints): magic, version, type, length, low and high
+ * ints of the graph hash, 2 reserved ints
+ * data: length ints or doubles, little endian
+ * The graph hash is computed from the whole content of the graph (ids, edges
+ * and weights), an artifact whose hash doesn't match, or which can't be read,
+ * is stale and gets recomputed and written again, so editing the graph only
+ * costs the artifacts actually used afterwards.
+ * Names must identify the parameters the artifact depends on, the convenience
+ * methods take care of it for the artifacts of this project.
+ */
+public final class ArtifactCache
+{
+    public static final int MAGIC = 0x41525446;
+    public static final int VERSION = 1;
+    public static final int HEADER_INTS = 8;
+    //types of data
+    public static final int INTS = 0;
+    public static final int DOUBLES = 1;
+
+    private static final String EXTENSION = ".art";
+
+    private final IntGraph g;
+    private final Path directory;
+    private final long hash;
+    //artifacts read from disk and computed since the cache was created
+    private int hits;
+    private int misses;
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * Creates a cache for a graph, the directory is created if missing.
+     * @param g Graph the artifacts are computed from.
+     * @param directory Directory where artifacts are kept, usually next to
+     * the graph file (for example graph.bin.cache).
+     * @throws IOException If the directory can't be created.
+     */
+    public ArtifactCache(final IntGraph g, final String directory) throws IOException
+    {
+        this.g = g;
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+        this.hash = hash(g);
+    }
+
+    //GETTERS
+    ////////////////////
+
+    /**
+     * @return Hash of the content of the graph, artifacts with a different
+     * hash are stale.
+     */
+    public long getGraphHash()
+    {
+        return hash;
+    }
+
+    /**
+     * @return Number of artifacts read from disk.
+     */
+    public int getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return Number of artifacts computed because missing or stale.
+     */
+    public int getMisses()
+    {
+        return misses;
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * 64 bit hash of the content of a graph: number of vertices and edges,
+     * ids, successors of every vertex and their weights.
+     * @param g A graph.
+     * @return Hash of g, equal graphs with equal dense indexes have equal hashes.
+     */
+    public static long hash(final IntGraph g)
+    {
+        long h = mix(0x9E3779B97F4A7C15L, g.vertices());
+        h = mix(h, g.edges());
+        int[] successors = new int[g.maxOutDegree()];
+        double[] weights = g.isWeighted()? new double[g.maxOutDegree()] : null;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            h = mix(h, g.id(v));
+            int degree = g.successors(v, successors);
+            h = mix(h, degree);
+            for(int i = 0; i < degree; i++)
+                h = mix(h, successors[i]);
+            if(weights != null)
+            {
+                g.successorWeights(v, weights);
+                for(int i = 0; i < degree; i++)
+                    h = mix(h, Double.doubleToLongBits(weights[i]));
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns an array of ints from the cache, computing and storing it if
+     * it's missing or stale.
+     * @param name Name of the artifact, also the file name.
+     * @param compute Computes the artifact when it can't be read.
+     * @return The artifact.
+     * @throws IOException If a computed artifact can't be written.
+     */
+    public int[] getInts(final String name, final Supplier<int[]> compute) throws IOException
+    {
+        ByteBuffer data = read(name, INTS);
+        if(data != null)
+        {
+            int[] res = new int[data.remaining() / 4];
+            data.asIntBuffer().get(res);
+            return res;
+        }
+        int[] res = compute.get();
+        ByteBuffer buffer = allocate(INTS, res.length, res.length * 4L);
+        buffer.asIntBuffer().put(res);
+        write(name, buffer);
+        return res;
+    }
+
+    /**
+     * Returns an array of doubles from the cache, computing and storing it if
+     * it's missing or stale.
+     * @param name Name of the artifact, also the file name.
+     * @param compute Computes the artifact when it can't be read.
+     * @return The artifact.
+     * @throws IOException If a computed artifact can't be written.
+     */
+    public double[] getDoubles(final String name, final Supplier<double[]> compute) throws IOException
+    {
+        ByteBuffer data = read(name, DOUBLES);
+        if(data != null)
+        {
+            double[] res = new double[data.remaining() / 8];
+            data.asDoubleBuffer().get(res);
+            return res;
+        }
+        double[] res = compute.get();
+        ByteBuffer buffer = allocate(DOUBLES, res.length, res.length * 8L);
+        buffer.asDoubleBuffer().put(res);
+        write(name, buffer);
+        return res;
+    }
+
+    /**
+     * @param parts Number of parts.
+     * @return Partitioning of the graph from MultilevelPartitioner.
+     * @throws IOException If a computed artifact can't be written.
+     */
+    public Partitioning partitioning(final int parts) throws IOException
+    {
+        if(parts <= 0)
+            throw new IllegalArgumentException("Number of parts must be positive");
+        int[] assignment = getInts("partitioning-" + parts,
+                () -> partsOf(MultilevelPartitioner.partition(g, parts)));
+        return new Partitioning(assignment, parts, MultilevelPartitioner.edgeCut(g, assignment));
+    }
+
+    /**
+     * @return Strongly connected components of the graph.
+     * @throws IOException If a computed artifact can't be written.
+     */
+    public StronglyConnectedComponents components() throws IOException
+    {
+        int[] components = getInts("components",
+                () -> componentsOf(new StronglyConnectedComponents(g)));
+        return new StronglyConnectedComponents(g, components);
+    }
+
+    /**
+     * @param damping Damping factor.
+     * @param iterations Max number of iterations.
+     * @param tolerance Tolerance, see GlobalPageRank.getScores.
+     * @return Global pagerank of each dense vertex index.
+     * @throws IOException If a computed artifact can't be written.
+     */
+    public double[] pageRank(final double damping, final int iterations, final double tolerance)
+            throws IOException
+    {
+        return getDoubles("pagerank-" + damping + "-" + iterations + "-" + tolerance,
+                () -> GlobalPageRank.getScores(g, damping, iterations, tolerance));
+    }
+
+    /**
+     * Deletes all the artifacts of the cache.
+     * @throws IOException If a file can't be deleted.
+     */
+    public void clear() throws IOException
+    {
+        File[] files = directory.toFile().listFiles();
+        if(files == null)
+            return;
+        for(File file: files)
+            if(file.getName().endsWith(EXTENSION))
+                Files.delete(file.toPath());
+    }
+
+    private static long mix(long h, final long value)
+    {
+        //a step of murmur3's 64 bit finalizer for each value
+        h ^= value;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 29);
+    }
+
+    private int[] partsOf(final Partitioning partitioning)
+    {
+        int[] res = new int[g.vertices()];
+        for(int v = 0; v < res.length; v++)
+            res[v] = partitioning.getPart(v);
+        return res;
+    }
+
+    private int[] componentsOf(final StronglyConnectedComponents components)
+    {
+        int[] res = new int[g.vertices()];
+        for(int v = 0; v < res.length; v++)
+            res[v] = components.getComponent(v);
+        return res;
+    }
+
+    private Path file(final String name)
+    {
+        return directory.resolve(name + EXTENSION);
+    }
+
+    /**
+     * Maps the data of an artifact.
+     * @return The data, null if the artifact is missing or stale.
+     */
+    private ByteBuffer read(final String name, final int type)
+    {
+        Path path = file(name);
+        if(!Files.isRegularFile(path))
+        {
+            misses++;
+            return null;
+        }
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if(size < HEADER_INTS * 4L)
+            {
+                misses++;
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            int[] header = new int[HEADER_INTS];
+            mapped.asIntBuffer().get(header);
+            long fileHash = (header[4] & 0xFFFFFFFFL) | ((long) header[5] << 32);
+            long width = type == INTS? 4 : 8;
+            if(header[0] != MAGIC || header[1] != VERSION || header[2] != type || fileHash != hash
+                    || header[3] < 0 || size != HEADER_INTS * 4L + header[3] * width)
+            {
+                misses++;
+                return null;
+            }
+            mapped.position(HEADER_INTS * 4);
+            hits++;
+            return mapped.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        catch(IOException e)
+        {
+            //unreadable artifacts are just computed again
+            misses++;
+            return null;
+        }
+    }
+
+    private ByteBuffer allocate(final int type, final int length, final long bytes)
+    {
+        if(bytes > Integer.MAX_VALUE - HEADER_INTS * 4)
+            throw new IllegalArgumentException("Artifact too large");
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes + HEADER_INTS * 4).order(ByteOrder.LITTLE_ENDIAN);
+        int[] header = {MAGIC, VERSION, type, length, (int) hash, (int) (hash >>> 32), 0, 0};
+        for(int value: header)
+            buffer.putInt(value);
+        return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes an artifact to a temporary file then moves it in place, so a
+     * crash never leaves half an artifact with a valid header.
+     */
+    private void write(final String name, final ByteBuffer data) throws IOException
+    {
+        Path path = file(name);
+        Path tmp = directory.resolve(name + EXTENSION + ".tmp");
+        //data is a slice starting after the header
+        ByteBuffer whole = ByteBuffer.wrap(data.array(), 0, data.arrayOffset() + data.capacity());
+        try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while(whole.hasRemaining())
+                channel.write(whole);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
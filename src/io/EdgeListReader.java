@@ -0,0 +1,807 @@
+package io;
+
+import graph.CsrGraph;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.zip.GZIPInputStream;
+import utility.Parallel;
+
+/**
+ * Multi threaded reader of edge lists (csv files of this project, SNAP and
+ * KONECT dumps), every line contains 2 vertex ids representing an edge:
+ * 1,2
+ * 4	5
+ * 7 2
+ * separators can be commas, spaces or tabs, further columns (like KONECT
+ * weights or timestamps) are ignored, lines starting with # or % are comments.
+ * Gzip files are recognized from their first bytes and decompressed on the fly.
+ * The file is split in chunks on line boundaries, each chunk is parsed by a
+ * task reading bytes directly from a (memory mapped) ByteBuffer, then the CSR
+ * arrays are built in parallel counting degrees first and filling adjacencies
+ * after.
+ * As with DefaultDirectedGraph duplicated edges are kept only once while
+ * self loops are kept, neighbours of each vertex are sorted by index.
+ * Weighted edge lists (see readWeighted) read the weight from the third column.
+ */
+public final class EdgeListReader
+{
+    //size of the chunks the file is split in, each chunk is parsed by a task
+    private static final int CHUNK_BYTES = 1 << 24;
+    //files smaller than this aren't split among all the threads
+    private static final int MIN_CHUNK_BYTES = 1 << 16;
+    //ids are mapped with a lookup table if their range isn't much larger than this
+    //times the number of edges, otherwise with a binary search on the sorted ids
+    private static final int MAX_TABLE_FACTOR = 4;
+    //largest int[] the vm allocates, wider id ranges always use the binary search
+    private static final long MAX_TABLE_SIZE = Integer.MAX_VALUE - 8;
+    //powers of 10 exactly representable as doubles
+    private static final double[] POWERS_OF_10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7,
+        1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private EdgeListReader(){}
+
+    /**
+     * Receives the edges of forEachEdge, with the ids written in the file.
+     */
+    public interface EdgeConsumer
+    {
+        void accept(int source, int target);
+    }
+
+    //edges of a chunk, still with the ids written in the file
+    private static final class Edges
+    {
+        private final IntArrayList sources = new IntArrayList();
+        private final IntArrayList targets = new IntArrayList();
+        //only for weighted edge lists
+        private final DoubleArrayList weights;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        private Edges(final boolean weighted)
+        {
+            weights = weighted? new DoubleArrayList() : null;
+        }
+
+        private void add(final int source, final int target, final double weight)
+        {
+            if(weights != null)
+                weights.add(weight);
+            sources.add(source);
+            targets.add(target);
+            min = Math.min(min, Math.min(source, target));
+            max = Math.max(max, Math.max(source, target));
+        }
+
+        private int size()
+        {
+            return sources.size();
+        }
+    }
+
+    /**
+     * Reads a directed graph from an edge list.
+     * @param path Path to the edge list, optionally gzipped.
+     * @param threads Number of threads to use.
+     * @return The graph, vertices keep the ids written in the file.
+     * @throws IOException If the file can't be read or contains a malformed line.
+     */
+    public static CsrGraph read(final String path, final int threads) throws IOException
+    {
+        try(Parallel parallel = new Parallel(threads))
+        {
+            Edges[] chunks = parse(path, false, parallel);
+            int[] ids = distinctIds(chunks, parallel);
+            return build(chunks, ids, false, parallel);
+        }
+    }
+
+    /**
+     * Reads a weighted directed graph from an edge list whose third column is
+     * the (positive) weight of the edge, lines without it get weight 1.
+     * Duplicated edges are kept as parallel edges, so walks and propagation
+     * see them as a single edge with the sum of their weights.
+     * Successors of a vertex keep the order of the file.
+     * @param path Path to the edge list, optionally gzipped.
+     * @param threads Number of threads to use.
+     * @return The weighted graph, vertices keep the ids written in the file.
+     * @throws IOException If the file can't be read or contains a malformed
+     * line or weight.
+     */
+    public static CsrGraph readWeighted(final String path, final int threads) throws IOException
+    {
+        try(Parallel parallel = new Parallel(threads))
+        {
+            Edges[] chunks = parse(path, true, parallel);
+            int[] ids = distinctIds(chunks, parallel);
+            int edges = 0;
+            for(Edges chunk: chunks)
+                edges += chunk.size();
+            int[] sources = new int[edges];
+            int[] targets = new int[edges];
+            double[] weights = new double[edges];
+            edges = 0;
+            for(Edges chunk: chunks)
+            {
+                System.arraycopy(chunk.sources.elements(), 0, sources, edges, chunk.size());
+                System.arraycopy(chunk.targets.elements(), 0, targets, edges, chunk.size());
+                System.arraycopy(chunk.weights.elements(), 0, weights, edges, chunk.size());
+                edges += chunk.size();
+            }
+            try
+            {
+                return CsrGraph.fromDenseWeightedEdges(ids, sources, targets, weights, edges);
+            }
+            catch(IllegalArgumentException e)
+            {
+                throw new IOException("Malformed edge list " + path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Reads an undirected graph from an edge list, for each edge v1,v2 the
+     * graph contains both v1->v2 and v2->v1, stored once as a symmetric graph
+     * (see CsrGraph.isSymmetric), which needs half the memory of the two
+     * directions stored separately.
+     * @param path Path to the edge list, optionally gzipped.
+     * @param threads Number of threads to use.
+     * @return The graph, vertices keep the ids written in the file.
+     * @throws IOException If the file can't be read or contains a malformed line.
+     */
+    public static CsrGraph readUndirected(final String path, final int threads) throws IOException
+    {
+        try(Parallel parallel = new Parallel(threads))
+        {
+            Edges[] chunks = parse(path, false, parallel);
+            int[] ids = distinctIds(chunks, parallel);
+            return build(chunks, ids, true, parallel);
+        }
+    }
+
+    /**
+     * Reads an undirected bipartite graph from an edge list where the first
+     * column contains vertices of one side and the second column vertices of
+     * the other side (the same id in different columns is a different vertex).
+     * Vertices get new ids 0..n-1 following the order of their first appearance
+     * in the file, for each edge v1,v2 the graph contains both v1->v2 and v2->v1
+     * (the graph is symmetric).
+     * @param path Path to the edge list, optionally gzipped.
+     * @param threads Number of threads to use.
+     * @return The graph, with remapped ids.
+     * @throws IOException If the file can't be read or contains a malformed line.
+     */
+    public static CsrGraph readBipartiteUndirected(final String path, final int threads) throws IOException
+    {
+        try(Parallel parallel = new Parallel(threads))
+        {
+            Edges[] chunks = parse(path, false, parallel);
+
+            //vertices seen for the first time in each chunk, in order of appearance,
+            //the side is kept in the sign bit of the long
+            final long[][] firsts = new long[chunks.length][];
+            parallel.forRange(chunks.length, (from, to) ->
+            {
+                for(int c = from; c < to; c++)
+                    firsts[c] = firstAppearances(chunks[c]);
+            });
+
+            //merge in file order, so ids are the same of a sequential read
+            Int2IntOpenHashMap left = new Int2IntOpenHashMap();
+            Int2IntOpenHashMap right = new Int2IntOpenHashMap();
+            left.defaultReturnValue(-1);
+            right.defaultReturnValue(-1);
+            int count = 0;
+            for(long[] chunkFirsts: firsts)
+                for(long first: chunkFirsts)
+                {
+                    Int2IntOpenHashMap map = first < 0? right : left;
+                    int id = (int) first;
+                    if(!map.containsKey(id))
+                        map.put(id, count++);
+                }
+
+            //translate, maps are only read from now on
+            parallel.forRange(chunks.length, (from, to) ->
+            {
+                for(int c = from; c < to; c++)
+                {
+                    int[] sources = chunks[c].sources.elements();
+                    int[] targets = chunks[c].targets.elements();
+                    for(int e = 0; e < chunks[c].size(); e++)
+                    {
+                        sources[e] = left.get(sources[e]);
+                        targets[e] = right.get(targets[e]);
+                    }
+                }
+            });
+
+            int[] ids = new int[count];
+            for(int i = 0; i < count; i++)
+                ids[i] = i;
+            return build(chunks, ids, true, parallel);
+        }
+    }
+
+    /**
+     * Parses an edge list in parallel and gives its edges to a consumer one
+     * at a time in the order of the file, duplicates included, for loaders
+     * which need the order of the file (like vertices added to a jgrapht
+     * graph in order of first appearance).
+     * @param path Path to the edge list, optionally gzipped.
+     * @param threads Number of threads to use for parsing.
+     * @param consumer Called for each edge, from the calling thread.
+     * @throws IOException If the file can't be read or contains a malformed line.
+     */
+    public static void forEachEdge(final String path, final int threads, final EdgeConsumer consumer)
+            throws IOException
+    {
+        Edges[] chunks;
+        try(Parallel parallel = new Parallel(threads))
+        {
+            chunks = parse(path, false, parallel);
+        }
+        for(Edges chunk: chunks)
+        {
+            int[] sources = chunk.sources.elements();
+            int[] targets = chunk.targets.elements();
+            for(int e = 0; e < chunk.size(); e++)
+                consumer.accept(sources[e], targets[e]);
+        }
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    private static Edges[] parse(final String path, final boolean weighted,
+            final Parallel parallel) throws IOException
+    {
+        List<ForkJoinTask<Edges>> tasks = new ArrayList<>();
+        try
+        {
+            try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+            {
+                if(isGzip(channel))
+                    parseGzip(path, weighted, parallel, tasks);
+                else
+                {
+                    long size = channel.size();
+                    long chunks = Math.max(Math.min(parallel.getThreads(), size / MIN_CHUNK_BYTES),
+                            (size + CHUNK_BYTES - 1) / CHUNK_BYTES);
+                    long[] bounds = lineBounds(channel, (int) Math.max(chunks, 1));
+                    for(int c = 0; c + 1 < bounds.length; c++)
+                    {
+                        final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                                bounds[c], bounds[c + 1] - bounds[c]);
+                        tasks.add(parallel.submit(() -> parseChunk(buffer, weighted)));
+                    }
+                }
+            }
+            Edges[] res = new Edges[tasks.size()];
+            long total = 0;
+            for(int c = 0; c < res.length; c++)
+            {
+                res[c] = tasks.get(c).join();
+                total += res[c].size();
+            }
+            if(total > Integer.MAX_VALUE - 8)
+                throw new IOException("Too many edges in " + path);
+            return res;
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new IOException("Malformed edge list " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isGzip(final FileChannel channel) throws IOException
+    {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        while(magic.hasRemaining() && channel.read(magic, magic.position()) > 0);
+        return magic.position() == 2 && (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+    }
+
+    /**
+     * Decompresses the file a block at a time, each block is cut at its last
+     * new line and given to a task while the next one is decompressed.
+     */
+    private static void parseGzip(final String path, final boolean weighted, final Parallel parallel,
+            final List<ForkJoinTask<Edges>> tasks) throws IOException
+    {
+        try(InputStream in = new GZIPInputStream(new FileInputStream(path), MIN_CHUNK_BYTES))
+        {
+            byte[] block = new byte[CHUNK_BYTES];
+            int filled = 0, joined = 0;
+            int read;
+            while((read = in.read(block, filled, block.length - filled)) >= 0)
+            {
+                filled += read;
+                if(filled < block.length)
+                    continue;
+                int cut = filled;
+                while(cut > 0 && block[cut - 1] != '\n')
+                    cut--;
+                if(cut == 0)
+                {
+                    //a line longer than the block, make it bigger
+                    block = Arrays.copyOf(block, block.length * 2);
+                    continue;
+                }
+                byte[] next = new byte[block.length];
+                System.arraycopy(block, cut, next, 0, filled - cut);
+                final ByteBuffer buffer = ByteBuffer.wrap(block, 0, cut);
+                tasks.add(parallel.submit(() -> parseChunk(buffer, weighted)));
+                block = next;
+                filled -= cut;
+
+                //don't keep too many decompressed blocks in memory
+                while(tasks.size() - joined > 2 * parallel.getThreads())
+                    tasks.get(joined++).join();
+            }
+            final ByteBuffer buffer = ByteBuffer.wrap(block, 0, filled);
+            tasks.add(parallel.submit(() -> parseChunk(buffer, weighted)));
+        }
+    }
+
+    /**
+     * Splits the file in chunks of about the same size, each bound is moved
+     * forward to the start of a line.
+     */
+    private static long[] lineBounds(final FileChannel channel, final int chunks) throws IOException
+    {
+        long size = channel.size();
+        long[] bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for(int c = 1; c < chunks; c++)
+        {
+            long position = Math.max(size / chunks * c, bounds[c - 1]);
+            //the bound is the first position after a new line, starting from position - 1
+            if(position > 0)
+                position--;
+            boolean found = false;
+            while(!found && position < size)
+            {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if(read <= 0)
+                    break;
+                for(int i = 0; i < read && !found; i++, position++)
+                    found = buffer.get(i) == '\n';
+            }
+            bounds[c] = Math.min(position, size);
+        }
+        return bounds;
+    }
+
+    /**
+     * Parses the edges contained between position and limit of the buffer,
+     * the buffer must start at the beginning of a line.
+     */
+    private static Edges parseChunk(final ByteBuffer buffer, final boolean weighted)
+    {
+        Edges res = new Edges(weighted);
+        final int limit = buffer.limit();
+        int i = buffer.position();
+        while(i < limit)
+        {
+            byte c = buffer.get(i);
+            if(c == '#' || c == '%')
+            {
+                i = nextLine(buffer, i, limit);
+                continue;
+            }
+            if(isSeparator(c) || c == '\n' || c == '\r')
+            {
+                i++;
+                continue;
+            }
+
+            long first = parseNumber(buffer, i, limit);
+            i = (int) (first >>> 32);
+            while(i < limit && isSeparator(buffer.get(i)))
+                i++;
+            long second = parseNumber(buffer, i, limit);
+            i = (int) (second >>> 32);
+            double weight = 1;
+            if(weighted)
+            {
+                while(i < limit && isSeparator(buffer.get(i)))
+                    i++;
+                int end = i;
+                while(end < limit && !isSeparator(buffer.get(end)) && buffer.get(end) != '\n'
+                        && buffer.get(end) != '\r')
+                    end++;
+                if(end > i)
+                    weight = parseWeight(buffer, i, end);
+                i = end;
+            }
+            res.add((int) first, (int) second, weight);
+            i = nextLine(buffer, i, limit);
+        }
+        return res;
+    }
+
+    /**
+     * Parses a (possibly negative) int starting at position i.
+     * @return The position after the number in the high 32 bits and the
+     * number in the low 32 bits.
+     */
+    private static long parseNumber(final ByteBuffer buffer, int i, final int limit)
+    {
+        boolean negative = i < limit && buffer.get(i) == '-';
+        if(negative)
+            i++;
+        int start = i;
+        long value = 0;
+        while(i < limit)
+        {
+            int digit = buffer.get(i) - '0';
+            if(digit < 0 || digit > 9)
+                break;
+            value = value * 10 + digit;
+            if(value > (long) Integer.MAX_VALUE + 1)
+                throw new IllegalArgumentException("vertex id out of the int range");
+            i++;
+        }
+        if(i == start)
+            throw new IllegalArgumentException("expected a vertex id, found " +
+                    (i < limit? "'" + (char) buffer.get(i) + "'" : "end of file"));
+        value = negative? -value : value;
+        if(value > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("vertex id out of the int range");
+        return ((long) i << 32) | (value & 0xffffffffL);
+    }
+
+    /**
+     * Parses the decimal number in [from, to) (1, 0.5, 2e-3) without
+     * allocating: digits and exponent are read from the buffer and when the
+     * mantissa has at most 15 digits and the power of 10 is at most 22 (the
+     * usual weights) a single multiplication or division of two exact doubles
+     * gives the correctly rounded result. Anything else (longer mantissas,
+     * huge exponents, Infinity, hex) goes through Double.parseDouble.
+     */
+    private static double parseWeight(final ByteBuffer buffer, final int from, final int to)
+    {
+        int i = from;
+        boolean negative = false;
+        if(i < to && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+            negative = buffer.get(i++) == '-';
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean any = false;
+        for(boolean point = false; i < to; i++)
+        {
+            byte c = buffer.get(i);
+            if(c == '.' && !point)
+                point = true;
+            else if(c >= '0' && c <= '9')
+            {
+                any = true;
+                //leading zeros don't count as digits
+                if(mantissa == 0 && c == '0')
+                {
+                    if(point)
+                        exponent--;
+                    continue;
+                }
+                if(++digits > 15)
+                    return parseWeightSlow(buffer, from, to);
+                mantissa = mantissa * 10 + (c - '0');
+                if(point)
+                    exponent--;
+            }
+            else
+                break;
+        }
+        if(!any)
+            return parseWeightSlow(buffer, from, to);
+        if(i < to && (buffer.get(i) == 'e' || buffer.get(i) == 'E'))
+        {
+            i++;
+            boolean negativeExponent = false;
+            if(i < to && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+                negativeExponent = buffer.get(i++) == '-';
+            int start = i, value = 0;
+            for(; i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++)
+            {
+                value = value * 10 + (buffer.get(i) - '0');
+                if(value > 1000)
+                    return parseWeightSlow(buffer, from, to);
+            }
+            if(i == start)
+                return parseWeightSlow(buffer, from, to);
+            exponent += negativeExponent? -value : value;
+        }
+        if(i != to)
+            return parseWeightSlow(buffer, from, to);
+        double res;
+        if(mantissa == 0)
+            res = 0;
+        else if(exponent >= 0 && exponent < POWERS_OF_10.length)
+            res = mantissa * POWERS_OF_10[exponent];
+        else if(exponent < 0 && -exponent < POWERS_OF_10.length)
+            res = mantissa / POWERS_OF_10[-exponent];
+        else
+            return parseWeightSlow(buffer, from, to);
+        return negative? -res : res;
+    }
+
+    //Double takes care of all the notations, only used by parseWeight for the rare cases
+    private static double parseWeightSlow(final ByteBuffer buffer, final int from, final int to)
+    {
+        char[] chars = new char[to - from];
+        for(int i = from; i < to; i++)
+            chars[i - from] = (char) buffer.get(i);
+        String token = new String(chars);
+        try
+        {
+            return Double.parseDouble(token);
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException("expected a weight, found '" + token + "'");
+        }
+    }
+
+    private static int nextLine(final ByteBuffer buffer, int i, final int limit)
+    {
+        while(i < limit && buffer.get(i) != '\n')
+            i++;
+        return i + 1;
+    }
+
+    private static boolean isSeparator(final byte c)
+    {
+        return c == ',' || c == ' ' || c == '\t';
+    }
+
+    /**
+     * Vertices of a bipartite chunk in order of first appearance, right side
+     * vertices have the sign bit set.
+     */
+    private static long[] firstAppearances(final Edges chunk)
+    {
+        //used as sets, put returns the default 0 only for new keys
+        Int2IntOpenHashMap left = new Int2IntOpenHashMap();
+        Int2IntOpenHashMap right = new Int2IntOpenHashMap();
+        long[] res = new long[chunk.size() * 2];
+        int size = 0;
+        for(int e = 0; e < chunk.size(); e++)
+        {
+            int source = chunk.sources.getInt(e);
+            int target = chunk.targets.getInt(e);
+            if(left.put(source, 1) == 0)
+                res[size++] = source & 0xffffffffL;
+            if(right.put(target, 1) == 0)
+                res[size++] = Long.MIN_VALUE | (target & 0xffffffffL);
+        }
+        return Arrays.copyOf(res, size);
+    }
+
+    /**
+     * Sorted distinct ids appearing in the chunks, ids of the chunks are
+     * translated to their dense index.
+     */
+    private static int[] distinctIds(final Edges[] chunks, final Parallel parallel)
+    {
+        long min = Integer.MAX_VALUE, max = Integer.MIN_VALUE, edges = 0;
+        for(Edges chunk: chunks)
+        {
+            min = Math.min(min, chunk.min);
+            max = Math.max(max, chunk.max);
+            edges += chunk.size();
+        }
+        if(edges == 0)
+            return new int[0];
+
+        final int[] ids;
+        final long offset = min;
+        if(max - min + 1 <= MAX_TABLE_FACTOR * edges * 2 + 1024 && max - min + 1 <= MAX_TABLE_SIZE)
+        {
+            //mark the ids in a table, then replace the marks with the indexes
+            final int[] table = new int[(int) (max - min + 1)];
+            parallel.forRange(chunks.length, (from, to) ->
+            {
+                for(int c = from; c < to; c++)
+                    for(int e = 0; e < chunks[c].size(); e++)
+                    {
+                        table[(int) (chunks[c].sources.getInt(e) - offset)] = 1;
+                        table[(int) (chunks[c].targets.getInt(e) - offset)] = 1;
+                    }
+            });
+            int n = 0;
+            for(int i = 0; i < table.length; i++)
+                if(table[i] != 0)
+                    table[i] = n++;
+                else
+                    table[i] = -1;
+            ids = new int[n];
+            for(int i = 0; i < table.length; i++)
+                if(table[i] >= 0)
+                    ids[table[i]] = (int) (i + offset);
+            parallel.forRange(chunks.length, (from, to) ->
+            {
+                for(int c = from; c < to; c++)
+                    translate(chunks[c], id -> table[(int) (id - offset)]);
+            });
+        }
+        else
+        {
+            //sparse ids, sort the distinct ids of each chunk and merge them
+            final int[][] distinct = new int[chunks.length][];
+            parallel.forRange(chunks.length, (from, to) ->
+            {
+                for(int c = from; c < to; c++)
+                {
+                    int[] all = new int[chunks[c].size() * 2];
+                    System.arraycopy(chunks[c].sources.elements(), 0, all, 0, chunks[c].size());
+                    System.arraycopy(chunks[c].targets.elements(), 0, all, chunks[c].size(), chunks[c].size());
+                    distinct[c] = sortedDistinct(all, all.length);
+                }
+            });
+            int total = 0;
+            for(int[] d: distinct)
+                total += d.length;
+            int[] all = new int[total];
+            total = 0;
+            for(int[] d: distinct)
+            {
+                System.arraycopy(d, 0, all, total, d.length);
+                total += d.length;
+            }
+            ids = sortedDistinct(all, total);
+            parallel.forRange(chunks.length, (from, to) ->
+            {
+                for(int c = from; c < to; c++)
+                    translate(chunks[c], id -> Arrays.binarySearch(ids, id));
+            });
+        }
+        return ids;
+    }
+
+    private static int[] sortedDistinct(final int[] values, final int size)
+    {
+        Arrays.sort(values, 0, size);
+        int n = 0;
+        for(int i = 0; i < size; i++)
+            if(i == 0 || values[i] != values[i - 1])
+                values[n++] = values[i];
+        return Arrays.copyOf(values, n);
+    }
+
+    private interface IdMapper
+    {
+        int index(int id);
+    }
+
+    private static void translate(final Edges chunk, final IdMapper mapper)
+    {
+        int[] sources = chunk.sources.elements();
+        int[] targets = chunk.targets.elements();
+        for(int e = 0; e < chunk.size(); e++)
+        {
+            sources[e] = mapper.index(sources[e]);
+            targets[e] = mapper.index(targets[e]);
+        }
+    }
+
+    /**
+     * Builds the CSR arrays from chunks whose edges are already translated to
+     * dense indexes.
+     * @param symmetric If true each edge is also added in the opposite direction
+     * and the graph is symmetric, with a single adjacency for both directions.
+     */
+    private static CsrGraph build(final Edges[] chunks, final int[] ids, final boolean symmetric,
+            final Parallel parallel)
+    {
+        final int n = ids.length;
+
+        //first pass, count out degrees
+        final AtomicIntegerArray degrees = new AtomicIntegerArray(n);
+        parallel.forRange(chunks.length, (from, to) ->
+        {
+            for(int c = from; c < to; c++)
+                for(int e = 0; e < chunks[c].size(); e++)
+                {
+                    degrees.incrementAndGet(chunks[c].sources.getInt(e));
+                    if(symmetric)
+                        degrees.incrementAndGet(chunks[c].targets.getInt(e));
+                }
+        });
+        int[] offsets = offsets(degrees);
+
+        //second pass, fill the adjacencies
+        final int[] targets = new int[offsets[n]];
+        final AtomicIntegerArray next = new AtomicIntegerArray(Arrays.copyOf(offsets, n));
+        parallel.forRange(chunks.length, (from, to) ->
+        {
+            for(int c = from; c < to; c++)
+                for(int e = 0; e < chunks[c].size(); e++)
+                {
+                    int source = chunks[c].sources.getInt(e);
+                    int target = chunks[c].targets.getInt(e);
+                    targets[next.getAndIncrement(source)] = target;
+                    if(symmetric)
+                        targets[next.getAndIncrement(target)] = source;
+                }
+        });
+
+        //the order of the fill depends on the threads, sorting makes it deterministic
+        //and lets duplicates be removed
+        final int[] distinct = new int[n];
+        parallel.forRange(n, (from, to) ->
+        {
+            for(int v = from; v < to; v++)
+            {
+                Arrays.sort(targets, offsets[v], offsets[v + 1]);
+                int size = 0;
+                for(int i = offsets[v]; i < offsets[v + 1]; i++)
+                    if(size == 0 || targets[i] != targets[offsets[v] + size - 1])
+                        targets[offsets[v] + size++] = targets[i];
+                distinct[v] = size;
+            }
+        });
+        int[] outOffsets = new int[n + 1];
+        for(int v = 0; v < n; v++)
+            outOffsets[v + 1] = outOffsets[v] + distinct[v];
+        final int[] outTargets;
+        if(outOffsets[n] == offsets[n])
+            outTargets = targets;
+        else
+        {
+            outTargets = new int[outOffsets[n]];
+            parallel.forRange(n, (from, to) ->
+            {
+                for(int v = from; v < to; v++)
+                    System.arraycopy(targets, offsets[v], outTargets, outOffsets[v], distinct[v]);
+            });
+        }
+
+        //predecessors, same two passes over the successors
+        if(symmetric)
+            return new CsrGraph(ids, outOffsets, outTargets, outOffsets, outTargets);
+        final AtomicIntegerArray inDegrees = new AtomicIntegerArray(n);
+        parallel.forRange(n, (from, to) ->
+        {
+            for(int i = outOffsets[from]; i < outOffsets[to]; i++)
+                inDegrees.incrementAndGet(outTargets[i]);
+        });
+        int[] inOffsets = offsets(inDegrees);
+        final int[] inSources = new int[inOffsets[n]];
+        final AtomicIntegerArray inNext = new AtomicIntegerArray(Arrays.copyOf(inOffsets, n));
+        parallel.forRange(n, (from, to) ->
+        {
+            for(int v = from; v < to; v++)
+                for(int i = outOffsets[v]; i < outOffsets[v + 1]; i++)
+                    inSources[inNext.getAndIncrement(outTargets[i])] = v;
+        });
+        parallel.forRange(n, (from, to) ->
+        {
+            for(int v = from; v < to; v++)
+                Arrays.sort(inSources, inOffsets[v], inOffsets[v + 1]);
+        });
+        return new CsrGraph(ids, outOffsets, outTargets, inOffsets, inSources);
+    }
+
+    private static int[] offsets(final AtomicIntegerArray degrees)
+    {
+        int[] offsets = new int[degrees.length() + 1];
+        for(int v = 0; v < degrees.length(); v++)
+            offsets[v + 1] = offsets[v] + degrees.get(v);
+        return offsets;
+    }
+}
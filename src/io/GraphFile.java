@@ -0,0 +1,388 @@
+package io;
+
+import graph.BufferGraph;
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.SegmentedDoubleBuffer;
+import graph.SegmentedIntBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary on disk format for graphs, made to be memory mapped and used as it is.
+ * All values are little endian ints, the file is:
+ * header (8 ints): magic, version, flags, vertices, edges, 3 reserved ints
+ * ids: vertices ints, original id of each dense index (sorted ascending unless
+ * the graph was reordered)
+ * outOffsets: vertices + 1 ints
+ * outTargets: edges ints
+ * inOffsets: vertices + 1 ints
+ * inSources: edges ints
+ * which is exactly the layout of CsrGraph, so loading is just mapping the
+ * sections of the file.
+ * Symmetric graphs (flag SYMMETRIC) only have the out sections, which are
+ * used for both directions.
+ * Weighted graphs (flag WEIGHTED) are followed by the weights of the edges,
+ * little endian doubles:
+ * outWeights: edges doubles, parallel to outTargets
+ * inWeights: edges doubles, parallel to inSources (not for symmetric graphs)
+ * A single mapping can't be larger than 2GB (2^29 ints), so sections are
+ * mapped and read in windows of SegmentedIntBuffer.SEGMENT_INTS ints.
+ */
+public final class GraphFile
+{
+    public static final int MAGIC = 0x47525050;
+    public static final int VERSION = 1;
+    public static final int HEADER_INTS = 8;
+    //flags
+    public static final int SYMMETRIC = 1;
+    public static final int WEIGHTED = 2;
+
+    //how many bytes to buffer before writing to the channel
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    private GraphFile(){}
+
+    /**
+     * Writes a graph in the binary format, the file is overwritten.
+     * @param g Graph to write.
+     * @param path File to write the graph in.
+     * @throws IOException If the file can't be written.
+     */
+    public static void write(final IntGraph g, final String path) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            int n = g.vertices();
+
+            int flags = (g.isSymmetric()? SYMMETRIC : 0) | (g.isWeighted()? WEIGHTED : 0);
+            int[] header = {MAGIC, VERSION, flags, n, g.edges(), 0, 0, 0};
+            for(int value: header)
+                put(channel, buffer, value);
+            for(int v = 0; v < n; v++)
+                put(channel, buffer, g.id(v));
+
+            int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
+
+            int offset = 0;
+            put(channel, buffer, offset);
+            for(int v = 0; v < n; v++)
+                put(channel, buffer, offset += g.outDegree(v));
+            for(int v = 0; v < n; v++)
+            {
+                int degree = g.successors(v, neighbours);
+                for(int i = 0; i < degree; i++)
+                    put(channel, buffer, neighbours[i]);
+            }
+            if(!g.isSymmetric())
+            {
+                offset = 0;
+                put(channel, buffer, offset);
+                for(int v = 0; v < n; v++)
+                    put(channel, buffer, offset += g.inDegree(v));
+                for(int v = 0; v < n; v++)
+                {
+                    int degree = g.predecessors(v, neighbours);
+                    for(int i = 0; i < degree; i++)
+                        put(channel, buffer, neighbours[i]);
+                }
+            }
+
+            if(g.isWeighted())
+            {
+                double[] weights = new double[neighbours.length];
+                for(int v = 0; v < n; v++)
+                {
+                    int degree = g.successorWeights(v, weights);
+                    for(int i = 0; i < degree; i++)
+                        put(channel, buffer, weights[i]);
+                }
+                if(!g.isSymmetric())
+                    for(int v = 0; v < n; v++)
+                    {
+                        int degree = g.predecessorWeights(v, weights);
+                        for(int i = 0; i < degree; i++)
+                            put(channel, buffer, weights[i]);
+                    }
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Memory maps a graph file, the returned graph reads directly from the
+     * mapped file so nothing is copied and nothing is allocated for each edge.
+     * The mapping stays valid until the graph is garbage collected.
+     * @param path File containing a graph written with write(g, path).
+     * @return Graph backed by the mapped file.
+     * @throws IOException If the file can't be read or isn't a valid graph file.
+     */
+    public static BufferGraph map(final String path) throws IOException
+    {
+        return map(path, SegmentedIntBuffer.SEGMENT_INTS);
+    }
+
+    /**
+     * Same of map(path), with a chosen number of ints for each mapping.
+     * @param path File containing a graph written with write(g, path).
+     * @param windowInts Ints of each mapping, a power of 2 not greater than
+     * 2^29, sections longer than that are split in more mappings (weights in
+     * mappings of the same bytes, at least one double).
+     * @return Graph backed by the mapped file.
+     * @throws IOException If the file can't be read or isn't a valid graph file.
+     */
+    public static BufferGraph map(final String path, final int windowInts) throws IOException
+    {
+        if(Integer.bitCount(windowInts) != 1 || windowInts > 1 << 29)
+            throw new IllegalArgumentException("Window size must be a power of 2 not greater than 2^29");
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+        {
+            int[] header = readHeader(channel);
+            int n = header[3];
+            int m = header[4];
+
+            long position = HEADER_INTS * 4L;
+            SegmentedIntBuffer ids = mapSection(channel, position, n, windowInts);
+            position += n * 4L;
+            SegmentedIntBuffer outOffsets = mapSection(channel, position, n + 1, windowInts);
+            position += (n + 1) * 4L;
+            SegmentedIntBuffer outTargets = mapSection(channel, position, m, windowInts);
+            position += m * 4L;
+            SegmentedIntBuffer inOffsets = null;
+            SegmentedIntBuffer inSources = null;
+            if(!isSymmetric(header))
+            {
+                inOffsets = mapSection(channel, position, n + 1, windowInts);
+                position += (n + 1) * 4L;
+                inSources = mapSection(channel, position, m, windowInts);
+                position += m * 4L;
+            }
+            SegmentedDoubleBuffer outWeights = null;
+            SegmentedDoubleBuffer inWeights = null;
+            if(isWeighted(header))
+            {
+                outWeights = mapWeights(channel, position, m, Math.max(1, windowInts / 2));
+                position += m * 8L;
+                if(!isSymmetric(header))
+                    inWeights = mapWeights(channel, position, m, Math.max(1, windowInts / 2));
+            }
+
+            try
+            {
+                return new BufferGraph(ids, outOffsets, outTargets, outWeights, inOffsets, inSources, inWeights);
+            }
+            catch(IllegalArgumentException e)
+            {
+                throw new IOException("Corrupted graph file " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Reads a graph file in the java heap, the file is memory mapped and
+     * each section is copied with bulk gets, one for each window of
+     * SegmentedIntBuffer.SEGMENT_INTS ints.
+     * @param path File containing a graph written with write(g, path).
+     * @return Graph containing a copy of the file.
+     * @throws IOException If the file can't be read or isn't a valid graph file.
+     */
+    public static CsrGraph load(final String path) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+        {
+            int[] header = readHeader(channel);
+            int n = header[3];
+            int m = header[4];
+
+            long position = HEADER_INTS * 4L;
+            int[] ids = readSection(channel, position, n);
+            position += n * 4L;
+            int[] outOffsets = readSection(channel, position, n + 1);
+            position += (n + 1) * 4L;
+            int[] outTargets = readSection(channel, position, m);
+            position += m * 4L;
+            int[] inOffsets = outOffsets;
+            int[] inSources = outTargets;
+            if(!isSymmetric(header))
+            {
+                inOffsets = readSection(channel, position, n + 1);
+                position += (n + 1) * 4L;
+                inSources = readSection(channel, position, m);
+                position += m * 4L;
+            }
+
+            try
+            {
+                if(!isWeighted(header))
+                    return new CsrGraph(ids, outOffsets, outTargets, inOffsets, inSources);
+                double[] outWeights = readWeights(channel, position, m);
+                position += m * 8L;
+                double[] inWeights = isSymmetric(header)? outWeights : readWeights(channel, position, m);
+                return new CsrGraph(ids, outOffsets, outTargets, outWeights, inOffsets, inSources, inWeights);
+            }
+            catch(IllegalArgumentException e)
+            {
+                throw new IOException("Corrupted graph file " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Reads a csv file where every line contains 2 vertex ids representing
+     * an edge in the form:
+     * 1,2
+     * 4,5
+     * 7,2
+     * and builds the graph made of those edges (see EdgeListReader).
+     * @param csvPath Path to the csv file.
+     * @return Graph containing the edges of the file.
+     * @throws IOException If the file can't be read.
+     */
+    public static CsrGraph readCsv(final String csvPath) throws IOException
+    {
+        return EdgeListReader.read(csvPath, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Converts a csv edge list (see readCsv) into a graph file.
+     * @param csvPath Path to the csv file.
+     * @param graphPath Path of the graph file to write.
+     * @throws IOException If a file can't be read or written.
+     */
+    public static void convertCsv(final String csvPath, final String graphPath) throws IOException
+    {
+        write(readCsv(csvPath), graphPath);
+    }
+
+    private static int[] readHeader(final FileChannel channel) throws IOException
+    {
+        if(channel.size() < HEADER_INTS * 4L)
+            throw new IOException("Not a graph file, too short");
+        int[] header = new int[HEADER_INTS];
+        mapInts(channel, 0, HEADER_INTS).get(header);
+        if(header[0] != MAGIC)
+            throw new IOException("Not a graph file, wrong magic number");
+        if(header[1] != VERSION)
+            throw new IOException("Unsupported graph file version " + header[1]);
+        if((header[2] & ~(SYMMETRIC | WEIGHTED)) != 0)
+            throw new IOException("Unknown graph file flags " + header[2]);
+        long n = header[3], m = header[4];
+        long size = isSymmetric(header)? HEADER_INTS + n * 2 + 1 + m : HEADER_INTS + n * 3 + 2 + m * 2;
+        //a double takes two ints
+        if(isWeighted(header))
+            size += isSymmetric(header)? m * 2 : m * 4;
+        if(n < 0 || m < 0 || channel.size() != size * 4L)
+            throw new IOException("Graph file size doesn't match its header");
+        return header;
+    }
+
+    private static boolean isSymmetric(final int[] header)
+    {
+        return (header[2] & SYMMETRIC) != 0;
+    }
+
+    private static boolean isWeighted(final int[] header)
+    {
+        return (header[2] & WEIGHTED) != 0;
+    }
+
+    //maps a section in windows of windowInts ints, the last one may be shorter
+    private static SegmentedIntBuffer mapSection(final FileChannel channel, final long position,
+            final int ints, final int windowInts) throws IOException
+    {
+        IntBuffer[] windows = new IntBuffer[Math.max(1, (int)((ints + (long)windowInts - 1) / windowInts))];
+        for(int i = 0; i < windows.length; i++)
+        {
+            long start = (long)i * windowInts;
+            windows[i] = mapInts(channel, position + start * 4, (int)Math.min(windowInts, ints - start));
+        }
+        return new SegmentedIntBuffer(windows);
+    }
+
+    //maps a section of doubles in windows of windowDoubles doubles, the last one may be shorter
+    private static SegmentedDoubleBuffer mapWeights(final FileChannel channel, final long position,
+            final int doubles, final int windowDoubles) throws IOException
+    {
+        DoubleBuffer[] windows = new DoubleBuffer[Math.max(1, 
+                (int)((doubles + (long)windowDoubles - 1) / windowDoubles))];
+        for(int i = 0; i < windows.length; i++)
+        {
+            long start = (long)i * windowDoubles;
+            int length = (int)Math.min(windowDoubles, doubles - start);
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + start * 8, length * 8L)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+        return new SegmentedDoubleBuffer(windows);
+    }
+
+    //copies a section of doubles in the heap one window at a time
+    private static double[] readWeights(final FileChannel channel, final long position,
+            final int doubles) throws IOException
+    {
+        double[] section = new double[doubles];
+        int start = 0;
+        while(start < doubles)
+        {
+            int length = Math.min(SegmentedDoubleBuffer.SEGMENT_DOUBLES, doubles - start);
+            channel.map(FileChannel.MapMode.READ_ONLY, position + start * 8L, length * 8L)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(section, start, length);
+            start += length;
+        }
+        return section;
+    }
+
+    //copies a section in the heap one window at a time
+    private static int[] readSection(final FileChannel channel, final long position,
+            final int ints) throws IOException
+    {
+        int[] section = new int[ints];
+        int start = 0;
+        while(start < ints)
+        {
+            int length = Math.min(SegmentedIntBuffer.SEGMENT_INTS, ints - start);
+            mapInts(channel, position + start * 4L, length).get(section, start, length);
+            start += length;
+        }
+        return section;
+    }
+
+    //a single mapping, ints must be at most 2^29
+    private static IntBuffer mapInts(final FileChannel channel, final long position,
+            final int ints) throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, ints * 4L)
+                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static void put(final FileChannel channel, final ByteBuffer buffer,
+            final int value) throws IOException
+    {
+        if(buffer.remaining() < 4)
+            flush(channel, buffer);
+        buffer.putInt(value);
+    }
+
+    private static void put(final FileChannel channel, final ByteBuffer buffer,
+            final double value) throws IOException
+    {
+        if(buffer.remaining() < 8)
+            flush(channel, buffer);
+        buffer.putDouble(value);
+    }
+
+    private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
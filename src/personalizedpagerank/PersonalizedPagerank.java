@@ -1,10 +1,8 @@
 package personalizedpagerank;
 
 import algorithms.BoundaryRestrictedPageRank;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
@@ -33,6 +31,7 @@ import algorithms.WrappedStoringPageRank;
 import benchmarking.AlgorithmComparator;
 import benchmarking.ComparisonData;
 import io.DbManager;
+import io.EdgeListReader;
 import org.jgrapht.alg.ConnectivityInspector;
 import utility.NodeScores;
 
@@ -100,22 +99,16 @@ import utility.NodeScores;
          */
         public static void importGraphFromCsv (Graph<Integer, DefaultEdge> g, String csvPath)
         {
-            try (BufferedReader br = new BufferedReader(new FileReader(csvPath))) 
+            try
             {
-                String line;
-                String splitter = ",";
-                while ((line = br.readLine()) != null) 
+                EdgeListReader.forEachEdge(csvPath, Runtime.getRuntime().availableProcessors(), (v1, v2) ->
                 {
-                    //split using splitter
-                    String[] edge = line.split(splitter);
-                    Integer v1 = Integer.parseInt(edge[0]);
-                    Integer v2 = Integer.parseInt(edge[1]);
                     if(!g.containsVertex(v1))
                         g.addVertex(v1);
                     if(!g.containsVertex(v2))
                         g.addVertex(v2);
-                    g.addEdge(v1,v2);
-                }
+                    g.addEdge(v1, v2);
+                });
             } 
             catch (IOException e) 
             {
@@ -123,45 +116,44 @@ import utility.NodeScores;
             }
         }
 
+        /**
+         * Given a graph and a csv file where every line contains an edge of a
+         * bipartite graph (first column one side, second column the other side)
+         * vertices are renamed 0..n-1 in order of appearance and each edge gets
+         * added in both directions.
+         * 
+         * @param g Graph to insert nodes and edges into.
+         * @param csvPath Path too file.
+         */
         public static void importBipartiteUndirectedFromCsv(Graph<Integer, DefaultEdge> g, String csvPath)
         {
-            Map<Integer, Integer> map1 = new HashMap<Integer, Integer>();
-            Map<Integer, Integer> map2 = new HashMap<Integer, Integer>();
-            int count = 0;
-
-            try (BufferedReader br = new BufferedReader(new FileReader(csvPath))) 
+            try
             {
-                String line;
-                String splitter = ",";
-                while ((line = br.readLine()) != null) 
+                Map<Integer, Integer> map1 = new HashMap<Integer, Integer>();
+                Map<Integer, Integer> map2 = new HashMap<Integer, Integer>();
+                EdgeListReader.forEachEdge(csvPath, Runtime.getRuntime().availableProcessors(), (first, second) ->
                 {
-                    //split using splitter
-                    String[] edge = line.split(splitter);
-                    Integer v1 = Integer.parseInt(edge[0]);
-                    Integer v2 = Integer.parseInt(edge[1]);
-                    if(map1.get(v1) == null)
-                    {
-                        map1.put(v1, count++);
-                    }
-                    v1 = map1.get(v1);
-                    if(map2.get(v2) == null)
-                    {
-                        map2.put(v2, count++);
-                    }
-                    v2 = map2.get(v2);
+                    //ids are shared by both sides, the next one is the number of vertices seen
+                    if(map1.get(first) == null)
+                        map1.put(first, map1.size() + map2.size());
+                    Integer v1 = map1.get(first);
+                    if(map2.get(second) == null)
+                        map2.put(second, map1.size() + map2.size());
+                    Integer v2 = map2.get(second);
                     if(!g.containsVertex(v1))
                         g.addVertex(v1);
                     if(!g.containsVertex(v2))
                         g.addVertex(v2);
-                    g.addEdge(v1,v2);
-                    g.addEdge(v2,v1);
-                }
+                    g.addEdge(v1, v2);
+                    g.addEdge(v2, v1);
+                });
             } 
             catch (IOException e) 
             {
                 e.printStackTrace();
             }
         }
+        
 
 
 
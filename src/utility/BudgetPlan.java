@@ -0,0 +1,86 @@
+package utility;
+
+import java.util.Arrays;
+
+/**
+ * Budgets of the nodes fitting in a given amount of memory, with the largeTop
+ * they come from and the memory they need, see Budgets.plan.
+ */
+public class BudgetPlan
+{
+    private final long targetBytes;//memory the plan had to fit in
+    private final int largeTop;//average budget, to pass as largeTop to the algorithms
+    private final int[] budgets;//budget of each dense vertex index
+    private final long storeBytes;//memory of the ScoreSlabs alive at the same time
+    private final long otherBytes;//memory of the accumulators, per node arrays and results
+
+    public BudgetPlan(final long targetBytes, final int largeTop, final int[] budgets, final long storeBytes, 
+            final long otherBytes)
+    {
+        if(largeTop <= 0)
+            throw new IllegalArgumentException("LargeTop must be positive");
+        if(storeBytes < 0 || otherBytes < 0)
+            throw new IllegalArgumentException("Memory can't be negative");
+        this.targetBytes = targetBytes;
+        this.largeTop = largeTop;
+        this.budgets = budgets;
+        this.storeBytes = storeBytes;
+        this.otherBytes = otherBytes;
+    }
+
+    public long getTargetBytes()
+    {
+        return targetBytes;
+    }
+
+    /**
+     * @return Average budget of the nodes, to pass as largeTop to GuerrieriRank,
+     * GuerrieriRankV3 and GuerrieriRankV3Local (which give it to every node)
+     * and to GuerrieriRankV2 (which computes the same budgets of getBudgets()).
+     */
+    public int getLargeTop()
+    {
+        return largeTop;
+    }
+
+    /**
+     * @return Budget of each dense vertex index, the array is not copied.
+     */
+    public int[] getBudgets()
+    {
+        return budgets;
+    }
+
+    /**
+     * @return Bytes of the scores stored with the degree based budgets, of
+     * two stores if the plan is for reallocating budgets (both are alive
+     * while scores move to the new budgets).
+     */
+    public long getStoreBytes()
+    {
+        return storeBytes;
+    }
+
+    /**
+     * @return Bytes of the accumulators of the threads and of the result maps.
+     */
+    public long getOtherBytes()
+    {
+        return otherBytes;
+    }
+
+    /**
+     * @return Bytes needed by the whole plan, at most getTargetBytes().
+     */
+    public long getBytes()
+    {
+        return storeBytes + otherBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "largeTop " + largeTop + ", " + getBytes() + " bytes of " + targetBytes + " (scores " + storeBytes 
+                + ", other " + otherBytes + "), max budget " + Arrays.stream(budgets).max().orElse(0);
+    }
+}
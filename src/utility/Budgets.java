@@ -1,5 +1,6 @@
 package utility;
 
+import graph.IntGraph;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import java.util.Set;
 import org.jgrapht.DirectedGraph;
@@ -10,6 +11,13 @@ public final class Budgets
 {
     private Budgets(){}
     
+    //bytes GuerrieriRankV2 keeps for each node besides its scores: budget and
+    //order (ints), truncated score and two error bounds (doubles), two certified flags
+    public static final int NODE_BYTES = 4 + 4 + 8 + 2 * 8 + 2;
+    
+    //bytes for each node of a reallocation: sizes and new budgets
+    public static final int REALLOCATION_BYTES = 4 + 4;
+    
     /**
      * Given a min amount to spend for each node from the "nodes" set and an average amount distribute the 
      * budget for each node, each node will receive at least min as a budget if
@@ -75,4 +83,202 @@ public final class Budgets
         }
         return budgets;    
     }
+    
+    /**
+     * Same as degreeBasedBudget(g, nodes, min, average) where nodes are all
+     * the vertices of the graph, working on dense vertex indexes.
+     * @param g Graph for which budget is assigned.
+     * @param min Min amount of budget to allocate for each node.
+     * @param average Average amount of budget for each node.
+     * @return An array mapping each dense vertex index to a budget.
+     */
+    public static int[] degreeBasedBudget(IntGraph g, int min, int average)
+    {
+        if(min < 0)
+            throw new IllegalArgumentException("Min budget must not be negative");
+        if(min > average)
+            throw new IllegalArgumentException("Min greater than average");
+        int[] budgets = new int[g.vertices()];
+        
+        //this is the total budget that can be distributed freely, after accounting
+        //for the min budget
+        double spendible = (average - min) * g.vertices();
+        
+        //total value for each node, will be used to decide the share of 
+        //"spendible" each node will receive
+        double total = 0;
+        for(int node = 0; node < g.vertices(); node++)
+        {
+            //same rules of the jgrapht version
+            int degree;
+            if(g.outDegree(node) == 0)
+            {
+                degree = 0;
+                spendible += min - 1;
+            }
+            else if(g.inDegree(node) == 0)
+                degree = 0;
+            else
+                degree = g.outDegree(node) + g.inDegree(node);
+            budgets[node] = degree;
+            total += degree;
+        }
+        
+        //if no edges or each node either has no indegree or no outdegree just
+        //share equally the spendible
+        for(int node = 0; node < g.vertices(); node++)
+        {
+            if(total == 0)
+                budgets[node] = average;
+            else
+                budgets[node] = (int) (((g.outDegree(node) == 0)? 1 : min) + spendible * budgets[node]/total);
+        }
+        return budgets;    
+    }
+
+    /**
+     * Picks the largest average budget (largeTop) whose scores fit in a given
+     * amount of memory and distributes it with degreeBasedBudget(g, min, average).
+     * Same of plan(g, min, bytes, floats, threads, false), for algorithms
+     * whose budgets don't move.
+     */
+    public static BudgetPlan plan(final IntGraph g, final int min, final long bytes, final boolean floats, 
+            final int threads)
+    {
+        return plan(g, min, bytes, floats, threads, false);
+    }
+
+    /**
+     * Picks the largest average budget (largeTop) whose scores fit in a given
+     * amount of memory and distributes it with degreeBasedBudget(g, min, average).
+     * Memory is counted at the peak of the running algorithms:
+     * - a ScoreSlabs with two generations of each budget, two of them when
+     * budgets are reallocated (GuerrieriRankV2 in adaptive mode copies the
+     * scores in new slabs while the old ones are alive) plus the sizes and the
+     * new budgets of the reallocation
+     * - a SparseAccumulator as large as the graph for each thread, plus the
+     * one used to initialize the scores
+     * - NODE_BYTES for each node (budgets, order, truncated score, error bounds
+     * and certified flags of GuerrieriRankV2)
+     * - a result map of min entries for each node, twice since results on
+     * dense indexes are translated to the original ids in new maps.
+     * The graph itself and the JVM are not counted, the memory given should
+     * leave room for them.
+     * The average is capped at the number of vertices, the most scores a
+     * node can have.
+     * @param g Graph for which budget is assigned.
+     * @param min Min amount of budget to allocate for each node, the smallTop
+     * of the algorithm, must be positive.
+     * @param bytes Memory the scores must fit in, for example availableHeap(0.8).
+     * @param floats True if scores are stored as floats.
+     * @param threads Number of threads of the algorithm.
+     * @param reallocating True if the algorithm reallocates the budgets while
+     * it runs (GuerrieriRankV2 in adaptive mode).
+     * @return The budgets with their average and memory.
+     */
+    public static BudgetPlan plan(final IntGraph g, final int min, final long bytes, final boolean floats, 
+            final int threads, final boolean reallocating)
+    {
+        if(min <= 0)
+            throw new IllegalArgumentException("Min budget must be positive");
+        if(threads <= 0)
+            throw new IllegalArgumentException("Threads must be positive");
+        int n = g.vertices();
+        int stores = reallocating? 2 : 1;
+        long other = (threads + 1) * SparseAccumulator.bytesFor(n) + 2 * n * NodeScores.bytesFor(min) 
+                + n * (NODE_BYTES + (reallocating? REALLOCATION_BYTES : 0));
+        long slots = (bytes - other - stores * ScoreSlabs.bytesFor(0, n, floats)) 
+                / (stores * ScoreSlabs.bytesPerScore(floats));
+        //a ScoreSlabs holds at most Integer.MAX_VALUE - 8 slots, two for each budget unit
+        slots = Math.min(slots, (Integer.MAX_VALUE - 8) / 2);
+        long average = n == 0? min : Math.min(slots / n, Math.max(n, min));
+        if(average < min)
+            throw new IllegalArgumentException("Not enough memory for a budget of " + min + " for each node");
+        int[] budgets = degreeBasedBudget(g, min, (int) average);
+        long total = 0;
+        for(int budget: budgets)
+            total += budget;
+        return new BudgetPlan(bytes, (int) average, budgets, stores * ScoreSlabs.bytesFor(total, n, floats), other);
+    }
+    
+    /**
+     * @param fraction Fraction of the free heap to use, in (0, 1].
+     * @return Bytes of the heap the JVM can still allocate (up to its max
+     * size) multiplied by fraction, to give to plan.
+     */
+    public static long availableHeap(final double fraction)
+    {
+        if(fraction <= 0 || fraction > 1)
+            throw new IllegalArgumentException("Fraction must be in (0, 1]");
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return (long) (free * fraction);
+    }
+
+    /**
+     * Moves budget from the nodes which don't need it to the ones which lose
+     * the most score to the truncation of their top scores, keeping the total.
+     * Nodes which lost nothing keep the scores they hold plus a quarter for
+     * them to grow, without going over their budget or under min (unless
+     * they had less already). What they free is shared among the nodes which
+     * lost something, half in proportion to their current budget above min
+     * and half to the score they lost, so budgets move gradually over a few
+     * calls. No node gets less than the scores it holds (the ones which lost
+     * something no less than min either), so moving the scores to the new
+     * budgets drops none of them.
+     * @param budgets Current budget of each node.
+     * @param sizes Number of scores each node holds.
+     * @param truncated Score each node lost keeping its top scores the last 
+     * time it was updated.
+     * @param min Min budget of the nodes, the smallTop of the algorithm.
+     * @param max Max budget of a node, for example the number of vertices.
+     * @return New budget of each node, with a sum not greater than the sum of budgets.
+     */
+    public static int[] reallocate(final int[] budgets, final int[] sizes, final double[] truncated, 
+            final int min, final int max)
+    {
+        if(budgets.length != sizes.length || budgets.length != truncated.length)
+            throw new IllegalArgumentException("Budgets, sizes and truncated scores of different nodes");
+        int[] res = budgets.clone();
+        long total = 0;
+        long kept = 0;//budget of the nodes which lost nothing, after freeing what they don't use
+        long losingBudget = 0;//budget of the nodes which lost something, above min
+        long held = 0;//budget the nodes which lost something keep, at least what they hold
+        double loss = 0;
+        int losing = 0;
+        for(int v = 0; v < budgets.length; v++)
+        {
+            total += budgets[v];
+            if(truncated[v] > 0)
+            {
+                losing++;
+                loss += truncated[v];
+                losingBudget += Math.max(0, budgets[v] - min);
+                held += Math.max(min, sizes[v]);
+            }
+            else
+            {
+                res[v] = Math.min(budgets[v], Math.max(min, sizes[v] + sizes[v] / 4 + 1));
+                kept += res[v];
+            }
+        }
+        long pool = total - kept - held;
+        if(losing == 0 || pool < 0)
+            return budgets.clone();
+        
+        //shares are rounded on their running sum, so that no budget is lost to rounding
+        double shared = 0;
+        long given = 0;
+        for(int v = 0; v < budgets.length; v++)
+            if(truncated[v] > 0)
+            {
+                double share = losingBudget == 0? truncated[v] / loss
+                        : (Math.max(0, budgets[v] - min) / (double) losingBudget + truncated[v] / loss) / 2;
+                shared += pool * share;
+                long upTo = Math.min(pool, (long) shared);
+                res[v] = (int) Math.max(sizes[v], Math.min(max, Math.max(min, sizes[v]) + upTo - given));
+                given = upTo;
+            }
+        return res;
+    }
 }
@@ -1,9 +1,11 @@
 package utility;
 
+import graph.IntGraph;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.util.List;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.DirectedPseudograph;
 
 public final class Graphs 
 {
@@ -32,5 +34,25 @@ public final class Graphs
         }
         return res;
     }
+    
+    /**
+     * Builds a jgrapht graph with the same vertex ids and edges of an IntGraph.
+     * Parallel edges and self loops are kept, weights are not.
+     * @return jgrapht copy of g
+     */
+    public static DirectedGraph<Integer, DefaultEdge> toGraph(IntGraph g)
+    {
+        DirectedGraph<Integer, DefaultEdge> res = new DirectedPseudograph<>(DefaultEdge.class);
+        for(int v = 0; v < g.vertices(); v++)
+            res.addVertex(g.id(v));
+        int[] buffer = new int[g.maxOutDegree()];
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int degree = g.successors(v, buffer);
+            for(int i = 0; i < degree; i++)
+                res.addEdge(g.id(v), g.id(buffer[i]));
+        }
+        return res;
+    }
 
 }
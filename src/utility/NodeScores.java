@@ -2,11 +2,30 @@ package utility;
 
 import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import java.util.Map;
 
 public class NodeScores extends Int2DoubleOpenHashMap 
 {
-    private static final PartialSorter<Int2DoubleOpenHashMap.Entry> SORTER = new PartialSorter<>();
+    /**
+     * Arrays used by keepTop to select the top entries, grown when a larger
+     * map needs them. Owned by the caller, which keeps one for each thread
+     * and drops it with the rest of the state of the algorithm.
+     */
+    public static final class Scratch
+    {
+        private int[] keys = new int[0];
+        private double[] values = new double[0];
+
+        private void ensure(final int size)
+        {
+            if(keys.length < size)
+            {
+                keys = new int[size];
+                values = new double[size];
+            }
+        }
+    }
 
     public NodeScores()
     {
@@ -24,42 +43,59 @@ public class NodeScores extends Int2DoubleOpenHashMap
     }
 
     /**
-     * Keeps the topL entries of the map, based on a partial order on the Lth element.
+     * Estimates the memory of a map trimmed to a number of entries, as the
+     * result maps of the algorithms are.
+     * @param entries Entries of the map.
+     * @return Bytes of the table (a power of 2 at least entries / load factor,
+     * plus the null key slot) and about 64 bytes of headers and fields.
+     */
+    public static long bytesFor(final int entries)
+    {
+        long table = Math.max(2, Long.highestOneBit((long) Math.ceil(entries / (double) DEFAULT_LOAD_FACTOR) - 1) << 1);
+        return (table + 1) * (4 + 8) + 64;
+    }
+
+    /**
+     * Keeps the topL entries of the map, highest values first and lowest keys
+     * on ties. Allocates the arrays for the selection, loops should use
+     * keepTop(topL, scratch).
      * @param topL How many elements to keep from the top.
      */
     public void keepTop(final int topL)
     {
         if(size > topL)
-        {
-            Int2DoubleMap.Entry[] array = this.int2DoubleEntrySet().toArray(new Int2DoubleMap.Entry[0]);
+            keepTop(topL, new Scratch());
+    }
 
-            SORTER.partialSort(array, topL, (Int2DoubleMap.Entry e1, Int2DoubleMap.Entry e2) ->
-            {
-                return e1.getDoubleValue() < e2.getDoubleValue()? 1 : 
-                        e1.getDoubleValue() == e2.getDoubleValue()?
-                        (e1.getIntKey() < e2.getIntKey()? -1 : 1) : -1;  
-            });
-            
-            //if too many to remove just clear and add the first topL
-            //else just remove the non topL
-            if(array.length > topL * 2)
-            {
-                //res is needed as a temporary holder since doing this.clear() will remove keys from array
-                Int2DoubleOpenHashMap res = new Int2DoubleOpenHashMap(topL);
-                for(int i = 0; i < topL; i++)
-                    res.put(array[i].getIntKey(), array[i].getDoubleValue());
-                this.clear();
-                this.putAll(res);
-            }
-            else
+    /**
+     * Same of keepTop(topL), entries are selected in place on the arrays of
+     * the scratch, so nothing is allocated once they are large enough.
+     * @param topL How many elements to keep from the top.
+     * @param scratch Arrays for the selection, not shared among threads.
+     */
+    public void keepTop(final int topL, final Scratch scratch)
+    {
+        if(size > topL)
+        {
+            scratch.ensure(size);
+            int[] topKeys = scratch.keys;
+            double[] topValues = scratch.values;
+            int length = 0;
+            //the fast iterator reuses the same entry, so nothing is allocated
+            ObjectIterator<Int2DoubleMap.Entry> entries = int2DoubleEntrySet().fastIterator();
+            while(entries.hasNext())
             {
-                //needs a temporary holder since changes in the map are reflected in the Map.Entry[]
-                int[] toRemove = new int[array.length - topL];
-                for(int i = topL, index = 0; i < array.length; i++, index++)
-                    toRemove[index]= array[i].getIntKey();
-                for(int i = 0; i < toRemove.length; i++)
-                    this.remove(toRemove[i]);
+                Int2DoubleMap.Entry entry = entries.next();
+                topKeys[length] = entry.getIntKey();
+                topValues[length++] = entry.getDoubleValue();
             }
+
+            TopSelection.select(topKeys, topValues, length, topL);
+
+            //clear never shrinks the table, so putting back the top doesn't rehash
+            clear();
+            for(int i = 0; i < topL; i++)
+                put(topKeys[i], topValues[i]);
         }
     }
     
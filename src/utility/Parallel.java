@@ -0,0 +1,125 @@
+package utility;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Small helper to run loops over index ranges on a fixed number of threads.
+ * Ranges are given as bounds, range i is [bounds[i], bounds[i+1]).
+ * With a single thread everything runs in the calling thread, so sequential
+ * runs don't pay for the pool.
+ * Usage:
+ * try(Parallel parallel = new Parallel(threads))
+ * {
+ *     parallel.forRanges(Parallel.split(n, parallel.getThreads()), (from, to) -> ...);
+ * }
+ */
+public class Parallel implements AutoCloseable
+{
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    /**
+     * Body of a parallel loop, called once for each range.
+     */
+    public interface RangeTask
+    {
+        void run(int from, int to);
+    }
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * @param threads Number of threads to use, must be positive.
+     */
+    public Parallel(final int threads)
+    {
+        if(threads <= 0)
+            throw new IllegalArgumentException("Number of threads must be positive");
+        this.threads = threads;
+        this.pool = threads == 1? null : new ForkJoinPool(threads);
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Splits [0,n) in parts ranges of (almost) the same length.
+     * @param n Length of the interval to split.
+     * @param parts Number of ranges, must be positive.
+     * @return Bounds of the ranges, an array of length parts + 1.
+     */
+    public static int[] split(final int n, final int parts)
+    {
+        if(parts <= 0)
+            throw new IllegalArgumentException("Number of parts must be positive");
+        int[] bounds = new int[parts + 1];
+        for(int i = 0; i <= parts; i++)
+            bounds[i] = (int) ((long) n * i / parts);
+        return bounds;
+    }
+
+    /**
+     * Runs task on each range and waits for all of them to finish, if a task
+     * throws an exception it is rethrown here.
+     * @param bounds Bounds of the ranges, range i is [bounds[i], bounds[i+1]).
+     * @param task Body to run on each range.
+     */
+    public void forRanges(final int[] bounds, final RangeTask task)
+    {
+        if(pool == null || bounds.length <= 2)
+        {
+            for(int i = 0; i + 1 < bounds.length; i++)
+                task.run(bounds[i], bounds[i + 1]);
+            return;
+        }
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[bounds.length - 1];
+        for(int i = 0; i < tasks.length; i++)
+        {
+            final int from = bounds[i], to = bounds[i + 1];
+            tasks[i] = pool.submit(() -> task.run(from, to));
+        }
+        for(ForkJoinTask<?> t: tasks)
+            t.join();
+    }
+
+    /**
+     * Shorthand for forRanges(split(n, threads), task).
+     * @param n Length of the interval [0,n) to split among the threads.
+     * @param task Body to run on each range.
+     */
+    public void forRange(final int n, final RangeTask task)
+    {
+        forRanges(split(n, threads), task);
+    }
+
+    /**
+     * Submits a task to the pool (or runs it immediately if there's a single thread).
+     * @param task Task to run.
+     * @return The running task, join() waits for its end and returns its result.
+     */
+    public <T> ForkJoinTask<T> submit(final Callable<T> task)
+    {
+        if(pool == null)
+        {
+            ForkJoinTask<T> res = ForkJoinTask.adapt(task);
+            res.invoke();
+            return res;
+        }
+        return pool.submit(task);
+    }
+
+    @Override
+    public void close()
+    {
+        if(pool != null)
+            pool.shutdown();
+    }
+}
@@ -0,0 +1,158 @@
+package utility;
+
+import graph.IntGraph;
+import java.util.ArrayDeque;
+import java.util.function.Supplier;
+
+/**
+ * Runs an update on a range of vertices on several threads and returns the
+ * max of the values it returned, for Jacobi style iterations where the update
+ * of a vertex only reads the previous generation of scores.
+ * The range is split into chunks with about the same number of edges, a few
+ * chunks for each thread so that idle threads pick up the work left by slow
+ * ones, chunks run on a utility.Parallel.
+ * Each running chunk gets its own scratch object (accumulators, buffers...)
+ * from a pool kept by the sweep, so there are at most as many scratch objects
+ * as threads and they are dropped by close() (or with the sweep).
+ * With a parallelism of 1, or on small ranges, vertices are updated in order
+ * on the calling thread.
+ * @param <W> Class of the scratch objects.
+ */
+public class ParallelSweep<W> implements AutoCloseable
+{
+    //chunks for each thread
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    //ranges with fewer vertices are not worth splitting
+    private static final int MIN_PARALLEL_VERTICES = 512;
+
+    /**
+     * Update of a single vertex.
+     * @param <W> Class of the scratch objects.
+     */
+    public interface Update<W>
+    {
+        /**
+         * @param v Vertex to update.
+         * @param scratch Scratch object of the current thread.
+         * @return Value reduced with max over the range, for example the
+         * difference between the old and the new scores of v.
+         */
+        double apply(int v, W scratch);
+    }
+
+    private final Parallel parallel;
+    private final Supplier<W> scratch;
+    //scratch objects not used by a running chunk
+    private final ArrayDeque<W> free = new ArrayDeque<>();
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * @param parallelism Number of threads, must be positive.
+     * @param scratch Creates the scratch object of a thread.
+     */
+    public ParallelSweep(final int parallelism, final Supplier<W> scratch)
+    {
+        if(parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        this.parallel = new Parallel(parallelism);
+        this.scratch = scratch;
+    }
+
+    //GETTERS
+    ////////////////////
+
+    public int getParallelism()
+    {
+        return parallel.getThreads();
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Updates vertices[from], ..., vertices[to - 1].
+     * @param g Graph the vertices belong to, used to balance the chunks.
+     * @param vertices Vertices to update.
+     * @param from First position to update.
+     * @param to Position after the last one to update.
+     * @param update Update of each vertex.
+     * @return Max value returned by the updates, 0 if the range is empty.
+     */
+    public double run(final IntGraph g, final int[] vertices, final int from, final int to, final Update<W> update)
+    {
+        int parallelism = parallel.getThreads();
+        if(parallelism == 1 || to - from < MIN_PARALLEL_VERTICES)
+            return sweep(vertices, from, to, update);
+
+        //chunk boundaries, each chunk gets about the same number of edges (plus one per vertex)
+        int chunks = parallelism * CHUNKS_PER_THREAD;
+        long total = 0;
+        for(int k = from; k < to; k++)
+            total += g.outDegree(vertices[k]) + 1;
+        int[] bounds = new int[chunks + 1];
+        bounds[0] = from;
+        long work = 0;
+        for(int k = from, chunk = 1; k < to && chunk < chunks; k++)
+        {
+            work += g.outDegree(vertices[k]) + 1;
+            while(chunk < chunks && work * chunks >= total * chunk)
+                bounds[chunk++] = k + 1;
+        }
+        for(int chunk = 1; chunk <= chunks; chunk++)
+            bounds[chunk] = Math.max(bounds[chunk], bounds[chunk - 1]);
+        bounds[chunks] = to;
+        //few chunks, so a lock for the max costs nothing
+        final double[] max = new double[1];
+        parallel.forRanges(bounds, (start, end) ->
+        {
+            double res = sweep(vertices, start, end, update);
+            synchronized(max)
+            {
+                max[0] = Math.max(max[0], res);
+            }
+        });
+        return max[0];
+    }
+
+    /**
+     * Stops the threads and drops the scratch objects, the sweep can't run in
+     * parallel after this.
+     */
+    @Override
+    public void close()
+    {
+        parallel.close();
+        synchronized(free)
+        {
+            free.clear();
+        }
+    }
+
+    private double sweep(final int[] vertices, final int from, final int to, final Update<W> update)
+    {
+        W local;
+        synchronized(free)
+        {
+            local = free.poll();
+        }
+        if(local == null)
+            local = scratch.get();
+        try
+        {
+            double res = 0;
+            for(int k = from; k < to; k++)
+                res = Math.max(res, update.apply(vertices[k], local));
+            return res;
+        }
+        finally
+        {
+            synchronized(free)
+            {
+                free.push(local);
+            }
+        }
+    }
+}
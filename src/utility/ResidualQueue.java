@@ -0,0 +1,113 @@
+package utility;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Worklist of the vertices whose scores are still moving, for asynchronous
+ * iterations: when the scores of a vertex change, the change is pushed to the
+ * vertices reading them as a residual, and a vertex is queued once its residual
+ * reaches a threshold.
+ * Vertices are kept in buckets by the power of 2 of their residual when queued,
+ * the highest bucket is served first, so the order is only approximately by
+ * residual but pushing and polling stay cheap. Inside a bucket the last vertex
+ * queued comes out first.
+ * A vertex is in the queue at most once, residual pushed after it has been
+ * polled queues it again.
+ * Not thread safe, the worklist engine of GuerrieriRankV3Local runs on a
+ * single thread.
+ */
+public class ResidualQueue
+{
+    //one bit of a long for each bucket
+    private static final int BUCKETS = 64;
+
+    private final double threshold;
+    private final double[] residuals;
+    private final boolean[] queued;
+    private final IntArrayList[] buckets;
+    private long nonEmpty;//bit b set if bucket b has vertices
+    private int size;
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * @param vertices Number of vertices, they go from 0 to vertices - 1.
+     * @param threshold Residual a vertex needs to be queued.
+     */
+    public ResidualQueue(final int vertices, final double threshold)
+    {
+        this.threshold = threshold;
+        residuals = new double[vertices];
+        queued = new boolean[vertices];
+        buckets = new IntArrayList[BUCKETS];
+        for(int b = 0; b < BUCKETS; b++)
+            buckets[b] = new IntArrayList();
+    }
+
+    //GETTERS
+    ////////////////////
+
+    public double getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @param v A vertex.
+     * @return Residual pushed to the vertex since it was last polled.
+     */
+    public double getResidual(final int v)
+    {
+        return residuals[v];
+    }
+
+    /**
+     * @return True if no vertex is queued.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Adds to the residual of a vertex, queuing it if the total reaches the threshold.
+     * @param v A vertex.
+     * @param residual Change to add, not negative.
+     * @return True if the vertex has been queued by this call.
+     */
+    public boolean push(final int v, final double residual)
+    {
+        residuals[v] += residual;
+        if(queued[v] || residuals[v] < threshold)
+            return false;
+        queued[v] = true;
+        size++;
+        //residuals up to 2 (norm1 of the difference of two distributions) go in the first buckets
+        int b = Math.max(0, Math.min(BUCKETS - 1, 1 - Math.getExponent(residuals[v])));
+        buckets[b].add(v);
+        nonEmpty |= 1L << b;
+        return true;
+    }
+
+    /**
+     * Takes a vertex with one of the highest residuals and resets its residual.
+     * @return The vertex, -1 if no vertex is queued.
+     */
+    public int poll()
+    {
+        if(nonEmpty == 0)
+            return -1;
+        int b = Long.numberOfTrailingZeros(nonEmpty);
+        int v = buckets[b].popInt();
+        if(buckets[b].isEmpty())
+            nonEmpty &= ~(1L << b);
+        queued[v] = false;
+        residuals[v] = 0;
+        size--;
+        return v;
+    }
+}
@@ -0,0 +1,383 @@
+package utility;
+
+import java.util.Arrays;
+
+/**
+ * Double buffered store of the top scores of each node, as a structure of
+ * arrays: keys and values of every node live in two big int[] and double[]
+ * slabs instead of one hash map per node.
+ * Each node has a fixed capacity (its top L) and two generations of scores,
+ * the current one, read while computing the scores of the other nodes, and
+ * the next one, written with setNext. The two generations of a node are next
+ * to each other and swap(v) just flips which one is current, so swapping
+ * doesn't copy anything and can be done for single nodes too.
+ * Keys are dense vertex indexes, stored in the order of the accumulator
+ * they come from, so sorted by value if it was sorted. The sum of the values of
+ * each generation is kept too.
+ * Values can be stored as floats, halving their memory, while they're read
+ * and summed as doubles: scores are rounded to about 7 significant digits
+ * when stored, far below the differences that decide a top L.
+ */
+public class ScoreSlabs
+{
+    private final int[] offsets;//first slot of the first generation of each node, 2 * capacity slots each
+    private final int[] keys;
+    private final double[] values;//null if values are stored as floats
+    private final float[] floatValues;//null if values are stored as doubles
+    private final int[] lengths;//entries of each generation, 2 * v is the first one
+    private final double[] sums;//sum of the values of each generation, as lengths
+    private final boolean[] swapped;//true if the current generation of v is the second one
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * @param vertices Number of nodes.
+     * @param capacity Max scores of each node, must be positive.
+     */
+    public ScoreSlabs(final int vertices, final int capacity)
+    {
+        this(fill(vertices, capacity), false);
+    }
+
+    /**
+     * @param vertices Number of nodes.
+     * @param capacity Max scores of each node, must be positive.
+     * @param floats True to store values as floats.
+     */
+    public ScoreSlabs(final int vertices, final int capacity, final boolean floats)
+    {
+        this(fill(vertices, capacity), floats);
+    }
+
+    /**
+     * @param capacities Max scores of each node, for example its budget, must
+     * be positive.
+     */
+    public ScoreSlabs(final int[] capacities)
+    {
+        this(capacities, false);
+    }
+
+    /**
+     * @param capacities Max scores of each node, for example its budget, must
+     * be positive.
+     * @param floats True to store values as floats.
+     */
+    public ScoreSlabs(final int[] capacities, final boolean floats)
+    {
+        offsets = new int[capacities.length + 1];
+        long total = 0;
+        for(int v = 0; v < capacities.length; v++)
+        {
+            if(capacities[v] <= 0)
+                throw new IllegalArgumentException("Capacity of each node must be positive");
+            offsets[v] = (int) total;
+            total += 2L * capacities[v];
+            if(total > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("Too many scores to store in a slab");
+        }
+        offsets[capacities.length] = (int) total;
+        keys = new int[(int) total];
+        values = floats? null : new double[(int) total];
+        floatValues = floats? new float[(int) total] : null;
+        lengths = new int[2 * capacities.length];
+        sums = new double[2 * capacities.length];
+        swapped = new boolean[capacities.length];
+    }
+
+    private static int[] fill(final int vertices, final int capacity)
+    {
+        int[] res = new int[vertices];
+        Arrays.fill(res, capacity);
+        return res;
+    }
+
+    //GETTERS
+    ////////////////////
+
+    public int getVertices()
+    {
+        return swapped.length;
+    }
+
+    public int getCapacity(final int v)
+    {
+        return (offsets[v + 1] - offsets[v]) >> 1;
+    }
+
+    /**
+     * @return True if values are stored as floats.
+     */
+    public boolean isFloats()
+    {
+        return floatValues != null;
+    }
+
+    /**
+     * @return Bound on the norm1 error of storing scores summing at most
+     * to 1, 0 for doubles and the relative precision of floats for floats.
+     */
+    public double getRoundingError()
+    {
+        return floatValues == null? 0 : 0x1p-24;
+    }
+
+    /**
+     * @param floats True if values are stored as floats.
+     * @return Bytes of a score slot, key and value in both generations.
+     */
+    public static long bytesPerScore(final boolean floats)
+    {
+        return floats? 2 * (4 + 4) : 2 * (4 + 8);
+    }
+
+    /**
+     * @param slots Sum of the capacities of the nodes.
+     * @param vertices Number of nodes.
+     * @param floats True if values are stored as floats.
+     * @return Bytes of the arrays of a ScoreSlabs, offsets, lengths, sums and
+     * swap flags included.
+     */
+    public static long bytesFor(final long slots, final int vertices, final boolean floats)
+    {
+        return slots * bytesPerScore(floats) + 4L * (vertices + 1) + 8L * vertices + 16L * vertices + vertices;
+    }
+
+    /**
+     * @param v A node.
+     * @return Number of scores in the current generation of v.
+     */
+    public int size(final int v)
+    {
+        return lengths[2 * v + (swapped[v]? 1 : 0)];
+    }
+
+    /**
+     * @param v A node.
+     * @param i Index of the score, from 0 to size(v) - 1.
+     * @return Key of the i-th score of the current generation of v.
+     */
+    public int key(final int v, final int i)
+    {
+        return keys[start(v) + i];
+    }
+
+    /**
+     * @param v A node.
+     * @param i Index of the score, from 0 to size(v) - 1.
+     * @return Value of the i-th score of the current generation of v.
+     */
+    public double value(final int v, final int i)
+    {
+        return values == null? floatValues[start(v) + i] : values[start(v) + i];
+    }
+
+    /**
+     * @param v A node.
+     * @return Sum of the values of the current generation of v, as stored.
+     */
+    public double sum(final int v)
+    {
+        return sums[2 * v + (swapped[v]? 1 : 0)];
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Replaces the current scores of v.
+     * @param v A node.
+     * @param scores Scores to store, at most getCapacity(v).
+     */
+    public void set(final int v, final SparseAccumulator scores)
+    {
+        write(v, swapped[v], scores);
+    }
+
+    /**
+     * Replaces the next scores of v, the current ones don't change until swap(v).
+     * @param v A node.
+     * @param scores Scores to store, at most getCapacity(v).
+     */
+    public void setNext(final int v, final SparseAccumulator scores)
+    {
+        write(v, !swapped[v], scores);
+    }
+
+    /**
+     * Makes the next scores of v its current ones and vice versa.
+     * @param v A node.
+     */
+    public void swap(final int v)
+    {
+        swapped[v] = !swapped[v];
+    }
+
+    /**
+     * Swaps the scores of every node.
+     */
+    public void swapAll()
+    {
+        for(int v = 0; v < swapped.length; v++)
+            swapped[v] = !swapped[v];
+    }
+
+    /**
+     * Adds the current scores of v to an accumulator, multiplied by a factor.
+     * Equivalent to scores.addTo(key, value * factor) for each score of v.
+     * @param v A node.
+     * @param scores Accumulator receiving the scores.
+     * @param factor Value used to multiply the scores of v.
+     */
+    public void addTo(final int v, final SparseAccumulator scores, final double factor)
+    {
+        addTo(v, scores, factor, 0, size(v));
+    }
+
+    /**
+     * Adds some of the current scores of v to an accumulator, multiplied by a factor.
+     * @param v A node.
+     * @param scores Accumulator receiving the scores.
+     * @param factor Value used to multiply the scores of v.
+     * @param from Index of the first score to add.
+     * @param to Index after the last score to add, at most size(v).
+     */
+    public void addTo(final int v, final SparseAccumulator scores, final double factor, 
+            final int from, final int to)
+    {
+        int start = start(v) + from;
+        int end = start + to - from;
+        if(values == null)
+            for(int i = start; i < end; i++)
+                scores.addTo(keys[i], floatValues[i] * factor);
+        else
+            for(int i = start; i < end; i++)
+                scores.addTo(keys[i], values[i] * factor);
+    }
+
+    /**
+     * Adds some of the current scores of v to an accumulator, multiplied by a
+     * factor, only for the keys the accumulator already has.
+     * @param v A node.
+     * @param scores Accumulator receiving the scores.
+     * @param factor Value used to multiply the scores of v.
+     * @param from Index of the first score to add.
+     * @param to Index after the last score to add, at most size(v).
+     */
+    public void addToKeys(final int v, final SparseAccumulator scores, final double factor, 
+            final int from, final int to)
+    {
+        int start = start(v) + from;
+        int end = start + to - from;
+        for(int i = start; i < end; i++)
+            if(scores.containsKey(keys[i]))
+                scores.addTo(keys[i], (values == null? floatValues[i] : values[i]) * factor);
+    }
+
+    /**
+     * Same as NodeScores.norm1, between the current scores of v and an
+     * accumulator with non negative values.
+     * @param v A node.
+     * @param scores Scores to compare.
+     * @return Sum of the absolute differences of the scores.
+     */
+    public double norm1(final int v, final SparseAccumulator scores)
+    {
+        double res = 0;
+        //scores of the accumulator which are among the ones of v
+        double matched = 0;
+        int start = start(v);
+        int end = start + size(v);
+        for(int i = start; i < end; i++)
+        {
+            double stored = values == null? floatValues[i] : values[i];
+            if(scores.containsKey(keys[i]))
+            {
+                double value = scores.get(keys[i]);
+                res += Math.abs(stored - value);
+                matched += value;
+            }
+            else
+                res += stored;
+        }
+        return res + scores.sum() - matched;
+    }
+
+    /**
+     * @param top Max scores to keep for each node.
+     * @return The top current scores of each node as maps.
+     */
+    public NodeScores[] toNodeScores(final int top)
+    {
+        NodeScores[] res = new NodeScores[swapped.length];
+        NodeScores.Scratch scratch = new NodeScores.Scratch();
+        for(int v = 0; v < swapped.length; v++)
+        {
+            int start = start(v);
+            int size = size(v);
+            NodeScores map = new NodeScores(Math.min(size, top));
+            for(int i = start; i < start + size; i++)
+                map.put(keys[i], values == null? floatValues[i] : values[i]);
+            map.keepTop(top, scratch);
+            map.trim();
+            res[v] = map;
+        }
+        return res;
+    }
+
+    /**
+     * Copies the current scores of every node in new slabs with different
+     * capacities, keeping the top scores of the nodes which don't fit,
+     * sorted by value.
+     * Both slabs are in memory until this returns.
+     * @param capacities New capacity of each node, must be positive.
+     * @param scratch Accumulator with a key for each node.
+     * @return The new slabs, values stored as in these.
+     */
+    public ScoreSlabs resize(final int[] capacities, final SparseAccumulator scratch)
+    {
+        if(capacities.length != swapped.length)
+            throw new IllegalArgumentException("Capacities of a different number of nodes");
+        ScoreSlabs res = new ScoreSlabs(capacities, isFloats());
+        for(int v = 0; v < swapped.length; v++)
+        {
+            scratch.clear();
+            addTo(v, scratch, 1);
+            scratch.keepTop(capacities[v]);
+            scratch.sort();
+            res.set(v, scratch);
+        }
+        return res;
+    }
+
+    private int start(final int v)
+    {
+        return swapped[v]? offsets[v] + getCapacity(v) : offsets[v];
+    }
+
+    private void write(final int v, final boolean second, final SparseAccumulator scores)
+    {
+        if(scores.size() > getCapacity(v))
+            throw new IllegalArgumentException("More scores than the capacity of the node");
+        int start = second? offsets[v] + getCapacity(v) : offsets[v];
+        lengths[2 * v + (second? 1 : 0)] = scores.size();
+        double sum = 0;
+        for(int i = 0; i < scores.size(); i++)
+        {
+            int key = scores.key(i);
+            keys[start + i] = key;
+            if(values == null)
+            {
+                floatValues[start + i] = (float) scores.get(key);
+                sum += floatValues[start + i];
+            }
+            else
+            {
+                values[start + i] = scores.get(key);
+                sum += values[start + i];
+            }
+        }
+        sums[2 * v + (second? 1 : 0)] = sum;
+    }
+}
@@ -0,0 +1,220 @@
+package utility;
+
+import java.util.Arrays;
+
+/**
+ * Sums scores keyed by dense vertex indexes, used to merge the scores of the
+ * successors of a node.
+ * Values live in a dense double[] as large as the graph, so adding a score is
+ * a single array write instead of a hash map lookup. The keys touched since the
+ * last clear are listed apart, and a generation stamp for each key tells
+ * whether its value is still from a previous node, so clearing only costs a
+ * counter increment.
+ * Not thread safe, each thread needs its own accumulator.
+ */
+public class SparseAccumulator
+{
+    private final double[] values;
+    private final int[] stamps;//generation in which each key was last touched
+    private final int[] touched;//keys touched in the current generation, the first size ones
+    private int size;
+    private int stamp = 1;
+
+    //scratch values of the touched keys, for the methods ordering them
+    private double[] topValues = new double[0];
+
+    //CONSTRUCTOR
+    ////////////////////
+
+    /**
+     * @param keys Number of possible keys, keys go from 0 to keys - 1.
+     */
+    public SparseAccumulator(final int keys)
+    {
+        values = new double[keys];
+        stamps = new int[keys];
+        touched = new int[keys];
+    }
+
+    /**
+     * @param keys Number of possible keys.
+     * @return Bytes of the arrays of an accumulator, a value, a stamp and
+     * a touched slot for each key.
+     */
+    public static long bytesFor(final int keys)
+    {
+        return 16L * keys;
+    }
+
+    //GETTERS
+    ////////////////////
+
+    /**
+     * @return Number of keys with a value.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param i Index from 0 to size() - 1.
+     * @return The i-th key with a value, in no particular order.
+     */
+    public int key(final int i)
+    {
+        return touched[i];
+    }
+
+    public boolean containsKey(final int key)
+    {
+        return stamps[key] == stamp;
+    }
+
+    /**
+     * @param key A key.
+     * @return Value of the key, 0 if it has none.
+     */
+    public double get(final int key)
+    {
+        return stamps[key] == stamp? values[key] : 0;
+    }
+
+    //methods (no getters)
+    ////////////////////
+
+    /**
+     * Removes every key.
+     */
+    public void clear()
+    {
+        size = 0;
+        stamp++;
+        //after 2^32 generations old stamps could look current again
+        if(stamp == 0)
+        {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Adds a value to a key, which gets it as its value if it had none.
+     * @param key A key.
+     * @param value Value to add.
+     */
+    public void addTo(final int key, final double value)
+    {
+        if(stamps[key] == stamp)
+            values[key] += value;
+        else
+        {
+            stamps[key] = stamp;
+            values[key] = value;
+            touched[size++] = key;
+        }
+    }
+
+    /**
+     * @return Sum of all values.
+     */
+    public double sum()
+    {
+        double res = 0;
+        for(int i = 0; i < size; i++)
+            res += values[touched[i]];
+        return res;
+    }
+
+    /**
+     * Difference between the k-th highest value and the next one, 0 for the
+     * missing ones: if every value is off by less than half of it, the keys
+     * of the top k values don't change. Touched keys get reordered.
+     * @param k Size of the top, must be positive.
+     * @return The k-th highest value (the lowest one if there are less) minus
+     * the (k + 1)-th highest value, 0 if there are no values.
+     */
+    public double gap(final int k)
+    {
+        if(k <= 0)
+            throw new IllegalArgumentException("Size of the top must be positive");
+        if(size == 0)
+            return 0;
+        int top = selectTop(k);
+        double kth = Double.MAX_VALUE;
+        for(int i = 0; i < top; i++)
+            kth = Math.min(kth, topValues[i]);
+        double next = 0;
+        for(int i = top; i < size; i++)
+            next = Math.max(next, topValues[i]);
+        return kth - next;
+    }
+
+    /**
+     * Touched keys get reordered.
+     * @param k Rank of the value, must be positive.
+     * @return The k-th highest value, 0 if there are less than k values.
+     */
+    public double kth(final int k)
+    {
+        if(k <= 0)
+            throw new IllegalArgumentException("Rank must be positive");
+        if(size < k)
+            return 0;
+        selectTop(k);
+        double res = Double.MAX_VALUE;
+        for(int i = 0; i < k; i++)
+            res = Math.min(res, topValues[i]);
+        return res;
+    }
+
+    /**
+     * Orders the keys by value, highest first and lowest keys on ties, so that
+     * key(i) follows this order until a key is added.
+     */
+    public void sort()
+    {
+        copyValues();
+        TopSelection.sort(touched, topValues, size);
+    }
+
+    /**
+     * Keeps the top entries only, like NodeScores.keepTop: highest values
+     * first and lowest keys on ties.
+     * @param top How many entries to keep.
+     * @return Sum of the values removed.
+     */
+    public double keepTop(final int top)
+    {
+        double removed = 0;
+        if(size > top)
+        {
+            selectTop(top);
+            //keys after the top go back to an old generation
+            for(int i = top; i < size; i++)
+            {
+                stamps[touched[i]] = stamp - 1;
+                removed += topValues[i];
+            }
+            size = top;
+        }
+        return removed;
+    }
+
+    //moves the top k keys first, with their values in topValues, returns how many there are
+    private int selectTop(final int k)
+    {
+        copyValues();
+        if(size > k)
+            TopSelection.select(touched, topValues, size, k);
+        return Math.min(k, size);
+    }
+
+    private void copyValues()
+    {
+        if(topValues.length < size)
+            topValues = new double[touched.length];
+        for(int i = 0; i < size; i++)
+            topValues[i] = values[touched[i]];
+    }
+}
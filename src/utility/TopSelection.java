@@ -0,0 +1,130 @@
+package utility;
+
+/**
+ * Selection of the top scores kept as parallel arrays of keys and values,
+ * without allocating anything.
+ * Scores are ordered by value, highest first, and ties go to the lowest key,
+ * the same order NodeScores.keepTop and AlgorithmComparator use.
+ * Quickselect with a median of 3 pivot, switching to heapsort if it recurses
+ * too deep (introselect) and to insertion sort on small ranges.
+ */
+public final class TopSelection
+{
+    //ranges at most this long are insertion sorted
+    private static final int SMALL = 16;
+
+    private TopSelection(){}
+
+    /**
+     * Moves the top scores to the start of the arrays, their order is not specified.
+     * Keys must be distinct.
+     * @param keys Keys of the scores.
+     * @param values Values of the scores, values[i] is the score of keys[i].
+     * @param length Number of scores in the arrays.
+     * @param top How many scores to move to the start.
+     */
+    public static void select(final int[] keys, final double[] values, final int length, final int top)
+    {
+        if(top <= 0 || top >= length)
+            return;
+        int from = 0, to = length - 1;
+        int depth = 2 * (32 - Integer.numberOfLeadingZeros(length));
+        while(to - from >= SMALL)
+        {
+            if(depth-- == 0)
+            {
+                heapSort(keys, values, from, to + 1);
+                return;
+            }
+            //median of first, middle and last goes to the end and becomes the pivot
+            int middle = (from + to) >>> 1;
+            if(before(keys, values, middle, from))
+                swap(keys, values, middle, from);
+            if(before(keys, values, to, from))
+                swap(keys, values, to, from);
+            if(before(keys, values, middle, to))
+                swap(keys, values, middle, to);
+            int pivotKey = keys[to];
+            double pivotValue = values[to];
+
+            int store = from;
+            for(int i = from; i < to; i++)
+                if(values[i] > pivotValue || (values[i] == pivotValue && keys[i] < pivotKey))
+                    swap(keys, values, i, store++);
+            swap(keys, values, store, to);
+
+            //everything before store comes before the pivot
+            if(store == top || store == top - 1)
+                return;
+            if(store > top)
+                to = store - 1;
+            else
+                from = store + 1;
+        }
+        insertionSort(keys, values, from, to + 1);
+    }
+
+    /**
+     * Sorts the scores, highest first. Keys must be distinct.
+     * @param keys Keys of the scores.
+     * @param values Values of the scores, values[i] is the score of keys[i].
+     * @param length Number of scores in the arrays.
+     */
+    public static void sort(final int[] keys, final double[] values, final int length)
+    {
+        if(length <= SMALL)
+            insertionSort(keys, values, 0, length);
+        else
+            heapSort(keys, values, 0, length);
+    }
+
+    //true if the score at i comes before the one at j
+    private static boolean before(final int[] keys, final double[] values, final int i, final int j)
+    {
+        return values[i] > values[j] || (values[i] == values[j] && keys[i] < keys[j]);
+    }
+
+    private static void swap(final int[] keys, final double[] values, final int i, final int j)
+    {
+        int key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    private static void insertionSort(final int[] keys, final double[] values, final int from, final int to)
+    {
+        for(int i = from + 1; i < to; i++)
+            for(int j = i; j > from && before(keys, values, j, j - 1); j--)
+                swap(keys, values, j, j - 1);
+    }
+
+    //sorts [from, to), the heap keeps the last score on top
+    private static void heapSort(final int[] keys, final double[] values, final int from, final int to)
+    {
+        int length = to - from;
+        for(int i = length / 2 - 1; i >= 0; i--)
+            siftDown(keys, values, from, i, length);
+        for(int end = length - 1; end > 0; end--)
+        {
+            swap(keys, values, from, from + end);
+            siftDown(keys, values, from, 0, end);
+        }
+    }
+
+    private static void siftDown(final int[] keys, final double[] values, final int from, int i, final int length)
+    {
+        while(2 * i + 1 < length)
+        {
+            int child = 2 * i + 1;
+            if(child + 1 < length && before(keys, values, from + child, from + child + 1))
+                child++;
+            if(!before(keys, values, from + i, from + child))
+                return;
+            swap(keys, values, from + i, from + child);
+            i = child;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package algorithmsTesting;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import algorithms.GlobalPageRank;
+import algorithms.PageRank;
+import graph.CsrGraph;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.DirectedPseudograph;
+
+public class GlobalPageRankTest extends TestCase
+{
+    Random random = new Random();
+
+    public void testInvalidParameters()
+    {
+        CsrGraph g = CsrGraph.fromEdges(new int[]{0}, new int[]{1}, 1);
+        try
+        {
+            GlobalPageRank.getScores(g, 0.85, 0, 0.0001);
+            fail("iterations must be positive");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        try
+        {
+            GlobalPageRank.getScores(g, 1.5, 100, 0.0001);
+            fail("damping factor must be in [0,1]");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        try
+        {
+            GlobalPageRank.getScores(g, 0.85, 100, 0);
+            fail("tolerance must be positive");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+
+    public void testSameScoresOfPageRank()
+    {
+        //random graphs, scores must match the ones of the jgrapht based pagerank
+        for(int test = 0; test < 10; test++)
+        {
+            DirectedPseudograph<Integer, DefaultEdge> g = new DirectedPseudograph<>(DefaultEdge.class);
+            for(int i = 0; i < 300; i++)
+                g.addVertex(i * 3);
+            for(int i = 0; i < 1500; i++)
+                g.addEdge(random.nextInt(300) * 3, random.nextInt(300) * 3);
+
+            Map<Integer, Double> expected = new PageRank<>(g, 0.85, 100, 0.0001).getScores();
+            CsrGraph csr = CsrGraph.fromGraph(g);
+            double[] scores = GlobalPageRank.getScores(csr, 0.85, 100, 0.0001);
+            assertEquals(scores.length, expected.size());
+            for(int v = 0; v < csr.vertices(); v++)
+                assertEquals(scores[v], expected.get(csr.id(v)), 0.00000001);
+        }
+    }
+
+    public void testWeightsAsParallelEdges()
+    {
+        //an edge with weight k must count as k parallel edges
+        int edges = 1500;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        IntArrayList parallelSources = new IntArrayList();
+        IntArrayList parallelTargets = new IntArrayList();
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(300);
+            targets[i] = random.nextInt(300);
+            weights[i] = 1 + random.nextInt(3);
+            for(int k = 0; k < weights[i]; k++)
+            {
+                parallelSources.add(sources[i]);
+                parallelTargets.add(targets[i]);
+            }
+        }
+        CsrGraph weighted = CsrGraph.fromWeightedEdges(sources, targets, weights, edges);
+        CsrGraph parallel = CsrGraph.fromEdges(parallelSources.elements(), parallelTargets.elements(), 
+                parallelSources.size());
+        double[] expected = GlobalPageRank.getScores(parallel, 0.85, 100, 0.0001);
+        double[] actual = GlobalPageRank.getScores(weighted, 0.85, 100, 0.0001);
+        for(int v = 0; v < weighted.vertices(); v++)
+            assertEquals(expected[v], actual[v], 0.00000001);
+    }
+}
@@ -1,5 +1,12 @@
 package algorithmsTesting;
 
+import java.util.Random;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import graph.CsrGraph;
+import graph.StronglyConnectedComponents;
+import java.util.Set;
+import benchmarking.ComparisonData;
+import benchmarking.AlgorithmComparator;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.jgrapht.graph.*;
@@ -352,4 +359,270 @@ public class GuerrieriRankTest extends TestCase
                 assertEquals(res.getMap(i).get(1000), 0d, 0d);
             }
     }
+
+    public void testGraphSnapshot()
+    {
+        //the algorithm runs on a snapshot of the graph, changing the jgrapht
+        //graph afterwards doesn't change the scores nor the IntGraph
+        final int K = 5;
+        DirectedGraph<Integer, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+        for(int i = 0; i < 20; i++)
+            g.addVertex(i);
+        for(int i = 0; i < 19; i++)
+            g.addEdge(i, i + 1);
+        g.addEdge(19, 0);
+        PersonalizedPageRankAlgorithm res = new GuerrieriRank(g, K, 10, 100, 0.8, 0.0001);
+        Int2ObjectOpenHashMap<NodeScores> before = new Int2ObjectOpenHashMap<>();
+        for(int i = 0; i < 20; i++)
+            before.put(i, new NodeScores(res.getMap(i)));
+        g.addVertex(50);
+        g.addEdge(0, 50);
+        g.addEdge(50, 1);
+        assertSame(g, res.getGraph());
+        assertEquals(20, res.getIntGraph().vertices());
+        assertEquals(20, res.getIntGraph().edges());
+        for(int i = 0; i < 20; i++)
+        {
+            assertEquals(before.get(i), res.getMap(i));
+            assertEquals(0d, res.getRank(i, 50), 0d);
+        }
+
+        //algorithms built from an IntGraph expose a jgrapht copy of it
+        res = new GuerrieriRank(CsrGraph.fromGraph(g), K, 10, 100, 0.8, 0.0001);
+        assertEquals(g.vertexSet(), res.getGraph().vertexSet());
+        assertEquals(g.edgeSet().size(), res.getGraph().edgeSet().size());
+        assertSame(res.getGraph(), res.getGraph());
+        for(DefaultEdge e: g.edgeSet())
+            assertTrue(res.getGraph().containsEdge(g.getEdgeSource(e), g.getEdgeTarget(e)));
+    }
+
+    public void testWeightsAsParallelEdges()
+    {
+        //an edge with weight k must count as k parallel edges
+        Random random = new Random();
+        int edges = 1500;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        IntArrayList parallelSources = new IntArrayList();
+        IntArrayList parallelTargets = new IntArrayList();
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(100);
+            targets[i] = random.nextInt(100);
+            weights[i] = 1 + random.nextInt(3);
+            for(int k = 0; k < weights[i]; k++)
+            {
+                parallelSources.add(sources[i]);
+                parallelTargets.add(targets[i]);
+            }
+        }
+        CsrGraph weighted = CsrGraph.fromWeightedEdges(sources, targets, weights, edges);
+        CsrGraph parallel = CsrGraph.fromEdges(parallelSources.elements(), parallelTargets.elements(), 
+                parallelSources.size());
+        //top as big as the graph, so ties can't select different nodes
+        int top = weighted.vertices();
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRank(parallel, top, top, 50, 0.85, 0.0001);
+        PersonalizedPageRankAlgorithm actual = new GuerrieriRank(weighted, top, top, 50, 0.85, 0.0001);
+        TestGraphs.assertSameScores(weighted, expected, actual, 0.0000001);
+    }
+    
+    public void testAcyclicInOneIteration()
+    {
+        //on a DAG every component is trivial, so one iteration is already exact
+        Random random = new Random();
+        int edges = 3000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            int a = random.nextInt(500), b = random.nextInt(500);
+            sources[i] = Math.min(a, b);
+            targets[i] = Math.max(a, b) + 1;
+        }
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, edges);
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRank(g, 10, 30, 100, 0.85, 0.0001);
+        PersonalizedPageRankAlgorithm actual = new GuerrieriRank(g, 10, 30, 1, 0.85, 0.0001);
+        TestGraphs.assertSameScores(g, expected, actual, 0);
+    }
+    
+    public void testParallel()
+    {
+        //a large strongly connected component, plus many vertices which only point to it
+        CsrGraph g = TestGraphs.componentWithTails(new Random());
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRank(g, 10, 30, 100, 0.85, 0.0001);
+        GuerrieriRank actual = new GuerrieriRank.Builder().parallelism(4).run(g);
+        assertEquals(4, actual.getParameters().getParallelism());
+        //every vertex reads the same scores whatever the thread updating it
+        TestGraphs.assertSameScores(g, expected, actual, 0);
+        try
+        {
+            new GuerrieriRank.Builder().parallelism(0).run(g);
+            fail("parallelism must be positive");
+        }
+        catch(IllegalArgumentException e){}
+    }
+
+    public void testFloatScores()
+    {
+        Random random = new Random(37);
+        CsrGraph g = TestGraphs.randomGraph(random, 3000, 16000, 1, 1);
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRank(g, 10, 30, 100, 0.85, 0.0001);
+        GuerrieriRank actual = new GuerrieriRank.Builder().components(new StronglyConnectedComponents(g))
+                .floatScores(true).run(g);
+        assertTrue(actual.getParameters().isFloatScores());
+        //every stored score is rounded to a float, 2^-24 relative (about 1e-8 here), and the
+        //rest comes from near ties among the top L flipping: a handful of scores move, at most
+        //by the score of the entry flipped at a successor, and they stay as close to the exact ones
+        double sum = 0;
+        int compared = 0;
+        int moved = 0;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int id = g.id(v);
+            for(int target: expected.getMap(id).keySet())
+                if(actual.getMap(id).containsKey(target))
+                {
+                    double difference = Math.abs(expected.getRank(id, target) - actual.getRank(id, target));
+                    sum += difference;
+                    compared++;
+                    if(difference > 1e-5)
+                        moved++;
+                }
+        }
+        assertTrue(sum / compared < 1e-6);
+        assertTrue(moved < 0.005 * compared);
+        double expectedError = 0;
+        double actualError = 0;
+        for(int k = 0; k < 50; k++)
+        {
+            int id = g.id(random.nextInt(g.vertices()));
+            NodeScores exact = PersonalizedPageRank.getScores(g, 0.85, 1000, 1e-12, id);
+            for(int target: expected.getMap(id).keySet())
+                expectedError += Math.abs(exact.get(target) - expected.getRank(id, target));
+            for(int target: actual.getMap(id).keySet())
+                actualError += Math.abs(exact.get(target) - actual.getRank(id, target));
+        }
+        assertTrue(actualError <= expectedError * 1.01 + 0.001);
+        Set<Integer> nodes = TestGraphs.ids(g);
+        for(ComparisonData comparison: AlgorithmComparator.compare(expected, actual, nodes, new int[]{3, 10}))
+        {
+            assertTrue(comparison.getJaccard().getAverage() > 0.99);
+            assertTrue(comparison.getKendall().getAverage() > 0.99);
+        }
+    }
+
+    public void testHubSampling()
+    {
+        //hub 0 points to 200 sinks and, with a heavy edge, to sink 1000
+        int edges = 201;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        for(int i = 0; i < 200; i++)
+        {
+            targets[i] = i + 1;
+            weights[i] = 1;
+        }
+        targets[200] = 1000;
+        weights[200] = 1000;
+        CsrGraph g = CsrGraph.fromWeightedEdges(sources, targets, weights, edges);
+        GuerrieriRank res = new GuerrieriRank.Builder().smallTop(30)
+                .components(new StronglyConnectedComponents(g)).hubDegree(20).run(g);
+        assertEquals(20, res.getParameters().getHubDegree());
+        NodeScores scores = res.getMap(0);
+        //each of the 20 draws passes the same share of the score of a sink
+        assertTrue(scores.size() <= 21);
+        assertEquals(0.15, scores.get(0), 1e-9);
+        double sum = 0;
+        for(int target: scores.keySet())
+            sum += scores.get(target);
+        assertEquals(0.15 + 0.85 * 0.15, sum, 1e-9);
+        for(int target: scores.keySet())
+            if(target != 0)
+            {
+                double draws = scores.get(target) / (0.85 * 0.15 / 20);
+                assertEquals(Math.rint(draws), draws, 1e-6);
+            }
+        //heavier than a slice of the weight, sampled every time: 1000 / (1200 / 20) draws at least
+        assertTrue(scores.get(1000) >= 16 * 0.85 * 0.15 / 20 - 1e-9);
+        //sinks aren't hubs
+        assertEquals(0.15, res.getRank(1000, 1000), 1e-9);
+
+        try
+        {
+            new GuerrieriRank.Builder().components(new StronglyConnectedComponents(g)).hubDegree(-1).run(g);
+            fail("hub degree can't be negative");
+        }
+        catch(IllegalArgumentException e){}
+    }
+
+    public void testHubSamplingAccuracy()
+    {
+        CsrGraph g = TestGraphs.randomGraph(new Random(29), 3000, 40000, 4, 1.5);
+        StronglyConnectedComponents components = new StronglyConnectedComponents(g);
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRank(g, 10, 30, 100, 0.85, 0.0001);
+        
+        //no node above the cap, nothing changes
+        GuerrieriRank actual = new GuerrieriRank.Builder().components(components).hubDegree(g.maxOutDegree())
+                .run(g);
+        TestGraphs.assertSameScores(g, expected, actual, 0);
+        
+        //hubs only move the results a bit
+        actual = new GuerrieriRank.Builder().components(components).hubDegree(50).run(g);
+        Set<Integer> nodes = TestGraphs.ids(g);
+        for(ComparisonData comparison: AlgorithmComparator.compare(expected, actual, nodes, new int[]{3, 10}))
+        {
+            assertTrue(comparison.getJaccard().getAverage() > 0.9);
+            assertTrue(comparison.getKendall().getAverage() > 0.8);
+        }
+    }
+
+    public void testErrorBounds()
+    {
+        Random random = new Random(23);
+        CsrGraph g = TestGraphs.randomGraph(random, 1000, 8000, 2, 3);
+        GuerrieriRank plain = new GuerrieriRank(g, 10, 30, 100, 0.85, 0.0001);
+        GuerrieriRank certified = new GuerrieriRank.Builder().certify(true).run(g);
+        assertTrue(certified.getParameters().isCertify());
+        assertFalse(plain.getParameters().isCertify());
+        try
+        {
+            plain.getErrorBound(-1);
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        for(int k = 0; k < 100; k++)
+        {
+            int id = g.id(random.nextInt(g.vertices()));
+            NodeScores exact = PersonalizedPageRank.getScores(g, 0.85, 1000, 1e-12, id);
+            for(GuerrieriRank res: new GuerrieriRank[]{plain, certified})
+            {
+                double bound = res.getErrorBound(id);
+                assertTrue(bound >= 0);
+                for(int target: res.getMap(id).keySet())
+                    assertTrue(Math.abs(exact.get(target) - res.getRank(id, target)) <= bound + 1e-9);
+            }
+            assertFalse(plain.isCertified(id));
+            if(certified.isCertified(id))
+            {
+                exact.keepTop(10);
+                assertEquals(exact.keySet(), certified.getMap(id).keySet());
+            }
+        }
+        
+        //sampled scores have no bound, nor can they be certified
+        GuerrieriRank sampled = new GuerrieriRank.Builder().hubDegree(5).run(g);
+        assertEquals(Double.POSITIVE_INFINITY, sampled.getErrorBound(g.id(0)), 0);
+        try
+        {
+            new GuerrieriRank.Builder().hubDegree(5).certify(true).run(g);
+            fail("sampling can't be certified");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
 }
@@ -1,6 +1,11 @@
 package algorithmsTesting;
 
+import graph.CsrGraph;
+import java.util.Set;
+import benchmarking.ComparisonData;
+import benchmarking.AlgorithmComparator;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import java.util.Random;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.jgrapht.graph.*;
 import algorithms.*;
@@ -355,4 +360,244 @@ public class GuerrieriRankV2Test extends TestCase
                 assertEquals(res.getMap(i).get(1000), 0d, 0d);
             }
     }
+    
+    public void testParallel()
+    {
+        //a large strongly connected component, plus many vertices which only point to it
+        CsrGraph g = TestGraphs.componentWithTails(new Random());
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRankV2(g, 10, 30, 100, 0.85, 0.0001);
+        GuerrieriRankV2 actual = new GuerrieriRankV2.Builder().parallelism(4).run(g);
+        assertEquals(4, actual.getParameters().getParallelism());
+        //every vertex reads the same scores whatever the thread updating it
+        TestGraphs.assertSameScores(g, expected, actual, 0);
+        try
+        {
+            new GuerrieriRankV2.Builder().parallelism(0).run(g);
+            fail("parallelism must be positive");
+        }
+        catch(IllegalArgumentException e){}
+    }
+
+    public void testBuilder()
+    {
+        CsrGraph g = CsrGraph.fromEdges(new int[]{1, 2, 3, 3}, new int[]{2, 3, 1, 4}, 4);
+        GuerrieriRankV2.GuerrieriParameters defaults = new GuerrieriRankV2.Builder().run(g).getParameters();
+        assertEquals(GuerrieriRankV2.DEFAULT_SMALL_TOP, defaults.getSmallTop());
+        assertEquals(GuerrieriRankV2.DEFAULT_LARGE_TOP, defaults.getLargeTop());
+        assertEquals(GuerrieriRankV2.DEFAULT_ITERATIONS, defaults.getIterations());
+        assertEquals(GuerrieriRankV2.DEFAULT_DAMPING_FACTOR, defaults.getDamping(), 0);
+        assertEquals(GuerrieriRankV2.DEFAULT_TOLERANCE, defaults.getTolerance(), 0);
+        assertEquals(GuerrieriRankV2.DEFAULT_PARALLELISM, defaults.getParallelism());
+        assertFalse(defaults.isFloatScores() || defaults.isAdaptive() || defaults.isCertify() || defaults.isMerge());
+
+        GuerrieriRankV2.GuerrieriParameters set = new GuerrieriRankV2.Builder().smallTop(2).largeTop(3)
+                .iterations(7).damping(0.5).tolerance(-1).parallelism(2).floatScores(true).adaptive(true)
+                .certify(true).merge(true).run(g).getParameters();
+        assertEquals(2, set.getSmallTop());
+        assertEquals(3, set.getLargeTop());
+        assertEquals(7, set.getIterations());
+        assertEquals(0.5, set.getDamping(), 0);
+        assertEquals(-1, set.getTolerance(), 0);
+        assertEquals(2, set.getParallelism());
+        assertTrue(set.isFloatScores() && set.isAdaptive() && set.isCertify() && set.isMerge());
+    }
+
+    public void testFloatScores()
+    {
+        Random random = new Random(37);
+        CsrGraph g = TestGraphs.randomGraph(random, 3000, 16000, 1, 1);
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRankV2(g, 10, 30, 100, 0.85, 0.0001);
+        GuerrieriRankV2 actual = new GuerrieriRankV2.Builder().floatScores(true).run(g);
+        assertTrue(actual.getParameters().isFloatScores());
+        //every stored score is rounded to a float, 2^-24 relative (about 1e-8 here), and the
+        //rest comes from near ties among the top L flipping: a handful of scores move, at most
+        //by the score of the entry flipped at a successor, and they stay as close to the exact ones
+        double sum = 0;
+        int compared = 0;
+        int moved = 0;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int id = g.id(v);
+            for(int target: expected.getMap(id).keySet())
+                if(actual.getMap(id).containsKey(target))
+                {
+                    double difference = Math.abs(expected.getRank(id, target) - actual.getRank(id, target));
+                    sum += difference;
+                    compared++;
+                    if(difference > 1e-5)
+                        moved++;
+                }
+        }
+        assertTrue(sum / compared < 1e-6);
+        assertTrue(moved < 0.005 * compared);
+        double expectedError = 0;
+        double actualError = 0;
+        for(int k = 0; k < 50; k++)
+        {
+            int id = g.id(random.nextInt(g.vertices()));
+            NodeScores exact = PersonalizedPageRank.getScores(g, 0.85, 1000, 1e-12, id);
+            for(int target: expected.getMap(id).keySet())
+                expectedError += Math.abs(exact.get(target) - expected.getRank(id, target));
+            for(int target: actual.getMap(id).keySet())
+                actualError += Math.abs(exact.get(target) - actual.getRank(id, target));
+        }
+        assertTrue(actualError <= expectedError * 1.01 + 0.001);
+        Set<Integer> nodes = TestGraphs.ids(g);
+        for(ComparisonData comparison: AlgorithmComparator.compare(expected, actual, nodes, new int[]{3, 10}))
+        {
+            assertTrue(comparison.getJaccard().getAverage() > 0.99);
+            assertTrue(comparison.getKendall().getAverage() > 0.99);
+        }
+    }
+
+    public void testAdaptive()
+    {
+        CsrGraph g = TestGraphs.randomGraph(new Random(31), 3000, 16000, 2, 1);
+        GuerrieriRankV2 fixed = new GuerrieriRankV2(g, 10, 20, 100, 0.85, 0.0001);
+        GuerrieriRankV2 adaptive = new GuerrieriRankV2.Builder().largeTop(20).adaptive(true).run(g);
+        assertFalse(fixed.getParameters().isAdaptive());
+        assertTrue(adaptive.getParameters().isAdaptive());
+        //budgets moved, without raising the total
+        long fixedTotal = 0, adaptiveTotal = 0;
+        boolean moved = false;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            fixedTotal += fixed.getBudgets()[v];
+            adaptiveTotal += adaptive.getBudgets()[v];
+            moved |= fixed.getBudgets()[v] != adaptive.getBudgets()[v];
+        }
+        assertTrue(moved);
+        assertTrue(adaptiveTotal <= fixedTotal);
+        Set<Integer> nodes = TestGraphs.ids(g);
+        assertTrue(AlgorithmComparator.compare(fixed, adaptive, nodes, new int[]{10})[0].getJaccard().getAverage() > 0.9);
+        
+        //the truncated scores don't depend on the threads either
+        GuerrieriRankV2 parallel = new GuerrieriRankV2.Builder().largeTop(20).parallelism(4).adaptive(true)
+                .run(g);
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int id = g.id(v);
+            assertEquals(adaptive.getBudgets()[v], parallel.getBudgets()[v]);
+            for(int target: adaptive.getMap(id).keySet())
+                assertEquals(adaptive.getRank(id, target), parallel.getRank(id, target), 0);
+        }
+    }
+
+    public void testErrorBounds()
+    {
+        Random random = new Random(23);
+        CsrGraph g = TestGraphs.randomGraph(random, 1000, 8000, 2, 3);
+        GuerrieriRankV2 plain = new GuerrieriRankV2(g, 10, 30, 100, 0.85, 0.0001);
+        GuerrieriRankV2 certified = new GuerrieriRankV2.Builder().certify(true).run(g);
+        assertTrue(certified.getParameters().isCertify());
+        assertFalse(plain.getParameters().isCertify());
+        try
+        {
+            plain.getErrorBound(-1);
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        for(int k = 0; k < 100; k++)
+        {
+            int id = g.id(random.nextInt(g.vertices()));
+            NodeScores exact = PersonalizedPageRank.getScores(g, 0.85, 1000, 1e-12, id);
+            for(GuerrieriRankV2 res: new GuerrieriRankV2[]{plain, certified})
+            {
+                double bound = res.getErrorBound(id);
+                assertTrue(bound >= 0);
+                for(int target: res.getMap(id).keySet())
+                    assertTrue(Math.abs(exact.get(target) - res.getRank(id, target)) <= bound + 1e-9);
+            }
+            assertFalse(plain.isCertified(id));
+            if(certified.isCertified(id))
+            {
+                exact.keepTop(10);
+                assertEquals(exact.keySet(), certified.getMap(id).keySet());
+            }
+        }
+    }
+
+    public void testAdaptiveErrorBounds()
+    {
+        Random random = new Random(23);
+        CsrGraph g = TestGraphs.randomGraph(random, 1000, 8000, 2, 3);
+        GuerrieriRankV2 fixed = new GuerrieriRankV2(g, 10, 20, 100, 0.85, 0.0001);
+        GuerrieriRankV2 res = new GuerrieriRankV2.Builder().largeTop(20).adaptive(true).certify(true).run(g);
+        boolean moved = false;
+        int certified = 0;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            moved |= fixed.getBudgets()[v] != res.getBudgets()[v];
+            if(res.isCertified(g.id(v)))
+                certified++;
+        }
+        //both modes are at work
+        assertTrue(moved);
+        assertTrue(certified > 0);
+        
+        //bounds still hold after the scores move to the new budgets, certified tops are exact
+        for(int k = 0; k < 100; k++)
+        {
+            int id = g.id(random.nextInt(g.vertices()));
+            NodeScores exact = PersonalizedPageRank.getScores(g, 0.85, 1000, 1e-12, id);
+            double bound = res.getErrorBound(id);
+            for(int target: res.getMap(id).keySet())
+                assertTrue(Math.abs(exact.get(target) - res.getRank(id, target)) <= bound + 1e-9);
+            if(res.isCertified(id))
+            {
+                exact.keepTop(10);
+                assertEquals(exact.keySet(), res.getMap(id).keySet());
+            }
+        }
+    }
+
+    public void testMerge()
+    {
+        Random random = new Random(41);
+        CsrGraph g = TestGraphs.randomGraph(random, 1000, 8000, 3, 2);
+
+        //with room for every score nothing can be skipped
+        GuerrieriRankV2 full = new GuerrieriRankV2(g, g.vertices(), g.vertices(), 10, 0.85, -1);
+        GuerrieriRankV2 merged = new GuerrieriRankV2.Builder().smallTop(g.vertices()).largeTop(g.vertices())
+                .iterations(10).tolerance(-1).merge(true).run(g);
+        assertTrue(merged.getParameters().isMerge());
+        assertFalse(full.getParameters().isMerge());
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int id = g.id(v);
+            assertEquals(full.getMap(id).keySet(), merged.getMap(id).keySet());
+            for(int target: full.getMap(id).keySet())
+                assertEquals(full.getRank(id, target), merged.getRank(id, target), 1e-9);
+        }
+
+        //scores left out are accounted for in the error bounds
+        merged = new GuerrieriRankV2.Builder().parallelism(2).adaptive(true).merge(true).run(g);
+        for(int k = 0; k < 50; k++)
+        {
+            int id = g.id(random.nextInt(g.vertices()));
+            NodeScores exact = PersonalizedPageRank.getScores(g, 0.85, 1000, 1e-12, id);
+            double bound = merged.getErrorBound(id);
+            for(int target: merged.getMap(id).keySet())
+                assertTrue(Math.abs(exact.get(target) - merged.getRank(id, target)) <= bound + 1e-9);
+        }
+    }
+
+    public void testMergeError()
+    {
+        CsrGraph g = TestGraphs.randomGraph(new Random(23), 1000, 8000, 3, 2);
+        GuerrieriRankV2 full = new GuerrieriRankV2(g, 10, 30, 100, 0.85, 0.0001);
+        GuerrieriRankV2 merged = new GuerrieriRankV2.Builder().merge(true).run(g);
+        
+        //the keys read in some lists only get the rest of their scores, merged tops are the full ones
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int id = g.id(v);
+            assertEquals(full.getMap(id).keySet(), merged.getMap(id).keySet());
+            for(int target: full.getMap(id).keySet())
+                assertEquals(full.getRank(id, target), merged.getRank(id, target), 1e-9);
+            assertEquals(full.getErrorBound(id), merged.getErrorBound(id), 1e-9);
+        }
+    }
 }
@@ -11,6 +11,8 @@ import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
 import org.jgrapht.DirectedGraph;
 import algorithms.PersonalizedPageRankAlgorithm;
+import graph.CsrGraph;
+import java.util.Random;
 import utility.NodeScores;
 
 
@@ -356,4 +358,82 @@ public class GuerrieriRankV3LocalTest extends TestCase
             }
     }
 */
+    
+    public void testParts()
+    {
+        CsrGraph g = TestGraphs.randomGraph(new Random(), 2000, 20000, 1, 1);
+        
+        //processing the vertices a part at a time gives the same scores
+        GuerrieriRankV3Local expected = new GuerrieriRankV3Local.Builder().iterations(50).parts(1).run(g);
+        GuerrieriRankV3Local actual = new GuerrieriRankV3Local.Builder().iterations(50).parts(8).run(g);
+        assertEquals(8, actual.getParameters().getParts());
+        assertEquals(8, actual.getPartitioning().getParts());
+        assertEquals(8, actual.getPartTimes().length);
+        TestGraphs.assertSameScores(g, expected, actual, 0);
+        
+        try 
+        {
+            new GuerrieriRankV3Local.Builder().iterations(50).parts(-1).run(g);
+            fail("this line shouldn't be reached");
+        } 
+        catch (IllegalArgumentException e) {}
+    }
+
+    public void testWorklist()
+    {
+        CsrGraph g = TestGraphs.randomGraph(new Random(43), 2000, 20000, 1, 1);
+        
+        //sweeps and worklist converge to about the same scores
+        GuerrieriRankV3Local sweeps = new GuerrieriRankV3Local.Builder().tolerance(0.000001).run(g);
+        GuerrieriRankV3Local[] worklists = {
+            new GuerrieriRankV3Local.Builder().tolerance(0.000001).worklist(true).run(g)};
+        for(GuerrieriRankV3Local worklist: worklists)
+        {
+            assertTrue(worklist.getParameters().isWorklist());
+            assertTrue(worklist.getUpdates() >= g.vertices());
+            assertTrue(worklist.getUpdates() < 100L * g.vertices());
+            assertTrue(worklist.getRunTime() >= 0);
+            for(int v = 0; v < g.vertices(); v++)
+            {
+                int id = g.id(v);
+                assertEquals(sweeps.getMap(id).size(), worklist.getMap(id).size());
+                for(int target: sweeps.getMap(id).keySet())
+                    if(worklist.getMap(id).containsKey(target))
+                        assertEquals(sweeps.getRank(id, target), worklist.getRank(id, target), 0.001);
+            }
+        }
+        
+        //max number of updates
+        assertTrue(new GuerrieriRankV3Local.Builder().iterations(2).tolerance(-1).worklist(true).run(g)
+                .getUpdates() <= 2L * g.vertices());
+        
+        //the worklist can't run on more threads
+        try
+        {
+            new GuerrieriRankV3Local.Builder().tolerance(0.000001).worklist(true).parallelism(4).run(g);
+            fail("the worklist must reject more than one thread");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        
+        //sweeps give the same scores on more threads
+        GuerrieriRankV3Local parallel = new GuerrieriRankV3Local.Builder().tolerance(0.000001).parallelism(4)
+                .run(g);
+        assertEquals(4, parallel.getParameters().getParallelism());
+        assertEquals(sweeps.getUpdates(), parallel.getUpdates());
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int id = g.id(v);
+            for(int target: sweeps.getMap(id).keySet())
+                assertEquals(sweeps.getRank(id, target), parallel.getRank(id, target), 0);
+        }
+        
+        try 
+        {
+            new GuerrieriRankV3Local.Builder().iterations(50).worklist(true).parallelism(0).run(g);
+            fail("this line shouldn't be reached");
+        } 
+        catch (IllegalArgumentException e) {}
+    }
 }
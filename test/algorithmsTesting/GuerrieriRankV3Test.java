@@ -11,6 +11,8 @@ import static junit.framework.TestCase.assertTrue;
 import static junit.framework.TestCase.fail;
 import org.jgrapht.DirectedGraph;
 import algorithms.PersonalizedPageRankAlgorithm;
+import graph.CsrGraph;
+import java.util.Random;
 import utility.NodeScores;
 
 
@@ -354,4 +356,141 @@ public class GuerrieriRankV3Test extends TestCase
                 assertEquals(res.getMap(i).get(1000), 0d, 0d);
             }
     }
+    
+    public void testSymmetricGraph()
+    {
+        //a symmetric graph and a copy storing both directions must give the same results
+        Random random = new Random();
+        int edges = 2000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(200);
+            targets[i] = random.nextInt(200);
+        }
+        CsrGraph symmetric = CsrGraph.fromUndirectedEdges(sources, targets, edges);
+        int n = symmetric.vertices();
+        int[] ids = new int[n];
+        int[] offsets = new int[n + 1];
+        int[] neighbours = new int[symmetric.edges()];
+        int[] buffer = new int[symmetric.maxOutDegree()];
+        for(int v = 0; v < n; v++)
+        {
+            ids[v] = symmetric.id(v);
+            int degree = symmetric.successors(v, buffer);
+            System.arraycopy(buffer, 0, neighbours, offsets[v], degree);
+            offsets[v + 1] = offsets[v] + degree;
+        }
+        CsrGraph directed = new CsrGraph(ids, offsets, neighbours, offsets.clone(), neighbours.clone());
+        assertTrue(symmetric.isSymmetric());
+        assertFalse(directed.isSymmetric());
+
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRankV3(directed, 10, 30, 50, 0.85, 0.0001);
+        PersonalizedPageRankAlgorithm actual = new GuerrieriRankV3(symmetric, 10, 30, 50, 0.85, 0.0001);
+        for(int v = 0; v < n; v++)
+        {
+            int id = ids[v];
+            assertEquals(expected.getMap(id).size(), actual.getMap(id).size());
+            for(int target: expected.getMap(id).keySet())
+                assertEquals(expected.getRank(id, target), actual.getRank(id, target), 0);
+        }
+    }
+    
+    public void testParts()
+    {
+        CsrGraph g = TestGraphs.randomGraph(new Random(), 2000, 20000, 1, 1);
+        
+        //processing the vertices a part at a time gives the same scores
+        GuerrieriRankV3 expected = new GuerrieriRankV3.Builder().iterations(50).parts(1).run(g);
+        GuerrieriRankV3 actual = new GuerrieriRankV3.Builder().iterations(50).parts(8).run(g);
+        assertEquals(8, actual.getParameters().getParts());
+        assertEquals(8, actual.getPartitioning().getParts());
+        assertEquals(8, actual.getPartTimes().length);
+        TestGraphs.assertSameScores(g, expected, actual, 0);
+        
+        try 
+        {
+            new GuerrieriRankV3.Builder().iterations(50).parts(-1).run(g);
+            fail("this line shouldn't be reached");
+        } 
+        catch (IllegalArgumentException e) {}
+    }
+
+    public void testColoring()
+    {
+        CsrGraph g = TestGraphs.randomGraph(new Random(43), 2000, 20000, 1, 1);
+        
+        //both schedules converge to about the same scores
+        GuerrieriRankV3 partitions = new GuerrieriRankV3.Builder().tolerance(0.000001).run(g);
+        GuerrieriRankV3 coloring = new GuerrieriRankV3.Builder().tolerance(0.000001).coloring(true).run(g);
+        assertTrue(coloring.getColors() > 2);
+        assertEquals(2, partitions.getColors());
+        assertTrue(coloring.getIterationsRun() > 0 && coloring.getIterationsRun() <= 100);
+        assertTrue(coloring.getUpdates() >= g.vertices());
+        assertTrue(coloring.getRunTime() >= 0);
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int id = g.id(v);
+            for(int target: partitions.getMap(id).keySet())
+                if(coloring.getMap(id).containsKey(target))
+                    assertEquals(partitions.getRank(id, target), coloring.getRank(id, target), 0.001);
+        }
+        
+        //the classes don't read each other's scores, more threads give the same scores
+        for(boolean mode: new boolean[]{false, true})
+        {
+            GuerrieriRankV3 expected = new GuerrieriRankV3.Builder().iterations(20).coloring(mode).run(g);
+            GuerrieriRankV3 actual = new GuerrieriRankV3.Builder().iterations(20).coloring(mode)
+                    .parallelism(4).run(g);
+            assertEquals(4, actual.getParameters().getParallelism());
+            assertEquals(mode, actual.getParameters().isColoring());
+            assertEquals(expected.getIterationsRun(), actual.getIterationsRun());
+            assertEquals(expected.getUpdates(), actual.getUpdates());
+            TestGraphs.assertSameScores(g, expected, actual, 0);
+        }
+        
+        try 
+        {
+            new GuerrieriRankV3.Builder().iterations(50).coloring(true).parallelism(0).run(g);
+            fail("this line shouldn't be reached");
+        } 
+        catch (IllegalArgumentException e) {}
+    }
+
+    public void testErrorBounds()
+    {
+        Random random = new Random(23);
+        CsrGraph g = TestGraphs.randomGraph(random, 1000, 8000, 2, 3);
+        GuerrieriRankV3 plain = new GuerrieriRankV3(g, 10, 30, 100, 0.85, 0.0001);
+        GuerrieriRankV3 certified = new GuerrieriRankV3.Builder().certify(true).run(g);
+        assertTrue(certified.getParameters().isCertify());
+        assertFalse(plain.getParameters().isCertify());
+        try
+        {
+            plain.getErrorBound(-1);
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        for(int k = 0; k < 100; k++)
+        {
+            int id = g.id(random.nextInt(g.vertices()));
+            NodeScores exact = PersonalizedPageRank.getScores(g, 0.85, 1000, 1e-12, id);
+            for(GuerrieriRankV3 res: new GuerrieriRankV3[]{plain, certified})
+            {
+                double bound = res.getErrorBound(id);
+                assertTrue(bound >= 0);
+                for(int target: res.getMap(id).keySet())
+                    assertTrue(Math.abs(exact.get(target) - res.getRank(id, target)) <= bound + 1e-9);
+            }
+            assertFalse(plain.isCertified(id));
+            if(certified.isCertified(id))
+            {
+                exact.keepTop(10);
+                assertEquals(exact.keySet(), certified.getMap(id).keySet());
+            }
+        }
+    }
 }
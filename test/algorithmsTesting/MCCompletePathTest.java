@@ -1,5 +1,6 @@
 package algorithmsTesting;
 
+import graph.CsrGraph;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.jgrapht.graph.*;
@@ -307,4 +308,14 @@ public class MCCompletePathTest extends TestCase
                 assertEquals(res.getMap(i).get(1000), 0d, 0d);
             }
     }
+    
+    public void testWeightedWalks()
+    {
+        //0 goes to 1 nine times more often than to 2, both come back to 0
+        CsrGraph g = CsrGraph.fromWeightedEdges(new int[]{0, 0, 1, 2}, new int[]{1, 2, 0, 0}, 
+                new double[]{9, 1, 1, 1}, 4);
+        PersonalizedPageRankAlgorithm res = new MCCompletePathPageRank(g, 3, 100000, 0.85);
+        double ratio = res.getRank(0, 1) / res.getRank(0, 2);
+        assertTrue(ratio > 8.5 && ratio < 9.5);
+    }
 }
@@ -1,5 +1,7 @@
 package algorithmsTesting;
 
+import graph.CsrGraph;
+import java.util.Random;
 import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.jgrapht.graph.*;
@@ -307,4 +309,34 @@ public class MCCompletePathV2Test extends TestCase
                 assertEquals(res.getMap(i).get(1000), 0d, 0d);
             }
     }
+    
+    public void testWeightedWalks()
+    {
+        //0 goes to 1 nine times more often than to 2, both come back to 0
+        CsrGraph g = CsrGraph.fromWeightedEdges(new int[]{0, 0, 1, 2}, new int[]{1, 2, 0, 0}, 
+                new double[]{9, 1, 1, 1}, 4);
+        PersonalizedPageRankAlgorithm res = new MCCompletePathPageRankV2(g, 3, 100000, 0.85);
+        double ratio = res.getRank(0, 1) / res.getRank(0, 2);
+        assertTrue(ratio > 8.5 && ratio < 9.5);
+    }
+    
+    public void testAcyclicWithoutWalks()
+    {
+        //on a DAG successors are always done first, no walk is needed
+        //and two runs give the same scores
+        Random random = new Random();
+        int edges = 3000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            int a = random.nextInt(500), b = random.nextInt(500);
+            sources[i] = Math.min(a, b);
+            targets[i] = Math.max(a, b) + 1;
+        }
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, edges);
+        PersonalizedPageRankAlgorithm first = new MCCompletePathPageRankV2(g, 10, 1000, 0.85);
+        PersonalizedPageRankAlgorithm second = new MCCompletePathPageRankV2(g, 10, 1000, 0.85);
+        TestGraphs.assertSameScores(g, first, second, 0);
+    }
 }
@@ -0,0 +1,91 @@
+package algorithmsTesting;
+
+import algorithms.PersonalizedPageRankAlgorithm;
+import graph.CsrGraph;
+import graph.IntGraph;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import static junit.framework.TestCase.assertEquals;
+
+//random graphs and comparisons shared by the tests of the algorithms
+public final class TestGraphs
+{
+    private TestGraphs(){}
+
+    /**
+     * Random graph whose edges go from vertices * x^sourceSkew to
+     * vertices * y^targetSkew, with x and y uniform in [0, 1): a skew of 1
+     * gives uniform edges, higher skews give most of the edges to a few
+     * low vertices, like power law graphs.
+     * @param random Source of the edges, seeded when the test has thresholds.
+     * @param vertices Range of the ids.
+     * @param edges Number of edges.
+     * @param sourceSkew Skew of the sources.
+     * @param targetSkew Skew of the targets.
+     * @return The graph, with the vertices having at least an edge.
+     */
+    public static CsrGraph randomGraph(final Random random, final int vertices, final int edges,
+            final double sourceSkew, final double targetSkew)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = (int) (vertices * Math.pow(random.nextDouble(), sourceSkew));
+            targets[i] = (int) (vertices * Math.pow(random.nextDouble(), targetSkew));
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    /**
+     * A large strongly connected component, 12000 edges among 3000 vertices,
+     * plus 2000 vertices which only point to it.
+     * @param random Source of the edges.
+     * @return The graph.
+     */
+    public static CsrGraph componentWithTails(final Random random)
+    {
+        int edges = 16000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = i < 12000? random.nextInt(3000) : 10000 + random.nextInt(2000);
+            targets[i] = random.nextInt(3000);
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    /**
+     * @param g A graph.
+     * @return Original ids of the vertices of g.
+     */
+    public static Set<Integer> ids(final IntGraph g)
+    {
+        Set<Integer> res = new HashSet<>();
+        for(int v = 0; v < g.vertices(); v++)
+            res.add(g.id(v));
+        return res;
+    }
+
+    /**
+     * Asserts that two runs kept the same number of scores for every vertex
+     * of g, with the scores of expected at most delta apart.
+     * @param g Graph of both runs.
+     * @param expected First run.
+     * @param actual Second run.
+     * @param delta Largest difference allowed between two scores.
+     */
+    public static void assertSameScores(final IntGraph g, final PersonalizedPageRankAlgorithm expected,
+            final PersonalizedPageRankAlgorithm actual, final double delta)
+    {
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int id = g.id(v);
+            assertEquals(expected.getMap(id).size(), actual.getMap(id).size());
+            for(int target: expected.getMap(id).keySet())
+                assertEquals(expected.getRank(id, target), actual.getRank(id, target), delta);
+        }
+    }
+}
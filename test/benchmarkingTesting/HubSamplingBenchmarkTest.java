@@ -0,0 +1,62 @@
+package benchmarkingTesting;
+
+import benchmarking.ComparisonData;
+import benchmarking.HubSamplingBenchmark;
+import benchmarking.HubSamplingData;
+import graph.CsrGraph;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+
+public class HubSamplingBenchmarkTest extends TestCase
+{
+    Random random = new Random();
+
+    public void testMeasure()
+    {
+        int[] sources = new int[3000];
+        int[] targets = new int[3000];
+        for(int i = 0; i < sources.length; i++)
+        {
+            sources[i] = random.nextInt(3) == 0? random.nextInt(5) : random.nextInt(500);
+            targets[i] = random.nextInt(500);
+        }
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, sources.length);
+        Set<Integer> nodes = new HashSet<>();
+        for(int v = 0; v < g.vertices(); v += 10)
+            nodes.add(g.id(v));
+        HubSamplingData data = HubSamplingBenchmark.measure(g, 10, 30, 20, 0.85, 0.0001, 30, nodes, 
+                new int[]{3, 10});
+        assertTrue(data.getHubs() >= 5);
+        assertTrue(data.getHubEdges() > 30 * data.getHubs());
+        assertEquals(g.edges(), data.getEdges());
+        assertEquals((double) data.getHubEdges() / g.edges(), data.getHubEdgeFraction(), 0);
+        assertTrue(data.getTimeFull() > 0);
+        assertTrue(data.getTimeSampled() > 0);
+        assertEquals(2, data.getComparisons().length);
+        for(ComparisonData comparison: data.getComparisons())
+        {
+            assertTrue(comparison.getJaccard().getAverage() >= 0);
+            assertTrue(comparison.getJaccard().getAverage() <= 1);
+        }
+        assertNotNull(data.toString());
+
+        try
+        {
+            HubSamplingBenchmark.measure(g, 10, 30, 20, 0.85, 0.0001, 0, nodes, new int[]{10});
+            fail("this line shouldn't be reached");
+        }
+        catch(IllegalArgumentException e) {}
+    }
+
+    public void testBadData()
+    {
+        try
+        {
+            new HubSamplingData(1, 10, 5, 0, 0, new ComparisonData[0]);
+            fail("this line shouldn't be reached");
+        }
+        catch(IllegalArgumentException e) {}
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarkingTesting;
+
+import algorithms.GuerrieriRank;
+import algorithms.MCCompletePathPageRank;
+import benchmarking.ReorderingBenchmark;
+import benchmarking.ReorderingData;
+import graph.CsrGraph;
+import graph.Reordering;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class ReorderingBenchmarkTest extends TestCase
+{
+    Random random = new Random();
+
+    public void testInvalidRuns()
+    {
+        CsrGraph g = CsrGraph.fromEdges(new int[]{0}, new int[]{1}, 1);
+        try
+        {
+            ReorderingBenchmark.measure(g, Reordering.RCM, 0);
+            fail("runs must be positive");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+
+    public void testMeasure()
+    {
+        int[] sources = new int[3000];
+        int[] targets = new int[3000];
+        for(int i = 0; i < sources.length; i++)
+        {
+            sources[i] = random.nextInt(500);
+            targets[i] = random.nextInt(500);
+        }
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, sources.length);
+        ReorderingData data = ReorderingBenchmark.measure(g, Reordering.GORDER, 2,
+                graph -> new GuerrieriRank(graph, 10, 30, 20, 0.85, 0.0001),
+                graph -> new MCCompletePathPageRank(graph, 10, 20, 0.85));
+        assertEquals(data.getAlgorithms(), 2);
+        assertTrue(data.getReorderingTime() >= 0);
+        assertEquals(data.getGapBefore(), Reordering.averageLogGap(g), 0);
+        for(int i = 0; i < data.getAlgorithms(); i++)
+        {
+            assertTrue(data.getTimeBefore(i) > 0);
+            assertTrue(data.getTimeAfter(i) > 0);
+            assertEquals(data.getSpeedup(i), data.getTimeBefore(i) / data.getTimeAfter(i), 0);
+        }
+        assertNotNull(data.toString());
+    }
+
+    public void testDataRejectsDifferentLengths()
+    {
+        try
+        {
+            new ReorderingData(1, 1, 1, new double[2], new double[1]);
+            fail("times must be as many as the algorithms");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+}
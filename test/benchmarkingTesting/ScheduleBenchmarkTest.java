@@ -0,0 +1,50 @@
+package benchmarkingTesting;
+
+import benchmarking.ScheduleBenchmark;
+import benchmarking.ScheduleData;
+import graph.CsrGraph;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class ScheduleBenchmarkTest extends TestCase
+{
+    Random random = new Random();
+
+    public void testMeasure()
+    {
+        int[] sources = new int[5000];
+        int[] targets = new int[5000];
+        for(int i = 0; i < sources.length; i++)
+        {
+            sources[i] = random.nextInt(1000);
+            targets[i] = random.nextInt(1000);
+        }
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, sources.length);
+        ScheduleData data = ScheduleBenchmark.measure(g, 10, 30, 50, 0.85, 0.0001, 2, 2);
+        assertTrue(data.getColors() > 2);
+        assertTrue(data.getPartitionsIterations() > 0);
+        assertTrue(data.getColoringIterations() > 0);
+        assertTrue(data.getPartitionsUpdates() >= g.vertices());
+        assertTrue(data.getColoringUpdates() >= g.vertices());
+        assertTrue(data.getPartitionsTime() >= 0);
+        assertTrue(data.getColoringTime() >= 0);
+        assertNotNull(data.toString());
+
+        try
+        {
+            ScheduleBenchmark.measure(g, 10, 30, 50, 0.85, 0.0001, 2, 0);
+            fail("this line shouldn't be reached");
+        }
+        catch(IllegalArgumentException e) {}
+    }
+
+    public void testBadData()
+    {
+        try
+        {
+            new ScheduleData(-1, 1, 1, 1, 1, 0, 0);
+            fail("this line shouldn't be reached");
+        }
+        catch(IllegalArgumentException e) {}
+    }
+}
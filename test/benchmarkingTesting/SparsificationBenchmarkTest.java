@@ -0,0 +1,75 @@
+package benchmarkingTesting;
+
+import algorithms.GuerrieriRank;
+import benchmarking.ComparisonData;
+import benchmarking.SparsificationBenchmark;
+import benchmarking.SparsificationData;
+import graph.CsrGraph;
+import graph.Sparsification;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+
+public class SparsificationBenchmarkTest extends TestCase
+{
+    Random random = new Random();
+
+    private CsrGraph randomGraph()
+    {
+        int[] sources = new int[3000];
+        int[] targets = new int[3000];
+        for(int i = 0; i < sources.length; i++)
+        {
+            sources[i] = random.nextInt(3) == 0? random.nextInt(5) : random.nextInt(500);
+            targets[i] = random.nextInt(500);
+        }
+        return CsrGraph.fromEdges(sources, targets, sources.length);
+    }
+
+    public void testMeasure()
+    {
+        CsrGraph g = randomGraph();
+        Set<Integer> nodes = new HashSet<>();
+        for(int v = 0; v < g.vertices(); v += 10)
+            nodes.add(g.id(v));
+        SparsificationData data = SparsificationBenchmark.measure(g, Sparsification.capHubs(30, 1),
+                graph -> new GuerrieriRank(graph, 10, 30, 20, 0.85, 0.0001), nodes, new int[]{3, 10});
+        assertEquals(g.edges(), data.getEdgesBefore());
+        assertTrue(data.getEdgesAfter() < data.getEdgesBefore());
+        assertEquals(1 - (double) data.getEdgesAfter() / data.getEdgesBefore(), data.getEdgeReduction(), 0);
+        assertTrue(data.getSparsificationTime() >= 0);
+        assertTrue(data.getTimeBefore() > 0);
+        assertTrue(data.getTimeAfter() > 0);
+        assertEquals(2, data.getComparisons().length);
+        for(ComparisonData comparison: data.getComparisons())
+        {
+            assertTrue(comparison.getJaccard().getAverage() >= 0);
+            assertTrue(comparison.getJaccard().getAverage() <= 1);
+        }
+        assertNotNull(data.toString());
+    }
+
+    public void testNothingRemoved()
+    {
+        CsrGraph g = randomGraph();
+        Set<Integer> nodes = new HashSet<>();
+        for(int v = 0; v < g.vertices(); v += 10)
+            nodes.add(g.id(v));
+        SparsificationData data = SparsificationBenchmark.measure(g, Sparsification.capHubs(g.maxOutDegree(), 1),
+                graph -> new GuerrieriRank(graph, 10, 30, 20, 0.85, 0.0001), nodes, new int[]{10});
+        assertEquals(0, data.getEdgeReduction(), 0);
+        //same graph, same results
+        assertEquals(1, data.getComparisons()[0].getJaccard().getAverage(), 0.0000001);
+    }
+
+    public void testDataRejectsMoreEdges()
+    {
+        try
+        {
+            new SparsificationData(10, 11, 1, 1, 1, new ComparisonData[0]);
+            fail("sparsification can only remove edges");
+        }
+        catch(IllegalArgumentException e){}
+    }
+}
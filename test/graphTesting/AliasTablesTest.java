@@ -0,0 +1,67 @@
+package graphTesting;
+
+import graph.AliasTables;
+import graph.CsrGraph;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class AliasTablesTest extends TestCase
+{
+    Random random = new Random();
+
+    public void testSingleSuccessor()
+    {
+        CsrGraph g = CsrGraph.fromWeightedEdges(new int[]{0, 1}, new int[]{1, 0}, new double[]{5, 0.1}, 2);
+        AliasTables tables = new AliasTables(g);
+        for(int i = 0; i < 100; i++)
+        {
+            assertEquals(tables.sample(0, random), 0);
+            assertEquals(tables.sample(1, random), 0);
+        }
+    }
+
+    public void testFrequenciesFollowWeights()
+    {
+        //a vertex with successors of very different weights, plus one without successors
+        double[] weights = {1, 2, 3, 4, 0.5, 10, 0.01, 7.49};
+        int degree = weights.length;
+        int[] sources = new int[degree];
+        int[] targets = new int[degree];
+        double total = 0;
+        for(int i = 0; i < degree; i++)
+        {
+            sources[i] = 0;
+            targets[i] = i + 1;
+            total += weights[i];
+        }
+        CsrGraph g = CsrGraph.fromWeightedEdges(sources, targets, weights, degree);
+        AliasTables tables = new AliasTables(g);
+
+        int samples = 1000000;
+        int[] counts = new int[degree];
+        for(int i = 0; i < samples; i++)
+            counts[tables.sample(0, random)]++;
+        for(int i = 0; i < degree; i++)
+        {
+            //successor i is vertex i + 1
+            assertEquals(g.successor(0, i), i + 1);
+            assertEquals(weights[i] / total, counts[i] / (double) samples, 0.003);
+        }
+    }
+
+    public void testUnweightedIsUniform()
+    {
+        int degree = 5;
+        int[] sources = new int[degree];
+        int[] targets = new int[degree];
+        for(int i = 0; i < degree; i++)
+            targets[i] = i + 1;
+        AliasTables tables = new AliasTables(CsrGraph.fromEdges(sources, targets, degree));
+        int samples = 500000;
+        int[] counts = new int[degree];
+        for(int i = 0; i < samples; i++)
+            counts[tables.sample(0, random)]++;
+        for(int i = 0; i < degree; i++)
+            assertEquals(1d / degree, counts[i] / (double) samples, 0.005);
+    }
+}
@@ -0,0 +1,79 @@
+package graphTesting;
+
+import graph.Coloring;
+import graph.CsrGraph;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class ColoringTest extends TestCase
+{
+    Random random = new Random();
+
+    private CsrGraph randomGraph(final int edges, final int idRange)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(idRange);
+            targets[i] = random.nextInt(idRange);
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    public void testEmptyGraph()
+    {
+        Coloring coloring = new Coloring(CsrGraph.fromEdges(new int[0], new int[0], 0));
+        assertEquals(0, coloring.getCount());
+        assertEquals(0, coloring.getOrder().length);
+    }
+
+    public void testProperColoring()
+    {
+        for(int t = 0; t < 5; t++)
+        {
+            CsrGraph g = randomGraph(5000, 1000);
+            Coloring coloring = new Coloring(g);
+            int maxDegree = 0;
+            for(int v = 0; v < g.vertices(); v++)
+            {
+                maxDegree = Math.max(maxDegree, g.outDegree(v) + g.inDegree(v));
+                assertTrue(coloring.getColor(v) >= 0 && coloring.getColor(v) < coloring.getCount());
+                for(int i = 0; i < g.outDegree(v); i++)
+                {
+                    int s = g.successor(v, i);
+                    if(s != v)
+                        assertFalse(coloring.getColor(v) == coloring.getColor(s));
+                }
+            }
+            assertTrue(coloring.getCount() <= maxDegree + 1);
+
+            int[] order = coloring.getOrder();
+            int[] offsets = coloring.getOffsets();
+            assertEquals(g.vertices(), offsets[coloring.getCount()]);
+            for(int c = 0; c < coloring.getCount(); c++)
+            {
+                assertEquals(offsets[c + 1] - offsets[c], coloring.getVertices(c).length);
+                for(int k = offsets[c]; k < offsets[c + 1]; k++)
+                    assertEquals(c, coloring.getColor(order[k]));
+            }
+        }
+    }
+
+    public void testBipartite()
+    {
+        //even cycle with self loops, 2 colors are enough
+        int n = 100;
+        int[] sources = new int[2 * n];
+        int[] targets = new int[2 * n];
+        for(int i = 0; i < n; i++)
+        {
+            sources[i] = i;
+            targets[i] = (i + 1) % n;
+            sources[n + i] = i;
+            targets[n + i] = i;
+        }
+        Coloring coloring = new Coloring(CsrGraph.fromEdges(sources, targets, 2 * n));
+        assertTrue(coloring.getCount() <= 3);
+    }
+}
@@ -0,0 +1,273 @@
+package graphTesting;
+
+import algorithms.GuerrieriRank;
+import algorithms.MCCompletePathPageRank;
+import algorithms.PersonalizedPageRankAlgorithm;
+import graph.CompressedGraph;
+import graph.CsrGraph;
+import graph.IntGraph;
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class CompressedGraphTest extends TestCase
+{
+    Random random = new Random();
+
+    private CsrGraph randomGraph(final int edges, final int idRange)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(idRange);
+            targets[i] = random.nextInt(idRange);
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    private void assertSameGraph(final IntGraph expected, final CompressedGraph actual)
+    {
+        assertEquals(expected.vertices(), actual.vertices());
+        assertEquals(expected.edges(), actual.edges());
+        assertEquals(expected.maxOutDegree(), actual.maxOutDegree());
+        assertEquals(expected.maxInDegree(), actual.maxInDegree());
+        int[] expectedBuffer = new int[Math.max(expected.maxOutDegree(), expected.maxInDegree())];
+        int[] actualBuffer = new int[expectedBuffer.length];
+        for(int v = 0; v < expected.vertices(); v++)
+        {
+            assertEquals(expected.id(v), actual.id(v));
+            assertEquals(actual.index(expected.id(v)), v);
+            assertEquals(expected.outDegree(v), actual.outDegree(v));
+            assertEquals(expected.inDegree(v), actual.inDegree(v));
+
+            //same neighbours, sorted
+            int degree = expected.successors(v, expectedBuffer);
+            Arrays.sort(expectedBuffer, 0, degree);
+            assertEquals(degree, actual.successors(v, actualBuffer));
+            for(int i = 0; i < degree; i++)
+            {
+                assertEquals(expectedBuffer[i], actualBuffer[i]);
+                assertEquals(expectedBuffer[i], actual.successor(v, i));
+            }
+            degree = expected.predecessors(v, expectedBuffer);
+            Arrays.sort(expectedBuffer, 0, degree);
+            assertEquals(degree, actual.predecessors(v, actualBuffer));
+            for(int i = 0; i < degree; i++)
+                assertEquals(expectedBuffer[i], actualBuffer[i]);
+        }
+    }
+
+    private static int[] ids(final IntGraph g)
+    {
+        int[] res = new int[g.vertices()];
+        for(int v = 0; v < res.length; v++)
+            res[v] = g.id(v);
+        return res;
+    }
+
+    private static int[] offsets(final IntGraph g)
+    {
+        int[] res = new int[g.vertices() + 1];
+        for(int v = 0; v < g.vertices(); v++)
+            res[v + 1] = res[v] + g.outDegree(v);
+        return res;
+    }
+
+    private static int[] neighbours(final IntGraph g)
+    {
+        int[] res = new int[g.edges()];
+        int[] buffer = new int[g.maxOutDegree()];
+        int size = 0;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int degree = g.successors(v, buffer);
+            System.arraycopy(buffer, 0, res, size, degree);
+            size += degree;
+        }
+        return res;
+    }
+
+    public void testEmptyGraph()
+    {
+        CsrGraph g = CsrGraph.fromEdges(new int[0], new int[0], 0);
+        assertSameGraph(g, CompressedGraph.fromGraph(g));
+    }
+
+    public void testRandomGraphs()
+    {
+        //sparse ids and dense ids, parallel edges and self loops included
+        for(int idRange: new int[]{50, 1000, 1000000})
+        {
+            CsrGraph g = randomGraph(20000, idRange);
+            assertSameGraph(g, CompressedGraph.fromGraph(g));
+        }
+    }
+
+    public void testHubsSpanningManyBlocks()
+    {
+        //a star in both directions plus far away neighbours, so lists span
+        //several blocks and contain big gaps
+        int hubs = 3, leaves = CompressedGraph.BLOCK * 10 + 7;
+        int[] sources = new int[hubs * leaves * 2];
+        int[] targets = new int[sources.length];
+        int e = 0;
+        for(int h = 0; h < hubs; h++)
+            for(int l = 0; l < leaves; l++)
+            {
+                int leaf = l % 2 == 0? l : -l * 100000;
+                sources[e] = h;
+                targets[e++] = leaf;
+                sources[e] = leaf;
+                targets[e++] = h;
+            }
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, e);
+        CompressedGraph compressed = CompressedGraph.fromGraph(g);
+        assertSameGraph(g, compressed);
+        //random access on the hubs
+        for(int i = 0; i < 1000; i++)
+        {
+            int v = g.index(random.nextInt(hubs));
+            int k = random.nextInt(compressed.outDegree(v));
+            int[] buffer = new int[compressed.outDegree(v)];
+            compressed.successors(v, buffer);
+            assertEquals(buffer[k], compressed.successor(v, k));
+        }
+    }
+
+    public void testSmallerThanCsr()
+    {
+        //a graph with local edges, as most real graphs have
+        int n = 10000, edges = 100000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(n);
+            targets[i] = Math.floorMod(sources[i] + random.nextInt(200) - 100, n);
+        }
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, edges);
+        CompressedGraph compressed = CompressedGraph.fromGraph(g);
+        long csrBytes = (g.edges() * 2L + (g.vertices() + 1) * 2L) * 4;
+        assertTrue(compressed.adjacencyBytes() * 2 < csrBytes);
+    }
+
+    public void testSameResultsOfCsr()
+    {
+        //edges sorted so the csr lists have the same order of the compressed ones
+        long[] pairs = new long[3000];
+        for(int i = 0; i < pairs.length; i++)
+            pairs[i] = (long) random.nextInt(300) << 32 | random.nextInt(300);
+        Arrays.sort(pairs);
+        int[] sources = new int[pairs.length];
+        int[] targets = new int[pairs.length];
+        for(int i = 0; i < pairs.length; i++)
+        {
+            sources[i] = (int) (pairs[i] >>> 32);
+            targets[i] = (int) pairs[i];
+        }
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, pairs.length);
+        CompressedGraph compressed = CompressedGraph.fromGraph(g);
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRank(g, 10, 30, 50, 0.85, 0.0001);
+        PersonalizedPageRankAlgorithm actual = new GuerrieriRank(compressed, 10, 30, 50, 0.85, 0.0001);
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int id = g.id(v);
+            assertEquals(expected.getMap(id).size(), actual.getMap(id).size());
+            for(int target: expected.getMap(id).keySet())
+                assertEquals(expected.getRank(id, target), actual.getRank(id, target), 0);
+        }
+        //walks only need the graph to answer, same seed gives the same walks
+        //only if neighbours are in the same order, so just check they run
+        PersonalizedPageRankAlgorithm walks = new MCCompletePathPageRank(compressed, 10, 100, 0.85);
+        for(int v = 0; v < g.vertices(); v++)
+            assertTrue(walks.getMap(g.id(v)).size() <= 10);
+    }
+
+    public void testSymmetricGraph()
+    {
+        int edges = 5000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(1000);
+            targets[i] = random.nextInt(1000);
+        }
+        CsrGraph g = CsrGraph.fromUndirectedEdges(sources, targets, edges);
+        CompressedGraph compressed = CompressedGraph.fromGraph(g);
+        assertTrue(compressed.isSymmetric());
+        assertSameGraph(g, compressed);
+        //the same lists stored for both directions take twice the space
+        CompressedGraph directed = CompressedGraph.fromGraph(new CsrGraph(ids(g), offsets(g),
+                neighbours(g), offsets(g), neighbours(g)));
+        assertFalse(directed.isSymmetric());
+        assertTrue(compressed.adjacencyBytes() * 2 == directed.adjacencyBytes());
+    }
+
+    public void testWeightedGraph()
+    {
+        int edges = 3000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(300);
+            targets[i] = random.nextInt(300);
+            weights[i] = 1 + random.nextInt(10);
+        }
+        CsrGraph g = CsrGraph.fromWeightedEdges(sources, targets, weights, edges);
+        CompressedGraph compressed = CompressedGraph.fromGraph(g);
+        assertTrue(compressed.isWeighted());
+        assertSameGraph(g, compressed);
+        assertSameWeights(g, compressed);
+
+        //undirected edges with the same weight both ways share them
+        CsrGraph undirected = CsrGraph.fromUndirectedEdges(sources, targets, edges);
+        int[] neighbours = neighbours(undirected);
+        int[] offsets = offsets(undirected);
+        double[] symmetricWeights = new double[neighbours.length];
+        for(int v = 0; v < undirected.vertices(); v++)
+            for(int i = offsets[v]; i < offsets[v + 1]; i++)
+                symmetricWeights[i] = 1 + (v * neighbours[i] + v + neighbours[i]) % 7;
+        CsrGraph symmetric = CsrGraph.symmetric(ids(undirected), offsets, neighbours, symmetricWeights);
+        compressed = CompressedGraph.fromGraph(symmetric);
+        assertTrue(compressed.isSymmetric());
+        assertSameWeights(symmetric, compressed);
+    }
+
+    //lists are sorted, each neighbour must keep the weight of its edge
+    private void assertSameWeights(final IntGraph expected, final CompressedGraph actual)
+    {
+        int max = Math.max(expected.maxOutDegree(), expected.maxInDegree());
+        int[] neighbours = new int[max];
+        double[] weights = new double[max];
+        for(int v = 0; v < expected.vertices(); v++)
+        {
+            assertEquals(expected.outWeight(v), actual.outWeight(v), 1e-9);
+            for(int direction = 0; direction < 2; direction++)
+            {
+                int degree = direction == 0? expected.successors(v, neighbours) : expected.predecessors(v, neighbours);
+                if(direction == 0)
+                    expected.successorWeights(v, weights);
+                else
+                    expected.predecessorWeights(v, weights);
+                String[] expectedEdges = new String[degree];
+                for(int i = 0; i < degree; i++)
+                    expectedEdges[i] = neighbours[i] + ":" + weights[i];
+                degree = direction == 0? actual.successors(v, neighbours) : actual.predecessors(v, neighbours);
+                if(direction == 0)
+                    actual.successorWeights(v, weights);
+                else
+                    actual.predecessorWeights(v, weights);
+                String[] actualEdges = new String[degree];
+                for(int i = 0; i < degree; i++)
+                    actualEdges[i] = neighbours[i] + ":" + weights[i];
+                Arrays.sort(expectedEdges);
+                Arrays.sort(actualEdges);
+                assertTrue(Arrays.equals(expectedEdges, actualEdges));
+            }
+        }
+    }
+}
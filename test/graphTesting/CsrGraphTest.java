@@ -0,0 +1,264 @@
+package graphTesting;
+
+import graph.CsrGraph;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.DirectedPseudograph;
+
+public class CsrGraphTest extends TestCase
+{
+    Random random = new Random();
+
+    public void testEmptyGraph()
+    {
+        DirectedPseudograph<Integer, DefaultEdge> g = new DirectedPseudograph<>(DefaultEdge.class);
+        CsrGraph csr = CsrGraph.fromGraph(g);
+        assertEquals(csr.vertices(), 0);
+        assertEquals(csr.edges(), 0);
+        assertEquals(csr.maxOutDegree(), 0);
+        assertEquals(csr.maxInDegree(), 0);
+        assertFalse(csr.containsVertex(0));
+    }
+
+    public void testIdsAreSorted()
+    {
+        DirectedPseudograph<Integer, DefaultEdge> g = new DirectedPseudograph<>(DefaultEdge.class);
+        g.addVertex(50);
+        g.addVertex(7);
+        g.addVertex(-3);
+        g.addVertex(1000);
+        CsrGraph csr = CsrGraph.fromGraph(g);
+        assertEquals(csr.vertices(), 4);
+        assertEquals(csr.id(0), -3);
+        assertEquals(csr.id(1), 7);
+        assertEquals(csr.id(2), 50);
+        assertEquals(csr.id(3), 1000);
+        for(int v = 0; v < csr.vertices(); v++)
+            assertEquals(csr.index(csr.id(v)), v);
+        assertEquals(csr.index(8), -1);
+        assertFalse(csr.containsVertex(8));
+    }
+
+    public void testContiguousIds()
+    {
+        DirectedPseudograph<Integer, DefaultEdge> g = new DirectedPseudograph<>(DefaultEdge.class);
+        for(int i = 0; i < 10; i++)
+            g.addVertex(i);
+        CsrGraph csr = CsrGraph.fromGraph(g);
+        for(int i = 0; i < 10; i++)
+            assertEquals(csr.index(i), i);
+        assertEquals(csr.index(-1), -1);
+        assertEquals(csr.index(10), -1);
+    }
+
+    public void testSameNeighboursOfJgrapht()
+    {
+        //random graph with parallel edges and self loops, neighbours must be
+        //the same (and in the same order) of the ones given by jgrapht
+        for(int test = 0; test < 10; test++)
+        {
+            DirectedPseudograph<Integer, DefaultEdge> g = new DirectedPseudograph<>(DefaultEdge.class);
+            for(int i = 0; i < 200; i++)
+                g.addVertex(random.nextInt(10000));
+            Integer[] vertices = g.vertexSet().toArray(new Integer[0]);
+            for(int i = 0; i < 2000; i++)
+                g.addEdge(vertices[random.nextInt(vertices.length)], vertices[random.nextInt(vertices.length)]);
+
+            CsrGraph csr = CsrGraph.fromGraph(g);
+            assertEquals(csr.vertices(), g.vertexSet().size());
+            assertEquals(csr.edges(), g.edgeSet().size());
+            int[] successors = new int[csr.maxOutDegree()];
+            int[] predecessors = new int[csr.maxInDegree()];
+            for(int v = 0; v < csr.vertices(); v++)
+            {
+                int id = csr.id(v);
+                assertEquals(csr.outDegree(v), g.outDegreeOf(id));
+                assertEquals(csr.inDegree(v), g.inDegreeOf(id));
+
+                int outDegree = csr.successors(v, successors);
+                int i = 0;
+                for(DefaultEdge e: g.outgoingEdgesOf(id))
+                {
+                    assertEquals(csr.id(successors[i]), (int) g.getEdgeTarget(e));
+                    assertEquals(csr.successor(v, i), successors[i]);
+                    i++;
+                }
+                assertEquals(i, outDegree);
+
+                int inDegree = csr.predecessors(v, predecessors);
+                i = 0;
+                for(DefaultEdge e: g.incomingEdgesOf(id))
+                    assertEquals(csr.id(predecessors[i++]), (int) g.getEdgeSource(e));
+                assertEquals(i, inDegree);
+            }
+        }
+    }
+
+    public void testFromEdges()
+    {
+        int[] sources = {10, 20, 10, 30, 0};
+        int[] targets = {20, 30, 30, 10, 0};
+        //the last edge is not read
+        CsrGraph csr = CsrGraph.fromEdges(sources, targets, 4);
+        assertEquals(csr.vertices(), 3);
+        assertEquals(csr.edges(), 4);
+        assertFalse(csr.containsVertex(0));
+        int v = csr.index(10);
+        assertEquals(csr.outDegree(v), 2);
+        assertEquals(csr.id(csr.successor(v, 0)), 20);
+        assertEquals(csr.id(csr.successor(v, 1)), 30);
+        assertEquals(csr.inDegree(csr.index(30)), 2);
+        assertEquals(csr.maxOutDegree(), 2);
+        assertEquals(csr.maxInDegree(), 2);
+    }
+
+    public void testInvalidArrays()
+    {
+        try
+        {
+            new CsrGraph(new int[]{0, 1}, new int[]{0, 1}, new int[]{1}, new int[]{0, 0, 1}, new int[]{0});
+            fail("offsets with the wrong length must be rejected");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        try
+        {
+            new CsrGraph(new int[]{3, 3}, new int[]{0, 1, 1}, new int[]{1}, new int[]{0, 0, 1}, new int[]{0});
+            fail("duplicated ids must be rejected");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+
+    public void testUnsortedIds()
+    {
+        //reordered graphs keep ids in any order
+        CsrGraph g = new CsrGraph(new int[]{7, 2, 5}, new int[]{0, 1, 2, 2}, new int[]{1, 2},
+                new int[]{0, 0, 1, 2}, new int[]{0, 1});
+        assertEquals(g.index(7), 0);
+        assertEquals(g.index(2), 1);
+        assertEquals(g.index(5), 2);
+        assertEquals(g.index(0), -1);
+        assertEquals(g.id(g.successor(g.index(7), 0)), 2);
+    }
+
+    public void testFromUndirectedEdges()
+    {
+        int[] sources = {1, 2, 3};
+        int[] targets = {2, 3, 3};
+        CsrGraph csr = CsrGraph.fromUndirectedEdges(sources, targets, 3);
+        assertTrue(csr.isSymmetric());
+        assertFalse(CsrGraph.fromEdges(sources, targets, 3).isSymmetric());
+        assertEquals(csr.vertices(), 3);
+        //1->2, 2->1, 2->3, 3->2 and the self loop once
+        assertEquals(csr.edges(), 5);
+        int[] successors = new int[csr.maxOutDegree()];
+        int[] predecessors = new int[csr.maxInDegree()];
+        for(int v = 0; v < csr.vertices(); v++)
+        {
+            int degree = csr.successors(v, successors);
+            assertEquals(degree, csr.predecessors(v, predecessors));
+            for(int i = 0; i < degree; i++)
+                assertEquals(successors[i], predecessors[i]);
+        }
+        assertEquals(csr.outDegree(csr.index(1)), 1);
+        assertEquals(csr.outDegree(csr.index(2)), 2);
+        assertEquals(csr.outDegree(csr.index(3)), 2);
+    }
+
+    public void testFromGraphDetectsSymmetric()
+    {
+        //undirected graph imported as two directed edges, a parallel edge and a self loop
+        DirectedPseudograph<Integer, DefaultEdge> g = new DirectedPseudograph<>(DefaultEdge.class);
+        for(int i = 1; i <= 4; i++)
+            g.addVertex(i);
+        int[][] edges = {{1, 2}, {2, 3}, {3, 1}, {1, 2}, {4, 4}};
+        for(int[] edge: edges)
+        {
+            g.addEdge(edge[0], edge[1]);
+            if(edge[0] != edge[1])
+                g.addEdge(edge[1], edge[0]);
+        }
+        CsrGraph csr = CsrGraph.fromGraph(g);
+        assertTrue(csr.isSymmetric());
+        assertEquals(csr.edges(), g.edgeSet().size());
+        for(int v: g.vertexSet())
+        {
+            assertEquals(csr.outDegree(csr.index(v)), g.outDegreeOf(v));
+            assertEquals(csr.inDegree(csr.index(v)), g.inDegreeOf(v));
+        }
+        
+        //an edge without its reverse, or a parallel edge reversed only once, isn't symmetric
+        g.addEdge(4, 1);
+        assertFalse(CsrGraph.fromGraph(g).isSymmetric());
+        g.addEdge(1, 4);
+        assertTrue(CsrGraph.fromGraph(g).isSymmetric());
+        g.addEdge(2, 3);
+        assertFalse(CsrGraph.fromGraph(g).isSymmetric());
+    }
+
+    public void testSymmetricOnlyWithSharedArrays()
+    {
+        int[] offsets = {0, 1, 2};
+        int[] neighbours = {1, 0};
+        assertTrue(CsrGraph.symmetric(new int[]{0, 1}, offsets, neighbours).isSymmetric());
+        //same content but different arrays
+        assertFalse(new CsrGraph(new int[]{0, 1}, offsets, neighbours, offsets.clone(),
+                neighbours.clone()).isSymmetric());
+    }
+
+    public void testWeightedEdges()
+    {
+        int[] sources = {10, 20, 10, 30};
+        int[] targets = {20, 30, 30, 10};
+        double[] weights = {0.5, 2, 1.5, 3};
+        CsrGraph csr = CsrGraph.fromWeightedEdges(sources, targets, weights, 4);
+        assertTrue(csr.isWeighted());
+        assertFalse(CsrGraph.fromEdges(sources, targets, 4).isWeighted());
+        int v = csr.index(10);
+        double[] buffer = new double[2];
+        assertEquals(csr.successorWeights(v, buffer), 2);
+        assertEquals(buffer[0], 0.5, 0);
+        assertEquals(buffer[1], 1.5, 0);
+        assertEquals(csr.outWeight(v), 2, 0);
+        //the predecessors of 30 are 20 and 10, in the order of the edges
+        int w = csr.index(30);
+        assertEquals(csr.predecessorWeights(w, buffer), 2);
+        assertEquals(buffer[0], 2, 0);
+        assertEquals(buffer[1], 1.5, 0);
+
+        //unweighted graphs have weight 1 everywhere
+        CsrGraph unweighted = CsrGraph.fromEdges(sources, targets, 4);
+        assertEquals(unweighted.successorWeights(v, buffer), 2);
+        assertEquals(buffer[0], 1, 0);
+        assertEquals(buffer[1], 1, 0);
+        assertEquals(unweighted.outWeight(v), 2, 0);
+    }
+
+    public void testInvalidWeights()
+    {
+        for(double weight: new double[]{0, -1, Double.NaN, Double.POSITIVE_INFINITY})
+        {
+            try
+            {
+                CsrGraph.fromWeightedEdges(new int[]{1, 2}, new int[]{2, 1}, new double[]{1, weight}, 2);
+                fail("weight " + weight + " must be rejected");
+            }
+            catch(IllegalArgumentException e)
+            {
+            }
+        }
+        try
+        {
+            new CsrGraph(new int[]{0, 1}, new int[]{0, 1, 1}, new int[]{1}, new double[]{1},
+                    new int[]{0, 0, 1}, new int[]{0}, null);
+            fail("weights for a single direction must be rejected");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package graphTesting;
+
+import algorithms.GuerrieriRank;
+import algorithms.PersonalizedPageRankAlgorithm;
+import graph.CsrGraph;
+import graph.DeltaGraph;
+import graph.IntGraph;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinTask;
+import junit.framework.TestCase;
+
+public class DeltaGraphTest extends TestCase
+{
+    Random random = new Random();
+
+    //sorted ids of the successors (or predecessors) of the vertex with the given id
+    private int[] neighbourIds(final IntGraph g, final int id, final boolean out)
+    {
+        int v = g.index(id);
+        if(v == -1)
+            return new int[0];
+        int[] buffer = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
+        int degree = out? g.successors(v, buffer) : g.predecessors(v, buffer);
+        int[] res = new int[degree];
+        for(int i = 0; i < degree; i++)
+            res[i] = g.id(buffer[i]);
+        Arrays.sort(res);
+        return res;
+    }
+
+    //same vertices and same edges, whatever the dense indexes are
+    private void assertSameEdges(final IntGraph expected, final IntGraph actual)
+    {
+        assertEquals(expected.edges(), actual.edges());
+        assertEquals(expected.maxOutDegree(), actual.maxOutDegree());
+        assertEquals(expected.maxInDegree(), actual.maxInDegree());
+        for(int v = 0; v < expected.vertices(); v++)
+        {
+            int id = expected.id(v);
+            assertTrue(actual.index(id) != -1);
+            assertTrue(Arrays.equals(neighbourIds(expected, id, true), neighbourIds(actual, id, true)));
+            assertTrue(Arrays.equals(neighbourIds(expected, id, false), neighbourIds(actual, id, false)));
+        }
+    }
+
+    private void assertConsistent(final IntGraph g)
+    {
+        int[] buffer = new int[g.maxOutDegree()];
+        int edges = 0;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            assertEquals(v, g.index(g.id(v)));
+            int degree = g.successors(v, buffer);
+            assertEquals(g.outDegree(v), degree);
+            for(int i = 0; i < degree; i++)
+                assertEquals(buffer[i], g.successor(v, i));
+            edges += degree;
+        }
+        assertEquals(g.edges(), edges);
+    }
+
+    public void testInsertAndDelete()
+    {
+        IntArrayList sources = new IntArrayList();
+        IntArrayList targets = new IntArrayList();
+        for(int i = 0; i < 2000; i++)
+        {
+            sources.add(random.nextInt(300));
+            targets.add(random.nextInt(300));
+        }
+        DeltaGraph g = new DeltaGraph(CsrGraph.fromEdges(sources.elements(), targets.elements(), sources.size()));
+
+        //the vertices of the reference graph never go away, same as in the delta graph
+        IntArrayList vertices = new IntArrayList();
+        for(int i = 0; i < 3000; i++)
+        {
+            if(random.nextBoolean() && !sources.isEmpty())
+            {
+                int e = random.nextInt(sources.size());
+                assertTrue(g.deleteEdge(sources.getInt(e), targets.getInt(e)));
+                vertices.add(sources.removeInt(e));
+                vertices.add(targets.removeInt(e));
+            }
+            else
+            {
+                //new ids too
+                int source = random.nextInt(400), target = random.nextInt(400);
+                g.insertEdge(source, target);
+                sources.add(source);
+                targets.add(target);
+            }
+        }
+        assertFalse(g.deleteEdge(-1, 5));
+        assertFalse(g.deleteEdge(1000, 1001));
+
+        IntGraph snapshot = g.snapshot();
+        assertConsistent(snapshot);
+        assertSameEdges(CsrGraph.fromEdges(sources.elements(), targets.elements(), sources.size()), snapshot);
+        for(int id: vertices)
+            assertTrue(snapshot.index(id) != -1);
+    }
+
+    public void testParallelEdges()
+    {
+        DeltaGraph g = DeltaGraph.empty();
+        g.insertEdge(1, 2);
+        g.insertEdge(1, 2);
+        g.compact();
+        g.insertEdge(1, 2);
+        assertTrue(g.deleteEdge(1, 2));
+        assertTrue(g.deleteEdge(1, 2));
+        IntGraph snapshot = g.snapshot();
+        assertEquals(1, snapshot.edges());
+        assertEquals(1, snapshot.outDegree(snapshot.index(1)));
+        assertTrue(g.deleteEdge(1, 2));
+        assertFalse(g.deleteEdge(1, 2));
+        assertEquals(0, g.snapshot().edges());
+        //old snapshots don't change
+        assertEquals(1, snapshot.edges());
+    }
+
+    public void testMaxDegrees()
+    {
+        //two hubs in the base, deleting the edges of the biggest one makes
+        //the other one the max, deleting both leaves the small vertices
+        int[] sources = new int[90], targets = new int[90];
+        for(int i = 0; i < 50; i++)
+        {
+            sources[i] = 0;
+            targets[i] = 100 + i;
+        }
+        for(int i = 0; i < 30; i++)
+        {
+            sources[50 + i] = 1;
+            targets[50 + i] = 100 + i;
+        }
+        for(int i = 0; i < 10; i++)
+        {
+            sources[80 + i] = 2 + i % 5;
+            targets[80 + i] = 200 + i;
+        }
+        DeltaGraph g = new DeltaGraph(CsrGraph.fromEdges(sources, targets, 90));
+        assertEquals(50, g.snapshot().maxOutDegree());
+        assertEquals(2, g.snapshot().maxInDegree());
+        for(int i = 0; i < 40; i++)
+            assertTrue(g.deleteEdge(0, 100 + i));
+        assertEquals(30, g.snapshot().maxOutDegree());
+        for(int i = 0; i < 30; i++)
+            assertTrue(g.deleteEdge(1, 100 + i));
+        IntGraph snapshot = g.snapshot();
+        assertEquals(10, snapshot.maxOutDegree());
+        assertEquals(1, snapshot.maxInDegree());
+        for(int i = 0; i < 10; i++)
+            assertTrue(g.deleteEdge(0, 140 + i));
+        assertEquals(2, g.snapshot().maxOutDegree());
+        //new vertices and insertions
+        for(int i = 0; i < 7; i++)
+            g.insertEdge(1000, 2000 + i % 3);
+        snapshot = g.snapshot();
+        assertEquals(7, snapshot.maxOutDegree());
+        assertEquals(3, snapshot.maxInDegree());
+        g.compact();
+        assertEquals(7, g.snapshot().maxOutDegree());
+        assertTrue(g.deleteEdge(1000, 2000));
+        assertEquals(6, g.snapshot().maxOutDegree());
+    }
+
+    public void testCompaction()
+    {
+        DeltaGraph g = DeltaGraph.empty();
+        for(int i = 0; i < 5000; i++)
+            g.insertEdge(random.nextInt(1000), random.nextInt(1000));
+        IntGraph before = g.snapshot();
+        assertEquals(5000, g.getPendingChanges());
+        IntGraph base = g.compact();
+        assertSame(base, g.getBase());
+        assertEquals(0, g.getPendingChanges());
+        IntGraph after = g.snapshot();
+        assertConsistent(after);
+        assertSameEdges(before, after);
+        //dense indexes are kept
+        for(int v = 0; v < before.vertices(); v++)
+            assertEquals(before.id(v), after.id(v));
+        //nothing to do
+        assertSame(base, g.compact());
+    }
+
+    public void testConcurrentUpdates() throws Exception
+    {
+        DeltaGraph g = DeltaGraph.empty();
+        IntArrayList sources = new IntArrayList();
+        IntArrayList targets = new IntArrayList();
+        for(int round = 0; round < 20; round++)
+        {
+            ForkJoinTask<IntGraph> compaction = g.compactInBackground();
+            for(int i = 0; i < 2000; i++)
+            {
+                int source = random.nextInt(2000), target = random.nextInt(2000);
+                g.insertEdge(source, target);
+                sources.add(source);
+                targets.add(target);
+            }
+            //readers work while compactions and updates go on
+            assertConsistent(g.snapshot());
+            compaction.join();
+        }
+        g.compact();
+        assertEquals(0, g.getPendingChanges());
+        assertSameEdges(CsrGraph.fromEdges(sources.elements(), targets.elements(), sources.size()), g.snapshot());
+    }
+
+    public void testAlgorithmOnSnapshot()
+    {
+        DeltaGraph g = DeltaGraph.empty();
+        IntArrayList sources = new IntArrayList();
+        IntArrayList targets = new IntArrayList();
+        for(int i = 0; i < 1500; i++)
+        {
+            int source = random.nextInt(200), target = random.nextInt(200);
+            g.insertEdge(source, target);
+            sources.add(source);
+            targets.add(target);
+            if(i == 700)
+                g.compact();
+        }
+        CsrGraph expectedGraph = CsrGraph.fromEdges(sources.elements(), targets.elements(), sources.size());
+        int top = expectedGraph.vertices();
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRank(expectedGraph, top, top, 50, 0.85, 0.0001);
+        PersonalizedPageRankAlgorithm actual = new GuerrieriRank(g.snapshot(), top, top, 50, 0.85, 0.0001);
+        for(int v = 0; v < expectedGraph.vertices(); v++)
+        {
+            int id = expectedGraph.id(v);
+            assertEquals(expected.getMap(id).size(), actual.getMap(id).size());
+            for(int target: expected.getMap(id).keySet())
+                assertEquals(expected.getRank(id, target), actual.getRank(id, target), 0.0000001);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package graphTesting;
+
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.MultilevelPartitioner;
+import graph.Partitioning;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class MultilevelPartitionerTest extends TestCase
+{
+    Random random = new Random();
+
+    private CsrGraph randomGraph(final int edges, final int idRange)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(idRange);
+            targets[i] = random.nextInt(idRange);
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    //side x side grid with edges in both directions
+    private CsrGraph grid(final int side)
+    {
+        int n = side * side;
+        int[] sources = new int[n * 4];
+        int[] targets = new int[n * 4];
+        int e = 0;
+        for(int r = 0; r < side; r++)
+            for(int c = 0; c < side; c++)
+            {
+                if(c + 1 < side)
+                {
+                    sources[e] = r * side + c;
+                    targets[e++] = r * side + c + 1;
+                    sources[e] = r * side + c + 1;
+                    targets[e++] = r * side + c;
+                }
+                if(r + 1 < side)
+                {
+                    sources[e] = r * side + c;
+                    targets[e++] = (r + 1) * side + c;
+                    sources[e] = (r + 1) * side + c;
+                    targets[e++] = r * side + c;
+                }
+            }
+        return CsrGraph.fromEdges(sources, targets, e);
+    }
+
+    private long countCut(final IntGraph g, final Partitioning p)
+    {
+        long cut = 0;
+        int[] successors = new int[g.maxOutDegree()];
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int degree = g.successors(v, successors);
+            for(int i = 0; i < degree; i++)
+                if(p.getPart(v) != p.getPart(successors[i]))
+                    cut++;
+        }
+        return cut;
+    }
+
+    public void testBadParameters()
+    {
+        try
+        {
+            MultilevelPartitioner.partition(randomGraph(10, 10), 0);
+            fail("this line shouldn't be reached");
+        }
+        catch(IllegalArgumentException e){}
+        try
+        {
+            MultilevelPartitioner.partsForCache(randomGraph(10, 10), 0, 100);
+            fail("this line shouldn't be reached");
+        }
+        catch(IllegalArgumentException e){}
+    }
+
+    public void testSinglePart()
+    {
+        CsrGraph g = randomGraph(1000, 100);
+        Partitioning p = MultilevelPartitioner.partition(g, 1);
+        assertEquals(1, p.getParts());
+        assertEquals(g.vertices(), p.getPartSize(0));
+        assertEquals(0, p.getEdgeCut());
+    }
+
+    public void testEmptyGraph()
+    {
+        CsrGraph g = CsrGraph.fromEdges(new int[0], new int[0], 0);
+        Partitioning p = MultilevelPartitioner.partition(g, 4);
+        assertEquals(0, p.getEdgeCut());
+    }
+
+    public void testValidAndBalanced()
+    {
+        for(int parts: new int[]{2, 3, 8, 13})
+        {
+            CsrGraph g = randomGraph(20000, 3000);
+            Partitioning p = MultilevelPartitioner.partition(g, parts);
+            assertEquals(parts, p.getParts());
+            int total = 0;
+            for(int part = 0; part < parts; part++)
+            {
+                total += p.getPartSize(part);
+                //small slack over the allowed imbalance for the greedy refinement
+                assertTrue(p.getPartSize(part) <= g.vertices() / parts * 1.1 + 2);
+            }
+            assertEquals(g.vertices(), total);
+            assertEquals(countCut(g, p), p.getEdgeCut());
+        }
+    }
+
+    public void testGridCut()
+    {
+        //a 64x64 grid in 4 squares cuts 4 * 64 edges, a random split about 3/4 of them
+        CsrGraph g = grid(64);
+        Partitioning p = MultilevelPartitioner.partition(g, 4);
+        assertEquals(countCut(g, p), p.getEdgeCut());
+        assertTrue(p.getEdgeCut() < g.edges() / 10);
+    }
+
+    public void testClusters()
+    {
+        //two dense clusters joined by a single edge are split on that edge
+        int size = 200, edges = 4000;
+        int[] sources = new int[edges * 2 + 1];
+        int[] targets = new int[edges * 2 + 1];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(size);
+            targets[i] = random.nextInt(size);
+            sources[i + edges] = size + random.nextInt(size);
+            targets[i + edges] = size + random.nextInt(size);
+        }
+        sources[edges * 2] = 0;
+        targets[edges * 2] = size;
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, edges * 2 + 1);
+        Partitioning p = MultilevelPartitioner.partition(g, 2);
+        assertEquals(1, p.getEdgeCut());
+        assertEquals(size, p.getPartSize(0));
+    }
+
+    public void testDeterministic()
+    {
+        CsrGraph g = randomGraph(10000, 2000);
+        Partitioning first = MultilevelPartitioner.partition(g, 6);
+        Partitioning second = MultilevelPartitioner.partition(g, 6);
+        for(int v = 0; v < g.vertices(); v++)
+            assertEquals(first.getPart(v), second.getPart(v));
+    }
+
+    public void testSortByPart()
+    {
+        CsrGraph g = randomGraph(5000, 1000);
+        Partitioning p = MultilevelPartitioner.partition(g, 5);
+        int[] vertices = new int[g.vertices()];
+        for(int v = 0; v < vertices.length; v++)
+            vertices[v] = v;
+        int[] sorted = p.sortByPart(vertices);
+        int[] offsets = p.partOffsets(sorted);
+        assertEquals(g.vertices(), offsets[5]);
+        for(int part = 0; part < 5; part++)
+            for(int k = offsets[part]; k < offsets[part + 1]; k++)
+            {
+                assertEquals(part, p.getPart(sorted[k]));
+                //relative order is kept
+                if(k > offsets[part])
+                    assertTrue(sorted[k - 1] < sorted[k]);
+            }
+    }
+
+    public void testPartsForCache()
+    {
+        CsrGraph g = randomGraph(1000, 100);
+        assertEquals(1, MultilevelPartitioner.partsForCache(g, 10, 1 << 20));
+        assertEquals((g.vertices() * 100 + 999) / 1000, MultilevelPartitioner.partsForCache(g, 100, 1000));
+    }
+}
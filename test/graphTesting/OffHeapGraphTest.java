@@ -0,0 +1,174 @@
+package graphTesting;
+
+import algorithms.GuerrieriRankV2;
+import algorithms.PersonalizedPageRankAlgorithm;
+import graph.BufferGraph;
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.OffHeapGraph;
+import graph.SegmentedIntBuffer;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.DirectedPseudograph;
+
+public class OffHeapGraphTest extends TestCase
+{
+    Random random = new Random();
+
+    private DirectedPseudograph<Integer, DefaultEdge> randomGraph(final int vertices, final int edges)
+    {
+        DirectedPseudograph<Integer, DefaultEdge> g = new DirectedPseudograph<>(DefaultEdge.class);
+        for(int i = 0; i < vertices; i++)
+            g.addVertex(random.nextInt(100000));
+        Integer[] ids = g.vertexSet().toArray(new Integer[0]);
+        for(int i = 0; i < edges; i++)
+            g.addEdge(ids[random.nextInt(ids.length)], ids[random.nextInt(ids.length)]);
+        return g;
+    }
+
+    private void assertSameGraph(final IntGraph expected, final IntGraph actual)
+    {
+        assertEquals(expected.vertices(), actual.vertices());
+        assertEquals(expected.edges(), actual.edges());
+        assertEquals(expected.maxOutDegree(), actual.maxOutDegree());
+        assertEquals(expected.maxInDegree(), actual.maxInDegree());
+        int[] expectedBuffer = new int[Math.max(expected.maxOutDegree(), expected.maxInDegree())];
+        int[] actualBuffer = new int[expectedBuffer.length];
+        for(int v = 0; v < expected.vertices(); v++)
+        {
+            assertEquals(expected.id(v), actual.id(v));
+            assertEquals(actual.index(expected.id(v)), v);
+            int degree = expected.successors(v, expectedBuffer);
+            assertEquals(degree, actual.successors(v, actualBuffer));
+            for(int i = 0; i < degree; i++)
+                assertEquals(expectedBuffer[i], actualBuffer[i]);
+            degree = expected.predecessors(v, expectedBuffer);
+            assertEquals(degree, actual.predecessors(v, actualBuffer));
+            for(int i = 0; i < degree; i++)
+                assertEquals(expectedBuffer[i], actualBuffer[i]);
+        }
+    }
+
+    public void testEmptyGraph()
+    {
+        DirectedPseudograph<Integer, DefaultEdge> g = new DirectedPseudograph<>(DefaultEdge.class);
+        assertEquals(OffHeapGraph.fromGraph(g).vertices(), 0);
+        assertEquals(OffHeapGraph.copyOf(CsrGraph.fromGraph(g)).edges(), 0);
+    }
+
+    public void testSameGraphOfCsr()
+    {
+        for(int test = 0; test < 5; test++)
+        {
+            DirectedPseudograph<Integer, DefaultEdge> g = randomGraph(500, 5000);
+            CsrGraph csr = CsrGraph.fromGraph(g);
+            assertSameGraph(csr, OffHeapGraph.fromGraph(g));
+            assertSameGraph(csr, OffHeapGraph.copyOf(csr));
+        }
+    }
+
+    public void testSameResultsOfCsr()
+    {
+        DirectedPseudograph<Integer, DefaultEdge> g = randomGraph(300, 3000);
+        BufferGraph offHeap = OffHeapGraph.fromGraph(g);
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRankV2(g, 10, 30, 50, 0.85, 0.0001);
+        PersonalizedPageRankAlgorithm actual = new GuerrieriRankV2(offHeap, 10, 30, 50, 0.85, 0.0001);
+        for(int id: g.vertexSet())
+        {
+            assertEquals(expected.getMap(id).size(), actual.getMap(id).size());
+            for(int target: expected.getMap(id).keySet())
+                assertEquals(expected.getRank(id, target), actual.getRank(id, target), 0);
+        }
+    }
+
+    private static SegmentedIntBuffer segmented(final int[] values, final int segmentInts)
+    {
+        SegmentedIntBuffer res = SegmentedIntBuffer.allocateDirect(values.length, segmentInts);
+        for(int i = 0; i < values.length; i++)
+            res.put(i, values[i]);
+        return res;
+    }
+
+    public void testSegments()
+    {
+        //sections split in many small segments behave as a single buffer,
+        //the same code handles sections over 2^29 ints with 2^28 ints segments
+        CsrGraph csr = CsrGraph.fromGraph(randomGraph(300, 3000));
+        int n = csr.vertices();
+        int[] ids = new int[n], outOffsets = new int[n + 1], inOffsets = new int[n + 1];
+        int[] outTargets = new int[csr.edges()], inSources = new int[csr.edges()];
+        int[] buffer = new int[Math.max(csr.maxOutDegree(), csr.maxInDegree())];
+        for(int v = 0; v < n; v++)
+        {
+            ids[v] = csr.id(v);
+            int degree = csr.successors(v, buffer);
+            System.arraycopy(buffer, 0, outTargets, outOffsets[v], degree);
+            outOffsets[v + 1] = outOffsets[v] + degree;
+            degree = csr.predecessors(v, buffer);
+            System.arraycopy(buffer, 0, inSources, inOffsets[v], degree);
+            inOffsets[v + 1] = inOffsets[v] + degree;
+        }
+        for(int segmentInts: new int[]{1, 8, 1024})
+        {
+            SegmentedIntBuffer targets = segmented(outTargets, segmentInts);
+            assertEquals((outTargets.length + segmentInts - 1) / segmentInts, targets.segments());
+            assertEquals(outTargets.length, targets.length());
+            assertSameGraph(csr, new BufferGraph(segmented(ids, segmentInts), segmented(outOffsets, segmentInts),
+                    targets, segmented(inOffsets, segmentInts), segmented(inSources, segmentInts)));
+        }
+        try
+        {
+            SegmentedIntBuffer.allocateDirect(10, 3);
+            fail("segments must be a power of 2");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+
+    public void testWeightedGraph()
+    {
+        int edges = 3000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(300);
+            targets[i] = random.nextInt(300);
+            weights[i] = 1 + random.nextInt(10);
+        }
+        CsrGraph csr = CsrGraph.fromWeightedEdges(sources, targets, weights, edges);
+        BufferGraph offHeap = OffHeapGraph.copyOf(csr);
+        assertTrue(offHeap.isWeighted());
+        assertSameGraph(csr, offHeap);
+        assertSameWeights(csr, offHeap);
+        //weighted symmetric graphs share the weights too
+        CsrGraph symmetric = CsrGraph.symmetric(new int[]{0, 1, 2}, new int[]{0, 2, 3, 4}, 
+                new int[]{1, 2, 0, 0}, new double[]{2, 3, 2, 3});
+        offHeap = OffHeapGraph.copyOf(symmetric);
+        assertTrue(offHeap.isSymmetric());
+        assertSameWeights(symmetric, offHeap);
+        assertFalse(OffHeapGraph.copyOf(CsrGraph.fromEdges(sources, targets, edges)).isWeighted());
+    }
+
+    private void assertSameWeights(final IntGraph expected, final IntGraph actual)
+    {
+        int max = Math.max(expected.maxOutDegree(), expected.maxInDegree());
+        double[] expectedWeights = new double[max];
+        double[] actualWeights = new double[max];
+        for(int v = 0; v < expected.vertices(); v++)
+        {
+            assertEquals(expected.outWeight(v), actual.outWeight(v), 0);
+            int degree = expected.successorWeights(v, expectedWeights);
+            assertEquals(degree, actual.successorWeights(v, actualWeights));
+            for(int i = 0; i < degree; i++)
+                assertEquals(expectedWeights[i], actualWeights[i], 0);
+            degree = expected.predecessorWeights(v, expectedWeights);
+            assertEquals(degree, actual.predecessorWeights(v, actualWeights));
+            for(int i = 0; i < degree; i++)
+                assertEquals(expectedWeights[i], actualWeights[i], 0);
+        }
+    }
+}
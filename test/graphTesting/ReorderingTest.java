@@ -0,0 +1,240 @@
+package graphTesting;
+
+import algorithms.GuerrieriRank;
+import algorithms.PersonalizedPageRankAlgorithm;
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.Reordering;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class ReorderingTest extends TestCase
+{
+    Random random = new Random();
+
+    private CsrGraph randomGraph(final int edges, final int idRange)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(idRange);
+            targets[i] = random.nextInt(idRange);
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    //a grid whose ids are shuffled, so the initial order has no locality
+    private CsrGraph shuffledGrid(final int side)
+    {
+        int n = side * side;
+        int[] labels = new int[n];
+        for(int i = 0; i < n; i++)
+            labels[i] = i;
+        for(int i = n - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int tmp = labels[i];
+            labels[i] = labels[j];
+            labels[j] = tmp;
+        }
+        int[] sources = new int[n * 4];
+        int[] targets = new int[n * 4];
+        int e = 0;
+        for(int r = 0; r < side; r++)
+            for(int c = 0; c < side; c++)
+            {
+                if(c + 1 < side)
+                {
+                    sources[e] = labels[r * side + c];
+                    targets[e++] = labels[r * side + c + 1];
+                    sources[e] = labels[r * side + c + 1];
+                    targets[e++] = labels[r * side + c];
+                }
+                if(r + 1 < side)
+                {
+                    sources[e] = labels[r * side + c];
+                    targets[e++] = labels[(r + 1) * side + c];
+                    sources[e] = labels[(r + 1) * side + c];
+                    targets[e++] = labels[r * side + c];
+                }
+            }
+        return CsrGraph.fromEdges(sources, targets, e);
+    }
+
+    private boolean isPermutation(final int[] order, final int n)
+    {
+        if(order.length != n)
+            return false;
+        boolean[] seen = new boolean[n];
+        for(int v: order)
+        {
+            if(v < 0 || v >= n || seen[v])
+                return false;
+            seen[v] = true;
+        }
+        return true;
+    }
+
+    //edges are compared with the original ids
+    private void assertSameEdges(final IntGraph expected, final IntGraph actual)
+    {
+        assertEquals(expected.vertices(), actual.vertices());
+        assertEquals(expected.edges(), actual.edges());
+        int[] expectedBuffer = new int[Math.max(expected.maxOutDegree(), expected.maxInDegree())];
+        int[] actualBuffer = new int[expectedBuffer.length];
+        for(int v = 0; v < expected.vertices(); v++)
+        {
+            int w = actual.index(expected.id(v));
+            assertTrue(w >= 0);
+            int degree = expected.successors(v, expectedBuffer);
+            assertEquals(degree, actual.successors(w, actualBuffer));
+            long expectedSum = 0, actualSum = 0;
+            for(int i = 0; i < degree; i++)
+            {
+                expectedSum += expected.id(expectedBuffer[i]);
+                actualSum += actual.id(actualBuffer[i]);
+            }
+            assertEquals(expectedSum, actualSum);
+            degree = expected.predecessors(v, expectedBuffer);
+            assertEquals(degree, actual.predecessors(w, actualBuffer));
+        }
+    }
+
+    public void testOrdersArePermutations()
+    {
+        CsrGraph g = randomGraph(5000, 1000);
+        for(Reordering.VertexOrder order: new Reordering.VertexOrder[]{Reordering.DEGREE,
+                Reordering.RCM, Reordering.GORDER, Reordering.gorder(1)})
+        {
+            assertTrue(isPermutation(order.order(g), g.vertices()));
+            assertSameEdges(g, Reordering.reorder(g, order));
+        }
+        CsrGraph empty = CsrGraph.fromEdges(new int[0], new int[0], 0);
+        assertEquals(Reordering.GORDER.order(empty).length, 0);
+        assertEquals(Reordering.RCM.order(empty).length, 0);
+    }
+
+    public void testInvalidOrder()
+    {
+        CsrGraph g = randomGraph(10, 5);
+        try
+        {
+            Reordering.apply(g, new int[g.vertices() + 1]);
+            fail("orders of the wrong length must be rejected");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        try
+        {
+            Reordering.apply(g, new int[g.vertices()]);
+            fail("orders with repeated vertices must be rejected");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        try
+        {
+            Reordering.gorder(0);
+            fail("window must be positive");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+
+    public void testDegreeOrder()
+    {
+        CsrGraph g = Reordering.reorder(randomGraph(5000, 1000), Reordering.DEGREE);
+        for(int v = 1; v < g.vertices(); v++)
+            assertTrue(g.outDegree(v - 1) + g.inDegree(v - 1) >= g.outDegree(v) + g.inDegree(v));
+    }
+
+    public void testLocalityImproves()
+    {
+        CsrGraph g = shuffledGrid(40);
+        double before = Reordering.averageLogGap(g);
+        assertTrue(Reordering.averageLogGap(Reordering.reorder(g, Reordering.RCM)) < before);
+        assertTrue(Reordering.averageLogGap(Reordering.reorder(g, Reordering.GORDER)) < before);
+    }
+
+    public void testSameResultsWithOriginalIds()
+    {
+        CsrGraph g = randomGraph(2000, 200);
+        //top as big as the graph, so ties can't select different nodes
+        int top = g.vertices();
+        PersonalizedPageRankAlgorithm expected = new GuerrieriRank(g, top, top, 50, 0.85, 0.0001);
+        for(Reordering.VertexOrder order: new Reordering.VertexOrder[]{Reordering.DEGREE,
+                Reordering.RCM, Reordering.GORDER})
+        {
+            PersonalizedPageRankAlgorithm actual = new GuerrieriRank(Reordering.reorder(g, order),
+                    top, top, 50, 0.85, 0.0001);
+            for(int v = 0; v < g.vertices(); v++)
+            {
+                int id = g.id(v);
+                assertEquals(expected.getMap(id).size(), actual.getMap(id).size());
+                for(int target: expected.getMap(id).keySet())
+                    assertEquals(expected.getRank(id, target), actual.getRank(id, target), 0.0000001);
+            }
+        }
+    }
+
+    public void testSymmetricStaysSymmetric()
+    {
+        int edges = 3000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(500);
+            targets[i] = random.nextInt(500);
+        }
+        CsrGraph g = CsrGraph.fromUndirectedEdges(sources, targets, edges);
+        for(Reordering.VertexOrder order: new Reordering.VertexOrder[]{Reordering.DEGREE,
+                Reordering.RCM, Reordering.GORDER})
+        {
+            CsrGraph reordered = Reordering.reorder(g, order);
+            assertTrue(reordered.isSymmetric());
+            assertSameEdges(g, reordered);
+        }
+    }
+
+    public void testWeightsFollowTheirEdges()
+    {
+        //each edge u->v has weight u * 1000 + v, so after reordering weights
+        //can be checked against the original ids
+        int edges = 3000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(500);
+            targets[i] = random.nextInt(500);
+            weights[i] = sources[i] * 1000 + targets[i] + 1;
+        }
+        CsrGraph g = CsrGraph.fromWeightedEdges(sources, targets, weights, edges);
+        for(Reordering.VertexOrder order: new Reordering.VertexOrder[]{Reordering.DEGREE,
+                Reordering.RCM, Reordering.GORDER})
+        {
+            CsrGraph reordered = Reordering.reorder(g, order);
+            assertTrue(reordered.isWeighted());
+            assertSameEdges(g, reordered);
+            int[] neighbours = new int[Math.max(g.maxOutDegree(), g.maxInDegree())];
+            double[] buffer = new double[neighbours.length];
+            for(int v = 0; v < reordered.vertices(); v++)
+            {
+                int degree = reordered.successors(v, neighbours);
+                reordered.successorWeights(v, buffer);
+                for(int i = 0; i < degree; i++)
+                    assertEquals(buffer[i], reordered.id(v) * 1000 + reordered.id(neighbours[i]) + 1, 0);
+                degree = reordered.predecessors(v, neighbours);
+                reordered.predecessorWeights(v, buffer);
+                for(int i = 0; i < degree; i++)
+                    assertEquals(buffer[i], reordered.id(neighbours[i]) * 1000 + reordered.id(v) + 1, 0);
+                assertEquals(reordered.outWeight(v), g.outWeight(g.index(reordered.id(v))), 0.0001);
+            }
+        }
+    }
+}
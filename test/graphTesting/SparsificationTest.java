@@ -0,0 +1,167 @@
+package graphTesting;
+
+import graph.CsrGraph;
+import graph.IntGraph;
+import graph.Sparsification;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class SparsificationTest extends TestCase
+{
+    Random random = new Random();
+
+    private CsrGraph randomGraph(final int edges, final int idRange, final boolean weighted)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            //a few hubs with many successors
+            sources[i] = random.nextInt(4) == 0? random.nextInt(5) : random.nextInt(idRange);
+            targets[i] = random.nextInt(idRange);
+            weights[i] = 1 + random.nextInt(10);
+        }
+        return weighted? CsrGraph.fromWeightedEdges(sources, targets, weights, edges)
+                : CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    private void assertSameVertices(final IntGraph expected, final IntGraph actual)
+    {
+        assertEquals(expected.vertices(), actual.vertices());
+        for(int v = 0; v < expected.vertices(); v++)
+            assertEquals(expected.id(v), actual.id(v));
+    }
+
+    //every edge of the sparsified graph is in the original one
+    private void assertSubgraph(final IntGraph g, final IntGraph sparse)
+    {
+        for(int v = 0; v < sparse.vertices(); v++)
+            for(int i = 0; i < sparse.outDegree(v); i++)
+            {
+                boolean found = false;
+                for(int j = 0; j < g.outDegree(v) && !found; j++)
+                    found = g.successor(v, j) == sparse.successor(v, i);
+                assertTrue(found);
+            }
+    }
+
+    public void testInvalidArguments()
+    {
+        try
+        {
+            Sparsification.capHubs(0, 1);
+            fail("max degree must be positive");
+        }
+        catch(IllegalArgumentException e){}
+        try
+        {
+            Sparsification.resistance(0, 1);
+            fail("factor must be positive");
+        }
+        catch(IllegalArgumentException e){}
+        CsrGraph g = CsrGraph.fromEdges(new int[]{0, 1}, new int[]{1, 0}, 2);
+        try
+        {
+            Sparsification.sparsify(g, graph -> new double[1]);
+            fail("a weight is needed for each edge");
+        }
+        catch(IllegalArgumentException e){}
+        try
+        {
+            Sparsification.sparsify(g, graph -> new double[]{1, -1});
+            fail("weights can't be negative");
+        }
+        catch(IllegalArgumentException e){}
+    }
+
+    public void testKeepEverything()
+    {
+        CsrGraph g = randomGraph(2000, 300, false);
+        CsrGraph sparse = Sparsification.sparsify(g, Sparsification.capHubs(g.maxOutDegree(), 1));
+        assertSameVertices(g, sparse);
+        assertFalse(sparse.isWeighted());
+        assertEquals(g.edges(), sparse.edges());
+        assertEquals(0, Sparsification.edgeReduction(g, sparse), 0);
+        for(int v = 0; v < g.vertices(); v++)
+            for(int i = 0; i < g.outDegree(v); i++)
+                assertEquals(g.successor(v, i), sparse.successor(v, i));
+    }
+
+    public void testCapHubs()
+    {
+        CsrGraph g = randomGraph(3000, 300, false);
+        CsrGraph sparse = Sparsification.sparsify(g, Sparsification.capHubs(20, 1));
+        assertSameVertices(g, sparse);
+        assertSubgraph(g, sparse);
+        assertFalse(sparse.isWeighted());
+        assertTrue(sparse.edges() < g.edges());
+        assertTrue(Sparsification.edgeReduction(g, sparse) > 0);
+        for(int v = 0; v < g.vertices(); v++)
+            assertEquals(Math.min(20, g.outDegree(v)), sparse.outDegree(v));
+        //same seed, same graph
+        CsrGraph again = Sparsification.sparsify(g, Sparsification.capHubs(20, 1));
+        for(int v = 0; v < g.vertices(); v++)
+            for(int i = 0; i < sparse.outDegree(v); i++)
+                assertEquals(sparse.successor(v, i), again.successor(v, i));
+    }
+
+    public void testCapWeightedHubs()
+    {
+        CsrGraph g = randomGraph(3000, 300, true);
+        CsrGraph sparse = Sparsification.sparsify(g, Sparsification.capHubs(20, 1));
+        assertSameVertices(g, sparse);
+        assertSubgraph(g, sparse);
+        assertTrue(sparse.isWeighted());
+        double[] weights = new double[g.maxOutDegree()];
+        double[] kept = new double[g.maxOutDegree()];
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            int degree = g.successorWeights(v, weights);
+            int keptDegree = sparse.successorWeights(v, kept);
+            assertEquals(Math.min(20, degree), keptDegree);
+            //the lightest kept edge is at least as heavy as any removed one
+            double lightest = Double.MAX_VALUE, keptWeight = 0, total = 0;
+            for(int i = 0; i < keptDegree; i++)
+            {
+                lightest = Math.min(lightest, kept[i]);
+                keptWeight += kept[i];
+            }
+            for(int i = 0; i < degree; i++)
+                total += weights[i];
+            if(degree > 20)
+            {
+                int heavier = 0;
+                for(int i = 0; i < degree; i++)
+                    if(weights[i] > lightest)
+                        heavier++;
+                assertTrue(heavier < 20);
+            }
+            assertTrue(keptWeight <= total);
+        }
+    }
+
+    public void testResistance()
+    {
+        CsrGraph g = randomGraph(5000, 300, false);
+        CsrGraph sparse = Sparsification.sparsify(g, Sparsification.resistance(0.5, 1));
+        assertSameVertices(g, sparse);
+        assertSubgraph(g, sparse);
+        assertTrue(sparse.edges() < g.edges());
+        //kept edges are reweighted by the inverse of their probability
+        assertTrue(sparse.isWeighted());
+        double outWeight = 0, sparseOutWeight = 0;
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            outWeight += g.outWeight(v);
+            sparseOutWeight += sparse.outWeight(v);
+        }
+        //same total weight in expectation
+        assertEquals(1, sparseOutWeight / outWeight, 0.2);
+
+        //high factors keep every edge with its weight
+        CsrGraph all = Sparsification.sparsify(g, Sparsification.resistance(1000, 1));
+        assertEquals(g.edges(), all.edges());
+        assertFalse(all.isWeighted());
+    }
+}
@@ -0,0 +1,153 @@
+package graphTesting;
+
+import graph.CsrGraph;
+import graph.StronglyConnectedComponents;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class StronglyConnectedComponentsTest extends TestCase
+{
+    Random random = new Random();
+
+    private CsrGraph randomGraph(final int edges, final int idRange)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(idRange);
+            targets[i] = random.nextInt(idRange);
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    //vertices reachable from v
+    private boolean[] reachable(final CsrGraph g, final int v)
+    {
+        boolean[] res = new boolean[g.vertices()];
+        int[] queue = new int[g.vertices()];
+        int head = 0, tail = 0;
+        res[v] = true;
+        queue[tail++] = v;
+        while(head < tail)
+        {
+            int next = queue[head++];
+            for(int i = 0; i < g.outDegree(next); i++)
+            {
+                int s = g.successor(next, i);
+                if(!res[s])
+                {
+                    res[s] = true;
+                    queue[tail++] = s;
+                }
+            }
+        }
+        return res;
+    }
+
+    public void testEmptyGraph()
+    {
+        StronglyConnectedComponents components = new StronglyConnectedComponents(
+                CsrGraph.fromEdges(new int[0], new int[0], 0));
+        assertEquals(0, components.getCount());
+        assertEquals(0, components.getOrder().length);
+    }
+
+    public void testSmallGraph()
+    {
+        //cycle 0 -> 1 -> 2 -> 0, then 2 -> 3 -> 4, 4 has a self loop, 5 -> 0
+        int[] sources = {0, 1, 2, 2, 3, 4, 5};
+        int[] targets = {1, 2, 0, 3, 4, 4, 0};
+        CsrGraph g = CsrGraph.fromEdges(sources, targets, sources.length);
+        StronglyConnectedComponents components = new StronglyConnectedComponents(g);
+        assertEquals(4, components.getCount());
+        int cycle = components.getComponent(g.index(0));
+        assertEquals(cycle, components.getComponent(g.index(1)));
+        assertEquals(cycle, components.getComponent(g.index(2)));
+        assertEquals(3, components.getSize(cycle));
+        assertFalse(components.isTrivial(cycle));
+        assertTrue(components.isTrivial(components.getComponent(g.index(3))));
+        //self loops make a single vertex a cycle
+        assertFalse(components.isTrivial(components.getComponent(g.index(4))));
+        assertTrue(components.isTrivial(components.getComponent(g.index(5))));
+        //successors come first
+        assertTrue(components.getComponent(g.index(4)) < components.getComponent(g.index(3)));
+        assertTrue(components.getComponent(g.index(3)) < cycle);
+        assertTrue(cycle < components.getComponent(g.index(5)));
+    }
+
+    public void testRandomGraphs()
+    {
+        for(int t = 0; t < 5; t++)
+        {
+            CsrGraph g = randomGraph(400, 300);
+            StronglyConnectedComponents components = new StronglyConnectedComponents(g);
+            boolean[][] reach = new boolean[g.vertices()][];
+            for(int v = 0; v < g.vertices(); v++)
+                reach[v] = reachable(g, v);
+            for(int u = 0; u < g.vertices(); u++)
+            {
+                for(int v = 0; v < g.vertices(); v++)
+                    assertEquals(reach[u][v] && reach[v][u],
+                            components.getComponent(u) == components.getComponent(v));
+                //edges never go to a later component
+                for(int i = 0; i < g.outDegree(u); i++)
+                    assertTrue(components.getComponent(g.successor(u, i)) <= components.getComponent(u));
+            }
+
+            int[] order = components.getOrder();
+            int[] offsets = components.getOffsets();
+            assertEquals(g.vertices(), offsets[components.getCount()]);
+            for(int c = 0; c < components.getCount(); c++)
+                for(int k = offsets[c]; k < offsets[c + 1]; k++)
+                    assertEquals(c, components.getComponent(order[k]));
+        }
+    }
+
+    public void testLongPath()
+    {
+        //deep enough to overflow the stack of a recursive version
+        int n = 200000;
+        int[] sources = new int[n];
+        int[] targets = new int[n];
+        for(int i = 0; i < n - 1; i++)
+        {
+            sources[i] = i;
+            targets[i] = i + 1;
+        }
+        sources[n - 1] = n - 1;
+        targets[n - 1] = 0;
+        CsrGraph cycle = CsrGraph.fromEdges(sources, targets, n);
+        assertEquals(1, new StronglyConnectedComponents(cycle).getCount());
+        CsrGraph path = CsrGraph.fromEdges(sources, targets, n - 1);
+        StronglyConnectedComponents components = new StronglyConnectedComponents(path);
+        assertEquals(n, components.getCount());
+        for(int c = 0; c < n; c++)
+            assertTrue(components.isTrivial(c));
+    }
+
+    public void testFromComponents()
+    {
+        CsrGraph g = randomGraph(400, 300);
+        StronglyConnectedComponents expected = new StronglyConnectedComponents(g);
+        int[] components = new int[g.vertices()];
+        for(int v = 0; v < g.vertices(); v++)
+            components[v] = expected.getComponent(v);
+        StronglyConnectedComponents actual = new StronglyConnectedComponents(g, components);
+        assertEquals(expected.getCount(), actual.getCount());
+        for(int k = 0; k < g.vertices(); k++)
+            assertEquals(expected.getOrder()[k], actual.getOrder()[k]);
+        for(int c = 0; c < expected.getCount(); c++)
+            assertEquals(expected.isTrivial(c), actual.isTrivial(c));
+
+        //numbered in topological order instead
+        for(int v = 0; v < g.vertices(); v++)
+            components[v] = expected.getCount() - 1 - expected.getComponent(v);
+        try
+        {
+            new StronglyConnectedComponents(g, components);
+            fail("this line shouldn't be reached");
+        }
+        catch(IllegalArgumentException e){}
+    }
+}
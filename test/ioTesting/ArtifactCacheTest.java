@@ -0,0 +1,156 @@
+package ioTesting;
+
+import algorithms.GlobalPageRank;
+import graph.CsrGraph;
+import graph.MultilevelPartitioner;
+import graph.Partitioning;
+import graph.StronglyConnectedComponents;
+import io.ArtifactCache;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class ArtifactCacheTest extends TestCase
+{
+    Random random = new Random();
+
+    private File tempDirectory() throws IOException
+    {
+        File directory = Files.createTempDirectory("artifacts").toFile();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    private int[][] randomEdges(final int edges, final int idRange)
+    {
+        int[][] res = new int[2][edges];
+        for(int i = 0; i < edges; i++)
+        {
+            res[0][i] = random.nextInt(idRange);
+            res[1][i] = random.nextInt(idRange);
+        }
+        return res;
+    }
+
+    private void deleteAll(final File directory)
+    {
+        for(File file: directory.listFiles())
+            file.delete();
+        directory.delete();
+    }
+
+    public void testHash()
+    {
+        int[][] edges = randomEdges(1000, 300);
+        CsrGraph g = CsrGraph.fromEdges(edges[0], edges[1], 1000);
+        //same content, same hash
+        assertEquals(ArtifactCache.hash(g), ArtifactCache.hash(CsrGraph.fromEdges(edges[0], edges[1], 1000)));
+        //one edge less
+        assertFalse(ArtifactCache.hash(g) == ArtifactCache.hash(CsrGraph.fromEdges(edges[0], edges[1], 999)));
+        //weights are part of the content
+        double[] weights = new double[1000];
+        Arrays.fill(weights, 2);
+        assertFalse(ArtifactCache.hash(g)
+                == ArtifactCache.hash(CsrGraph.fromWeightedEdges(edges[0], edges[1], weights, 1000)));
+    }
+
+    public void testReadBack() throws IOException
+    {
+        File directory = tempDirectory();
+        int[][] edges = randomEdges(1000, 300);
+        CsrGraph g = CsrGraph.fromEdges(edges[0], edges[1], 1000);
+        int[] ints = {3, 1, 4, 1, 5};
+        double[] doubles = {2.5, -1, 0.125};
+
+        ArtifactCache cache = new ArtifactCache(g, directory.getPath());
+        assertSame(ints, cache.getInts("ints", () -> ints));
+        assertSame(doubles, cache.getDoubles("doubles", () -> doubles));
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+
+        //a new cache on an equal graph reads them without computing
+        cache = new ArtifactCache(CsrGraph.fromEdges(edges[0], edges[1], 1000), directory.getPath());
+        int[] readInts = cache.getInts("ints", () -> { fail("this line shouldn't be reached"); return null; });
+        double[] readDoubles = cache.getDoubles("doubles",
+                () -> { fail("this line shouldn't be reached"); return null; });
+        assertEquals(2, cache.getHits());
+        assertEquals(ints.length, readInts.length);
+        for(int i = 0; i < ints.length; i++)
+            assertEquals(ints[i], readInts[i]);
+        assertEquals(doubles.length, readDoubles.length);
+        for(int i = 0; i < doubles.length; i++)
+            assertEquals(doubles[i], readDoubles[i], 0);
+        deleteAll(directory);
+    }
+
+    public void testStaleArtifacts() throws IOException
+    {
+        File directory = tempDirectory();
+        int[][] edges = randomEdges(1000, 300);
+        CsrGraph g = CsrGraph.fromEdges(edges[0], edges[1], 1000);
+        new ArtifactCache(g, directory.getPath()).getInts("ints", () -> new int[]{1, 2});
+
+        //different graph
+        ArtifactCache cache = new ArtifactCache(CsrGraph.fromEdges(edges[0], edges[1], 999), directory.getPath());
+        assertEquals(3, cache.getInts("ints", () -> new int[]{3})[0]);
+        assertEquals(1, cache.getMisses());
+
+        //same name with another type
+        cache.getDoubles("ints", () -> new double[]{1});
+        assertEquals(2, cache.getMisses());
+
+        //truncated file
+        cache.getInts("truncated", () -> new int[]{1, 2, 3});
+        try(RandomAccessFile file = new RandomAccessFile(new File(directory, "truncated.art"), "rw"))
+        {
+            file.setLength(file.length() - 4);
+        }
+        assertEquals(3, cache.getInts("truncated", () -> new int[]{1, 2, 3}).length);
+        assertEquals(4, cache.getMisses());
+        assertEquals(0, cache.getHits());
+
+        //clear removes everything
+        cache.clear();
+        cache.getInts("ints", () -> new int[]{3});
+        assertEquals(5, cache.getMisses());
+        deleteAll(directory);
+    }
+
+    public void testArtifacts() throws IOException
+    {
+        File directory = tempDirectory();
+        int[][] edges = randomEdges(5000, 1000);
+        CsrGraph g = CsrGraph.fromEdges(edges[0], edges[1], 5000);
+        for(int run = 0; run < 2; run++)
+        {
+            ArtifactCache cache = new ArtifactCache(g, directory.getPath());
+            Partitioning expectedParts = MultilevelPartitioner.partition(g, 4);
+            Partitioning parts = cache.partitioning(4);
+            assertEquals(expectedParts.getEdgeCut(), parts.getEdgeCut());
+            for(int v = 0; v < g.vertices(); v++)
+                assertEquals(expectedParts.getPart(v), parts.getPart(v));
+
+            StronglyConnectedComponents expectedComponents = new StronglyConnectedComponents(g);
+            StronglyConnectedComponents components = cache.components();
+            assertEquals(expectedComponents.getCount(), components.getCount());
+            for(int v = 0; v < g.vertices(); v++)
+                assertEquals(expectedComponents.getComponent(v), components.getComponent(v));
+            for(int c = 0; c < components.getCount(); c++)
+                assertEquals(expectedComponents.isTrivial(c), components.isTrivial(c));
+
+            double[] expectedRank = GlobalPageRank.getScores(g, 0.85, 100, 0.0001);
+            double[] rank = cache.pageRank(0.85, 100, 0.0001);
+            for(int v = 0; v < g.vertices(); v++)
+                assertEquals(expectedRank[v], rank[v], 0);
+
+            //first run computes, second run reads
+            assertEquals(run == 0? 3 : 0, cache.getMisses());
+            assertEquals(run == 0? 0 : 3, cache.getHits());
+        }
+        deleteAll(directory);
+    }
+}
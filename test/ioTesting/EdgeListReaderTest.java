@@ -0,0 +1,304 @@
+package ioTesting;
+
+import graph.CsrGraph;
+import graph.IntGraph;
+import io.EdgeListReader;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import junit.framework.TestCase;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+import personalizedpagerank.PersonalizedPagerank;
+
+public class EdgeListReaderTest extends TestCase
+{
+    Random random = new Random();
+
+    private File write(final String content, final boolean gzip) throws IOException
+    {
+        File file = File.createTempFile("edges", gzip? ".gz" : ".csv");
+        file.deleteOnExit();
+        try(OutputStream out = gzip? new GZIPOutputStream(new FileOutputStream(file))
+                : new FileOutputStream(file))
+        {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+        return file;
+    }
+
+    private String randomEdges(final int lines, final int idRange)
+    {
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < lines; i++)
+            builder.append(random.nextInt(idRange)).append(",").append(random.nextInt(idRange)).append("\n");
+        return builder.toString();
+    }
+
+    private DirectedGraph<Integer, DefaultEdge> jgrapht(final String content)
+    {
+        DirectedGraph<Integer, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+        for(String line: content.split("\n"))
+        {
+            String[] edge = line.split(",");
+            Integer v1 = Integer.parseInt(edge[0]);
+            Integer v2 = Integer.parseInt(edge[1]);
+            g.addVertex(v1);
+            g.addVertex(v2);
+            g.addEdge(v1, v2);
+        }
+        return g;
+    }
+
+    private void assertSameGraph(final DirectedGraph<Integer, DefaultEdge> expected, final IntGraph actual)
+    {
+        assertEquals(expected.vertexSet().size(), actual.vertices());
+        assertEquals(expected.edgeSet().size(), actual.edges());
+        for(int v = 0; v < actual.vertices(); v++)
+        {
+            int id = actual.id(v);
+            assertTrue(expected.containsVertex(id));
+            assertEquals(expected.outDegreeOf(id), actual.outDegree(v));
+            assertEquals(expected.inDegreeOf(id), actual.inDegree(v));
+            int previous = -1;
+            for(int i = 0; i < actual.outDegree(v); i++)
+            {
+                //sorted and without duplicates
+                assertTrue(actual.successor(v, i) > previous);
+                previous = actual.successor(v, i);
+                assertTrue(expected.containsEdge(id, actual.id(previous)));
+            }
+        }
+    }
+
+    private void assertSameGraph(final IntGraph expected, final IntGraph actual)
+    {
+        assertEquals(expected.vertices(), actual.vertices());
+        assertEquals(expected.edges(), actual.edges());
+        int[] expectedBuffer = new int[expected.maxInDegree()];
+        int[] actualBuffer = new int[actual.maxInDegree()];
+        for(int v = 0; v < expected.vertices(); v++)
+        {
+            assertEquals(expected.id(v), actual.id(v));
+            assertEquals(expected.outDegree(v), actual.outDegree(v));
+            for(int i = 0; i < expected.outDegree(v); i++)
+                assertEquals(expected.successor(v, i), actual.successor(v, i));
+            int inDegree = expected.predecessors(v, expectedBuffer);
+            assertEquals(inDegree, actual.predecessors(v, actualBuffer));
+            for(int i = 0; i < inDegree; i++)
+                assertEquals(expectedBuffer[i], actualBuffer[i]);
+        }
+    }
+
+    public void testEmptyFile() throws IOException
+    {
+        CsrGraph g = EdgeListReader.read(write("", false).getPath(), 4);
+        assertEquals(g.vertices(), 0);
+        assertEquals(g.edges(), 0);
+    }
+
+    public void testFormats() throws IOException
+    {
+        String content = "# SNAP comment\n"
+                + "% KONECT comment\n"
+                + "1,2\n"
+                + "1\t3\r\n"
+                + "\n"
+                + "2 3 1 1234567\n"
+                + "1,2\n"
+                + "-5,5\n"
+                + "3,3";
+        for(boolean gzip: new boolean[]{false, true})
+        {
+            CsrGraph g = EdgeListReader.read(write(content, gzip).getPath(), 2);
+            assertEquals(g.vertices(), 5);
+            //the duplicated 1,2 is kept once, the self loop is kept
+            assertEquals(g.edges(), 5);
+            assertEquals(g.id(0), -5);
+            assertEquals(g.outDegree(g.index(1)), 2);
+            assertEquals(g.id(g.successor(g.index(1), 0)), 2);
+            assertEquals(g.id(g.successor(g.index(1), 1)), 3);
+            assertEquals(g.inDegree(g.index(3)), 3);
+            assertEquals(g.outDegree(g.index(3)), 1);
+        }
+    }
+
+    public void testMalformedLines() throws IOException
+    {
+        for(String content: new String[]{"1,2\n3\n", "1,a\n", "1,99999999999\n"})
+        {
+            try
+            {
+                EdgeListReader.read(write(content, false).getPath(), 1);
+                fail("malformed line must be rejected: " + content);
+            }
+            catch(IOException e)
+            {
+            }
+        }
+    }
+
+    public void testSameGraphOfJgrapht() throws IOException
+    {
+        //dense and sparse ids
+        for(int idRange: new int[]{1000, 100000000})
+        {
+            String content = randomEdges(20000, idRange);
+            IntGraph g = EdgeListReader.read(write(content, false).getPath(), 4);
+            assertSameGraph(jgrapht(content), g);
+        }
+    }
+
+    public void testThreadsDontChangeTheResult() throws IOException
+    {
+        //big enough to be split in chunks
+        String content = randomEdges(100000, 5000);
+        File file = write(content, false);
+        File gzip = write(content, true);
+        CsrGraph expected = EdgeListReader.read(file.getPath(), 1);
+        for(int threads: new int[]{2, 3, 8})
+        {
+            assertSameGraph(expected, EdgeListReader.read(file.getPath(), threads));
+            assertSameGraph(expected, EdgeListReader.read(gzip.getPath(), threads));
+        }
+    }
+
+    public void testForEachEdge() throws IOException
+    {
+        //big enough to be split in chunks
+        String content = "# comment\n" + randomEdges(100000, 5000);
+        File file = write(content, false);
+        File gzip = write(content, true);
+        for(File f: new File[]{file, gzip})
+            for(int threads: new int[]{1, 4})
+            {
+                StringBuilder builder = new StringBuilder("# comment\n");
+                EdgeListReader.forEachEdge(f.getPath(), threads, (source, target) ->
+                        builder.append(source).append(",").append(target).append("\n"));
+                assertEquals(content, builder.toString());
+            }
+
+        //the importer adds vertices in order of first appearance
+        DirectedGraph<Integer, DefaultEdge> g = new DefaultDirectedGraph<>(DefaultEdge.class);
+        PersonalizedPagerank.importGraphFromCsv(g, file.getPath());
+        DirectedGraph<Integer, DefaultEdge> expected = jgrapht(content.substring(content.indexOf('\n') + 1));
+        assertEquals(new ArrayList<>(expected.vertexSet()), new ArrayList<>(g.vertexSet()));
+        assertEquals(expected.edgeSet().size(), g.edgeSet().size());
+    }
+
+    public void testBipartiteUndirected() throws IOException
+    {
+        String content = randomEdges(50000, 3000);
+        IntGraph g = EdgeListReader.readBipartiteUndirected(write(content, false).getPath(), 4);
+
+        //same renaming of the sequential importer
+        Int2IntOpenHashMap left = new Int2IntOpenHashMap();
+        Int2IntOpenHashMap right = new Int2IntOpenHashMap();
+        DirectedGraph<Integer, DefaultEdge> expected = new DefaultDirectedGraph<>(DefaultEdge.class);
+        int count = 0;
+        for(String line: content.split("\n"))
+        {
+            String[] edge = line.split(",");
+            int v1 = Integer.parseInt(edge[0]);
+            int v2 = Integer.parseInt(edge[1]);
+            if(!left.containsKey(v1))
+                left.put(v1, count++);
+            if(!right.containsKey(v2))
+                right.put(v2, count++);
+            expected.addVertex(left.get(v1));
+            expected.addVertex(right.get(v2));
+            expected.addEdge(left.get(v1), right.get(v2));
+            expected.addEdge(right.get(v2), left.get(v1));
+        }
+        assertSameGraph(expected, g);
+        assertTrue(g.isSymmetric());
+        for(int v = 0; v < g.vertices(); v++)
+        {
+            assertEquals(g.id(v), v);
+            assertEquals(g.outDegree(v), g.inDegree(v));
+        }
+    }
+
+    public void testUndirected() throws IOException
+    {
+        String content = randomEdges(50000, 3000);
+        DirectedGraph<Integer, DefaultEdge> expected = jgrapht(content);
+        for(String line: content.split("\n"))
+        {
+            String[] edge = line.split(",");
+            expected.addEdge(Integer.parseInt(edge[1]), Integer.parseInt(edge[0]));
+        }
+        File file = write(content, false);
+        for(int threads: new int[]{1, 4})
+        {
+            IntGraph g = EdgeListReader.readUndirected(file.getPath(), threads);
+            assertTrue(g.isSymmetric());
+            assertSameGraph(expected, g);
+        }
+        assertFalse(EdgeListReader.read(file.getPath(), 4).isSymmetric());
+    }
+
+    public void testWeighted() throws IOException
+    {
+        String content = "# weighted\n1,2,0.5\n2 3 2\n1\t3\t1e-1\n3,1\n1,2,1.5\n";
+        File file = write(content, false);
+        for(int threads: new int[]{1, 4})
+        {
+            CsrGraph g = EdgeListReader.readWeighted(file.getPath(), threads);
+            assertTrue(g.isWeighted());
+            assertEquals(g.vertices(), 3);
+            assertEquals(g.edges(), 5);
+            //the duplicated edge is kept, weights add up
+            int v = g.index(1);
+            assertEquals(g.outWeight(v), 0.5 + 0.1 + 1.5, 0.0000001);
+            //a line without weight gets weight 1
+            assertEquals(g.outWeight(g.index(3)), 1, 0);
+            assertEquals(g.outWeight(g.index(2)), 2, 0);
+        }
+        try
+        {
+            EdgeListReader.readWeighted(write("1,2,abc\n", false).getPath(), 1);
+            fail("malformed weights must be rejected");
+        }
+        catch(IOException e)
+        {
+        }
+        try
+        {
+            EdgeListReader.readWeighted(write("1,2,-1\n", false).getPath(), 1);
+            fail("negative weights must be rejected");
+        }
+        catch(IOException e)
+        {
+        }
+    }
+
+    public void testWeightNotations() throws IOException
+    {
+        //each weight must be the same double of Double.parseDouble, both on
+        //the fast path and on the fallback (long mantissas, large exponents)
+        String[] fixed = {"1", "0.5", "2e-3", "1E+2", ".25", "3.", "0.000123", "+7",
+            "123456789012345", "1234567890123456789", "0.1000000000000000055511151231257827",
+            "1e300", "4.9e-324", "2.5e-30", "0x1p3", "1d", "007.50", "1e22", "1e23"};
+        String[] weights = new String[fixed.length + 1000];
+        System.arraycopy(fixed, 0, weights, 0, fixed.length);
+        for(int i = fixed.length; i < weights.length; i++)
+            weights[i] = random.nextBoolean()? Double.toString(random.nextDouble() * 1000)
+                    : String.format(Locale.ROOT, "%." + random.nextInt(8) + "f", 1 + random.nextDouble() * 10);
+        StringBuilder content = new StringBuilder();
+        for(int i = 0; i < weights.length; i++)
+            content.append(i).append(',').append(i + weights.length).append(',').append(weights[i]).append('\n');
+        CsrGraph g = EdgeListReader.readWeighted(write(content.toString(), false).getPath(), 2);
+        for(int i = 0; i < weights.length; i++)
+            assertEquals(weights[i], Double.parseDouble(weights[i]), g.outWeight(g.index(i)), 0);
+    }
+}
@@ -0,0 +1,247 @@
+package ioTesting;
+
+import graph.BufferGraph;
+import graph.CsrGraph;
+import graph.IntGraph;
+import io.GraphFile;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class GraphFileTest extends TestCase
+{
+    Random random = new Random();
+
+    private File tempFile() throws IOException
+    {
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private CsrGraph randomGraph(final int vertices, final int edges, final int idRange)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(idRange);
+            targets[i] = random.nextInt(idRange);
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    private void assertSameGraph(final IntGraph expected, final IntGraph actual)
+    {
+        assertEquals(expected.vertices(), actual.vertices());
+        assertEquals(expected.edges(), actual.edges());
+        assertEquals(expected.maxOutDegree(), actual.maxOutDegree());
+        assertEquals(expected.maxInDegree(), actual.maxInDegree());
+        int[] expectedBuffer = new int[Math.max(expected.maxOutDegree(), expected.maxInDegree())];
+        int[] actualBuffer = new int[expectedBuffer.length];
+        for(int v = 0; v < expected.vertices(); v++)
+        {
+            assertEquals(expected.id(v), actual.id(v));
+            assertEquals(actual.index(actual.id(v)), v);
+            int degree = expected.successors(v, expectedBuffer);
+            assertEquals(degree, actual.successors(v, actualBuffer));
+            for(int i = 0; i < degree; i++)
+            {
+                assertEquals(expectedBuffer[i], actualBuffer[i]);
+                assertEquals(expectedBuffer[i], actual.successor(v, i));
+            }
+            degree = expected.predecessors(v, expectedBuffer);
+            assertEquals(degree, actual.predecessors(v, actualBuffer));
+            for(int i = 0; i < degree; i++)
+                assertEquals(expectedBuffer[i], actualBuffer[i]);
+        }
+    }
+
+    public void testEmptyGraph() throws IOException
+    {
+        File file = tempFile();
+        CsrGraph g = CsrGraph.fromEdges(new int[0], new int[0], 0);
+        GraphFile.write(g, file.getPath());
+        assertSameGraph(g, GraphFile.map(file.getPath()));
+        assertSameGraph(g, GraphFile.load(file.getPath()));
+    }
+
+    public void testRoundTrip() throws IOException
+    {
+        //dense ids and sparse ids
+        for(int idRange: new int[]{100, 100000})
+        {
+            File file = tempFile();
+            CsrGraph g = randomGraph(100, 3000, idRange);
+            GraphFile.write(g, file.getPath());
+            assertSameGraph(g, GraphFile.map(file.getPath()));
+            assertSameGraph(g, GraphFile.load(file.getPath()));
+        }
+    }
+
+    public void testWindows() throws IOException
+    {
+        //sections longer than a window are split in more mappings, small
+        //windows exercise the same code of sections over 2^29 ints
+        for(int window: new int[]{1, 16, 64})
+        {
+            File file = tempFile();
+            CsrGraph g = randomGraph(100, 3000, 1000);
+            GraphFile.write(g, file.getPath());
+            assertSameGraph(g, GraphFile.map(file.getPath(), window));
+            CsrGraph symmetric = CsrGraph.fromUndirectedEdges(new int[]{1, 2, 3}, new int[]{2, 3, 1}, 3);
+            GraphFile.write(symmetric, file.getPath());
+            BufferGraph mapped = GraphFile.map(file.getPath(), window);
+            assertTrue(mapped.isSymmetric());
+            assertSameGraph(symmetric, mapped);
+        }
+        try
+        {
+            GraphFile.map(tempFile().getPath(), 3);
+            fail("windows must be a power of 2");
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+    }
+
+    public void testMappedIndexOfMissingIds() throws IOException
+    {
+        File file = tempFile();
+        CsrGraph g = CsrGraph.fromEdges(new int[]{5, 10}, new int[]{10, 20}, 2);
+        GraphFile.write(g, file.getPath());
+        BufferGraph mapped = GraphFile.map(file.getPath());
+        assertEquals(mapped.index(5), 0);
+        assertEquals(mapped.index(20), 2);
+        assertEquals(mapped.index(0), -1);
+        assertEquals(mapped.index(11), -1);
+        assertEquals(mapped.index(100), -1);
+    }
+
+    public void testConvertCsv() throws IOException
+    {
+        File csv = File.createTempFile("graph", ".csv");
+        csv.deleteOnExit();
+        try(PrintWriter writer = new PrintWriter(csv))
+        {
+            writer.println("1,2");
+            writer.println("4,5");
+            writer.println("7,2");
+            writer.println("1,7");
+        }
+        File file = tempFile();
+        GraphFile.convertCsv(csv.getPath(), file.getPath());
+        IntGraph g = GraphFile.map(file.getPath());
+        assertEquals(g.vertices(), 5);
+        assertEquals(g.edges(), 4);
+        assertEquals(g.outDegree(g.index(1)), 2);
+        assertEquals(g.inDegree(g.index(2)), 2);
+        assertEquals(g.id(g.successor(g.index(1), 0)), 2);
+        assertEquals(g.id(g.successor(g.index(1), 1)), 7);
+        assertSameGraph(GraphFile.readCsv(csv.getPath()), g);
+    }
+
+    public void testInvalidFiles() throws IOException
+    {
+        File file = tempFile();
+        GraphFile.write(randomGraph(10, 20, 10), file.getPath());
+
+        //truncated file
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.setLength(raf.length() - 4);
+        }
+        try
+        {
+            GraphFile.map(file.getPath());
+            fail("truncated file must be rejected");
+        }
+        catch(IOException e)
+        {
+        }
+
+        //wrong magic
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.writeInt(0);
+        }
+        try
+        {
+            GraphFile.load(file.getPath());
+            fail("wrong magic number must be rejected");
+        }
+        catch(IOException e)
+        {
+        }
+    }
+
+    public void testSymmetricGraph() throws IOException
+    {
+        int edges = 3000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(500);
+            targets[i] = random.nextInt(500);
+        }
+        CsrGraph g = CsrGraph.fromUndirectedEdges(sources, targets, edges);
+        File file = tempFile();
+        GraphFile.write(g, file.getPath());
+        BufferGraph mapped = GraphFile.map(file.getPath());
+        CsrGraph loaded = GraphFile.load(file.getPath());
+        assertTrue(mapped.isSymmetric());
+        assertTrue(loaded.isSymmetric());
+        assertSameGraph(g, mapped);
+        assertSameGraph(g, loaded);
+
+        //only one copy of the adjacency is written
+        assertEquals(file.length(), (GraphFile.HEADER_INTS + g.vertices() * 2 + 1 + g.edges()) * 4L);
+    }
+
+    public void testWeightedGraph() throws IOException
+    {
+        int edges = 3000;
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(300);
+            targets[i] = random.nextInt(300);
+            weights[i] = 0.5 + random.nextDouble();
+        }
+        CsrGraph weighted = CsrGraph.fromWeightedEdges(sources, targets, weights, edges);
+        CsrGraph symmetric = CsrGraph.symmetric(new int[]{0, 1, 2}, new int[]{0, 2, 3, 4}, 
+                new int[]{1, 2, 0, 0}, new double[]{2, 3, 2, 3});
+        for(CsrGraph g: new CsrGraph[]{weighted, symmetric})
+        {
+            File file = tempFile();
+            GraphFile.write(g, file.getPath());
+            for(IntGraph read: new IntGraph[]{GraphFile.map(file.getPath()), GraphFile.map(file.getPath(), 1),
+                    GraphFile.map(file.getPath(), 16), GraphFile.load(file.getPath())})
+            {
+                assertTrue(read.isWeighted());
+                assertEquals(g.isSymmetric(), read.isSymmetric());
+                assertSameGraph(g, read);
+                double[] expected = new double[Math.max(g.maxOutDegree(), g.maxInDegree())];
+                double[] actual = new double[expected.length];
+                for(int v = 0; v < g.vertices(); v++)
+                {
+                    assertEquals(g.outWeight(v), read.outWeight(v), 0);
+                    int degree = g.successorWeights(v, expected);
+                    read.successorWeights(v, actual);
+                    for(int i = 0; i < degree; i++)
+                        assertEquals(expected[i], actual[i], 0);
+                    degree = g.predecessorWeights(v, expected);
+                    read.predecessorWeights(v, actual);
+                    for(int i = 0; i < degree; i++)
+                        assertEquals(expected[i], actual[i], 0);
+                }
+            }
+        }
+    }
+}
@@ -6,12 +6,15 @@
 
 package utilityTesting;
 
+import graph.CsrGraph;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import java.util.Random;
 import junit.framework.TestCase;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.DirectedPseudograph;
+import utility.BudgetPlan;
 import utility.Budgets;
+import utility.ScoreSlabs;
 
 public class BudgetsTest extends TestCase
 {
@@ -228,4 +231,144 @@ public class BudgetsTest extends TestCase
                     assertTrue(map.get(node2) >= map.get(node1));
             }
     }
+    
+    private CsrGraph randomGraph(final int edges, final int idRange)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            sources[i] = random.nextInt(idRange);
+            targets[i] = random.nextInt(idRange);
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+    
+    public void testPlanFitsMemory()
+    {
+        CsrGraph g = randomGraph(5000, 1000);
+        for(boolean floats: new boolean[]{false, true})
+        {
+            long bytes = 5000000;
+            BudgetPlan plan = Budgets.plan(g, 10, bytes, floats, 2);
+            assertEquals(bytes, plan.getTargetBytes());
+            assertTrue(plan.getBytes() <= bytes);
+            assertTrue(plan.getLargeTop() >= 10);
+            //same budgets GuerrieriRankV2 computes from the largeTop
+            int[] budgets = Budgets.degreeBasedBudget(g, 10, plan.getLargeTop());
+            long total = 0;
+            for(int v = 0; v < g.vertices(); v++)
+            {
+                assertEquals(budgets[v], plan.getBudgets()[v]);
+                total += budgets[v];
+            }
+            assertEquals(ScoreSlabs.bytesFor(total, g.vertices(), floats), plan.getStoreBytes());
+            new ScoreSlabs(plan.getBudgets(), floats);
+            //one more unit of average budget for each node wouldn't fit
+            assertTrue(plan.getOtherBytes() + ScoreSlabs.bytesFor((long) (plan.getLargeTop() + 1) * g.vertices(), 
+                    g.vertices(), floats) > bytes);
+            assertNotNull(plan.toString());
+        }
+        //floats fit a larger budget in the same memory
+        assertTrue(Budgets.plan(g, 10, 5000000, true, 1).getLargeTop() 
+                > Budgets.plan(g, 10, 5000000, false, 1).getLargeTop());
+    }
+    
+    public void testPlanReallocating()
+    {
+        CsrGraph g = randomGraph(5000, 1000);
+        int n = g.vertices();
+        long bytes = 5000000;
+        BudgetPlan fixed = Budgets.plan(g, 10, bytes, false, 2);
+        BudgetPlan moving = Budgets.plan(g, 10, bytes, false, 2, true);
+        assertTrue(moving.getBytes() <= bytes);
+        //two stores and the reallocation arrays leave room for a smaller budget
+        assertTrue(moving.getLargeTop() < fixed.getLargeTop());
+        assertEquals(fixed.getOtherBytes() + (long) n * Budgets.REALLOCATION_BYTES, moving.getOtherBytes());
+        long total = 0;
+        for(int budget: moving.getBudgets())
+            total += budget;
+        assertEquals(2 * ScoreSlabs.bytesFor(total, n, false), moving.getStoreBytes());
+        //one more unit of average budget for each node wouldn't fit
+        assertTrue(moving.getOtherBytes() + 2 * ScoreSlabs.bytesFor((long) (moving.getLargeTop() + 1) * n, 
+                n, false) > bytes);
+    }
+    
+    public void testPlanLimits()
+    {
+        CsrGraph g = randomGraph(500, 100);
+        //no more scores than vertices for each node
+        assertEquals(g.vertices(), Budgets.plan(g, 10, 1L << 30, false, 1).getLargeTop());
+        try
+        {
+            Budgets.plan(g, 10, 1000, false, 1);
+            fail("not enough memory for the min budget");
+        }
+        catch(IllegalArgumentException e){}
+        try
+        {
+            Budgets.plan(g, 0, 1L << 30, false, 1);
+            fail("min must be positive");
+        }
+        catch(IllegalArgumentException e){}
+        assertTrue(Budgets.availableHeap(0.5) > 0);
+        assertTrue(Budgets.availableHeap(1) <= Runtime.getRuntime().maxMemory());
+        try
+        {
+            Budgets.availableHeap(0);
+            fail("fraction must be positive");
+        }
+        catch(IllegalArgumentException e){}
+    }
+    
+    public void testReallocate()
+    {
+        int[] budgets = {40, 10, 30, 30, 50, 1};
+        int[] sizes = {3, 10, 30, 30, 50, 1};
+        double[] truncated = {0, 0, 0.1, 0.01, 0.2, 0};
+        int[] res = Budgets.reallocate(budgets, sizes, truncated, 10, 1000);
+        int before = 0, after = 0;
+        for(int v = 0; v < budgets.length; v++)
+        {
+            before += budgets[v];
+            after += res[v];
+        }
+        assertEquals(before, after);
+        //nodes losing nothing keep what they use, under min they don't grow
+        assertEquals(10, res[0]);
+        assertEquals(10, res[1]);
+        assertEquals(1, res[5]);
+        //what they free goes mostly to the nodes losing more
+        assertTrue(res[3] >= 30);
+        assertTrue(res[2] - 30 > res[3] - 30);
+        assertTrue(res[4] - 50 > res[2] - 30);
+        
+        //a node losing little would get less than it holds, it keeps its scores
+        res = Budgets.reallocate(new int[]{100, 20}, new int[]{100, 20}, new double[]{0.001, 0.5}, 5, 1000);
+        assertEquals(100, res[0]);
+        assertEquals(20, res[1]);
+        res = Budgets.reallocate(new int[]{100, 20, 40}, new int[]{100, 20, 8}, new double[]{0.001, 0.5, 0}, 5, 1000);
+        //with budget to share it gets some on top
+        assertEquals(11, res[2]);
+        assertEquals(112, res[0]);
+        assertEquals(37, res[1]);
+        
+        //unused budget goes to the nodes losing something
+        res = Budgets.reallocate(new int[]{40, 20}, new int[]{4, 20}, new double[]{0, 0.3}, 5, 1000);
+        assertEquals(6, res[0]);
+        assertEquals(54, res[1]);
+        res = Budgets.reallocate(new int[]{40, 20}, new int[]{4, 20}, new double[]{0, 0.3}, 5, 30);
+        assertEquals(30, res[1]);
+        
+        //nobody losing anything, nothing changes
+        res = Budgets.reallocate(new int[]{40, 20}, new int[]{4, 20}, new double[]{0, 0}, 5, 1000);
+        assertEquals(40, res[0]);
+        assertEquals(20, res[1]);
+        try
+        {
+            Budgets.reallocate(new int[]{40, 20}, new int[]{4}, new double[]{0, 0}, 5, 1000);
+            fail("arrays of different nodes");
+        }
+        catch(IllegalArgumentException e){}
+    }
 }
@@ -333,4 +333,42 @@ public class NodeScoresTest extends TestCase
         }
         assertEquals(scores1.norm1(scores2), 9900d);
     }
+    
+    public void testTopNTiesGoToLowestKeys()
+    {
+        NodeScores scores = new NodeScores();
+        //key 0 is stored apart from the others in the hash table
+        for(int i = 0; i < 200; i++)
+            scores.put(i, i % 4 == 0? 2 : 1);
+        scores.keepTop(60);
+        assertEquals(scores.size(), 60);
+        for(int i = 0; i < 200; i += 4)
+            assertEquals(scores.get(i), 2d);
+        //the 10 remaining are the lowest keys with value 1
+        for(int i = 1; i < 14; i++)
+            if(i % 4 != 0)
+                assertEquals(scores.get(i), 1d);
+        assertFalse(scores.containsKey(14));
+    }
+
+    public void testTopNWithScratch()
+    {
+        //the same scratch reused on maps of growing and shrinking sizes gives
+        //the same top of keepTop without scratch
+        NodeScores.Scratch scratch = new NodeScores.Scratch();
+        for(int size: new int[]{10, 500, 3, 200})
+        {
+            NodeScores expected = new NodeScores();
+            NodeScores actual = new NodeScores();
+            for(int i = 0; i < size; i++)
+            {
+                expected.put(i, (i * 7919) % 13);
+                actual.put(i, (i * 7919) % 13);
+            }
+            expected.keepTop(5);
+            actual.keepTop(5, scratch);
+            assertEquals(expected, actual);
+            assertEquals(Math.min(size, 5), actual.size());
+        }
+    }
 }
@@ -0,0 +1,92 @@
+package utilityTesting;
+
+import graph.CsrGraph;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import junit.framework.TestCase;
+import utility.ParallelSweep;
+
+public class ParallelSweepTest extends TestCase
+{
+    Random random = new Random();
+
+    private CsrGraph randomGraph(final int vertices, final int edges)
+    {
+        int[] sources = new int[edges];
+        int[] targets = new int[edges];
+        for(int i = 0; i < edges; i++)
+        {
+            //skewed degrees, so that chunks of the same size would be unbalanced
+            sources[i] = random.nextInt(1 + random.nextInt(vertices));
+            targets[i] = random.nextInt(vertices);
+        }
+        return CsrGraph.fromEdges(sources, targets, edges);
+    }
+
+    public void testInvalidParallelism()
+    {
+        try
+        {
+            new ParallelSweep<>(0, () -> null);
+            fail("parallelism must be positive");
+        }
+        catch(IllegalArgumentException e){}
+    }
+
+    public void testEveryVertexOnce()
+    {
+        CsrGraph g = randomGraph(5000, 30000);
+        int[] vertices = new int[g.vertices()];
+        for(int v = 0; v < vertices.length; v++)
+            vertices[v] = vertices.length - 1 - v;
+        for(int parallelism = 1; parallelism <= 8; parallelism *= 2)
+        {
+            AtomicIntegerArray updates = new AtomicIntegerArray(g.vertices());
+            try(ParallelSweep<int[]> sweep = new ParallelSweep<>(parallelism, () -> new int[1]))
+            {
+                assertEquals(parallelism, sweep.getParallelism());
+                int from = 100, to = vertices.length - 50;
+                double max = sweep.run(g, vertices, from, to, (v, scratch) ->
+                {
+                    updates.incrementAndGet(v);
+                    //scratch objects are never shared between threads
+                    scratch[0]++;
+                    int count = scratch[0];
+                    Thread.yield();
+                    assertEquals(count, scratch[0]);
+                    return v;
+                });
+                for(int k = 0; k < vertices.length; k++)
+                    assertEquals(k >= from && k < to? 1 : 0, updates.get(vertices[k]));
+                assertEquals(vertices[from], max, 0);
+                assertEquals(0, sweep.run(g, vertices, 7, 7, (v, scratch) -> 1), 0);
+            }
+        }
+    }
+
+    public void testScratchReused()
+    {
+        //scratch objects go back to the sweep after each chunk, so runs never
+        //create more of them than threads
+        CsrGraph g = randomGraph(5000, 30000);
+        int[] vertices = new int[g.vertices()];
+        for(int v = 0; v < vertices.length; v++)
+            vertices[v] = v;
+        for(int parallelism: new int[]{1, 3, 8})
+        {
+            AtomicInteger created = new AtomicInteger();
+            try(ParallelSweep<int[]> sweep = new ParallelSweep<>(parallelism, () ->
+            {
+                created.incrementAndGet();
+                return new int[1];
+            }))
+            {
+                for(int run = 0; run < 10; run++)
+                    sweep.run(g, vertices, 0, vertices.length, (v, scratch) -> scratch[0]++);
+            }
+            assertTrue(created.get() >= 1);
+            assertTrue(created.get() <= parallelism);
+        }
+    }
+}
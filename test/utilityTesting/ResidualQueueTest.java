@@ -0,0 +1,52 @@
+package utilityTesting;
+
+import junit.framework.TestCase;
+import utility.ResidualQueue;
+
+public class ResidualQueueTest extends TestCase
+{
+    public void testThreshold()
+    {
+        ResidualQueue queue = new ResidualQueue(10, 0.1);
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.push(3, 0.05));
+        assertEquals(-1, queue.poll());
+        assertTrue(queue.isEmpty());
+        //residuals add up
+        assertTrue(queue.push(3, 0.05));
+        assertEquals(0.1, queue.getResidual(3), 1e-12);
+        assertFalse(queue.isEmpty());
+        //already queued
+        assertFalse(queue.push(3, 1));
+        assertEquals(3, queue.poll());
+        assertEquals(0, queue.getResidual(3), 0);
+        assertEquals(-1, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testHighestFirst()
+    {
+        ResidualQueue queue = new ResidualQueue(10, 0.001);
+        queue.push(0, 0.01);
+        queue.push(1, 1);
+        queue.push(2, 0.1);
+        queue.push(3, 0.002);
+        int[] expected = {1, 2, 0, 3};
+        for(int v: expected)
+            assertEquals(v, queue.poll());
+        assertEquals(-1, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testPushAfterPoll()
+    {
+        ResidualQueue queue = new ResidualQueue(10, 0.1);
+        queue.push(5, 1);
+        assertEquals(5, queue.poll());
+        //residual pushed once polled queues the vertex again, from 0
+        assertFalse(queue.push(5, 0.05));
+        assertTrue(queue.push(5, 0.05));
+        assertEquals(5, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+}
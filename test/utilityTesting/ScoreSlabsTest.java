@@ -0,0 +1,211 @@
+package utilityTesting;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import utility.NodeScores;
+import utility.ScoreSlabs;
+import utility.SparseAccumulator;
+
+public class ScoreSlabsTest extends TestCase
+{
+    Random random = new Random();
+
+    private NodeScores randomScores(final int size, final int keyRange)
+    {
+        NodeScores res = new NodeScores();
+        while(res.size() < size)
+            res.put(random.nextInt(keyRange), random.nextDouble());
+        return res;
+    }
+
+    private SparseAccumulator accumulator(final NodeScores map, final int keyRange)
+    {
+        SparseAccumulator res = new SparseAccumulator(keyRange);
+        for(int key: map.keySet())
+            res.addTo(key, map.get(key));
+        return res;
+    }
+
+    private NodeScores current(final ScoreSlabs slabs, final int v)
+    {
+        NodeScores res = new NodeScores();
+        for(int i = 0; i < slabs.size(v); i++)
+            res.put(slabs.key(v, i), slabs.value(v, i));
+        return res;
+    }
+
+    public void testInvalidCapacities()
+    {
+        try
+        {
+            new ScoreSlabs(new int[]{3, 0, 2});
+            fail("capacities must be positive");
+        }
+        catch(IllegalArgumentException e){}
+        ScoreSlabs slabs = new ScoreSlabs(2, 3);
+        try
+        {
+            slabs.set(0, accumulator(randomScores(4, 100), 100));
+            fail("scores can't be more than the capacity");
+        }
+        catch(IllegalArgumentException e){}
+    }
+
+    public void testDoubleBuffering()
+    {
+        ScoreSlabs slabs = new ScoreSlabs(new int[]{5, 1, 8});
+        assertEquals(3, slabs.getVertices());
+        assertEquals(8, slabs.getCapacity(2));
+        NodeScores first = randomScores(8, 100);
+        NodeScores second = randomScores(3, 100);
+        slabs.set(2, accumulator(first, 100));
+        slabs.setNext(2, accumulator(second, 100));
+        //neighbours are untouched
+        assertEquals(0, slabs.size(1));
+        assertEquals(first, current(slabs, 2));
+        slabs.swap(2);
+        assertEquals(second, current(slabs, 2));
+        slabs.swapAll();
+        assertEquals(first, current(slabs, 2));
+        assertEquals(0, slabs.size(0));
+    }
+
+    public void testAddTo()
+    {
+        ScoreSlabs slabs = new ScoreSlabs(4, 30);
+        NodeScores scores = randomScores(30, 50);
+        slabs.set(1, accumulator(scores, 50));
+        NodeScores map = randomScores(10, 50);
+        NodeScores expected = new NodeScores(map);
+        expected.add(scores, 0.5);
+        SparseAccumulator sum = accumulator(map, 50);
+        slabs.addTo(1, sum, 0.5);
+        assertEquals(expected.size(), sum.size());
+        for(int key: expected.keySet())
+            assertEquals(expected.get(key), sum.get(key), 0.0000001);
+    }
+
+    public void testNorm1()
+    {
+        ScoreSlabs slabs = new ScoreSlabs(1, 30);
+        for(int t = 0; t < 20; t++)
+        {
+            NodeScores scores = randomScores(random.nextInt(31), 40);
+            NodeScores other = randomScores(random.nextInt(31), 40);
+            slabs.set(0, accumulator(scores, 40));
+            assertEquals(other.norm1(scores), slabs.norm1(0, accumulator(other, 40)), 0.0000001);
+        }
+    }
+
+    public void testToNodeScores()
+    {
+        ScoreSlabs slabs = new ScoreSlabs(3, 20);
+        NodeScores[] expected = new NodeScores[3];
+        for(int v = 0; v < 3; v++)
+        {
+            expected[v] = randomScores(20, 100);
+            slabs.setNext(v, accumulator(expected[v], 100));
+        }
+        slabs.swapAll();
+        NodeScores[] maps = slabs.toNodeScores(5);
+        for(int v = 0; v < 3; v++)
+        {
+            expected[v].keepTop(5);
+            assertEquals(expected[v], maps[v]);
+        }
+    }
+
+    public void testFloats()
+    {
+        ScoreSlabs doubles = new ScoreSlabs(2, 10);
+        ScoreSlabs floats = new ScoreSlabs(2, 10, true);
+        assertFalse(doubles.isFloats());
+        assertTrue(floats.isFloats());
+        assertTrue(ScoreSlabs.bytesPerScore(true) < ScoreSlabs.bytesPerScore(false));
+        NodeScores map = randomScores(10, 100);
+        doubles.set(0, accumulator(map, 100));
+        floats.set(0, accumulator(map, 100));
+        //values are rounded to floats, but read and summed as doubles
+        NodeScores stored = current(floats, 0);
+        for(int key: map.keySet())
+            assertEquals((float) map.get(key), stored.get(key), 0);
+        SparseAccumulator fromDoubles = new SparseAccumulator(100);
+        SparseAccumulator fromFloats = new SparseAccumulator(100);
+        doubles.addTo(0, fromDoubles, 0.5);
+        floats.addTo(0, fromFloats, 0.5);
+        for(int key: map.keySet())
+            assertEquals(fromDoubles.get(key), fromFloats.get(key), 1e-7);
+        assertEquals(0, floats.norm1(0, accumulator(stored, 100)), 0);
+        assertEquals(0, doubles.norm1(0, accumulator(map, 100)), 0);
+        NodeScores top = floats.toNodeScores(4)[0];
+        assertEquals(4, top.size());
+    }
+    
+    public void testResize()
+    {
+        ScoreSlabs slabs = new ScoreSlabs(new int[]{5, 8}, true);
+        NodeScores first = randomScores(5, 100);
+        NodeScores second = randomScores(8, 100);
+        slabs.set(0, accumulator(first, 100));
+        slabs.set(1, accumulator(second, 100));
+        ScoreSlabs resized = slabs.resize(new int[]{10, 3}, new SparseAccumulator(100));
+        assertTrue(resized.isFloats());
+        assertEquals(10, resized.getCapacity(0));
+        assertEquals(3, resized.getCapacity(1));
+        assertEquals(current(slabs, 0), current(resized, 0));
+        //the top scores of the nodes which don't fit
+        NodeScores top = current(slabs, 1);
+        top.keepTop(3);
+        assertEquals(top, current(resized, 1));
+        try
+        {
+            slabs.resize(new int[]{3}, new SparseAccumulator(100));
+            fail("capacities of a different number of nodes");
+        }
+        catch(IllegalArgumentException e){}
+    }
+
+    public void testSumsAndRanges()
+    {
+        for(boolean floats: new boolean[]{false, true})
+        {
+            ScoreSlabs slabs = new ScoreSlabs(new int[]{5, 20}, floats);
+            SparseAccumulator scores = accumulator(randomScores(20, 50), 50);
+            scores.sort();
+            slabs.set(1, scores);
+            double sum = 0;
+            for(int i = 0; i < slabs.size(1); i++)
+            {
+                //stored in the order of the accumulator
+                assertEquals(scores.key(i), slabs.key(1, i));
+                sum += slabs.value(1, i);
+            }
+            assertEquals(sum, slabs.sum(1), 1e-12);
+            assertEquals(0, slabs.sum(0), 0);
+            slabs.setNext(1, accumulator(randomScores(3, 50), 50));
+            assertEquals(sum, slabs.sum(1), 1e-12);
+
+            //adding two ranges is the same as adding everything
+            SparseAccumulator expected = new SparseAccumulator(50);
+            slabs.addTo(1, expected, 2);
+            SparseAccumulator actual = new SparseAccumulator(50);
+            slabs.addTo(1, actual, 2, 0, 7);
+            assertEquals(7, actual.size());
+            slabs.addTo(1, actual, 2, 7, slabs.size(1));
+            assertEquals(expected.size(), actual.size());
+            for(int i = 0; i < expected.size(); i++)
+                assertEquals(expected.get(expected.key(i)), actual.get(expected.key(i)), 0);
+            
+            //the rest of the scores only goes to the keys already there
+            SparseAccumulator partial = new SparseAccumulator(50);
+            slabs.addTo(1, partial, 2, 0, 7);
+            int later = slabs.key(1, 10);
+            partial.addTo(later, 1);
+            slabs.addToKeys(1, partial, 2, 7, slabs.size(1));
+            assertEquals(8, partial.size());
+            assertEquals(1 + expected.get(later), partial.get(later), 1e-12);
+            for(int i = 0; i < 7; i++)
+                assertEquals(expected.get(slabs.key(1, i)), partial.get(slabs.key(1, i)), 0);
+        }
+    }
+}
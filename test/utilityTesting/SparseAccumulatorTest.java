@@ -0,0 +1,138 @@
+package utilityTesting;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import utility.NodeScores;
+import utility.SparseAccumulator;
+
+public class SparseAccumulatorTest extends TestCase
+{
+    Random random = new Random();
+
+    private void assertSame(final NodeScores expected, final SparseAccumulator actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        double sum = 0;
+        for(int key: expected.keySet())
+        {
+            assertTrue(actual.containsKey(key));
+            assertEquals(expected.get(key), actual.get(key), 0.0000001);
+            sum += expected.get(key);
+        }
+        assertEquals(sum, actual.sum(), 0.0000001);
+        for(int i = 0; i < actual.size(); i++)
+            assertTrue(expected.containsKey(actual.key(i)));
+    }
+
+    public void testAddTo()
+    {
+        SparseAccumulator accumulator = new SparseAccumulator(100);
+        NodeScores expected = new NodeScores();
+        for(int round = 0; round < 10; round++)
+        {
+            accumulator.clear();
+            expected.clear();
+            for(int i = 0; i < 200; i++)
+            {
+                int key = random.nextInt(100);
+                double value = random.nextDouble();
+                accumulator.addTo(key, value);
+                expected.addTo(key, value);
+            }
+            assertSame(expected, accumulator);
+        }
+        accumulator.clear();
+        assertEquals(0, accumulator.size());
+        assertFalse(accumulator.containsKey(5));
+        assertEquals(0, accumulator.get(5), 0);
+    }
+
+    public void testKeepTop()
+    {
+        SparseAccumulator accumulator = new SparseAccumulator(500);
+        for(int round = 0; round < 20; round++)
+        {
+            accumulator.clear();
+            NodeScores expected = new NodeScores();
+            for(int i = 0; i < 300; i++)
+            {
+                int key = random.nextInt(500);
+                //few distinct values, plenty of ties
+                double value = random.nextInt(5);
+                accumulator.addTo(key, value);
+                expected.addTo(key, value);
+            }
+            int top = random.nextInt(expected.size() + 2);
+            expected.keepTop(top);
+            double before = accumulator.sum();
+            double removed = accumulator.keepTop(top);
+            assertSame(expected, accumulator);
+            assertEquals(before - accumulator.sum(), removed, 1e-9);
+            //removed keys start again from 0
+            for(int key = 0; key < 500; key++)
+                if(!expected.containsKey(key))
+                {
+                    accumulator.addTo(key, 1);
+                    assertEquals(1, accumulator.get(key), 0);
+                    break;
+                }
+        }
+    }
+
+    public void testGap()
+    {
+        SparseAccumulator accumulator = new SparseAccumulator(10);
+        try
+        {
+            accumulator.gap(0);
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        assertEquals(0, accumulator.gap(3), 0);
+        accumulator.addTo(4, 0.5);
+        accumulator.addTo(2, 0.25);
+        accumulator.addTo(7, 0.1);
+        accumulator.addTo(1, 0.2);
+        assertEquals(0.25, accumulator.gap(1), 1e-12);
+        assertEquals(0.05, accumulator.gap(2), 1e-12);
+        assertEquals(0.1, accumulator.gap(3), 1e-12);
+        //the missing values count as 0
+        assertEquals(0.1, accumulator.gap(4), 1e-12);
+        assertEquals(0.1, accumulator.gap(10), 1e-12);
+        //the values are still there
+        assertEquals(4, accumulator.size());
+        assertEquals(1.05, accumulator.sum(), 1e-12);
+    }
+
+    public void testSortAndKth()
+    {
+        SparseAccumulator accumulator = new SparseAccumulator(100);
+        try
+        {
+            accumulator.kth(0);
+            fail();
+        }
+        catch(IllegalArgumentException e)
+        {
+        }
+        for(int i = 0; i < 60; i++)
+            accumulator.addTo(random.nextInt(100), random.nextInt(20));
+        double[] expected = new double[accumulator.size()];
+        for(int i = 0; i < expected.length; i++)
+            expected[i] = accumulator.get(accumulator.key(i));
+        java.util.Arrays.sort(expected);
+        for(int k = 1; k <= expected.length; k++)
+            assertEquals(expected[expected.length - k], accumulator.kth(k), 0);
+        assertEquals(0, accumulator.kth(expected.length + 1), 0);
+        accumulator.sort();
+        for(int i = 1; i < accumulator.size(); i++)
+        {
+            double previous = accumulator.get(accumulator.key(i - 1));
+            double value = accumulator.get(accumulator.key(i));
+            assertTrue(previous > value || (previous == value && accumulator.key(i - 1) < accumulator.key(i)));
+        }
+        assertEquals(expected.length, accumulator.size());
+    }
+}
@@ -0,0 +1,118 @@
+package utilityTesting;
+
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+import utility.TopSelection;
+
+public class TopSelectionTest extends TestCase
+{
+    Random random = new Random();
+
+    //keys of the top scores, checked against a full sort
+    private void assertTop(final int[] keys, final double[] values, final int top)
+    {
+        int length = keys.length;
+        Integer[] sorted = new Integer[length];
+        for(int i = 0; i < length; i++)
+            sorted[i] = i;
+        Arrays.sort(sorted, (a, b) -> values[a] != values[b]? Double.compare(values[b], values[a])
+                : Integer.compare(keys[a], keys[b]));
+        int[] expected = new int[Math.min(top, length)];
+        for(int i = 0; i < expected.length; i++)
+            expected[i] = keys[sorted[i]];
+
+        int[] selectedKeys = keys.clone();
+        double[] selectedValues = values.clone();
+        TopSelection.select(selectedKeys, selectedValues, length, top);
+        //same pairs, just moved
+        for(int i = 0; i < length; i++)
+            for(int j = 0; j < length; j++)
+                if(keys[j] == selectedKeys[i])
+                    assertEquals(values[j], selectedValues[i], 0);
+        int[] actual = Arrays.copyOf(selectedKeys, expected.length);
+        Arrays.sort(expected);
+        Arrays.sort(actual);
+        assertTrue(Arrays.equals(expected, actual));
+    }
+
+    private int[] distinctKeys(final int length)
+    {
+        int[] res = new int[length];
+        for(int i = 0; i < length; i++)
+            res[i] = i * 3 - length;
+        for(int i = length - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            int tmp = res[i];
+            res[i] = res[j];
+            res[j] = tmp;
+        }
+        return res;
+    }
+
+    public void testRandom()
+    {
+        for(int t = 0; t < 200; t++)
+        {
+            int length = random.nextInt(300);
+            double[] values = new double[length];
+            for(int i = 0; i < length; i++)
+                values[i] = random.nextDouble();
+            assertTop(distinctKeys(length), values, random.nextInt(length + 2));
+        }
+    }
+
+    public void testManyTies()
+    {
+        for(int t = 0; t < 200; t++)
+        {
+            int length = random.nextInt(300);
+            double[] values = new double[length];
+            for(int i = 0; i < length; i++)
+                values[i] = random.nextInt(3);
+            assertTop(distinctKeys(length), values, random.nextInt(length + 2));
+        }
+    }
+
+    public void testSortedInputs()
+    {
+        //worst cases for naive pivots
+        int length = 500;
+        int[] keys = new int[length];
+        double[] ascending = new double[length];
+        double[] descending = new double[length];
+        for(int i = 0; i < length; i++)
+        {
+            keys[i] = i;
+            ascending[i] = i;
+            descending[i] = length - i;
+        }
+        assertTop(keys, ascending, 30);
+        assertTop(keys, descending, 30);
+        assertTop(keys, new double[length], 250);
+    }
+
+    public void testSort()
+    {
+        for(int t = 0; t < 100; t++)
+        {
+            int length = random.nextInt(300);
+            int[] keys = distinctKeys(length);
+            double[] values = new double[length];
+            for(int i = 0; i < length; i++)
+                values[i] = random.nextInt(10);
+            int[] sortedKeys = keys.clone();
+            double[] sortedValues = values.clone();
+            TopSelection.sort(sortedKeys, sortedValues, length);
+            for(int i = 1; i < length; i++)
+                assertTrue(sortedValues[i - 1] > sortedValues[i]
+                        || (sortedValues[i - 1] == sortedValues[i] && sortedKeys[i - 1] < sortedKeys[i]));
+            //same pairs, just moved
+            for(int i = 0; i < length; i++)
+                for(int j = 0; j < length; j++)
+                    if(keys[j] == sortedKeys[i])
+                        assertEquals(values[j], sortedValues[i], 0);
+        }
+    }
+}